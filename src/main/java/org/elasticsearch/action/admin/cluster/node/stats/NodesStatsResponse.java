@@ -112,6 +112,9 @@ public class NodesStatsResponse extends NodesOperationResponse<NodeStats> implem
             if (nodeStats.getHttp() != null) {
                 nodeStats.getHttp().toXContent(builder, params);
             }
+            if (nodeStats.getDiscovery() != null) {
+                nodeStats.getDiscovery().toXContent(builder, params);
+            }
 
             builder.endObject();
         }
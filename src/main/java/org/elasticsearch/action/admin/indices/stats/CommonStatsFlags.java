@@ -187,7 +187,9 @@ public class CommonStatsFlags implements Streamable, Cloneable {
         IdCache("id_cache"),
         FieldData("fielddata"),
         Docs("docs"),
-        Warmer("warmer");
+        Warmer("warmer"),
+        Translog("translog"),
+        QueryCache("query_cache");
 
         private final String restName;
 
@@ -172,9 +172,15 @@ public class TransportIndicesStatsAction extends TransportBroadcastOperationActi
         if (request.request.warmer()) {
             stats.stats.warmer = indexShard.warmerStats();
         }
+        if (request.request.translog()) {
+            stats.stats.translog = indexShard.translogStats();
+        }
         if (request.request.filterCache()) {
             stats.stats.filterCache = indexShard.filterCacheStats();
         }
+        if (request.request.queryCache()) {
+            stats.stats.queryCache = indexShard.queryCacheStats();
+        }
         if (request.request.idCache()) {
             stats.stats.idCache = indexShard.idCacheStats();
         }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.bulk;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexResponse;
@@ -45,12 +46,18 @@ public class BulkItemResponse implements Streamable {
         private final String type;
         private final String id;
         private final String message;
+        private final boolean rejected;
 
         public Failure(String index, String type, String id, String message) {
+            this(index, type, id, message, false);
+        }
+
+        public Failure(String index, String type, String id, String message, boolean rejected) {
             this.index = index;
             this.type = type;
             this.id = id;
             this.message = message;
+            this.rejected = rejected;
         }
 
         /**
@@ -80,6 +87,13 @@ public class BulkItemResponse implements Streamable {
         public String getMessage() {
             return this.message;
         }
+
+        /**
+         * Whether the operation failed because the node was too busy to execute it, and can be retried later.
+         */
+        public boolean isRejected() {
+            return this.rejected;
+        }
     }
 
     private int id;
@@ -245,7 +259,15 @@ public class BulkItemResponse implements Streamable {
         }
 
         if (in.readBoolean()) {
-            failure = new Failure(in.readString(), in.readString(), in.readString(), in.readString());
+            String fIndex = in.readString();
+            String fType = in.readString();
+            String fId = in.readString();
+            String fMessage = in.readString();
+            boolean rejected = false;
+            if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                rejected = in.readBoolean();
+            }
+            failure = new Failure(fIndex, fType, fId, fMessage, rejected);
         }
     }
 
@@ -273,6 +295,9 @@ public class BulkItemResponse implements Streamable {
             out.writeString(failure.getType());
             out.writeString(failure.getId());
             out.writeString(failure.getMessage());
+            if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                out.writeBoolean(failure.isRejected());
+            }
         }
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+
+/**
+ * A bulk listener that is also notified with the item responses of each shard request as soon as it is done,
+ * before the whole bulk response is available.
+ * <p/>
+ * The partial responses are only delivered when the listener is not threaded (see
+ * {@link BulkRequest#listenerThreaded(boolean)}), and are called on the thread the shard response arrives on, so
+ * implementations should not block.
+ */
+public interface BulkItemsListener extends ActionListener<BulkResponse> {
+
+    /**
+     * Called with the responses of the items of a shard request, which are not necessarily consecutive in the
+     * bulk request. Use {@link BulkItemResponse#getItemId()} to match them with the requests.
+     */
+    void onItems(BulkItemResponse[] items);
+}
@@ -20,8 +20,10 @@
 package org.elasticsearch.action.bulk;
 
 import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Client;
@@ -32,6 +34,7 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -42,6 +45,10 @@ import java.util.concurrent.atomic.AtomicLong;
  * requests allowed to be executed in parallel.
  * <p/>
  * In order to create a new bulk processor, use the {@link Builder}.
+ * <p/>
+ * In adaptive mode (see {@link Builder#setAdaptive(boolean)}), the number of actions per bulk and the number of
+ * concurrent requests are adjusted after each bulk based on its latency and on the items rejected by the bulk
+ * thread pool of the nodes, and rejected items are retried with an exponential backoff.
  */
 public class BulkProcessor {
 
@@ -66,6 +73,81 @@ public class BulkProcessor {
         void afterBulk(long executionId, BulkRequest request, Throwable failure);
     }
 
+    /**
+     * A listener that is also notified with the state of an adaptive bulk processor after each bulk execution.
+     */
+    public static interface AdaptiveListener extends Listener {
+
+        /**
+         * Callback after the bulk processor adapted to the execution of a bulk request.
+         */
+        void afterAdapt(long executionId, AdaptiveStats stats);
+    }
+
+    /**
+     * The state of an adaptive bulk processor.
+     */
+    public static class AdaptiveStats {
+
+        private final int bulkActions;
+        private final int concurrentRequests;
+        private final double throughput;
+        private final double rejectionRate;
+        private final long latencyInMillis;
+        private final long retries;
+
+        AdaptiveStats(int bulkActions, int concurrentRequests, double throughput, double rejectionRate, long latencyInMillis, long retries) {
+            this.bulkActions = bulkActions;
+            this.concurrentRequests = concurrentRequests;
+            this.throughput = throughput;
+            this.rejectionRate = rejectionRate;
+            this.latencyInMillis = latencyInMillis;
+            this.retries = retries;
+        }
+
+        /**
+         * The number of actions a bulk request is currently flushed at.
+         */
+        public int getBulkActions() {
+            return bulkActions;
+        }
+
+        /**
+         * The number of bulk requests currently allowed to execute concurrently.
+         */
+        public int getConcurrentRequests() {
+            return concurrentRequests;
+        }
+
+        /**
+         * The recent number of actions executed per second.
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        /**
+         * The recent ratio (between 0 and 1) of actions rejected by the nodes.
+         */
+        public double getRejectionRate() {
+            return rejectionRate;
+        }
+
+        /**
+         * The recent latency of the bulk requests.
+         */
+        public TimeValue getLatency() {
+            return new TimeValue(latencyInMillis);
+        }
+
+        /**
+         * The total number of actions that were retried after being rejected.
+         */
+        public long getRetries() {
+            return retries;
+        }
+    }
+
     /**
      * A builder used to create a build an instance of a bulk processor.
      */
@@ -80,6 +162,14 @@ public class BulkProcessor {
         private ByteSizeValue bulkSize = new ByteSizeValue(5, ByteSizeUnit.MB);
         private TimeValue flushInterval = null;
 
+        private boolean adaptive = false;
+        private int minBulkActions = 100;
+        private int maxBulkActions = 10000;
+        private int maxConcurrentRequests = -1;
+        private TimeValue targetLatency = TimeValue.timeValueSeconds(1);
+        private TimeValue backoff = TimeValue.timeValueMillis(100);
+        private int maxRetries = 5;
+
         /**
          * Creates a builder of bulk processor with the client to use and the listener that will be used
          * to be notified on the completion of bulk requests.
@@ -136,11 +226,69 @@ public class BulkProcessor {
             return this;
         }
 
+        /**
+         * Sets if the number of actions per bulk and the number of concurrent requests should adapt to the latency of
+         * the bulk requests and to the actions rejected by the nodes, starting from {@link #setBulkActions(int)} and
+         * {@link #setConcurrentRequests(int)}. Rejected actions are retried. Defaults to <tt>false</tt>.
+         */
+        public Builder setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        /**
+         * Sets the range the number of actions per bulk can adapt within. Defaults to <tt>100</tt> to
+         * <tt>10000</tt>.
+         */
+        public Builder setBulkActionsRange(int minBulkActions, int maxBulkActions) {
+            this.minBulkActions = minBulkActions;
+            this.maxBulkActions = maxBulkActions;
+            return this;
+        }
+
+        /**
+         * Sets the number of concurrent requests the adaptive mode can grow to. Defaults to 4 times the concurrent
+         * requests.
+         */
+        public Builder setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Sets the bulk latency the adaptive mode aims at. Bulks are made smaller when they take longer, and larger
+         * when they take less than half of it. Defaults to <tt>1s</tt>.
+         */
+        public Builder setTargetLatency(TimeValue targetLatency) {
+            this.targetLatency = targetLatency;
+            return this;
+        }
+
+        /**
+         * Sets the delay before retrying rejected actions in adaptive mode, doubled with every retry, and the
+         * maximum number of retries after which the rejections are reported. Defaults to <tt>100ms</tt> and
+         * <tt>5</tt>.
+         */
+        public Builder setBackoff(TimeValue backoff, int maxRetries) {
+            this.backoff = backoff;
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
         /**
          * Builds a new bulk processor.
          */
         public BulkProcessor build() {
-            return new BulkProcessor(client, listener, name, concurrentRequests, bulkActions, bulkSize, flushInterval);
+            if (!adaptive) {
+                return new BulkProcessor(client, listener, name, concurrentRequests, bulkActions, bulkSize, flushInterval, null);
+            }
+            int concurrentRequests = Math.max(1, this.concurrentRequests);
+            int maxConcurrentRequests = this.maxConcurrentRequests == -1 ? concurrentRequests * 4 : Math.max(concurrentRequests, this.maxConcurrentRequests);
+            int bulkActions = this.bulkActions == -1 ? 1000 : this.bulkActions;
+            bulkActions = Math.min(maxBulkActions, Math.max(minBulkActions, bulkActions));
+            Adaptive adaptive = new Adaptive(bulkActions, minBulkActions, maxBulkActions, concurrentRequests, maxConcurrentRequests,
+                    targetLatency, backoff, maxRetries);
+            return new BulkProcessor(client, listener, name, concurrentRequests, bulkActions, bulkSize, flushInterval, adaptive);
         }
     }
 
@@ -158,17 +306,19 @@ public class BulkProcessor {
     private final int bulkSize;
     private final TimeValue flushInterval;
 
-    private final Semaphore semaphore;
+    private final ResizableSemaphore semaphore;
     private final ScheduledThreadPoolExecutor scheduler;
     private final ScheduledFuture scheduledFuture;
 
     private final AtomicLong executionIdGen = new AtomicLong();
 
+    private final Adaptive adaptive;
+
     private BulkRequest bulkRequest;
 
     private volatile boolean closed = false;
 
-    BulkProcessor(Client client, Listener listener, @Nullable String name, int concurrentRequests, int bulkActions, ByteSizeValue bulkSize, @Nullable TimeValue flushInterval) {
+    BulkProcessor(Client client, Listener listener, @Nullable String name, int concurrentRequests, int bulkActions, ByteSizeValue bulkSize, @Nullable TimeValue flushInterval, @Nullable Adaptive adaptive) {
         this.client = client;
         this.listener = listener;
         this.name = name;
@@ -176,17 +326,23 @@ public class BulkProcessor {
         this.bulkActions = bulkActions;
         this.bulkSize = bulkSize.bytesAsInt();
 
-        this.semaphore = new Semaphore(concurrentRequests);
+        this.adaptive = adaptive;
+
+        this.semaphore = new ResizableSemaphore(concurrentRequests);
         this.bulkRequest = new BulkRequest();
 
         this.flushInterval = flushInterval;
-        if (flushInterval != null) {
+        if (flushInterval != null || adaptive != null) {
             this.scheduler = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1, EsExecutors.daemonThreadFactory(((InternalClient) client).settings(), (name != null ? "[" + name + "]" : "") + "bulk_processor"));
-            this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            // retries of rejected actions still execute once closed
+            this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(adaptive != null);
             this.scheduler.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
-            this.scheduledFuture = this.scheduler.scheduleWithFixedDelay(new Flush(), flushInterval.millis(), flushInterval.millis(), TimeUnit.MILLISECONDS);
         } else {
             this.scheduler = null;
+        }
+        if (flushInterval != null) {
+            this.scheduledFuture = this.scheduler.scheduleWithFixedDelay(new Flush(), flushInterval.millis(), flushInterval.millis(), TimeUnit.MILLISECONDS);
+        } else {
             this.scheduledFuture = null;
         }
     }
@@ -201,6 +357,8 @@ public class BulkProcessor {
         closed = true;
         if (this.scheduledFuture != null) {
             this.scheduledFuture.cancel(false);
+        }
+        if (this.scheduler != null) {
             this.scheduler.shutdown();
         }
         if (bulkRequest.numberOfActions() > 0) {
@@ -208,6 +366,14 @@ public class BulkProcessor {
         }
     }
 
+    /**
+     * The current state of the processor in adaptive mode, <tt>null</tt> otherwise.
+     */
+    @Nullable
+    public AdaptiveStats adaptiveStats() {
+        return adaptive == null ? null : adaptive.stats();
+    }
+
     /**
      * Adds an {@link IndexRequest} to the list of actions to execute. Follows the same behavior of {@link IndexRequest}
      * (for example, if no id is provided, one will be generated, or usage of the create flag).
@@ -283,6 +449,10 @@ public class BulkProcessor {
                 return;
             }
             listener.beforeBulk(executionId, bulkRequest);
+            if (adaptive != null) {
+                new AdaptiveExecution(executionId, bulkRequest).execute();
+                return;
+            }
             client.bulk(bulkRequest, new ActionListener<BulkResponse>() {
                 @Override
                 public void onResponse(BulkResponse response) {
@@ -306,6 +476,7 @@ public class BulkProcessor {
     }
 
     private boolean isOverTheLimit() {
+        int bulkActions = adaptive == null ? this.bulkActions : adaptive.bulkActions();
         if (bulkActions != -1 && bulkRequest.numberOfActions() > bulkActions) {
             return true;
         }
@@ -330,4 +501,237 @@ public class BulkProcessor {
             }
         }
     }
+
+    /**
+     * Executes a bulk request in adaptive mode, retrying its rejected actions with a backoff, and reporting the
+     * merged response once there is nothing left to retry.
+     */
+    class AdaptiveExecution implements ActionListener<BulkResponse> {
+
+        private final long executionId;
+        private final BulkRequest bulkRequest;
+        private final long startTime = System.currentTimeMillis();
+
+        // the responses, by position in the original request, once the first attempt is done
+        private BulkItemResponse[] items;
+
+        // the request of the current attempt, and the position of its actions in the original request
+        private BulkRequest attemptRequest;
+        private int[] attemptSlots;
+
+        private int retries;
+
+        AdaptiveExecution(long executionId, BulkRequest bulkRequest) {
+            this.executionId = executionId;
+            this.bulkRequest = bulkRequest;
+            this.attemptRequest = bulkRequest;
+        }
+
+        void execute() {
+            client.bulk(attemptRequest, this);
+        }
+
+        @Override
+        public void onResponse(BulkResponse response) {
+            BulkItemResponse[] responses = response.getItems();
+            if (items == null) {
+                items = new BulkItemResponse[bulkRequest.numberOfActions()];
+            }
+            BulkRequest retryRequest = null;
+            int[] retrySlots = null;
+            int rejected = 0;
+            for (int i = 0; i < responses.length; i++) {
+                BulkItemResponse item = responses[i];
+                int slot = attemptSlots == null ? i : attemptSlots[i];
+                if (item != null && slot != i) {
+                    item = item.isFailed() ? new BulkItemResponse(slot, item.getOpType(), item.getFailure()) :
+                            new BulkItemResponse(slot, item.getOpType(), item.<ActionResponse>getResponse());
+                }
+                items[slot] = item;
+                if (item != null && item.isFailed() && isRejection(item.getFailure())) {
+                    if (retries < adaptive.maxRetries) {
+                        if (retryRequest == null) {
+                            retryRequest = new BulkRequest();
+                            retrySlots = new int[responses.length];
+                        }
+                        retrySlots[rejected] = slot;
+                        retryRequest.add(attemptRequest.requests().get(i));
+                    }
+                    rejected++;
+                }
+            }
+            adapt(response.getTookInMillis(), responses.length, rejected);
+            if (retryRequest != null) {
+                retry(retryRequest, retrySlots);
+            } else {
+                done(new BulkResponse(items, System.currentTimeMillis() - startTime), null);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            if (ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) {
+                adapt(System.currentTimeMillis() - startTime, attemptRequest.numberOfActions(), attemptRequest.numberOfActions());
+                if (retries < adaptive.maxRetries) {
+                    retry(attemptRequest, attemptSlots);
+                    return;
+                }
+            }
+            if (items == null) {
+                done(null, e);
+                return;
+            }
+            // a retry failed, fail its actions only
+            for (int i = 0; i < attemptRequest.numberOfActions(); i++) {
+                int slot = attemptSlots[i];
+                items[slot] = TransportBulkAction.failures(new BulkItemRequest[]{new BulkItemRequest(slot, attemptRequest.requests().get(i))}, e)[0];
+            }
+            done(new BulkResponse(items, System.currentTimeMillis() - startTime), null);
+        }
+
+        private void retry(BulkRequest retryRequest, int[] retrySlots) {
+            attemptRequest = retryRequest;
+            attemptSlots = retrySlots;
+            long delay = adaptive.backoff.millis() << retries;
+            retries++;
+            adaptive.onRetry(retryRequest.numberOfActions());
+            try {
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        execute();
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                onFailure(e);
+            }
+        }
+
+        private void done(BulkResponse response, Throwable failure) {
+            try {
+                if (failure == null) {
+                    listener.afterBulk(executionId, bulkRequest, response);
+                } else {
+                    listener.afterBulk(executionId, bulkRequest, failure);
+                }
+                if (listener instanceof AdaptiveListener) {
+                    ((AdaptiveListener) listener).afterAdapt(executionId, adaptive.stats());
+                }
+            } finally {
+                semaphore.release();
+            }
+        }
+    }
+
+    private void adapt(long tookInMillis, int actions, int rejected) {
+        int delta = adaptive.onBulk(tookInMillis, actions, rejected);
+        if (delta > 0) {
+            semaphore.release(delta);
+        } else if (delta < 0) {
+            semaphore.reducePermits(-delta);
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the item failed because a node was too busy to execute it.
+     */
+    static boolean isRejection(BulkItemResponse.Failure failure) {
+        return failure != null && failure.isRejected();
+    }
+
+    /**
+     * The state of the adaptive mode: bulks are made smaller and fewer are sent concurrently when actions get
+     * rejected, smaller when they are slower than the target latency, and larger (then more concurrent) when they
+     * are well below it.
+     */
+    static class Adaptive {
+
+        // weight of the last bulk in the moving averages
+        private static final double ALPHA = 0.3;
+
+        private final int minBulkActions;
+        private final int maxBulkActions;
+        private final int maxConcurrentRequests;
+        private final TimeValue targetLatency;
+        final TimeValue backoff;
+        final int maxRetries;
+
+        private volatile int bulkActions;
+        private int concurrentRequests;
+
+        private double throughput;
+        private double rejectionRate;
+        private double latency;
+        private long retries;
+        private long lastBulkTime = -1;
+
+        Adaptive(int bulkActions, int minBulkActions, int maxBulkActions, int concurrentRequests, int maxConcurrentRequests,
+                 TimeValue targetLatency, TimeValue backoff, int maxRetries) {
+            this.bulkActions = bulkActions;
+            this.minBulkActions = minBulkActions;
+            this.maxBulkActions = maxBulkActions;
+            this.concurrentRequests = concurrentRequests;
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            this.targetLatency = targetLatency;
+            this.backoff = backoff;
+            this.maxRetries = maxRetries;
+        }
+
+        int bulkActions() {
+            return bulkActions;
+        }
+
+        /**
+         * Records the execution of a bulk, and returns by how much the number of concurrent requests changes.
+         */
+        synchronized int onBulk(long tookInMillis, int actions, int rejected) {
+            long now = System.currentTimeMillis();
+            if (lastBulkTime != -1) {
+                double rate = (actions - rejected) * 1000.0 / Math.max(1, now - lastBulkTime);
+                throughput = throughput == 0 ? rate : ALPHA * rate + (1 - ALPHA) * throughput;
+            }
+            lastBulkTime = now;
+            rejectionRate = ALPHA * (actions == 0 ? 0 : (double) rejected / actions) + (1 - ALPHA) * rejectionRate;
+            latency = latency == 0 ? tookInMillis : ALPHA * tookInMillis + (1 - ALPHA) * latency;
+
+            if (rejected > 0) {
+                bulkActions = Math.max(minBulkActions, bulkActions / 2);
+                if (concurrentRequests > 1) {
+                    concurrentRequests--;
+                    return -1;
+                }
+            } else if (tookInMillis > targetLatency.millis()) {
+                bulkActions = Math.max(minBulkActions, bulkActions * 3 / 4);
+            } else if (tookInMillis < targetLatency.millis() / 2 && actions >= bulkActions / 2) {
+                // only grow when bulks are actually filled up
+                if (bulkActions < maxBulkActions) {
+                    bulkActions = Math.min(maxBulkActions, bulkActions + Math.max(1, bulkActions / 4));
+                } else if (concurrentRequests < maxConcurrentRequests) {
+                    concurrentRequests++;
+                    return 1;
+                }
+            }
+            return 0;
+        }
+
+        synchronized void onRetry(int actions) {
+            retries += actions;
+        }
+
+        synchronized AdaptiveStats stats() {
+            return new AdaptiveStats(bulkActions, concurrentRequests, throughput, rejectionRate, (long) latency, retries);
+        }
+    }
+
+    static class ResizableSemaphore extends Semaphore {
+
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
 }
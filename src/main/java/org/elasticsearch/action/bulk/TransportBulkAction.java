@@ -39,9 +39,15 @@ import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -49,10 +55,8 @@ import org.elasticsearch.transport.BaseTransportRequestHandler;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportService;
 
-import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -71,6 +75,15 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
 
     private final TransportCreateIndexAction createIndexAction;
 
+    private final int maxInFlightShardRequests;
+
+    private final int maxPendingShardRequests;
+
+    private final int shardBatchSize;
+
+    // the shard requests executing and queued, per node holding the primary of their shard
+    private final ConcurrentMap<String, NodeShardRequests> shardRequestsPerNode = ConcurrentCollections.newConcurrentMap();
+
     @Inject
     public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService, ClusterService clusterService,
                                TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction) {
@@ -81,6 +94,11 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
 
         this.autoCreateIndex = new AutoCreateIndex(settings);
         this.allowIdGeneration = componentSettings.getAsBoolean("action.allow_id_generation", true);
+        this.maxInFlightShardRequests = componentSettings.getAsInt("max_in_flight_shard_requests", 4 * Runtime.getRuntime().availableProcessors());
+        this.maxPendingShardRequests = componentSettings.getAsInt("max_pending_shard_requests", 1000);
+        this.shardBatchSize = componentSettings.getAsInt("shard_batch_size", -1);
+        logger.debug("using max_in_flight_shard_requests [{}] per node, max_pending_shard_requests [{}], shard_batch_size [{}]",
+                maxInFlightShardRequests, maxPendingShardRequests, shardBatchSize);
 
         transportService.registerHandler(BulkAction.NAME, new TransportHandler());
     }
@@ -232,57 +250,267 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
             return;
         }
 
+        final BulkItemsListener itemsListener = listener instanceof BulkItemsListener ? (BulkItemsListener) listener : null;
         final AtomicInteger counter = new AtomicInteger(requestsByShard.size());
         for (Map.Entry<ShardId, List<BulkItemRequest>> entry : requestsByShard.entrySet()) {
-            final ShardId shardId = entry.getKey();
-            final List<BulkItemRequest> requests = entry.getValue();
-            BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId.index().name(), shardId.id(), bulkRequest.refresh(), requests.toArray(new BulkItemRequest[requests.size()]));
-            bulkShardRequest.replicationType(bulkRequest.replicationType());
-            bulkShardRequest.consistencyLevel(bulkRequest.consistencyLevel());
-            shardBulkAction.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
+            List<BulkItemRequest> requests = entry.getValue();
+            new ShardPipeline(entry.getKey(), bulkRequest, requests.toArray(new BulkItemRequest[requests.size()])) {
                 @Override
-                public void onResponse(BulkShardResponse bulkShardResponse) {
+                void onItems(BulkItemResponse[] items) {
                     synchronized (responses) {
-                        for (BulkItemResponse bulkItemResponse : bulkShardResponse.getResponses()) {
-                            responses[bulkItemResponse.getItemId()] = bulkItemResponse;
+                        for (BulkItemResponse item : items) {
+                            responses[item.getItemId()] = item;
+                        }
+                    }
+                    if (itemsListener != null) {
+                        try {
+                            itemsListener.onItems(items);
+                        } catch (Throwable e) {
+                            logger.warn("failed to notify bulk items listener", e);
                         }
                     }
+                }
+
+                @Override
+                void onDone() {
                     if (counter.decrementAndGet() == 0) {
-                        finishHim();
+                        listener.onResponse(new BulkResponse(responses, System.currentTimeMillis() - startTime));
                     }
                 }
+            }.next();
+        }
+    }
+
+    /**
+     * Sends the items of a shard in consecutive shard requests of at most <tt>shard_batch_size</tt> items, the next
+     * one being sent once the previous one is done, so the items of a shard are still executed in order.
+     */
+    abstract class ShardPipeline {
+
+        private final ShardId shardId;
+
+        private final BulkRequest bulkRequest;
+
+        private final BulkItemRequest[] items;
+
+        private int offset;
+
+        ShardPipeline(ShardId shardId, BulkRequest bulkRequest, BulkItemRequest[] items) {
+            this.shardId = shardId;
+            this.bulkRequest = bulkRequest;
+            this.items = items;
+        }
+
+        abstract void onItems(BulkItemResponse[] items);
+
+        abstract void onDone();
 
+        void next() {
+            int size = shardBatchSize > 0 ? Math.min(shardBatchSize, items.length - offset) : items.length;
+            final BulkItemRequest[] requests;
+            if (offset == 0 && size == items.length) {
+                requests = items;
+            } else {
+                requests = new BulkItemRequest[size];
+                System.arraycopy(items, offset, requests, 0, size);
+                // don't hold on to the sources of the items once they are sent
+                Arrays.fill(items, offset, offset + size, null);
+            }
+            offset += size;
+            final BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId.index().name(), shardId.id(), bulkRequest.refresh(), requests);
+            bulkShardRequest.replicationType(bulkRequest.replicationType());
+            bulkShardRequest.consistencyLevel(bulkRequest.consistencyLevel());
+            final ShardRequest shardRequest = new ShardRequest() {
                 @Override
-                public void onFailure(Throwable e) {
-                    // create failures for all relevant requests
-                    String message = ExceptionsHelper.detailedMessage(e);
-                    synchronized (responses) {
-                        for (BulkItemRequest request : requests) {
-                            if (request.request() instanceof IndexRequest) {
-                                IndexRequest indexRequest = (IndexRequest) request.request();
-                                responses[request.id()] = new BulkItemResponse(request.id(), indexRequest.opType().toString().toLowerCase(Locale.ENGLISH),
-                                        new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), message));
-                            } else if (request.request() instanceof DeleteRequest) {
-                                DeleteRequest deleteRequest = (DeleteRequest) request.request();
-                                responses[request.id()] = new BulkItemResponse(request.id(), "delete",
-                                        new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), message));
-                            } else if (request.request() instanceof UpdateRequest) {
-                                UpdateRequest updateRequest = (UpdateRequest) request.request();
-                                responses[request.id()] = new BulkItemResponse(request.id(), "update",
-                                        new BulkItemResponse.Failure(updateRequest.index(), updateRequest.type(), updateRequest.id(), message));
+                public void run() {
+                    final ShardRequest shardRequest = this;
+                    try {
+                        shardBulkAction.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
+                            @Override
+                            public void onResponse(BulkShardResponse bulkShardResponse) {
+                                if (release(shardRequest)) {
+                                    onItems(bulkShardResponse.getResponses());
+                                    done();
+                                }
                             }
+
+                            @Override
+                            public void onFailure(Throwable e) {
+                                if (release(shardRequest)) {
+                                    onItems(failures(requests, e));
+                                    done();
+                                }
+                            }
+                        });
+                    } catch (Throwable e) {
+                        // failed without notifying the listener, release the slot and fail the items here
+                        if (release(shardRequest)) {
+                            onItems(failures(requests, e));
+                            done();
                         }
                     }
-                    if (counter.decrementAndGet() == 0) {
-                        finishHim();
+                }
+            };
+            try {
+                acquire(primaryNodeId(shardId), shardRequest);
+            } catch (EsRejectedExecutionException e) {
+                onItems(failures(requests, e));
+                done();
+            }
+        }
+
+        private void done() {
+            if (offset < items.length) {
+                next();
+            } else {
+                onDone();
+            }
+        }
+    }
+
+    /**
+     * The shard requests executing on, and queued for, a node holding primaries.
+     */
+    static class NodeShardRequests {
+
+        final String nodeId;
+
+        final Queue<Runnable> pending = new LinkedList<Runnable>();
+
+        int inFlight;
+
+        // set once idle and removed from the map, it must not be used anymore
+        boolean removed;
+
+        NodeShardRequests(String nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    /**
+     * A shard request, along with the requests of the node it took a slot of, if any.
+     */
+    static abstract class ShardRequest implements Runnable {
+
+        NodeShardRequests nodeShardRequests;
+
+        final AtomicBoolean completed = new AtomicBoolean();
+    }
+
+    /**
+     * The node holding the primary of the shard, or <tt>null</tt> if the primary is not active, in which case the shard
+     * request waits for it without taking a slot, so it doesn't hold back the requests to other shards meanwhile.
+     */
+    private String primaryNodeId(ShardId shardId) {
+        if (maxInFlightShardRequests <= 0) {
+            return null;
+        }
+        IndexRoutingTable indexRoutingTable = clusterService.state().routingTable().index(shardId.index().name());
+        if (indexRoutingTable == null) {
+            return null;
+        }
+        IndexShardRoutingTable shardRoutingTable = indexRoutingTable.shard(shardId.id());
+        ShardRouting primary = shardRoutingTable == null ? null : shardRoutingTable.primaryShard();
+        if (primary == null || !primary.active()) {
+            return null;
+        }
+        return primary.currentNodeId();
+    }
+
+    /**
+     * Runs the shard request once less than <tt>max_in_flight_shard_requests</tt> shard requests are executing on
+     * the node, queueing it otherwise, and rejecting it if <tt>max_pending_shard_requests</tt> are queued already.
+     */
+    private void acquire(@Nullable String nodeId, ShardRequest shardRequest) throws EsRejectedExecutionException {
+        while (nodeId != null) {
+            NodeShardRequests nodeShardRequests = shardRequestsPerNode.get(nodeId);
+            if (nodeShardRequests == null) {
+                nodeShardRequests = new NodeShardRequests(nodeId);
+                NodeShardRequests existing = shardRequestsPerNode.putIfAbsent(nodeId, nodeShardRequests);
+                if (existing != null) {
+                    nodeShardRequests = existing;
+                }
+            }
+            synchronized (nodeShardRequests) {
+                if (nodeShardRequests.removed) {
+                    // got removed once idle, use the one replacing it
+                    continue;
+                }
+                if (nodeShardRequests.inFlight >= maxInFlightShardRequests) {
+                    if (maxPendingShardRequests >= 0 && nodeShardRequests.pending.size() >= maxPendingShardRequests) {
+                        throw new EsRejectedExecutionException("rejected shard bulk request, [" + nodeShardRequests.pending.size()
+                                + "] shard requests are queued for node [" + nodeId + "]");
                     }
+                    shardRequest.nodeShardRequests = nodeShardRequests;
+                    nodeShardRequests.pending.add(shardRequest);
+                    return;
                 }
+                nodeShardRequests.inFlight++;
+                shardRequest.nodeShardRequests = nodeShardRequests;
+                break;
+            }
+        }
+        shardRequest.run();
+    }
 
-                private void finishHim() {
-                    listener.onResponse(new BulkResponse(responses, System.currentTimeMillis() - startTime));
+    /**
+     * Hands the slot of a completed shard request over to the next queued one, if any. Returns <tt>false</tt> if the
+     * shard request was completed already.
+     */
+    private boolean release(ShardRequest shardRequest) {
+        if (!shardRequest.completed.compareAndSet(false, true)) {
+            return false;
+        }
+        NodeShardRequests nodeShardRequests = shardRequest.nodeShardRequests;
+        if (nodeShardRequests == null) {
+            return true;
+        }
+        Runnable next;
+        synchronized (nodeShardRequests) {
+            next = nodeShardRequests.pending.poll();
+            if (next == null) {
+                if (--nodeShardRequests.inFlight == 0) {
+                    // don't keep the requests of nodes that left around
+                    nodeShardRequests.removed = true;
+                    shardRequestsPerNode.remove(nodeShardRequests.nodeId, nodeShardRequests);
                 }
-            });
+                return true;
+            }
         }
+        // forked, so a chain of queued requests failing right away doesn't recurse
+        threadPool.generic().execute(next);
+        return true;
+    }
+
+    static BulkItemResponse[] failures(BulkItemRequest[] requests, Throwable t) {
+        // create failures for all relevant requests
+        String message = ExceptionsHelper.detailedMessage(t);
+        boolean rejected = isRejection(t);
+        BulkItemResponse[] failures = new BulkItemResponse[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            BulkItemRequest request = requests[i];
+            if (request.request() instanceof IndexRequest) {
+                IndexRequest indexRequest = (IndexRequest) request.request();
+                failures[i] = new BulkItemResponse(request.id(), indexRequest.opType().toString().toLowerCase(Locale.ENGLISH),
+                        new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), message, rejected));
+            } else if (request.request() instanceof DeleteRequest) {
+                DeleteRequest deleteRequest = (DeleteRequest) request.request();
+                failures[i] = new BulkItemResponse(request.id(), "delete",
+                        new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), message, rejected));
+            } else {
+                UpdateRequest updateRequest = (UpdateRequest) request.request();
+                failures[i] = new BulkItemResponse(request.id(), "update",
+                        new BulkItemResponse.Failure(updateRequest.index(), updateRequest.type(), updateRequest.id(), message, rejected));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the failure is a thread pool rejection, which only asks to retry later.
+     */
+    static boolean isRejection(Throwable t) {
+        return ExceptionsHelper.unwrapCause(t) instanceof EsRejectedExecutionException;
     }
 
     class TransportHandler extends BaseTransportRequestHandler<BulkRequest> {
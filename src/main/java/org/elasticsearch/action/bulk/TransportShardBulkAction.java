@@ -42,11 +42,13 @@ import org.elasticsearch.cluster.block.ClusterBlockException;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
@@ -55,6 +57,7 @@ import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.percolator.PercolatorExecutor;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -68,6 +71,11 @@ import org.elasticsearch.transport.TransportService;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Performs the index operation.
@@ -77,6 +85,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     private final MappingUpdatedAction mappingUpdatedAction;
     private final UpdateHelper updateHelper;
     private final boolean allowIdGeneration;
+    private final int parallelism;
+    private final int parallelMinItems;
 
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
@@ -86,6 +96,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         this.mappingUpdatedAction = mappingUpdatedAction;
         this.updateHelper = updateHelper;
         this.allowIdGeneration = settings.getAsBoolean("action.allow_id_generation", true);
+        this.parallelism = componentSettings.getAsInt("shard_parallelism", Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+        this.parallelMinItems = componentSettings.getAsInt("shard_parallel_min_items", 256);
     }
 
     @Override
@@ -142,199 +154,347 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     protected PrimaryResponse<BulkShardResponse, BulkShardRequest> shardOperationOnPrimary(ClusterState clusterState, PrimaryOperationRequest shardRequest) {
         final BulkShardRequest request = shardRequest.request;
         IndexShard indexShard = indicesService.indexServiceSafe(shardRequest.request.index()).shardSafe(shardRequest.shardId);
-        Engine.IndexingOperation[] ops = null;
-        Set<Tuple<String, String>> mappingsToUpdate = null;
-
-        BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
-        long[] preVersions = new long[request.items().length];
-        for (int i = 0; i < request.items().length; i++) {
-            BulkItemRequest item = request.items()[i];
-            if (item.request() instanceof IndexRequest) {
-                IndexRequest indexRequest = (IndexRequest) item.request();
+        PrimaryItems items = new PrimaryItems(request.items().length);
+        int lanes = request.items().length >= parallelMinItems ? parallelism : 1;
+        if (lanes <= 1) {
+            for (int i = 0; i < request.items().length; i++) {
                 try {
-                    WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true);
-                    // add the response
-                    IndexResponse indexResponse = result.response();
-                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse);
-                    preVersions[i] = result.preVersion;
-                    if (result.mappingToUpdate != null) {
-                        if (mappingsToUpdate == null) {
-                            mappingsToUpdate = Sets.newHashSet();
-                        }
-                        mappingsToUpdate.add(result.mappingToUpdate);
-                    }
-                    if (result.op != null) {
-                        if (ops == null) {
-                            ops = new Engine.IndexingOperation[request.items().length];
-                        }
-                        ops[i] = result.op;
-                    }
-                } catch (Exception e) {
-                    // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-                    if (retryPrimaryException(e)) {
-                        // restore updated versions...
-                        for (int j = 0; j < i; j++) {
-                            applyVersion(request.items()[j], preVersions[j]);
-                        }
-                        throw (ElasticSearchException) e;
+                    executeItemOnPrimary(clusterState, shardRequest, indexShard, items, i);
+                } catch (ElasticSearchException e) {
+                    // restore updated versions...
+                    for (int j = 0; j < i; j++) {
+                        applyVersion(request.items()[j], items.preVersions[j]);
                     }
-                    if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
-                        logger.trace("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                    } else {
-                        logger.debug("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                    }
-                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
-                            new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e)));
-                    // nullify the request so it won't execute on the replicas
-                    request.items()[i] = null;
+                    throw e;
                 }
-            } else if (item.request() instanceof DeleteRequest) {
-                DeleteRequest deleteRequest = (DeleteRequest) item.request();
+            }
+        } else {
+            executeItemsOnPrimaryInLanes(clusterState, shardRequest, indexShard, items, lanes);
+        }
+
+        if (items.mappingsToUpdate != null) {
+            for (Tuple<String, String> mappingToUpdate : items.mappingsToUpdate) {
+                updateMappingOnMaster(mappingToUpdate.v1(), mappingToUpdate.v2());
+            }
+        }
+
+        indexShard.groupCommitTranslog();
+
+        if (request.refresh()) {
+            try {
+                indexShard.refresh(new Engine.Refresh(false));
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+        BulkShardResponse response = new BulkShardResponse(new ShardId(request.index(), request.shardId()), items.responses);
+        return new PrimaryResponse<BulkShardResponse, BulkShardRequest>(shardRequest.request, response, items.ops);
+    }
+
+    /**
+     * Executes the item at the given position of the shard request on the primary. Only failures that require the
+     * whole request to be retried on the primary are thrown, the others end up in the item response.
+     */
+    private void executeItemOnPrimary(ClusterState clusterState, PrimaryOperationRequest shardRequest, IndexShard indexShard, PrimaryItems items, int i) {
+        final BulkShardRequest request = shardRequest.request;
+        BulkItemRequest item = request.items()[i];
+        if (item.request() instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) item.request();
+            try {
+                WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true);
+                // add the response
+                IndexResponse indexResponse = result.response();
+                items.responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse);
+                items.preVersions[i] = result.preVersion;
+                items.mappingToUpdate(result.mappingToUpdate);
+                items.op(i, result.op);
+            } catch (Exception e) {
+                // rethrow the failure if we are going to retry on primary and let parent failure to handle it
+                if (retryPrimaryException(e)) {
+                    // the caller restores the versions of the items executed so far
+                    throw (ElasticSearchException) e;
+                }
+                if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
+                    logger.trace("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
+                } else {
+                    logger.debug("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
+                }
+                items.responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
+                        new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e), TransportBulkAction.isRejection(e)));
+                // nullify the request so it won't execute on the replicas
+                request.items()[i] = null;
+            }
+        } else if (item.request() instanceof DeleteRequest) {
+            DeleteRequest deleteRequest = (DeleteRequest) item.request();
+            try {
+                // add the response
+                DeleteResponse deleteResponse = shardDeleteOperation(deleteRequest, indexShard).response();
+                items.responses[i] = new BulkItemResponse(item.id(), "delete", deleteResponse);
+            } catch (Exception e) {
+                // rethrow the failure if we are going to retry on primary and let parent failure to handle it
+                if (retryPrimaryException(e)) {
+                    // the caller restores the versions of the items executed so far
+                    throw (ElasticSearchException) e;
+                }
+                if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
+                    logger.trace("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
+                } else {
+                    logger.debug("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
+                }
+                items.responses[i] = new BulkItemResponse(item.id(), "delete",
+                        new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e), TransportBulkAction.isRejection(e)));
+                // nullify the request so it won't execute on the replicas
+                request.items()[i] = null;
+            }
+        } else if (item.request() instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) item.request();
+            int retryCount = 0;
+            do {
+                UpdateResult updateResult;
                 try {
-                    // add the response
-                    DeleteResponse deleteResponse = shardDeleteOperation(deleteRequest, indexShard).response();
-                    responses[i] = new BulkItemResponse(item.id(), "delete", deleteResponse);
-                } catch (Exception e) {
-                    // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-                    if (retryPrimaryException(e)) {
-                        // restore updated versions...
-                        for (int j = 0; j < i; j++) {
-                            applyVersion(request.items()[j], preVersions[j]);
-                        }
-                        throw (ElasticSearchException) e;
-                    }
-                    if (e instanceof ElasticSearchException && ((ElasticSearchException) e).status() == RestStatus.CONFLICT) {
-                        logger.trace("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
-                    } else {
-                        logger.debug("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
-                    }
-                    responses[i] = new BulkItemResponse(item.id(), "delete",
-                            new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e)));
-                    // nullify the request so it won't execute on the replicas
-                    request.items()[i] = null;
+                    updateResult = shardUpdateOperation(clusterState, request, updateRequest, indexShard);
+                } catch (Throwable t) {
+                    updateResult = new UpdateResult(null, null, false, t, null);
                 }
-            } else if (item.request() instanceof UpdateRequest) {
-                UpdateRequest updateRequest = (UpdateRequest) item.request();
-                int retryCount = 0;
-                do {
-                    UpdateResult updateResult;
-                    try {
-                        updateResult = shardUpdateOperation(clusterState, request, updateRequest, indexShard);
-                    } catch (Throwable t) {
-                        updateResult = new UpdateResult(null, null, false, t, null);
+                if (updateResult.success()) {
+                    switch (updateResult.result.operation()) {
+                        case UPSERT:
+                        case INDEX:
+                            WriteResult result = updateResult.writeResult;
+                            IndexRequest indexRequest = updateResult.request();
+                            BytesReference indexSourceAsBytes = indexRequest.source();
+                            // add the response
+                            IndexResponse indexResponse = result.response();
+                            UpdateResponse updateResponse = new UpdateResponse(indexResponse.getIndex(), indexResponse.getType(),
+                                    indexResponse.getId(), indexResponse.getVersion(), indexResponse.isCreated());
+                            updateResponse.setMatches(indexResponse.getMatches());
+                            if (updateRequest.fields() != null && updateRequest.fields().length > 0) {
+                                Tuple<XContentType, Map<String, Object>> sourceAndContent = XContentHelper.convertToMap(indexSourceAsBytes, true);
+                                updateResponse.setGetResult(updateHelper.extractGetResult(updateRequest, indexResponse.getVersion(), sourceAndContent.v2(), sourceAndContent.v1(), indexSourceAsBytes));
+                            }
+                            items.responses[i] = new BulkItemResponse(item.id(), "update", updateResponse);
+                            items.preVersions[i] = result.preVersion;
+                            items.mappingToUpdate(result.mappingToUpdate);
+                            items.op(i, result.op);
+                            // Replace the update request to the translated index request to execute on the replica.
+                            request.items()[i] = new BulkItemRequest(request.items()[i].id(), indexRequest);
+                            break;
+                        case DELETE:
+                            DeleteResponse response = updateResult.writeResult.response();
+                            DeleteRequest deleteRequest = updateResult.request();
+                            updateResponse = new UpdateResponse(response.getIndex(), response.getType(), response.getId(), response.getVersion(), false);
+                            updateResponse.setGetResult(updateHelper.extractGetResult(updateRequest, response.getVersion(), updateResult.result.updatedSourceAsMap(), updateResult.result.updateSourceContentType(), null));
+                            items.responses[i] = new BulkItemResponse(item.id(), "update", updateResponse);
+                            // Replace the update request to the translated delete request to execute on the replica.
+                            request.items()[i] = new BulkItemRequest(request.items()[i].id(), deleteRequest);
+                            break;
+                        case NONE:
+                            items.responses[i] = new BulkItemResponse(item.id(), "update", updateResult.noopResult);
+                            request.items()[i] = null; // No need to go to the replica
+                            break;
                     }
-                    if (updateResult.success()) {
-                        switch (updateResult.result.operation()) {
-                            case UPSERT:
-                            case INDEX:
-                                WriteResult result = updateResult.writeResult;
-                                IndexRequest indexRequest = updateResult.request();
-                                BytesReference indexSourceAsBytes = indexRequest.source();
-                                // add the response
-                                IndexResponse indexResponse = result.response();
-                                UpdateResponse updateResponse = new UpdateResponse(indexResponse.getIndex(), indexResponse.getType(),
-                                        indexResponse.getId(), indexResponse.getVersion(), indexResponse.isCreated());
-                                updateResponse.setMatches(indexResponse.getMatches());
-                                if (updateRequest.fields() != null && updateRequest.fields().length > 0) {
-                                    Tuple<XContentType, Map<String, Object>> sourceAndContent = XContentHelper.convertToMap(indexSourceAsBytes, true);
-                                    updateResponse.setGetResult(updateHelper.extractGetResult(updateRequest, indexResponse.getVersion(), sourceAndContent.v2(), sourceAndContent.v1(), indexSourceAsBytes));
-                                }
-                                responses[i] = new BulkItemResponse(item.id(), "update", updateResponse);
-                                preVersions[i] = result.preVersion;
-                                if (result.mappingToUpdate != null) {
-                                    if (mappingsToUpdate == null) {
-                                        mappingsToUpdate = Sets.newHashSet();
+                    // NOTE: Breaking out of the retry_on_conflict loop!
+                    break;
+                } else if (updateResult.failure()) {
+                    Throwable t = updateResult.error;
+                    if (!updateResult.retry) {
+                        // rethrow the failure if we are going to retry on primary and let parent failure to handle it
+                        if (retryPrimaryException(t)) {
+                            // the caller restores the versions of the items executed so far
+                            throw (ElasticSearchException) t;
+                        }
+                        if (updateResult.result == null) {
+                            items.responses[i] = new BulkItemResponse(item.id(), "update", new BulkItemResponse.Failure(updateRequest.index(), updateRequest.type(), updateRequest.id(), ExceptionsHelper.detailedMessage(t), TransportBulkAction.isRejection(t)));
+                        } else {
+                            switch (updateResult.result.operation()) {
+                                case UPSERT:
+                                case INDEX:
+                                    IndexRequest indexRequest = updateResult.request();
+                                    if (t instanceof ElasticSearchException && ((ElasticSearchException) t).status() == RestStatus.CONFLICT) {
+                                        logger.trace("[{}][{}] failed to execute bulk item (index) {}", t, shardRequest.request.index(), shardRequest.shardId, indexRequest);
+                                    } else {
+                                        logger.debug("[{}][{}] failed to execute bulk item (index) {}", t, shardRequest.request.index(), shardRequest.shardId, indexRequest);
                                     }
-                                    mappingsToUpdate.add(result.mappingToUpdate);
-                                }
-                                if (result.op != null) {
-                                    if (ops == null) {
-                                        ops = new Engine.IndexingOperation[request.items().length];
+                                    items.responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
+                                            new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(t), TransportBulkAction.isRejection(t)));
+                                    break;
+                                case DELETE:
+                                    DeleteRequest deleteRequest = updateResult.request();
+                                    if (t instanceof ElasticSearchException && ((ElasticSearchException) t).status() == RestStatus.CONFLICT) {
+                                        logger.trace("[{}][{}] failed to execute bulk item (delete) {}", t, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
+                                    } else {
+                                        logger.debug("[{}][{}] failed to execute bulk item (delete) {}", t, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
                                     }
-                                    ops[i] = result.op;
-                                }
-                                // Replace the update request to the translated index request to execute on the replica.
-                                request.items()[i] = new BulkItemRequest(request.items()[i].id(), indexRequest);
-                                break;
-                            case DELETE:
-                                DeleteResponse response = updateResult.writeResult.response();
-                                DeleteRequest deleteRequest = updateResult.request();
-                                updateResponse = new UpdateResponse(response.getIndex(), response.getType(), response.getId(), response.getVersion(), false);
-                                updateResponse.setGetResult(updateHelper.extractGetResult(updateRequest, response.getVersion(), updateResult.result.updatedSourceAsMap(), updateResult.result.updateSourceContentType(), null));
-                                responses[i] = new BulkItemResponse(item.id(), "update", updateResponse);
-                                // Replace the update request to the translated delete request to execute on the replica.
-                                request.items()[i] = new BulkItemRequest(request.items()[i].id(), deleteRequest);
-                                break;
-                            case NONE:
-                                responses[i] = new BulkItemResponse(item.id(), "update", updateResult.noopResult);
-                                request.items()[i] = null; // No need to go to the replica
-                                break;
+                                    items.responses[i] = new BulkItemResponse(item.id(), "delete",
+                                            new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(t), TransportBulkAction.isRejection(t)));
+                                    break;
+                            }
                         }
+                        // nullify the request so it won't execute on the replicas
+                        request.items()[i] = null;
                         // NOTE: Breaking out of the retry_on_conflict loop!
                         break;
-                    } else if (updateResult.failure()) {
-                        Throwable t = updateResult.error;
-                        if (!updateResult.retry) {
-                            // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-                            if (retryPrimaryException(t)) {
-                                // restore updated versions...
-                                for (int j = 0; j < i; j++) {
-                                    applyVersion(request.items()[j], preVersions[j]);
+                    }
+                }
+            } while (++retryCount < updateRequest.retryOnConflict());
+        }
+    }
+
+    /**
+     * Executes the items of the shard request on several threads. The items of a uid all go to the same lane, and
+     * are executed in order, so versioning and the outcome of operations on the same document are the same as when
+     * executed sequentially, while the parsing and analysis of different documents run concurrently. The helper
+     * lanes run on their own thread pool, so they never take the bulk queue slots of other requests. The calling
+     * thread executes lanes too, and any lane that didn't start on a helper thread yet, so it never waits on work
+     * queued behind other bulk requests, and the helpers that are left without a lane are dropped from the queue.
+     */
+    private void executeItemsOnPrimaryInLanes(final ClusterState clusterState, final PrimaryOperationRequest shardRequest, final IndexShard indexShard,
+                                              final PrimaryItems items, int numberOfLanes) {
+        final BulkItemRequest[] requestItems = shardRequest.request.items();
+        final int[][] lanes = lanes(requestItems, numberOfLanes);
+        final boolean[] executed = new boolean[requestItems.length];
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicInteger nextLane = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(lanes.length);
+        Runnable[] workers = new Runnable[lanes.length];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new Runnable() {
+                @Override
+                public void run() {
+                    int lane;
+                    while ((lane = nextLane.getAndIncrement()) < lanes.length) {
+                        try {
+                            for (int i : lanes[lane]) {
+                                if (failure.get() != null) {
+                                    break;
                                 }
-                                throw (ElasticSearchException) t;
-                            }
-                            if (updateResult.result == null) {
-                                responses[i] = new BulkItemResponse(item.id(), "update", new BulkItemResponse.Failure(updateRequest.index(), updateRequest.type(), updateRequest.id(), ExceptionsHelper.detailedMessage(t)));
-                            } else {
-                                switch (updateResult.result.operation()) {
-                                    case UPSERT:
-                                    case INDEX:
-                                        IndexRequest indexRequest = updateResult.request();
-                                        if (t instanceof ElasticSearchException && ((ElasticSearchException) t).status() == RestStatus.CONFLICT) {
-                                            logger.trace("[{}][{}] failed to execute bulk item (index) {}", t, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                                        } else {
-                                            logger.debug("[{}][{}] failed to execute bulk item (index) {}", t, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                                        }
-                                        responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
-                                                new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(t)));
-                                        break;
-                                    case DELETE:
-                                        DeleteRequest deleteRequest = updateResult.request();
-                                        if (t instanceof ElasticSearchException && ((ElasticSearchException) t).status() == RestStatus.CONFLICT) {
-                                            logger.trace("[{}][{}] failed to execute bulk item (delete) {}", t, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
-                                        } else {
-                                            logger.debug("[{}][{}] failed to execute bulk item (delete) {}", t, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
-                                        }
-                                        responses[i] = new BulkItemResponse(item.id(), "delete",
-                                                new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(t)));
-                                        break;
+                                try {
+                                    executeItemOnPrimary(clusterState, shardRequest, indexShard, items, i);
+                                    executed[i] = true;
+                                } catch (Throwable t) {
+                                    failure.compareAndSet(null, t);
                                 }
                             }
-                            // nullify the request so it won't execute on the replicas
-                            request.items()[i] = null;
-                            // NOTE: Breaking out of the retry_on_conflict loop!
-                            break;
+                        } finally {
+                            latch.countDown();
                         }
                     }
-                } while (++retryCount < updateRequest.retryOnConflict());
+                }
+            };
+        }
+        Executor executor = threadPool.executor(ThreadPool.Names.BULK_LANES);
+        int submitted = 1;
+        for (; submitted < workers.length; submitted++) {
+            try {
+                executor.execute(workers[submitted]);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread will execute the remaining lanes
+                break;
+            }
+        }
+        workers[0].run();
+        if (executor instanceof ThreadPoolExecutor) {
+            // all the lanes are taken, the helpers that didn't start have nothing left to do
+            for (int w = 1; w < submitted; w++) {
+                ((ThreadPoolExecutor) executor).remove(workers[w]);
             }
         }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                // the lanes that are running still update the request, we have to wait for them
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
 
-        if (mappingsToUpdate != null) {
-            for (Tuple<String, String> mappingToUpdate : mappingsToUpdate) {
-                updateMappingOnMaster(mappingToUpdate.v1(), mappingToUpdate.v2());
+        Throwable t = failure.get();
+        if (t != null) {
+            // restore updated versions...
+            for (int j = 0; j < requestItems.length; j++) {
+                if (executed[j]) {
+                    applyVersion(requestItems[j], items.preVersions[j]);
+                }
             }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new ElasticSearchException("failed to execute bulk item", t);
         }
+    }
 
-        if (request.refresh()) {
-            try {
-                indexShard.refresh(new Engine.Refresh(false));
-            } catch (Exception e) {
-                // ignore
+    /**
+     * Splits the positions of the items in lanes by uid, keeping their order within each lane.
+     */
+    public static int[][] lanes(BulkItemRequest[] items, int numberOfLanes) {
+        int[] laneOfItem = new int[items.length];
+        int[] sizes = new int[numberOfLanes];
+        for (int i = 0; i < items.length; i++) {
+            ActionRequest request = items[i].request();
+            String uid;
+            if (request instanceof IndexRequest) {
+                uid = Uid.createUid(((IndexRequest) request).type(), ((IndexRequest) request).id());
+            } else if (request instanceof DeleteRequest) {
+                uid = Uid.createUid(((DeleteRequest) request).type(), ((DeleteRequest) request).id());
+            } else {
+                uid = Uid.createUid(((UpdateRequest) request).type(), ((UpdateRequest) request).id());
+            }
+            int lane = (uid.hashCode() & Integer.MAX_VALUE) % numberOfLanes;
+            laneOfItem[i] = lane;
+            sizes[lane]++;
+        }
+        int[][] lanes = new int[numberOfLanes][];
+        for (int lane = 0; lane < numberOfLanes; lane++) {
+            lanes[lane] = new int[sizes[lane]];
+            sizes[lane] = 0;
+        }
+        for (int i = 0; i < items.length; i++) {
+            int lane = laneOfItem[i];
+            lanes[lane][sizes[lane]++] = i;
+        }
+        return lanes;
+    }
+
+    /**
+     * The outcome of the items executed on the primary, which may be updated by several threads.
+     */
+    static class PrimaryItems {
+
+        final BulkItemResponse[] responses;
+        final long[] preVersions;
+        Engine.IndexingOperation[] ops;
+        Set<Tuple<String, String>> mappingsToUpdate;
+
+        PrimaryItems(int size) {
+            this.responses = new BulkItemResponse[size];
+            this.preVersions = new long[size];
+        }
+
+        synchronized void mappingToUpdate(@Nullable Tuple<String, String> mappingToUpdate) {
+            if (mappingToUpdate != null) {
+                if (mappingsToUpdate == null) {
+                    mappingsToUpdate = Sets.newHashSet();
+                }
+                mappingsToUpdate.add(mappingToUpdate);
+            }
+        }
+
+        synchronized void op(int i, @Nullable Engine.IndexingOperation op) {
+            if (op != null) {
+                if (ops == null) {
+                    ops = new Engine.IndexingOperation[responses.length];
+                }
+                ops[i] = op;
             }
         }
-        BulkShardResponse response = new BulkShardResponse(new ShardId(request.index(), request.shardId()), responses);
-        return new PrimaryResponse<BulkShardResponse, BulkShardRequest>(shardRequest.request, response, ops);
     }
 
     static class WriteResult {
@@ -404,6 +564,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
         // if we are going to percolate, then we need to keep this op for the postPrimary operation
         if (!Strings.hasLength(indexRequest.percolate())) {
+            op.parsedDoc().release();
             op = null;
         }
 
@@ -539,6 +700,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                     ((IndexResponse) itemResponse.getResponse()).setMatches(percolate.matches());
                 } catch (Exception e) {
                     logger.warn("failed to percolate [{}]", e, itemRequest.request());
+                } finally {
+                    op.parsedDoc().release();
                 }
             }
         }
@@ -562,9 +725,11 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                     if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
                         Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
                         indexShard.index(index);
+                        index.parsedDoc().release();
                     } else {
                         Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
                         indexShard.create(create);
+                        create.parsedDoc().release();
                     }
                 } catch (Exception e) {
                     // ignore, we are on backup
@@ -580,6 +745,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             }
         }
 
+        indexShard.groupCommitTranslog();
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh(false));
@@ -619,6 +786,10 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     }
 
     private void applyVersion(BulkItemRequest item, long version) {
+        if (item == null) {
+            // failed, not sent to the replicas
+            return;
+        }
         if (item.request() instanceof IndexRequest) {
             ((IndexRequest) item.request()).version(version);
         } else if (item.request() instanceof DeleteRequest) {
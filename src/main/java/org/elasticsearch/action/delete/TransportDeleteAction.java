@@ -185,6 +185,8 @@ public class TransportDeleteAction extends TransportShardReplicationOperationAct
         // update the request with teh version so it will go to the replicas
         request.version(delete.version());
 
+        indexShard.groupCommitTranslog();
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh(false));
@@ -206,6 +208,8 @@ public class TransportDeleteAction extends TransportShardReplicationOperationAct
 
         indexShard.delete(delete);
 
+        indexShard.groupCommitTranslog();
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh(false));
@@ -219,6 +219,8 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
             op = create;
             created = true;
         }
+        indexShard.groupCommitTranslog();
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh(false));
@@ -268,6 +270,8 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
                     .origin(Engine.Operation.Origin.REPLICA);
             indexShard.create(create);
         }
+        indexShard.groupCommitTranslog();
+
         if (request.refresh()) {
             try {
                 indexShard.refresh(new Engine.Refresh(false));
@@ -0,0 +1,244 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.single.custom.SingleCustomOperationRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * A batch of documents percolated together against the queries registered for an index.
+ */
+public class MultiPercolateRequest extends SingleCustomOperationRequest<MultiPercolateRequest> {
+
+    /**
+     * A single document to percolate, with the same source format as a {@link PercolateRequest}.
+     */
+    public static class Item {
+        private final String type;
+        private BytesReference source;
+        private boolean sourceUnsafe;
+
+        public Item(String type, BytesReference source, boolean sourceUnsafe) {
+            this.type = type;
+            this.source = source;
+            this.sourceUnsafe = sourceUnsafe;
+        }
+
+        public String type() {
+            return type;
+        }
+
+        public BytesReference source() {
+            return source;
+        }
+    }
+
+    private String index;
+
+    private List<Item> items = new ArrayList<Item>();
+
+    public MultiPercolateRequest() {
+
+    }
+
+    /**
+     * Constructs a new multi percolate request.
+     *
+     * @param index The index name
+     */
+    public MultiPercolateRequest(String index) {
+        this.index = index;
+    }
+
+    public MultiPercolateRequest index(String index) {
+        this.index = index;
+        return this;
+    }
+
+    public String index() {
+        return this.index;
+    }
+
+    public List<Item> items() {
+        return this.items;
+    }
+
+    /**
+     * Adds a document to percolate.
+     *
+     * @param type   The document type
+     * @param source The percolate source, holding the document under <tt>doc</tt>
+     */
+    public MultiPercolateRequest add(String type, XContentBuilder source) {
+        items.add(new Item(type, source.bytes(), false));
+        return this;
+    }
+
+    /**
+     * Adds a document to percolate.
+     *
+     * @param type   The document type
+     * @param source The percolate source, holding the document under <tt>doc</tt>
+     */
+    public MultiPercolateRequest add(String type, BytesReference source, boolean unsafe) {
+        items.add(new Item(type, source, unsafe));
+        return this;
+    }
+
+    /**
+     * Adds the documents to percolate from new line delimited data, where each percolate source is preceded by a
+     * header line that can hold the <tt>type</tt> of the document.
+     */
+    public MultiPercolateRequest add(BytesReference data, boolean contentUnsafe, @Nullable String defaultType) throws Exception {
+        XContent xContent = XContentFactory.xContent(data);
+        int from = 0;
+        int length = data.length();
+        byte marker = xContent.streamSeparator();
+        while (true) {
+            int nextMarker = findNextMarker(marker, from, data, length);
+            if (nextMarker == -1) {
+                break;
+            }
+            // support first line with \n
+            if (nextMarker == 0) {
+                from = nextMarker + 1;
+                continue;
+            }
+
+            String type = defaultType;
+            // now parse the header
+            if (nextMarker - from > 0) {
+                XContentParser parser = xContent.createParser(data.slice(from, nextMarker - from));
+                try {
+                    // Move to START_OBJECT, if token is null, its an empty data
+                    XContentParser.Token token = parser.nextToken();
+                    if (token != null) {
+                        assert token == XContentParser.Token.START_OBJECT;
+                        String currentFieldName = null;
+                        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                            if (token == XContentParser.Token.FIELD_NAME) {
+                                currentFieldName = parser.currentName();
+                            } else if (token.isValue()) {
+                                if ("type".equals(currentFieldName) || "_type".equals(currentFieldName)) {
+                                    type = parser.text();
+                                }
+                            }
+                        }
+                    }
+                } finally {
+                    parser.close();
+                }
+            }
+
+            // move pointers
+            from = nextMarker + 1;
+            // now for the body
+            nextMarker = findNextMarker(marker, from, data, length);
+            if (nextMarker == -1) {
+                break;
+            }
+
+            add(type, data.slice(from, nextMarker - from), contentUnsafe);
+            // move pointers
+            from = nextMarker + 1;
+        }
+
+        return this;
+    }
+
+    private int findNextMarker(byte marker, int from, BytesReference data, int length) {
+        for (int i = from; i < length; i++) {
+            if (data.get(i) == marker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Before we fork on a local thread, make sure we copy over the bytes if they are unsafe
+     */
+    @Override
+    public void beforeLocalFork() {
+        for (Item item : items) {
+            if (item.sourceUnsafe) {
+                item.source = item.source.copyBytesArray();
+                item.sourceUnsafe = false;
+            }
+        }
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = super.validate();
+        if (index == null) {
+            validationException = addValidationError("index is missing", validationException);
+        }
+        if (items.isEmpty()) {
+            validationException = addValidationError("no documents to percolate", validationException);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (item.type() == null) {
+                validationException = addValidationError("type is missing for document [" + i + "]", validationException);
+            }
+            if (item.source() == null) {
+                validationException = addValidationError("source is missing for document [" + i + "]", validationException);
+            }
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        index = in.readString();
+        int size = in.readVInt();
+        items = new ArrayList<Item>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(in.readString(), in.readBytesReference(), false));
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(index);
+        out.writeVInt(items.size());
+        for (Item item : items) {
+            out.writeString(item.type());
+            out.writeBytesReference(item.source());
+        }
+    }
+}
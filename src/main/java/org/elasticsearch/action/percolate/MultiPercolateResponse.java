@@ -0,0 +1,182 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import com.google.common.collect.Iterators;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The matches of each document of a {@link MultiPercolateRequest}, in the order of the request.
+ */
+public class MultiPercolateResponse extends ActionResponse implements Iterable<MultiPercolateResponse.Item>, ToXContent {
+
+    /**
+     * The matches of a single document, or the failure to percolate it.
+     */
+    public static class Item implements Streamable {
+        private List<String> matches;
+        private String failureMessage;
+
+        Item() {
+
+        }
+
+        public Item(List<String> matches) {
+            this.matches = matches;
+        }
+
+        public Item(String failureMessage) {
+            this.failureMessage = failureMessage;
+        }
+
+        /**
+         * Is it a failed percolation?
+         */
+        public boolean isFailure() {
+            return failureMessage != null;
+        }
+
+        /**
+         * The matching queries, <tt>null</tt> in case of a failure.
+         */
+        @Nullable
+        public List<String> getMatches() {
+            return matches;
+        }
+
+        /**
+         * The failure message, <tt>null</tt> if it did not fail.
+         */
+        @Nullable
+        public String getFailureMessage() {
+            return failureMessage;
+        }
+
+        public static Item readItem(StreamInput in) throws IOException {
+            Item item = new Item();
+            item.readFrom(in);
+            return item;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            if (in.readBoolean()) {
+                int size = in.readVInt();
+                matches = new ArrayList<String>(size);
+                for (int i = 0; i < size; i++) {
+                    matches.add(in.readString());
+                }
+            } else {
+                failureMessage = in.readString();
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            if (isFailure()) {
+                out.writeBoolean(false);
+                out.writeString(failureMessage);
+            } else {
+                out.writeBoolean(true);
+                out.writeVInt(matches.size());
+                for (String match : matches) {
+                    out.writeString(match);
+                }
+            }
+        }
+    }
+
+    private Item[] items;
+
+    MultiPercolateResponse() {
+
+    }
+
+    public MultiPercolateResponse(Item[] items) {
+        this.items = items;
+    }
+
+    public Item[] getItems() {
+        return this.items;
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return Iterators.forArray(items);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.RESPONSES);
+        for (Item item : items) {
+            builder.startObject();
+            if (item.isFailure()) {
+                builder.field(Fields.ERROR, item.getFailureMessage());
+            } else {
+                builder.field(Fields.OK, true);
+                builder.startArray(Fields.MATCHES);
+                for (String match : item.getMatches()) {
+                    builder.value(match);
+                }
+                builder.endArray();
+            }
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString RESPONSES = new XContentBuilderString("responses");
+        static final XContentBuilderString OK = new XContentBuilderString("ok");
+        static final XContentBuilderString MATCHES = new XContentBuilderString("matches");
+        static final XContentBuilderString ERROR = new XContentBuilderString("error");
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        items = new Item[in.readVInt()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = Item.readItem(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(items.length);
+        for (Item item : items) {
+            item.writeTo(out);
+        }
+    }
+}
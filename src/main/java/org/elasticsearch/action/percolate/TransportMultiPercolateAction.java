@@ -0,0 +1,122 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.support.single.custom.TransportSingleCustomOperationAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.routing.ShardsIterator;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.percolator.PercolatorExecutor;
+import org.elasticsearch.index.percolator.PercolatorService;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Percolates all the documents of a {@link MultiPercolateRequest} on a single shard of the index, so they are
+ * matched in a single batch against the registered queries.
+ */
+public class TransportMultiPercolateAction extends TransportSingleCustomOperationAction<MultiPercolateRequest, MultiPercolateResponse> {
+
+    private final IndicesService indicesService;
+
+    @Inject
+    public TransportMultiPercolateAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
+                                         IndicesService indicesService) {
+        super(settings, threadPool, clusterService, transportService);
+        this.indicesService = indicesService;
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.PERCOLATE;
+    }
+
+    @Override
+    protected MultiPercolateRequest newRequest() {
+        return new MultiPercolateRequest();
+    }
+
+    @Override
+    protected MultiPercolateResponse newResponse() {
+        return new MultiPercolateResponse();
+    }
+
+    @Override
+    protected String transportAction() {
+        return MultiPercolateAction.NAME;
+    }
+
+    @Override
+    protected ClusterBlockException checkGlobalBlock(ClusterState state, MultiPercolateRequest request) {
+        return state.blocks().globalBlockedException(ClusterBlockLevel.READ);
+    }
+
+    @Override
+    protected ClusterBlockException checkRequestBlock(ClusterState state, MultiPercolateRequest request) {
+        request.index(state.metaData().concreteIndex(request.index()));
+        return state.blocks().indexBlockedException(ClusterBlockLevel.READ, request.index());
+    }
+
+    @Override
+    protected ShardsIterator shards(ClusterState clusterState, MultiPercolateRequest request) {
+        return clusterState.routingTable().index(request.index()).randomAllActiveShardsIt();
+    }
+
+    @Override
+    protected MultiPercolateResponse shardOperation(MultiPercolateRequest request, int shardId) throws ElasticSearchException {
+        IndexService indexService = indicesService.indexServiceSafe(request.index());
+        PercolatorService percolatorService = indexService.percolateService();
+
+        List<MultiPercolateRequest.Item> items = request.items();
+        MultiPercolateResponse.Item[] responses = new MultiPercolateResponse.Item[items.size()];
+        // a document that fails to parse only fails its own item
+        List<Integer> slots = new ArrayList<Integer>(items.size());
+        List<PercolatorExecutor.DocAndQueryRequest> docs = new ArrayList<PercolatorExecutor.DocAndQueryRequest>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            MultiPercolateRequest.Item item = items.get(i);
+            try {
+                docs.add(percolatorService.parse(new PercolatorExecutor.SourceRequest(item.type(), item.source())));
+                slots.add(i);
+            } catch (Throwable e) {
+                logger.debug("failed to parse document [{}] of multi percolate request", e, i);
+                responses[i] = new MultiPercolateResponse.Item(ExceptionsHelper.detailedMessage(e));
+            }
+        }
+
+        if (!docs.isEmpty()) {
+            List<PercolatorExecutor.Response> percolated = percolatorService.percolate(docs);
+            for (int i = 0; i < percolated.size(); i++) {
+                responses[slots.get(i)] = new MultiPercolateResponse.Item(percolated.get(i).matches());
+            }
+        }
+        return new MultiPercolateResponse(responses);
+    }
+}
@@ -222,7 +222,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 
     /**
      * Sets the preference to execute the search. Defaults to randomize across shards. Can be set to
-     * <tt>_local</tt> to prefer local shards, <tt>_primary</tt> to execute only on primary shards, or
+     * <tt>_local</tt> to prefer local shards, <tt>_primary</tt> to execute only on primary shards,
+     * <tt>_adaptive</tt> to prefer the shards on the nodes expected to respond the fastest, or
      * a custom value, which guarantees that the same order will be used across different requests.
      */
     public SearchRequest preference(String preference) {
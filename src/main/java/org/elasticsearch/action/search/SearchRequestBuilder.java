@@ -146,7 +146,8 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
 
     /**
      * Sets the preference to execute the search. Defaults to randomize across shards. Can be set to
-     * <tt>_local</tt> to prefer local shards, <tt>_primary</tt> to execute only on primary shards, or
+     * <tt>_local</tt> to prefer local shards, <tt>_primary</tt> to execute only on primary shards,
+     * <tt>_adaptive</tt> to prefer the shards on the nodes expected to respond the fastest, or
      * a custom value, which guarantees that the same order will be used across different requests.
      */
     public SearchRequestBuilder setPreference(String preference) {
@@ -473,6 +474,25 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Applies when sorting, and controls if the total number of hits should be computed. Not tracking it allows
+     * to stop collecting a segment once it has provided enough hits, when the index is sorted the same way.
+     * The total hits are then a lower bound. Defaults to <tt>true</tt>.
+     */
+    public SearchRequestBuilder setTrackTotalHits(boolean trackTotalHits) {
+        sourceBuilder().trackTotalHits(trackTotalHits);
+        return this;
+    }
+
+    /**
+     * Only returns hits that sort after the provided sort values, typically the sort values of the last hit
+     * of the previous page. There must be one value per sort.
+     */
+    public SearchRequestBuilder setSearchAfter(Object... values) {
+        sourceBuilder().searchAfter(values);
+        return this;
+    }
+
     /**
      * Adds the fields to load and return as part of the search request. If none are specified,
      * the source of the document will be returned.
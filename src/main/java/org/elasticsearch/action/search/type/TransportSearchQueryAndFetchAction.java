@@ -83,7 +83,7 @@ public class TransportSearchQueryAndFetchAction extends TransportSearchTypeActio
         @Override
         protected void moveToSecondPhase() throws Exception {
             sortedShardList = searchPhaseController.sortDocs(queryFetchResults.values());
-            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryFetchResults, queryFetchResults);
+            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryFetchResults, queryFetchResults, startTime);
             String scrollId = null;
             if (request.scroll() != null) {
                 scrollId = buildScrollId(request.searchType(), queryFetchResults.values(), null);
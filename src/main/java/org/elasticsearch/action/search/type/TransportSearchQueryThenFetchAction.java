@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.search.type;
 
+import org.apache.lucene.search.ScoreDoc;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.search.*;
 import org.elasticsearch.cluster.ClusterService;
@@ -39,6 +40,8 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -47,10 +50,15 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class TransportSearchQueryThenFetchAction extends TransportSearchTypeAction {
 
+    public static final String SPECULATIVE_FETCH_SIZE = "action.search.query_then_fetch.speculative_fetch_size";
+
+    private final int speculativeFetchSize;
+
     @Inject
     public TransportSearchQueryThenFetchAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
                                                TransportSearchCache transportSearchCache, SearchServiceTransportAction searchService, SearchPhaseController searchPhaseController) {
         super(settings, threadPool, clusterService, transportSearchCache, searchService, searchPhaseController);
+        this.speculativeFetchSize = settings.getAsInt(SPECULATIVE_FETCH_SIZE, 0);
     }
 
     @Override
@@ -77,6 +85,10 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
 
         @Override
         protected void sendExecuteFirstPhase(DiscoveryNode node, ShardSearchRequest request, SearchServiceListener<QuerySearchResult> listener) {
+            if (speculativeFetchSize > 0 && request.scroll() == null) {
+                // let the shard fetch its top hits right away, most shards contribute only a few hits to the final result
+                request.speculativeFetchSize(speculativeFetchSize);
+            }
             searchService.sendExecuteQuery(node, request, listener);
         }
 
@@ -89,6 +101,7 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
         protected void moveToSecondPhase() {
             sortedShardList = searchPhaseController.sortDocs(queryResults.values());
             final Map<SearchShardTarget, ExtTIntArrayList> docIdsToLoad = searchPhaseController.docIdsToLoad(sortedShardList);
+            useSpeculativeFetchResults(docIdsToLoad);
             this.docIdsToLoad = docIdsToLoad;
 
             if (docIdsToLoad.isEmpty()) {
@@ -145,6 +158,47 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
             }
         }
 
+        /**
+         * Uses the hits the shards fetched along with the query phase when they cover all the docs to load from
+         * them, and removes those shards from the ones to execute the fetch phase on.
+         */
+        private void useSpeculativeFetchResults(Map<SearchShardTarget, ExtTIntArrayList> docIdsToLoad) {
+            List<SearchShardTarget> fetched = null;
+            for (Map.Entry<SearchShardTarget, ExtTIntArrayList> entry : docIdsToLoad.entrySet()) {
+                QuerySearchResult queryResult = queryResults.get(entry.getKey()).queryResult();
+                FetchSearchResult fetchResult = queryResult.speculativeFetchResult();
+                if (fetchResult == null) {
+                    continue;
+                }
+                // the speculative hits are the top docs of the shard, in order
+                ExtTIntArrayList docIds = entry.getValue();
+                if (docIds.size() > fetchResult.hits().internalHits().length) {
+                    continue;
+                }
+                ScoreDoc[] scoreDocs = queryResult.topDocs().scoreDocs;
+                boolean covered = true;
+                for (int i = 0; i < docIds.size(); i++) {
+                    if (docIds.get(i) != scoreDocs[i].doc) {
+                        covered = false;
+                        break;
+                    }
+                }
+                if (covered) {
+                    fetchResult.shardTarget(entry.getKey());
+                    fetchResults.put(entry.getKey(), fetchResult);
+                    if (fetched == null) {
+                        fetched = new ArrayList<SearchShardTarget>();
+                    }
+                    fetched.add(entry.getKey());
+                }
+            }
+            if (fetched != null) {
+                for (SearchShardTarget shardTarget : fetched) {
+                    docIdsToLoad.remove(shardTarget);
+                }
+            }
+        }
+
         void executeFetch(final SearchShardTarget shardTarget, final AtomicInteger counter, final FetchSearchRequest fetchSearchRequest, DiscoveryNode node) {
             searchService.sendExecuteFetch(node, fetchSearchRequest, new SearchServiceListener<FetchSearchResult>() {
                 @Override
@@ -187,7 +241,7 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
         }
 
         void innerFinishHim() throws Exception {
-            InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryResults, fetchResults);
+            InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryResults, fetchResults, startTime);
             String scrollId = null;
             if (request.scroll() != null) {
                 scrollId = TransportSearchHelper.buildScrollId(request.searchType(), queryResults.values(), null);
@@ -44,6 +44,9 @@ import org.elasticsearch.action.mlt.MoreLikeThisRequestBuilder;
 import org.elasticsearch.action.termvector.TermVectorRequest;
 import org.elasticsearch.action.termvector.TermVectorRequestBuilder;
 import org.elasticsearch.action.termvector.TermVectorResponse;
+import org.elasticsearch.action.percolate.MultiPercolateRequest;
+import org.elasticsearch.action.percolate.MultiPercolateRequestBuilder;
+import org.elasticsearch.action.percolate.MultiPercolateResponse;
 import org.elasticsearch.action.percolate.PercolateRequest;
 import org.elasticsearch.action.percolate.PercolateRequestBuilder;
 import org.elasticsearch.action.percolate.PercolateResponse;
@@ -491,6 +494,23 @@ public interface Client {
      */
     PercolateRequestBuilder preparePercolate(String index, String type);
 
+    /**
+     * Percolates a batch of documents against the same index, returning the matches of each document.
+     */
+    ActionFuture<MultiPercolateResponse> multiPercolate(MultiPercolateRequest request);
+
+    /**
+     * Percolates a batch of documents against the same index, returning the matches of each document.
+     */
+    void multiPercolate(MultiPercolateRequest request, ActionListener<MultiPercolateResponse> listener);
+
+    /**
+     * Percolates a batch of documents against the same index, returning the matches of each document.
+     *
+     * @param index The index to percolate the docs
+     */
+    MultiPercolateRequestBuilder prepareMultiPercolate(String index);
+
     /**
      * Computes a score explanation for the specified request.
      *
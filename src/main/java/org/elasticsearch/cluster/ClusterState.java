@@ -580,5 +580,64 @@ public class ClusterState implements ToXContent {
             }
             return builder.build();
         }
+
+        /**
+         * Writes the cluster state as a diff against the previous one. The meta data and routing table are only
+         * written when their version changed, and then only for the indices that changed. The rest is written
+         * fully.
+         */
+        public static void writeDiffTo(ClusterState previous, ClusterState state, StreamOutput out) throws IOException {
+            out.writeLong(previous.version());
+            out.writeLong(state.version());
+            if (state.metaData().version() == previous.metaData().version()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                MetaData.Builder.writeDiffTo(previous.metaData(), state.metaData(), out);
+            }
+            if (state.routingTable().version() == previous.routingTable().version()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                RoutingTable.Builder.writeDiffTo(previous.routingTable(), state.routingTable(), out);
+            }
+            DiscoveryNodes.Builder.writeTo(state.nodes(), out);
+            ClusterBlocks.Builder.writeClusterBlocks(state.blocks(), out);
+            state.allocationExplanation().writeTo(out);
+            out.writeVInt(state.customs().size());
+            for (Map.Entry<String, Custom> entry : state.customs().entrySet()) {
+                out.writeString(entry.getKey());
+                lookupFactorySafe(entry.getKey()).writeTo(entry.getValue(), out);
+            }
+        }
+
+        /**
+         * Reads the version of the cluster state a diff written by {@link #writeDiffTo(ClusterState, ClusterState, StreamOutput)}
+         * applies to. Must be called before {@link #readDiffFrom(StreamInput, ClusterState, DiscoveryNode)}.
+         */
+        public static long readDiffPreviousVersion(StreamInput in) throws IOException {
+            return in.readLong();
+        }
+
+        /**
+         * Reads a diff written by {@link #writeDiffTo(ClusterState, ClusterState, StreamOutput)}, the previous cluster state
+         * must have the version returned by {@link #readDiffPreviousVersion(StreamInput)}.
+         */
+        public static ClusterState readDiffFrom(StreamInput in, ClusterState previous, @Nullable DiscoveryNode localNode) throws IOException {
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.metaData = in.readBoolean() ? MetaData.Builder.readDiffFrom(in, previous.metaData()) : previous.metaData();
+            builder.routingTable = in.readBoolean() ? RoutingTable.Builder.readDiffFrom(in, previous.routingTable()) : previous.routingTable();
+            builder.nodes = DiscoveryNodes.Builder.readFrom(in, localNode);
+            builder.blocks = ClusterBlocks.Builder.readClusterBlocks(in);
+            builder.allocationExplanation = AllocationExplanation.readAllocationExplanation(in);
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
     }
 }
@@ -23,6 +23,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.*;
 import gnu.trove.set.hash.THashSet;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.action.support.IgnoreIndices;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
@@ -1179,5 +1180,70 @@ public class MetaData implements Iterable<IndexMetaData> {
                 lookupFactorySafe(entry.getKey()).writeTo(entry.getValue(), out);
             }
         }
+
+        /**
+         * Reads the meta data written by {@link #writeDiffTo(MetaData, MetaData, StreamOutput)}, taking the indices
+         * that did not change from the previous meta data.
+         */
+        public static MetaData readDiffFrom(StreamInput in, MetaData previous) throws IOException {
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.transientSettings(readSettingsFromStream(in));
+            builder.persistentSettings(readSettingsFromStream(in));
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    builder.put(IndexMetaData.Builder.readFrom(in), false);
+                } else {
+                    String index = in.readString();
+                    IndexMetaData indexMetaData = previous.index(index);
+                    if (indexMetaData == null) {
+                        throw new ElasticSearchIllegalStateException("index [" + index + "] is missing from the previous meta data");
+                    }
+                    builder.put(indexMetaData, false);
+                }
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexTemplateMetaData.Builder.readFrom(in));
+            }
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
+
+        /**
+         * Writes the meta data, only referring by name to the indices that have the same version in the previous
+         * meta data. Indices meta data hold the mappings, so they make up most of the meta data.
+         */
+        public static void writeDiffTo(MetaData previous, MetaData metaData, StreamOutput out) throws IOException {
+            out.writeLong(metaData.version);
+            writeSettingsToStream(metaData.transientSettings(), out);
+            writeSettingsToStream(metaData.persistentSettings(), out);
+            out.writeVInt(metaData.indices.size());
+            for (IndexMetaData indexMetaData : metaData) {
+                IndexMetaData previousIndexMetaData = previous.index(indexMetaData.index());
+                if (previousIndexMetaData != null && previousIndexMetaData.version() == indexMetaData.version()) {
+                    out.writeBoolean(false);
+                    out.writeString(indexMetaData.index());
+                } else {
+                    out.writeBoolean(true);
+                    IndexMetaData.Builder.writeTo(indexMetaData, out);
+                }
+            }
+            out.writeVInt(metaData.templates.size());
+            for (IndexTemplateMetaData template : metaData.templates.values()) {
+                IndexTemplateMetaData.Builder.writeTo(template, out);
+            }
+            out.writeVInt(metaData.customs().size());
+            for (Map.Entry<String, Custom> entry : metaData.customs().entrySet()) {
+                out.writeString(entry.getKey());
+                lookupFactorySafe(entry.getKey()).writeTo(entry.getValue(), out);
+            }
+        }
     }
 }
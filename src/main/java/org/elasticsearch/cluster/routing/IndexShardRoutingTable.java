@@ -310,6 +310,40 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over the active shards ordered by the rank of the node they are allocated on, the
+     * lowest rank first. Shards on nodes with an equal rank are ordered in a randomized fashion.
+     */
+    public ShardIterator rankedActiveShardsIt(Map<String, Double> nodeRanks) {
+        ArrayList<ShardRouting> ordered = new ArrayList<ShardRouting>(activeShards.size());
+        // fill it in a randomized fashion, the sort below is stable
+        int index = Math.abs(counter.getAndIncrement());
+        for (int i = 0; i < activeShards.size(); i++) {
+            ordered.add(activeShards.get((index + i) % activeShards.size()));
+        }
+        Collections.sort(ordered, new NodeRankComparator(nodeRanks));
+        return new PlainShardIterator(shardId, ordered);
+    }
+
+    private static class NodeRankComparator implements Comparator<ShardRouting> {
+
+        private final Map<String, Double> nodeRanks;
+
+        NodeRankComparator(Map<String, Double> nodeRanks) {
+            this.nodeRanks = nodeRanks;
+        }
+
+        @Override
+        public int compare(ShardRouting o1, ShardRouting o2) {
+            return Double.compare(rank(o1), rank(o2));
+        }
+
+        private double rank(ShardRouting shard) {
+            Double rank = nodeRanks.get(shard.currentNodeId());
+            return rank == null ? 0 : rank;
+        }
+    }
+
     /**
      * Prefers execution on the provided node if applicable.
      */
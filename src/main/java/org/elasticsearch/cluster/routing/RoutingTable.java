@@ -20,6 +20,7 @@
 package org.elasticsearch.cluster.routing;
 
 import com.google.common.collect.*;
+import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
@@ -424,6 +425,72 @@ public class RoutingTable implements Iterable<IndexRoutingTable> {
                 IndexRoutingTable.Builder.writeTo(index, out);
             }
         }
+
+        /**
+         * Reads the routing table written by {@link #writeDiffTo(RoutingTable, RoutingTable, StreamOutput)}, taking
+         * the indices that did not change from the previous routing table.
+         */
+        public static RoutingTable readDiffFrom(StreamInput in, RoutingTable previous) throws IOException {
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    builder.add(IndexRoutingTable.Builder.readFrom(in));
+                } else {
+                    String index = in.readString();
+                    IndexRoutingTable indexRoutingTable = previous.index(index);
+                    if (indexRoutingTable == null) {
+                        throw new ElasticSearchIllegalStateException("index [" + index + "] is missing from the previous routing table");
+                    }
+                    builder.add(indexRoutingTable);
+                }
+            }
+            return builder.build();
+        }
+
+        /**
+         * Writes the routing table, only referring by name to the indices which shards did not change compared to
+         * the previous routing table.
+         */
+        public static void writeDiffTo(RoutingTable previous, RoutingTable table, StreamOutput out) throws IOException {
+            out.writeLong(table.version);
+            out.writeVInt(table.indicesRouting.size());
+            for (IndexRoutingTable index : table.indicesRouting.values()) {
+                if (sameShards(previous.index(index.index()), index)) {
+                    out.writeBoolean(false);
+                    out.writeString(index.index());
+                } else {
+                    out.writeBoolean(true);
+                    IndexRoutingTable.Builder.writeTo(index, out);
+                }
+            }
+        }
+
+        private static boolean sameShards(IndexRoutingTable previous, IndexRoutingTable index) {
+            if (previous == index) {
+                return true;
+            }
+            if (previous == null || previous.shards().size() != index.shards().size()) {
+                return false;
+            }
+            for (IndexShardRoutingTable indexShard : index) {
+                IndexShardRoutingTable previousIndexShard = previous.shards().get(indexShard.shardId().id());
+                if (previousIndexShard == null || previousIndexShard.primaryAllocatedPostApi() != indexShard.primaryAllocatedPostApi()
+                        || previousIndexShard.size() != indexShard.size()) {
+                    return false;
+                }
+                for (int i = 0; i < indexShard.size(); i++) {
+                    ShardRouting previousShard = previousIndexShard.shards().get(i);
+                    ShardRouting shard = indexShard.shards().get(i);
+                    // equality does not check the version
+                    if (!previousShard.equals(shard) || previousShard.version() != shard.version()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
     }
 
     public String prettyPrint() {
@@ -0,0 +1,207 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.routing.operation;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track, per node, of an exponentially weighted moving average of the shard level search response
+ * times and of the number of requests currently outstanding from this node, and ranks nodes on those so
+ * that shard requests can be routed to the copy that is expected to answer the fastest (see the
+ * <tt>_adaptive</tt> search preference).
+ * <p/>
+ * The rank of a node follows the one used by C3: <tt>ewma * (1 + outstanding + failures)^3</tt>, so that a node
+ * that has many requests in flight is penalized ahead of its responses actually slowing down. Failed requests
+ * don't feed the average, a fast failure would otherwise make the node look fast, but count as outstanding until
+ * the node answers a request successfully again. The failure penalty halves every
+ * <tt>cluster.routing.operation.adaptive_selection.failure_half_life</tt> (defaults to <tt>10s</tt>), so a node that
+ * is not picked anymore because of it is eventually tried again. Nodes that have not answered a request yet are ranked with the
+ * average response time of the other nodes, so they are tried without being preferred over all measured ones.
+ */
+public class AdaptiveSelectionService extends AbstractComponent implements ClusterStateListener {
+
+    public static final String ALPHA = "cluster.routing.operation.adaptive_selection.alpha";
+    public static final String FAILURE_HALF_LIFE = "cluster.routing.operation.adaptive_selection.failure_half_life";
+
+    private final double alpha;
+
+    private final long failureHalfLifeInNanos;
+
+    private final ConcurrentMap<String, NodeStatistics> nodes = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public AdaptiveSelectionService(Settings settings) {
+        super(settings);
+        this.alpha = settings.getAsDouble(ALPHA, 0.3d);
+        if (alpha <= 0 || alpha > 1) {
+            throw new ElasticSearchIllegalArgumentException("[" + ALPHA + "] must be within (0, 1], got [" + alpha + "]");
+        }
+        TimeValue failureHalfLife = settings.getAsTime(FAILURE_HALF_LIFE, TimeValue.timeValueSeconds(10));
+        if (failureHalfLife.nanos() <= 0) {
+            throw new ElasticSearchIllegalArgumentException("[" + FAILURE_HALF_LIFE + "] must be positive, got [" + failureHalfLife + "]");
+        }
+        this.failureHalfLifeInNanos = failureHalfLife.nanos();
+        logger.debug("using alpha [{}], failure_half_life [{}]", alpha, failureHalfLife);
+    }
+
+    /**
+     * Marks the start of a request sent to the given node.
+     */
+    public void onRequestSent(String nodeId) {
+        statistics(nodeId).outstanding.incrementAndGet();
+    }
+
+    /**
+     * Marks the successful completion of a request sent to the given node, that took the provided time in
+     * nanoseconds.
+     */
+    public void onResponseReceived(String nodeId, long tookInNanos) {
+        NodeStatistics statistics = statistics(nodeId);
+        statistics.outstanding.decrementAndGet();
+        statistics.resetFailures();
+        statistics.update(tookInNanos, alpha);
+    }
+
+    /**
+     * Marks the failure of a request sent to the given node. The response time average is left as is, the
+     * failure is accounted as an outstanding request instead, that decays over time.
+     */
+    public void onResponseFailed(String nodeId) {
+        NodeStatistics statistics = statistics(nodeId);
+        statistics.outstanding.decrementAndGet();
+        statistics.onFailure(System.nanoTime(), failureHalfLifeInNanos);
+    }
+
+    /**
+     * The rank of the given node, the lower the better.
+     */
+    public double rank(String nodeId) {
+        return rank(nodes.get(nodeId), averageResponseTime());
+    }
+
+    public AdaptiveSelectionStats stats() {
+        double averageResponseTime = averageResponseTime();
+        ImmutableMap.Builder<String, AdaptiveSelectionStats.NodeStats> builder = ImmutableMap.builder();
+        for (Map.Entry<String, NodeStatistics> entry : nodes.entrySet()) {
+            NodeStatistics statistics = entry.getValue();
+            builder.put(entry.getKey(), new AdaptiveSelectionStats.NodeStats(statistics.outstanding.get(), (long) statistics.ewma,
+                    rank(statistics, averageResponseTime)));
+        }
+        return new AdaptiveSelectionStats(builder.build());
+    }
+
+    private double rank(NodeStatistics statistics, double averageResponseTime) {
+        if (statistics == null) {
+            return averageResponseTime;
+        }
+        double ewma = statistics.ewma;
+        if (ewma < 0) {
+            ewma = averageResponseTime;
+        }
+        // a failed request might be accounted for after a newer one was sent, never go below 0
+        double queue = 1 + Math.max(0, statistics.outstanding.get()) + statistics.failures(System.nanoTime(), failureHalfLifeInNanos);
+        return ewma * queue * queue * queue;
+    }
+
+    /**
+     * The average of the response times of the nodes that answered a request already. It is <tt>1</tt> if none
+     * did, so that unmeasured nodes still rank on their outstanding requests.
+     */
+    private double averageResponseTime() {
+        double sum = 0;
+        int count = 0;
+        for (NodeStatistics statistics : nodes.values()) {
+            double ewma = statistics.ewma;
+            if (ewma >= 0) {
+                sum += ewma;
+                count++;
+            }
+        }
+        return count == 0 ? 1 : sum / count;
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode node : event.nodesDelta().removedNodes()) {
+                nodes.remove(node.id());
+            }
+        }
+    }
+
+    private NodeStatistics statistics(String nodeId) {
+        NodeStatistics statistics = nodes.get(nodeId);
+        if (statistics == null) {
+            statistics = new NodeStatistics();
+            NodeStatistics existing = nodes.putIfAbsent(nodeId, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    static class NodeStatistics {
+
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        volatile double ewma = -1;
+
+        // failed requests since the last successful one, decayed from the time of the last failure
+        private double failures;
+        private long lastFailureNanos;
+
+        synchronized void update(long value, double alpha) {
+            if (ewma < 0) {
+                ewma = value;
+            } else {
+                ewma = alpha * value + (1 - alpha) * ewma;
+            }
+        }
+
+        synchronized void onFailure(long nowInNanos, long halfLifeInNanos) {
+            failures = failures(nowInNanos, halfLifeInNanos) + 1;
+            lastFailureNanos = nowInNanos;
+        }
+
+        synchronized void resetFailures() {
+            failures = 0;
+        }
+
+        synchronized double failures(long nowInNanos, long halfLifeInNanos) {
+            if (failures == 0) {
+                return 0;
+            }
+            return failures * Math.pow(0.5, (double) (nowInNanos - lastFailureNanos) / halfLifeInNanos);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.routing.operation;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Per node statistics used by adaptive replica selection, as seen from the node coordinating the search requests.
+ */
+public class AdaptiveSelectionStats implements Streamable, ToXContent {
+
+    private Map<String, NodeStats> nodes;
+
+    AdaptiveSelectionStats() {
+
+    }
+
+    public AdaptiveSelectionStats(Map<String, NodeStats> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * The statistics of each node this node sent search requests to, keyed by node id.
+     */
+    public Map<String, NodeStats> getNodes() {
+        return this.nodes;
+    }
+
+    public static AdaptiveSelectionStats readAdaptiveSelectionStats(StreamInput in) throws IOException {
+        AdaptiveSelectionStats stats = new AdaptiveSelectionStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        ImmutableMap.Builder<String, NodeStats> builder = ImmutableMap.builder();
+        for (int i = 0; i < size; i++) {
+            String nodeId = in.readString();
+            NodeStats stats = new NodeStats();
+            stats.readFrom(in);
+            builder.put(nodeId, stats);
+        }
+        nodes = builder.build();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(nodes.size());
+        for (Map.Entry<String, NodeStats> entry : nodes.entrySet()) {
+            out.writeString(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ADAPTIVE_SELECTION);
+        for (Map.Entry<String, NodeStats> entry : nodes.entrySet()) {
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            entry.getValue().toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    public static class NodeStats implements Streamable, ToXContent {
+
+        private int outstandingRequests;
+
+        private long avgResponseTimeInNanos;
+
+        private double rank;
+
+        NodeStats() {
+
+        }
+
+        public NodeStats(int outstandingRequests, long avgResponseTimeInNanos, double rank) {
+            this.outstandingRequests = outstandingRequests;
+            this.avgResponseTimeInNanos = avgResponseTimeInNanos;
+            this.rank = rank;
+        }
+
+        /**
+         * The number of search requests sent to the node that have not completed yet.
+         */
+        public int getOutstandingRequests() {
+            return this.outstandingRequests;
+        }
+
+        /**
+         * The exponentially weighted moving average of the node response time (in nanoseconds), <tt>-1</tt>
+         * if the node did not answer any request yet.
+         */
+        public long getAvgResponseTimeInNanos() {
+            return this.avgResponseTimeInNanos;
+        }
+
+        public TimeValue getAvgResponseTime() {
+            return TimeValue.timeValueNanos(avgResponseTimeInNanos);
+        }
+
+        /**
+         * The rank of the node, requests are routed to the copy on the node with the lowest rank.
+         */
+        public double getRank() {
+            return this.rank;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            outstandingRequests = in.readVInt();
+            avgResponseTimeInNanos = in.readLong();
+            rank = in.readDouble();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(outstandingRequests);
+            out.writeLong(avgResponseTimeInNanos);
+            out.writeDouble(rank);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.OUTSTANDING_REQUESTS, outstandingRequests);
+            if (avgResponseTimeInNanos >= 0) {
+                builder.field(Fields.AVG_RESPONSE_TIME, getAvgResponseTime().toString());
+                builder.field(Fields.AVG_RESPONSE_TIME_IN_NANOS, avgResponseTimeInNanos);
+            }
+            builder.field(Fields.RANK, rank);
+            return builder;
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString ADAPTIVE_SELECTION = new XContentBuilderString("adaptive_selection");
+        static final XContentBuilderString OUTSTANDING_REQUESTS = new XContentBuilderString("outstanding_requests");
+        static final XContentBuilderString AVG_RESPONSE_TIME = new XContentBuilderString("avg_response_time");
+        static final XContentBuilderString AVG_RESPONSE_TIME_IN_NANOS = new XContentBuilderString("avg_response_time_in_nanos");
+        static final XContentBuilderString RANK = new XContentBuilderString("rank");
+    }
+}
@@ -27,7 +27,9 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionService;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
 import org.elasticsearch.cluster.routing.operation.hash.HashFunction;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
@@ -43,6 +45,7 @@ import org.elasticsearch.indices.IndexMissingException;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -58,12 +61,16 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
 
+    private final AdaptiveSelectionService adaptiveSelectionService;
+
     @Inject
-    public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider) {
+    public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider,
+                                 AdaptiveSelectionService adaptiveSelectionService) {
         super(indexSettings);
         this.hashFunction = hashFunction;
         this.useType = indexSettings.getAsBoolean("cluster.routing.operation.use_type", false);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.adaptiveSelectionService = adaptiveSelectionService;
     }
 
     @Override
@@ -244,6 +251,13 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
             if (preference.startsWith("_only_node:")) {
                 return indexShard.onlyNodeActiveShardsIt(preference.substring("_only_node:".length()));
             }
+            if ("_adaptive".equals(preference)) {
+                Map<String, Double> nodeRanks = new HashMap<String, Double>();
+                for (ShardRouting shard : indexShard.activeShards()) {
+                    nodeRanks.put(shard.currentNodeId(), adaptiveSelectionService.rank(shard.currentNodeId()));
+                }
+                return indexShard.rankedActiveShardsIt(nodeRanks);
+            }
         }
         // if not, then use it as the index
         String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
@@ -39,6 +39,8 @@ public abstract class CompressedIndexInput<T extends CompressorContext> extends
     private BigLongArray offsets;
 
     private boolean closed;
+    // clones share the offsets of the input they were cloned from, which releases them
+    private boolean isClone;
 
     protected byte[] uncompressed;
     protected int uncompressedLength;
@@ -59,8 +61,13 @@ public abstract class CompressedIndexInput<T extends CompressorContext> extends
         this.totalUncompressedLength = in.readVLong();
         int size = in.readVInt();
         offsets = new BigLongArray(size);
-        for (int i = 0; i < size; i++) {
-            offsets.set(i, in.readVLong());
+        try {
+            for (int i = 0; i < size; i++) {
+                offsets.set(i, in.readVLong());
+            }
+        } catch (IOException e) {
+            offsets.release();
+            throw e;
         }
         this.currentOffsetIdx = -1;
         this.currentUncompressedChunkPointer = 0;
@@ -169,8 +176,14 @@ public abstract class CompressedIndexInput<T extends CompressorContext> extends
         position = valid = 0;
         if (!closed) {
             closed = true;
-            doClose();
-            in.close();
+            try {
+                doClose();
+                in.close();
+            } finally {
+                if (!isClone) {
+                    offsets.release();
+                }
+            }
         }
     }
 
@@ -208,6 +221,7 @@ public abstract class CompressedIndexInput<T extends CompressorContext> extends
     public IndexInput clone() {
         // we clone and we need to make sure we keep the same positions!
         CompressedIndexInput cloned = (CompressedIndexInput) super.clone();
+        cloned.isClone = true;
         cloned.uncompressed = new byte[uncompressedLength];
         System.arraycopy(uncompressed, 0, cloned.uncompressed, 0, uncompressedLength);
         cloned.in = (IndexInput) cloned.in.clone();
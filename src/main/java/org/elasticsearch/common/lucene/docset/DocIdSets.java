@@ -19,6 +19,8 @@
 
 package org.elasticsearch.common.lucene.docset;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -33,6 +35,9 @@ import java.io.IOException;
  */
 public class DocIdSets {
 
+    // the number of docs in the sets made cacheable, computed once, and dropped along with the set
+    private static final Cache<DocIdSet, Integer> cacheableCardinalities = CacheBuilder.newBuilder().weakKeys().build();
+
     public static long sizeInBytes(DocIdSet docIdSet) {
         if (docIdSet instanceof FixedBitSet) {
             return ((FixedBitSet) docIdSet).getBits().length * 8 + 16;
@@ -88,16 +93,32 @@ public class DocIdSets {
             return DocIdSet.EMPTY_DOCIDSET;
         }
         if (set instanceof FixedBitSet) {
+            cacheableCardinalities.put(set, ((FixedBitSet) set).cardinality());
             return set;
         }
         FixedBitSet fixedBitSet = new FixedBitSet(reader.maxDoc());
+        int cardinality = 0;
         do {
             fixedBitSet.set(doc);
+            cardinality++;
             doc = it.nextDoc();
         } while (doc != DocIdSetIterator.NO_MORE_DOCS);
+        cacheableCardinalities.put(fixedBitSet, cardinality);
         return fixedBitSet;
     }
 
+    /**
+     * Returns the number of docs in a set returned by {@link #toCacheable(org.apache.lucene.index.AtomicReader, org.apache.lucene.search.DocIdSet)},
+     * without counting them again, or <tt>-1</tt> if the set is not known. Deleted docs are counted as well.
+     */
+    public static int cacheableCardinality(@Nullable DocIdSet set) {
+        if (set == null) {
+            return -1;
+        }
+        Integer cardinality = cacheableCardinalities.getIfPresent(set);
+        return cardinality == null ? -1 : cardinality;
+    }
+
     /**
      * Gets a set to bits.
      */
@@ -75,6 +75,10 @@ public class ApplyAcceptedDocsFilter extends Filter {
             this.liveDocs = liveDocs;
         }
 
+        DocIdSet innerSet() {
+            return innerSet;
+        }
+
         @Override
         public boolean isCacheable() {
             return innerSet.isCacheable();
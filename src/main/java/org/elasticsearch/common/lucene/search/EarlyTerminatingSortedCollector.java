@@ -0,0 +1,107 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.lucene.search;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.elasticsearch.index.merge.policy.IndexSort;
+
+import java.io.IOException;
+
+/**
+ * A collector, wrapping a top docs collector sorted the same way as the index, that stops collecting a sorted
+ * segment once it collected the number of hits asked for from it, since the next documents of the segment
+ * can't compete anymore. Only the segments {@link IndexSort#isSorted(org.apache.lucene.index.AtomicReader)}
+ * verifies as sorted are terminated early. The number of hits collected is then a lower bound of the number of
+ * matching documents.
+ * <p/>
+ * Terminating a segment is signaled with a {@link SegmentTerminatedException}, that the searcher should catch
+ * to move on to the next segment.
+ */
+public class EarlyTerminatingSortedCollector extends Collector {
+
+    private final Collector collector;
+
+    private final IndexSort indexSort;
+
+    private final int numHits;
+
+    private boolean segmentSorted;
+
+    private int segmentHits;
+
+    private boolean terminatedEarly;
+
+    public EarlyTerminatingSortedCollector(Collector collector, IndexSort indexSort, int numHits) {
+        this.collector = collector;
+        this.indexSort = indexSort;
+        this.numHits = numHits;
+    }
+
+    /**
+     * Returns <tt>true</tt> if at least one segment was not fully collected.
+     */
+    public boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        collector.setScorer(scorer);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        collector.collect(doc);
+        if (segmentSorted && ++segmentHits >= numHits) {
+            terminatedEarly = true;
+            throw new SegmentTerminatedException();
+        }
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        collector.setNextReader(context);
+        segmentSorted = indexSort.isSorted(context.reader());
+        segmentHits = 0;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        // the documents of a segment must be collected in index order
+        return false;
+    }
+
+    /**
+     * Thrown when collecting the current segment should stop.
+     */
+    public static class SegmentTerminatedException extends RuntimeException {
+
+        public SegmentTerminatedException() {
+            super("segment collection terminated early");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // used for flow control, no need for a stack trace
+            return this;
+        }
+    }
+}
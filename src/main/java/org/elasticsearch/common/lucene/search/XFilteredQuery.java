@@ -26,6 +26,7 @@ import org.apache.lucene.util.Bits;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Set;
 
 
@@ -79,7 +80,46 @@ public class XFilteredQuery extends Query {
      */
     @Override
     public Weight createWeight(final IndexSearcher searcher) throws IOException {
-        return delegate.createWeight(searcher);
+        final Weight weight = delegate.createWeight(searcher);
+        if (!(strategy instanceof CostBasedFilterStrategy)) {
+            return weight;
+        }
+        // CHANGE: explain the strategy picked for the segment of the doc
+        return new Weight() {
+            @Override
+            public Explanation explain(AtomicReaderContext context, int doc) throws IOException {
+                Explanation explanation = weight.explain(context, doc);
+                DocIdSet docIdSet = delegate.getFilter().getDocIdSet(context, context.reader().getLiveDocs());
+                explanation.setDescription(explanation.getDescription() + ", "
+                        + ((CostBasedFilterStrategy) strategy).explain(context, delegate.getQuery(), docIdSet));
+                return explanation;
+            }
+
+            @Override
+            public Query getQuery() {
+                return weight.getQuery();
+            }
+
+            @Override
+            public float getValueForNormalization() throws IOException {
+                return weight.getValueForNormalization();
+            }
+
+            @Override
+            public void normalize(float norm, float topLevelBoost) {
+                weight.normalize(norm, topLevelBoost);
+            }
+
+            @Override
+            public Scorer scorer(AtomicReaderContext context, boolean scoreDocsInOrder, boolean topScorer, Bits acceptDocs) throws IOException {
+                return weight.scorer(context, scoreDocsInOrder, topScorer, acceptDocs);
+            }
+
+            @Override
+            public boolean scoresDocsOutOfOrder() {
+                return weight.scoresDocsOutOfOrder();
+            }
+        };
     }
 
     /**
@@ -245,4 +285,110 @@ public class XFilteredQuery extends Query {
         }
     }
 
+    // CHANGE: Add a cost based filter strategy
+    public static final CostBasedFilterStrategy COST_BASED_FILTER_STRATEGY = new CostBasedFilterStrategy();
+
+    /**
+     * Picks how to apply the filter on each segment by comparing the number of docs the filter matches with an
+     * estimate of the number of docs the query matches:
+     * <ul>
+     * <li>A filter much sparser than the query drives the iteration, and the query advances to the filter docs
+     * ({@link FilteredQuery#LEAP_FROG_FILTER_FIRST_STRATEGY}).</li>
+     * <li>A query much sparser than the filter drives the iteration, and the filter bits are checked on the query docs
+     * ({@link FilteredQuery#QUERY_FIRST_FILTER_STRATEGY}).</li>
+     * <li>Otherwise, the filter bits are intersected with the query postings, by passing them down as accepted docs.</li>
+     * </ul>
+     * The number of docs of a filter is only known when it is cached, see {@link DocIdSets#cacheableCardinality(DocIdSet)},
+     * and the query estimate is the sum of the doc freqs of its terms. When either is not known, it falls back to
+     * {@link #CUSTOM_FILTER_STRATEGY}.
+     */
+    public static class CostBasedFilterStrategy extends FilterStrategy {
+
+        public static enum Decision {
+            FILTER_FIRST, QUERY_FIRST, RANDOM_ACCESS, DEFAULT
+        }
+
+        // above this number of terms, looking up their doc freqs costs too much compared to just executing the query
+        private static final int MAX_ESTIMATED_TERMS = 32;
+
+        private final int ratio;
+
+        public CostBasedFilterStrategy() {
+            this(8);
+        }
+
+        /**
+         * @param ratio how many times sparser the filter (or query) must be to drive the iteration.
+         */
+        public CostBasedFilterStrategy(int ratio) {
+            this.ratio = ratio;
+        }
+
+        @Override
+        public Scorer filteredScorer(AtomicReaderContext context, boolean scoreDocsInOrder, boolean topScorer, Weight weight, DocIdSet docIdSet) throws IOException {
+            switch (decide(filterCardinality(docIdSet), estimateQueryCost(context, weight.getQuery()))) {
+                case FILTER_FIRST:
+                    return FilteredQuery.LEAP_FROG_FILTER_FIRST_STRATEGY.filteredScorer(context, scoreDocsInOrder, topScorer, weight, docIdSet);
+                case QUERY_FIRST:
+                    return FilteredQuery.QUERY_FIRST_FILTER_STRATEGY.filteredScorer(context, scoreDocsInOrder, topScorer, weight, docIdSet);
+                case RANDOM_ACCESS:
+                    return ALWAYS_RANDOM_ACCESS_FILTER_STRATEGY.filteredScorer(context, scoreDocsInOrder, topScorer, weight, docIdSet);
+                default:
+                    return CUSTOM_FILTER_STRATEGY.filteredScorer(context, scoreDocsInOrder, topScorer, weight, docIdSet);
+            }
+        }
+
+        /**
+         * Describes the decision taken on a segment, used to explain the filtered query.
+         */
+        public String explain(AtomicReaderContext context, Query query, DocIdSet docIdSet) throws IOException {
+            int filterCardinality = filterCardinality(docIdSet);
+            long queryCost = estimateQueryCost(context, query);
+            return "filter strategy [" + decide(filterCardinality, queryCost).name().toLowerCase() + "], filter cardinality ["
+                    + filterCardinality + "], query cost [" + queryCost + "]";
+        }
+
+        Decision decide(int filterCardinality, long queryCost) {
+            if (filterCardinality == -1 || queryCost == -1) {
+                return Decision.DEFAULT;
+            }
+            if ((long) filterCardinality * ratio <= queryCost) {
+                return Decision.FILTER_FIRST;
+            }
+            if (queryCost * ratio <= filterCardinality) {
+                return Decision.QUERY_FIRST;
+            }
+            return Decision.RANDOM_ACCESS;
+        }
+
+        static int filterCardinality(DocIdSet docIdSet) {
+            if (docIdSet instanceof ApplyAcceptedDocsFilter.NotDeletedDocIdSet) {
+                // deleted docs are still counted, good enough for an estimate
+                docIdSet = ((ApplyAcceptedDocsFilter.NotDeletedDocIdSet) docIdSet).innerSet();
+            }
+            return DocIdSets.cacheableCardinality(docIdSet);
+        }
+
+        /**
+         * Estimates the number of docs the query matches on the segment as the sum of the doc freqs of its terms,
+         * or returns <tt>-1</tt> if the query terms can't be extracted.
+         */
+        static long estimateQueryCost(AtomicReaderContext context, Query query) throws IOException {
+            Set<Term> terms = new HashSet<Term>();
+            try {
+                query.extractTerms(terms);
+            } catch (UnsupportedOperationException e) {
+                return -1;
+            }
+            if (terms.isEmpty() || terms.size() > MAX_ESTIMATED_TERMS) {
+                return -1;
+            }
+            long cost = 0;
+            for (Term term : terms) {
+                cost += context.reader().docFreq(term);
+            }
+            return Math.min(cost, context.reader().maxDoc());
+        }
+    }
+
 }
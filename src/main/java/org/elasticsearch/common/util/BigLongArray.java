@@ -19,59 +19,44 @@
 
 package org.elasticsearch.common.util;
 
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.lease.Releasable;
+
 import java.util.Locale;
 
 /**
  * A GC friendly long[].
  * Allocating large arrays (that are not short-lived) generate fragmentation
- * in old-gen space. This breaks such large long array into fixed size pages
- * to avoid that problem.
+ * in old-gen space. This breaks such large long array into the fixed size
+ * pages of the {@link PageAllocator}, on or off heap, to avoid that problem.
+ * The pages must be given back with {@link #release()} once the array is not needed anymore.
  */
-public class BigLongArray {
-
-    private static final int DEFAULT_PAGE_SIZE = 4096;
+public class BigLongArray implements Releasable {
 
-    private final long[][] pages;
+    private final PagedLongArray array;
     public final int size;
 
-    private final int pageSize;
-    private final int pageCount;
-
     public BigLongArray(int size) {
-        this(size, DEFAULT_PAGE_SIZE);
-    }
-
-    public BigLongArray(int size, int pageSize) {
         this.size = size;
-        this.pageSize = pageSize;
-
-        int lastPageSize = size % pageSize;
-        int fullPageCount = size / pageSize;
-        pageCount = fullPageCount + (lastPageSize == 0 ? 0 : 1);
-        pages = new long[pageCount][];
-
-        for (int i = 0; i < fullPageCount; ++i)
-            pages[i] = new long[pageSize];
-
-        if (lastPageSize != 0)
-            pages[pages.length - 1] = new long[lastPageSize];
+        this.array = PageAllocator.allocator().newLongArray(size);
     }
 
     public void set(int idx, long value) {
-        if (idx < 0 || idx > size)
+        if (idx < 0 || idx >= size)
             throw new IndexOutOfBoundsException(String.format(Locale.ROOT, "%d is not whithin [0, %d)", idx, size));
 
-        int page = idx / pageSize;
-        int pageIdx = idx % pageSize;
-        pages[page][pageIdx] = value;
+        array.set(idx, value);
     }
 
     public long get(int idx) {
-        if (idx < 0 || idx > size)
+        if (idx < 0 || idx >= size)
             throw new IndexOutOfBoundsException(String.format(Locale.ROOT, "%d is not whithin [0, %d)", idx, size));
 
-        int page = idx / pageSize;
-        int pageIdx = idx % pageSize;
-        return pages[page][pageIdx];
+        return array.get(idx);
+    }
+
+    @Override
+    public boolean release() throws ElasticSearchException {
+        return array.release();
     }
 }
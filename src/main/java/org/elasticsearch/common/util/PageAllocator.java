@@ -0,0 +1,207 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out fixed size pages to build large arrays from ({@link PagedLongArray}, {@link PagedIntArray} and
+ * {@link PagedByteArray}), instead of allocating one large array that fragments the old generation.
+ * <p/>
+ * The allocator is chosen with the <tt>es.page.allocator</tt> system property: <tt>heap</tt> (the default) allocates
+ * the pages on the heap, while <tt>direct</tt> allocates them off heap using direct byte buffers. Pages of recycled
+ * arrays are kept in a bounded pool (<tt>es.page.allocator.pool_size</tt> pages) and handed out again.
+ */
+public abstract class PageAllocator {
+
+    public static final int PAGE_SHIFT = 14;
+    public static final int PAGE_SIZE_IN_BYTES = 1 << PAGE_SHIFT;
+    public static final int PAGE_MASK = PAGE_SIZE_IN_BYTES - 1;
+
+    private static final PageAllocator INSTANCE;
+
+    static {
+        String type = System.getProperty("es.page.allocator", "heap");
+        int poolSize = Integer.parseInt(System.getProperty("es.page.allocator.pool_size", "1024"));
+        if ("heap".equals(type)) {
+            INSTANCE = new Heap(poolSize);
+        } else if ("direct".equals(type)) {
+            INSTANCE = new Direct(poolSize);
+        } else {
+            throw new ElasticSearchIllegalArgumentException("no page allocator of type [" + type + "]");
+        }
+    }
+
+    /**
+     * The node level page allocator.
+     */
+    public static PageAllocator allocator() {
+        return INSTANCE;
+    }
+
+    private final int maxPooledPages;
+    private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger pooledPages = new AtomicInteger();
+    private final AtomicLong pagesInUse = new AtomicLong();
+
+    protected PageAllocator(int maxPooledPages) {
+        this.maxPooledPages = maxPooledPages;
+    }
+
+    /**
+     * The type of the allocator, <tt>heap</tt> or <tt>direct</tt>.
+     */
+    public abstract String type();
+
+    protected abstract ByteBuffer allocatePage();
+
+    /**
+     * Zeroes a recycled page, so it can be handed out again.
+     */
+    protected abstract void clearPage(ByteBuffer page);
+
+    public PagedLongArray newLongArray(long size) {
+        return new PagedLongArray(this, size);
+    }
+
+    public PagedIntArray newIntArray(long size) {
+        return new PagedIntArray(this, size);
+    }
+
+    public PagedByteArray newByteArray(long size) {
+        return new PagedByteArray(this, size);
+    }
+
+    /**
+     * The number of pages handed out and not released yet.
+     */
+    public long getPagesInUse() {
+        return pagesInUse.get();
+    }
+
+    /**
+     * The number of recycled pages waiting to be handed out again.
+     */
+    public int getPooledPages() {
+        return pooledPages.get();
+    }
+
+    static int numPages(long sizeInBytes) {
+        long numPages = (sizeInBytes + PAGE_SIZE_IN_BYTES - 1) >>> PAGE_SHIFT;
+        if (numPages > Integer.MAX_VALUE) {
+            throw new ElasticSearchIllegalArgumentException("can't allocate [" + sizeInBytes + "] bytes of pages");
+        }
+        return (int) numPages;
+    }
+
+    ByteBuffer obtainPage() {
+        ByteBuffer page = pool.poll();
+        if (page == null) {
+            page = allocatePage().order(ByteOrder.nativeOrder());
+        } else {
+            pooledPages.decrementAndGet();
+        }
+        pagesInUse.incrementAndGet();
+        return page;
+    }
+
+    /**
+     * Gives the obtained pages (the non <tt>null</tt> ones) back to the accounting.
+     */
+    void release(ByteBuffer[] pages) {
+        int obtained = 0;
+        for (ByteBuffer page : pages) {
+            if (page != null) {
+                obtained++;
+            }
+        }
+        pagesInUse.addAndGet(-obtained);
+    }
+
+    void recycle(ByteBuffer[] pages) {
+        release(pages);
+        for (ByteBuffer page : pages) {
+            if (page == null) {
+                continue;
+            }
+            if (pooledPages.incrementAndGet() > maxPooledPages) {
+                pooledPages.decrementAndGet();
+                return;
+            }
+            clearPage(page);
+            pool.offer(page);
+        }
+    }
+
+    public static class Heap extends PageAllocator {
+
+        public Heap(int maxPooledPages) {
+            super(maxPooledPages);
+        }
+
+        @Override
+        public String type() {
+            return "heap";
+        }
+
+        @Override
+        protected ByteBuffer allocatePage() {
+            return ByteBuffer.allocate(PAGE_SIZE_IN_BYTES);
+        }
+
+        @Override
+        protected void clearPage(ByteBuffer page) {
+            Arrays.fill(page.array(), (byte) 0);
+        }
+    }
+
+    public static class Direct extends PageAllocator {
+
+        private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(PAGE_SIZE_IN_BYTES);
+
+        public Direct(int maxPooledPages) {
+            super(maxPooledPages);
+        }
+
+        @Override
+        public String type() {
+            return "direct";
+        }
+
+        @Override
+        protected ByteBuffer allocatePage() {
+            return ByteBuffer.allocateDirect(PAGE_SIZE_IN_BYTES);
+        }
+
+        @Override
+        protected void clearPage(ByteBuffer page) {
+            page.clear();
+            page.put(ZEROS.duplicate());
+            page.clear();
+        }
+    }
+}
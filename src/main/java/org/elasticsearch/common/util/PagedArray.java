@@ -0,0 +1,98 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base class for arrays built from the fixed size pages of a {@link PageAllocator}. Pages are only obtained once a
+ * value is written to them, pages never written to read as <tt>0</tt>.
+ * <p/>
+ * {@link #release()} only gives the pages back to the allocator accounting, and is safe to call while the array is
+ * still being read. {@link #recycle()} also hands the pages out again, so the array must not be used afterwards.
+ */
+public abstract class PagedArray implements Releasable {
+
+    protected final PageAllocator allocator;
+    protected final ByteBuffer[] pages;
+    protected final long size;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    protected PagedArray(PageAllocator allocator, long size, int bytesPerElement) {
+        this.allocator = allocator;
+        this.size = size;
+        this.pages = new ByteBuffer[PageAllocator.numPages(size * bytesPerElement)];
+    }
+
+    /**
+     * The page to write to, obtained from the allocator on first use. Writes must not happen concurrently.
+     */
+    protected final ByteBuffer pageForWrite(int index) {
+        ByteBuffer page = pages[index];
+        if (page == null) {
+            assert !released.get() : "writing to a released array";
+            page = allocator.obtainPage();
+            pages[index] = page;
+        }
+        return page;
+    }
+
+    /**
+     * The number of elements of the array.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * The memory used by the array pages, which is not on the heap if the allocator is a direct one.
+     */
+    public long sizeInBytes() {
+        long obtained = 0;
+        for (ByteBuffer page : pages) {
+            if (page != null) {
+                obtained++;
+            }
+        }
+        return RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + RamUsageEstimator.NUM_BYTES_OBJECT_REF * (long) pages.length
+                + obtained * PageAllocator.PAGE_SIZE_IN_BYTES;
+    }
+
+    @Override
+    public boolean release() throws ElasticSearchException {
+        if (released.compareAndSet(false, true)) {
+            allocator.release(pages);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the array, and recycles its pages. The array must not be used anymore.
+     */
+    public void recycle() {
+        if (released.compareAndSet(false, true)) {
+            allocator.recycle(pages);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A byte array made of fixed size pages, see {@link PageAllocator}. Values default to <tt>0</tt>.
+ */
+public final class PagedByteArray extends PagedArray {
+
+    PagedByteArray(PageAllocator allocator, long size) {
+        super(allocator, size, 1);
+    }
+
+    public byte get(long index) {
+        assert index >= 0 && index < size;
+        final ByteBuffer page = pages[(int) (index >>> PageAllocator.PAGE_SHIFT)];
+        return page == null ? 0 : page.get((int) (index & PageAllocator.PAGE_MASK));
+    }
+
+    public void set(long index, byte value) {
+        assert index >= 0 && index < size;
+        pageForWrite((int) (index >>> PageAllocator.PAGE_SHIFT)).put((int) (index & PageAllocator.PAGE_MASK), value);
+    }
+
+    /**
+     * Copies <tt>len</tt> bytes starting at <tt>index</tt> into the provided buffer, possibly spanning several pages.
+     */
+    public void get(long index, byte[] buf, int offset, int len) {
+        assert index >= 0 && index + len <= size;
+        while (len > 0) {
+            final int pageIndex = (int) (index & PageAllocator.PAGE_MASK);
+            final int chunk = Math.min(len, PageAllocator.PAGE_SIZE_IN_BYTES - pageIndex);
+            final ByteBuffer page = pages[(int) (index >>> PageAllocator.PAGE_SHIFT)];
+            if (page == null) {
+                Arrays.fill(buf, offset, offset + chunk, (byte) 0);
+            } else {
+                final ByteBuffer duplicate = page.duplicate();
+                duplicate.position(pageIndex);
+                duplicate.get(buf, offset, chunk);
+            }
+            index += chunk;
+            offset += chunk;
+            len -= chunk;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A long array made of fixed size pages, see {@link PageAllocator}. Values default to <tt>0</tt>.
+ */
+public final class PagedLongArray extends PagedArray {
+
+    PagedLongArray(PageAllocator allocator, long size) {
+        super(allocator, size, 8);
+    }
+
+    public long get(long index) {
+        assert index >= 0 && index < size;
+        final long byteIndex = index << 3;
+        final ByteBuffer page = pages[(int) (byteIndex >>> PageAllocator.PAGE_SHIFT)];
+        return page == null ? 0 : page.getLong((int) (byteIndex & PageAllocator.PAGE_MASK));
+    }
+
+    public void set(long index, long value) {
+        assert index >= 0 && index < size;
+        final long byteIndex = index << 3;
+        pageForWrite((int) (byteIndex >>> PageAllocator.PAGE_SHIFT)).putLong((int) (byteIndex & PageAllocator.PAGE_MASK), value);
+    }
+
+    /**
+     * Adds the increment to the value at the index, and returns the new value.
+     */
+    public long increment(long index, long inc) {
+        assert index >= 0 && index < size;
+        final long byteIndex = index << 3;
+        final ByteBuffer page = pageForWrite((int) (byteIndex >>> PageAllocator.PAGE_SHIFT));
+        final int pageIndex = (int) (byteIndex & PageAllocator.PAGE_MASK);
+        final long value = page.getLong(pageIndex) + inc;
+        page.putLong(pageIndex, value);
+        return value;
+    }
+}
@@ -29,6 +29,9 @@ import org.elasticsearch.common.compress.CompressedStreamInput;
 import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -266,6 +269,160 @@ public class XContentHelper {
         return true;
     }
 
+    /**
+     * Filters the source with the include and exclude patterns, returning the filtered source in the same content
+     * type. The matching fields are copied directly from the parser, the source is never converted to a map, and
+     * the result is the same as {@link XContentMapValues#filter(Map, String[], String[])}.
+     */
+    public static BytesReference filter(BytesReference source, String[] includes, String[] excludes) throws IOException {
+        XContentParser parser = createParser(source);
+        try {
+            BytesStreamOutput out = new BytesStreamOutput();
+            XContentGenerator generator = XContentFactory.xContent(parser.contentType()).createGenerator(out);
+            filter(parser, generator, includes, excludes);
+            generator.close();
+            return out.bytes();
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Filters the object the parser is at (or starts with) into the generator, see
+     * {@link #filter(BytesReference, String[], String[])}.
+     */
+    public static void filter(XContentParser parser, XContentGenerator generator, String[] includes, String[] excludes) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        generator.writeStartObject();
+        if (token == XContentParser.Token.START_OBJECT) {
+            new SourceFilter(parser, generator, includes, excludes).filterObject();
+        } else if (token != null) {
+            throw new ElasticSearchParseException("Failed to filter content, expected an object but got [" + token + "]");
+        }
+        generator.writeEndObject();
+    }
+
+    private static class SourceFilter {
+
+        private final XContentParser parser;
+        private final XContentGenerator generator;
+        private final String[] includes;
+        private final String[] excludes;
+
+        private final StringBuilder path = new StringBuilder();
+
+        // objects, and arrays within arrays, are only written once they have a value, so they are kept
+        // here (with their field name, if any) until then
+        private final List<String> pendingNames = new ArrayList<String>();
+        private final List<Boolean> pendingObjects = new ArrayList<Boolean>();
+
+        SourceFilter(XContentParser parser, XContentGenerator generator, String[] includes, String[] excludes) {
+            this.parser = parser;
+            this.generator = generator;
+            this.includes = includes;
+            this.excludes = excludes;
+        }
+
+        void filterObject() throws IOException {
+            while (parser.nextToken() != XContentParser.Token.END_OBJECT) {
+                String name = parser.currentName();
+                XContentParser.Token token = parser.nextToken();
+                int mark = path.length();
+                if (mark > 0) {
+                    path.append('.');
+                }
+                path.append(name);
+                if (!accept(path.toString())) {
+                    parser.skipChildren();
+                } else if (token == XContentParser.Token.START_OBJECT) {
+                    filterPending(name, true);
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    // an included array is kept even if it ends up empty
+                    writePending();
+                    generator.writeFieldName(name);
+                    generator.writeStartArray();
+                    filterArray();
+                    generator.writeEndArray();
+                } else {
+                    writePending();
+                    generator.writeFieldName(name);
+                    copyCurrentEvent(generator, parser);
+                }
+                path.setLength(mark);
+            }
+        }
+
+        private void filterArray() throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                if (token == XContentParser.Token.START_OBJECT) {
+                    filterPending(null, true);
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    filterPending(null, false);
+                } else {
+                    writePending();
+                    copyCurrentEvent(generator, parser);
+                }
+            }
+        }
+
+        private void filterPending(String name, boolean object) throws IOException {
+            int index = pendingNames.size();
+            pendingNames.add(name);
+            pendingObjects.add(object);
+            if (object) {
+                filterObject();
+            } else {
+                filterArray();
+            }
+            if (pendingNames.size() > index) {
+                // nothing matched, drop it
+                pendingNames.remove(index);
+                pendingObjects.remove(index);
+            } else if (object) {
+                generator.writeEndObject();
+            } else {
+                generator.writeEndArray();
+            }
+        }
+
+        private void writePending() throws IOException {
+            for (int i = 0; i < pendingNames.size(); i++) {
+                if (pendingNames.get(i) != null) {
+                    generator.writeFieldName(pendingNames.get(i));
+                }
+                if (pendingObjects.get(i)) {
+                    generator.writeStartObject();
+                } else {
+                    generator.writeStartArray();
+                }
+            }
+            pendingNames.clear();
+            pendingObjects.clear();
+        }
+
+        private boolean accept(String path) {
+            for (String exclude : excludes) {
+                if (Regex.simpleMatch(exclude, path)) {
+                    return false;
+                }
+            }
+            if (includes.length == 0) {
+                return true;
+            }
+            for (String include : includes) {
+                // check for prefix as well, something like: obj1.arr1.*
+                if (include.startsWith(path) || Regex.simpleMatch(include, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     public static void copyCurrentStructure(XContentGenerator generator, XContentParser parser) throws IOException {
         XContentParser.Token t = parser.currentToken();
 
@@ -62,4 +62,6 @@ public interface Discovery extends LifecycleComponent<Discovery> {
      * process should not publish this state to the master as well! (the master is sending it...).
      */
     void publish(ClusterState clusterState);
+
+    DiscoveryStats stats();
 }
@@ -0,0 +1,192 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.discovery;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Stats of the cluster states published by the node while master, and of the ones it received from the master.
+ */
+public class DiscoveryStats implements Streamable, ToXContent {
+
+    private long publishedFull;
+    private long publishedDiffs;
+    private long publishedSizeInBytes;
+
+    private long receivedFull;
+    private long receivedDiffs;
+    private long receivedSizeInBytes;
+    private long decodeTimeInMillis;
+
+    private long diffMismatches;
+
+    public DiscoveryStats() {
+
+    }
+
+    public DiscoveryStats(long publishedFull, long publishedDiffs, long publishedSizeInBytes,
+                          long receivedFull, long receivedDiffs, long receivedSizeInBytes, long decodeTimeInMillis,
+                          long diffMismatches) {
+        this.publishedFull = publishedFull;
+        this.publishedDiffs = publishedDiffs;
+        this.publishedSizeInBytes = publishedSizeInBytes;
+        this.receivedFull = receivedFull;
+        this.receivedDiffs = receivedDiffs;
+        this.receivedSizeInBytes = receivedSizeInBytes;
+        this.decodeTimeInMillis = decodeTimeInMillis;
+        this.diffMismatches = diffMismatches;
+    }
+
+    /**
+     * The number of full cluster states sent to other nodes.
+     */
+    public long getPublishedFull() {
+        return publishedFull;
+    }
+
+    /**
+     * The number of cluster state diffs sent to other nodes.
+     */
+    public long getPublishedDiffs() {
+        return publishedDiffs;
+    }
+
+    /**
+     * The total size of the (compressed) cluster states and diffs sent to other nodes.
+     */
+    public long getPublishedSizeInBytes() {
+        return publishedSizeInBytes;
+    }
+
+    public ByteSizeValue getPublishedSize() {
+        return new ByteSizeValue(publishedSizeInBytes);
+    }
+
+    public long getReceivedFull() {
+        return receivedFull;
+    }
+
+    public long getReceivedDiffs() {
+        return receivedDiffs;
+    }
+
+    public long getReceivedSizeInBytes() {
+        return receivedSizeInBytes;
+    }
+
+    public ByteSizeValue getReceivedSize() {
+        return new ByteSizeValue(receivedSizeInBytes);
+    }
+
+    /**
+     * The total time spent decoding the received cluster states and diffs, including rebuilding the cluster states
+     * from the diffs. Applying the cluster states is not included.
+     */
+    public long getDecodeTimeInMillis() {
+        return decodeTimeInMillis;
+    }
+
+    public TimeValue getDecodeTime() {
+        return new TimeValue(decodeTimeInMillis);
+    }
+
+    /**
+     * The number of received diffs that did not apply to the last cluster state of the node, so a full
+     * cluster state had to be sent instead.
+     */
+    public long getDiffMismatches() {
+        return diffMismatches;
+    }
+
+    public static DiscoveryStats readDiscoveryStats(StreamInput in) throws IOException {
+        DiscoveryStats stats = new DiscoveryStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        publishedFull = in.readVLong();
+        publishedDiffs = in.readVLong();
+        publishedSizeInBytes = in.readVLong();
+        receivedFull = in.readVLong();
+        receivedDiffs = in.readVLong();
+        receivedSizeInBytes = in.readVLong();
+        decodeTimeInMillis = in.readVLong();
+        diffMismatches = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(publishedFull);
+        out.writeVLong(publishedDiffs);
+        out.writeVLong(publishedSizeInBytes);
+        out.writeVLong(receivedFull);
+        out.writeVLong(receivedDiffs);
+        out.writeVLong(receivedSizeInBytes);
+        out.writeVLong(decodeTimeInMillis);
+        out.writeVLong(diffMismatches);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.DISCOVERY);
+        builder.startObject(Fields.CLUSTER_STATE);
+        builder.field(Fields.PUBLISHED_FULL, publishedFull);
+        builder.field(Fields.PUBLISHED_DIFFS, publishedDiffs);
+        builder.field(Fields.PUBLISHED_SIZE, getPublishedSize().toString());
+        builder.field(Fields.PUBLISHED_SIZE_IN_BYTES, publishedSizeInBytes);
+        builder.field(Fields.RECEIVED_FULL, receivedFull);
+        builder.field(Fields.RECEIVED_DIFFS, receivedDiffs);
+        builder.field(Fields.RECEIVED_SIZE, getReceivedSize().toString());
+        builder.field(Fields.RECEIVED_SIZE_IN_BYTES, receivedSizeInBytes);
+        builder.field(Fields.DECODE_TIME, getDecodeTime().toString());
+        builder.field(Fields.DECODE_TIME_IN_MILLIS, decodeTimeInMillis);
+        builder.field(Fields.DIFF_MISMATCHES, diffMismatches);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString DISCOVERY = new XContentBuilderString("discovery");
+        static final XContentBuilderString CLUSTER_STATE = new XContentBuilderString("cluster_state");
+        static final XContentBuilderString PUBLISHED_FULL = new XContentBuilderString("published_full");
+        static final XContentBuilderString PUBLISHED_DIFFS = new XContentBuilderString("published_diffs");
+        static final XContentBuilderString PUBLISHED_SIZE = new XContentBuilderString("published_size");
+        static final XContentBuilderString PUBLISHED_SIZE_IN_BYTES = new XContentBuilderString("published_size_in_bytes");
+        static final XContentBuilderString RECEIVED_FULL = new XContentBuilderString("received_full");
+        static final XContentBuilderString RECEIVED_DIFFS = new XContentBuilderString("received_diffs");
+        static final XContentBuilderString RECEIVED_SIZE = new XContentBuilderString("received_size");
+        static final XContentBuilderString RECEIVED_SIZE_IN_BYTES = new XContentBuilderString("received_size_in_bytes");
+        static final XContentBuilderString DECODE_TIME = new XContentBuilderString("decode_time");
+        static final XContentBuilderString DECODE_TIME_IN_MILLIS = new XContentBuilderString("decode_time_in_millis");
+        static final XContentBuilderString DIFF_MISMATCHES = new XContentBuilderString("diff_mismatches");
+    }
+}
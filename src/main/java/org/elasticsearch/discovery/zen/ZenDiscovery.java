@@ -44,6 +44,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.discovery.Discovery;
+import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.discovery.InitialStateDiscoveryListener;
 import org.elasticsearch.discovery.zen.elect.ElectMasterService;
 import org.elasticsearch.discovery.zen.fd.MasterFaultDetection;
@@ -276,6 +277,11 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
         publishClusterState.publish(clusterState);
     }
 
+    @Override
+    public DiscoveryStats stats() {
+        return publishClusterState.stats();
+    }
+
     private void asyncJoinCluster() {
         if (currentJoinThread != null) {
             // we are already joining, ignore...
@@ -308,6 +314,8 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
                 retry = true;
                 continue;
             }
+            // joining a (new) master, cluster state diffs against the previous one don't apply anymore
+            publishClusterState.clearStates();
             if (localNode.equals(masterNode)) {
                 this.master = true;
                 nodesFD.start(); // start the nodes FD
@@ -464,6 +472,7 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
         }
 
         logger.info("master_left [{}], reason [{}]", masterNode, reason);
+        publishClusterState.clearStates();
 
         clusterService.submitStateUpdateTask("zen-disco-master_failed (" + masterNode + ")", Priority.HIGH, new ProcessedClusterStateUpdateTask() {
             @Override
@@ -552,6 +561,14 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
                         //    return disconnectFromCluster(newState, "not enough master nodes on new cluster state received from [" + newState.nodes().masterNode() + "]");
                         //}
 
+                        // states from the same master are processed in order of arrival, never go back to an older one
+                        if (currentState.nodes().masterNodeId() != null && currentState.nodes().masterNodeId().equals(newState.nodes().masterNodeId())
+                                && newState.version() < currentState.version()) {
+                            logger.debug("received cluster state version [{}] from [{}] which is older than the current version [{}], ignoring",
+                                    newState.version(), newState.nodes().masterNode(), currentState.version());
+                            return currentState;
+                        }
+
                         latestDiscoNodes = newState.nodes();
 
                         // check to see that we monitor the correct master of the cluster
@@ -707,6 +724,7 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
         nodesFD.stop();
         masterFD.stop(reason);
         master = false;
+        publishClusterState.clearStates();
 
         ClusterBlocks clusterBlocks = ClusterBlocks.builder().blocks(clusterState.blocks())
                 .addGlobalBlock(NO_MASTER_BLOCK)
@@ -23,24 +23,30 @@ import com.google.common.collect.Maps;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
-import org.elasticsearch.common.io.stream.CachedStreamInput;
-import org.elasticsearch.common.io.stream.CachedStreamOutput;
-import org.elasticsearch.common.io.stream.StreamInput;
-import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.*;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.discovery.zen.DiscoveryNodesProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
- *
+ * Publishes the cluster state from the master to the other nodes. When a node already received the previous cluster
+ * state, only a diff against it is sent (see {@link ClusterState.Builder#writeDiffTo(ClusterState, ClusterState, StreamOutput)}),
+ * and nodes which can't apply the diff get the full cluster state instead. Each published state is tagged with a random
+ * uuid, a diff is only applied on top of the state with the same master and uuid it was computed against.
  */
 public class PublishClusterStateAction extends AbstractComponent {
 
@@ -54,12 +60,33 @@ public class PublishClusterStateAction extends AbstractComponent {
 
     private final NewClusterStateListener listener;
 
+    private final boolean publishDiffs;
+
+    // the last cluster state published while master, diffs are computed against it
+    private volatile PublishedState lastPublishedState;
+
+    // the last cluster state received from the master (with its uuid and the master it came from), diffs are applied to it
+    private final Object receiveMutex = new Object();
+    private ClusterState lastReceivedState;
+    private String lastReceivedStateUuid;
+    private String lastReceivedMasterId;
+
+    private final CounterMetric publishedFull = new CounterMetric();
+    private final CounterMetric publishedDiffs = new CounterMetric();
+    private final CounterMetric publishedSize = new CounterMetric();
+    private final CounterMetric receivedFull = new CounterMetric();
+    private final CounterMetric receivedDiffs = new CounterMetric();
+    private final CounterMetric receivedSize = new CounterMetric();
+    private final MeanMetric decodeMetric = new MeanMetric();
+    private final CounterMetric diffMismatches = new CounterMetric();
+
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewClusterStateListener listener) {
         super(settings);
         this.transportService = transportService;
         this.nodesProvider = nodesProvider;
         this.listener = listener;
+        this.publishDiffs = componentSettings.getAsBoolean("diff.enable", true);
 
         transportService.registerHandler(PublishClusterStateRequestHandler.ACTION, new PublishClusterStateRequestHandler());
     }
@@ -68,66 +95,181 @@ public class PublishClusterStateAction extends AbstractComponent {
         transportService.removeHandler(PublishClusterStateRequestHandler.ACTION);
     }
 
+    public DiscoveryStats stats() {
+        return new DiscoveryStats(publishedFull.count(), publishedDiffs.count(), publishedSize.count(),
+                receivedFull.count(), receivedDiffs.count(), receivedSize.count(), TimeUnit.NANOSECONDS.toMillis(decodeMetric.sum()),
+                diffMismatches.count());
+    }
+
+    /**
+     * Forgets the last published and received cluster states, called when the master changes so no diff is computed
+     * against, or applied on top of, a cluster state of the previous master.
+     */
+    public void clearStates() {
+        lastPublishedState = null;
+        synchronized (receiveMutex) {
+            lastReceivedState = null;
+            lastReceivedStateUuid = null;
+            lastReceivedMasterId = null;
+        }
+    }
+
     public void publish(ClusterState clusterState) {
         DiscoveryNode localNode = nodesProvider.nodes().localNode();
+        synchronized (receiveMutex) {
+            // we are the master now, whatever we received is from a previous one
+            lastReceivedState = null;
+            lastReceivedStateUuid = null;
+            lastReceivedMasterId = null;
+        }
+        PublishedState previous = lastPublishedState;
+        final PublishedState published = new PublishedState(clusterState, UUID.randomBase64UUID());
+        lastPublishedState = published;
+        if (!publishDiffs || (previous != null && previous.state.version() >= clusterState.version())) {
+            previous = null;
+        }
+        ClusterState previousState = previous == null ? null : previous.state;
 
-        Map<Version, CachedStreamOutput.Entry> serializedStates = Maps.newHashMap();
-        try {
-            for (final DiscoveryNode node : clusterState.nodes()) {
-                if (node.equals(localNode)) {
-                    // no need to send to our self
-                    continue;
-                }
-                // try and serialize the cluster state once (or per version), so we don't serialize it
-                // per node when we send it over the wire, compress it while we are at it...
-                CachedStreamOutput.Entry entry = serializedStates.get(node.version());
-                if (entry == null) {
-                    try {
-                        entry = CachedStreamOutput.popEntry();
-                        StreamOutput stream = entry.handles(CompressorFactory.defaultCompressor());
-                        stream.setVersion(node.version());
-                        ClusterState.Builder.writeTo(clusterState, stream);
-                        stream.close();
-                        serializedStates.put(node.version(), entry);
-                    } catch (Exception e) {
-                        logger.warn("failed to serialize cluster_state before publishing it to nodes", e);
-                        return;
+        Map<Version, BytesReference> serializedStates = Maps.newHashMap();
+        Map<Version, BytesReference> serializedDiffs = Maps.newHashMap();
+        for (final DiscoveryNode node : clusterState.nodes()) {
+            if (node.equals(localNode)) {
+                // no need to send to our self
+                continue;
+            }
+            // nodes that got the previous cluster state only need the diff, if they can read it
+            boolean diff = previousState != null && previousState.nodes().nodeExists(node.id()) && node.version().onOrAfter(Version.V_1_0_0_Beta1);
+            // try and serialize the cluster state once (or per version), so we don't serialize it
+            // per node when we send it over the wire, compress it while we are at it...
+            BytesReference bytes;
+            try {
+                if (diff) {
+                    bytes = serializedDiffs.get(node.version());
+                    if (bytes == null) {
+                        bytes = serializeDiff(previousState, clusterState, node.version());
+                        serializedDiffs.put(node.version(), bytes);
+                    }
+                } else {
+                    bytes = serializedStates.get(node.version());
+                    if (bytes == null) {
+                        bytes = serializeFullState(clusterState, node.version());
+                        serializedStates.put(node.version(), bytes);
                     }
                 }
-                transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
-                        new PublishClusterStateRequest(entry.bytes().bytes()),
-                        TransportRequestOptions.options().withHighType().withCompress(false), // no need to compress, we already compressed the bytes
-
-                        new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
-                            @Override
-                            public void handleException(TransportException exp) {
-                                logger.debug("failed to send cluster state to [{}], should be detected as failed soon...", exp, node);
-                            }
-                        });
+            } catch (Exception e) {
+                logger.warn("failed to serialize cluster_state before publishing it to nodes", e);
+                return;
             }
+            sendClusterState(node, published, diff ? previous.uuid : null, bytes, diff);
+        }
+    }
+
+    private void sendClusterState(final DiscoveryNode node, final PublishedState published, @Nullable String previousUuid,
+                                  BytesReference bytes, final boolean diff) {
+        if (diff) {
+            publishedDiffs.inc();
+        } else {
+            publishedFull.inc();
+        }
+        publishedSize.inc(bytes.length());
+        transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
+                new PublishClusterStateRequest(bytes, diff, nodesProvider.nodes().localNodeId(), previousUuid, published.uuid),
+                TransportRequestOptions.options().withHighType().withCompress(false), // no need to compress, we already compressed the bytes
+
+                new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                    @Override
+                    public void handleException(TransportException exp) {
+                        if (diff && exp.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
+                            // the node missed the previous cluster state, send it the latest one in full, the diffs published
+                            // since are computed against states it doesn't have and are rejected as well
+                            PublishedState latest = lastPublishedState;
+                            if (latest == null || latest.state.version() < published.state.version()) {
+                                latest = published;
+                            }
+                            if (!latest.state.nodes().nodeExists(node.id())) {
+                                logger.debug("[{}] could not apply the cluster state diff, but was removed from the cluster since", node);
+                                return;
+                            }
+                            logger.debug("[{}] could not apply the cluster state diff, sending the full cluster state", node);
+                            try {
+                                sendClusterState(node, latest, null, serializeFullState(latest.state, node.version()), false);
+                            } catch (Exception e) {
+                                logger.warn("failed to serialize cluster_state before publishing it to [{}]", e, node);
+                            }
+                            return;
+                        }
+                        logger.debug("failed to send cluster state to [{}], should be detected as failed soon...", exp, node);
+                    }
+                });
+    }
+
+    private BytesReference serializeFullState(ClusterState clusterState, Version nodeVersion) throws IOException {
+        CachedStreamOutput.Entry entry = CachedStreamOutput.popEntry();
+        try {
+            StreamOutput stream = entry.handles(CompressorFactory.defaultCompressor());
+            stream.setVersion(nodeVersion);
+            ClusterState.Builder.writeTo(clusterState, stream);
+            stream.close();
+            return entry.bytes().bytes().copyBytesArray();
         } finally {
-            for (CachedStreamOutput.Entry entry : serializedStates.values()) {
-                CachedStreamOutput.pushEntry(entry);
-            }
+            CachedStreamOutput.pushEntry(entry);
+        }
+    }
+
+    private BytesReference serializeDiff(ClusterState previousState, ClusterState clusterState, Version nodeVersion) throws IOException {
+        CachedStreamOutput.Entry entry = CachedStreamOutput.popEntry();
+        try {
+            StreamOutput stream = entry.handles(CompressorFactory.defaultCompressor());
+            stream.setVersion(nodeVersion);
+            ClusterState.Builder.writeDiffTo(previousState, clusterState, stream);
+            stream.close();
+            return entry.bytes().bytes().copyBytesArray();
+        } finally {
+            CachedStreamOutput.pushEntry(entry);
+        }
+    }
+
+    static class PublishedState {
+        final ClusterState state;
+        final String uuid;
+
+        PublishedState(ClusterState state, String uuid) {
+            this.state = state;
+            this.uuid = uuid;
         }
     }
 
     class PublishClusterStateRequest extends TransportRequest {
 
         BytesReference clusterStateInBytes;
+        boolean diff;
+        String masterNodeId;
+        String previousStateUuid;
+        String stateUuid;
         Version version = Version.CURRENT;
 
         private PublishClusterStateRequest() {
         }
 
-        private PublishClusterStateRequest(BytesReference clusterStateInBytes) {
+        private PublishClusterStateRequest(BytesReference clusterStateInBytes, boolean diff, String masterNodeId,
+                                           @Nullable String previousStateUuid, String stateUuid) {
             this.clusterStateInBytes = clusterStateInBytes;
+            this.diff = diff;
+            this.masterNodeId = masterNodeId;
+            this.previousStateUuid = previousStateUuid;
+            this.stateUuid = stateUuid;
         }
 
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
             clusterStateInBytes = in.readBytesReference();
+            if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                diff = in.readBoolean();
+                masterNodeId = in.readString();
+                previousStateUuid = in.readOptionalString();
+                stateUuid = in.readString();
+            }
             version = in.getVersion();
         }
 
@@ -135,6 +277,12 @@ public class PublishClusterStateAction extends AbstractComponent {
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
             out.writeBytesReference(clusterStateInBytes);
+            if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                out.writeBoolean(diff);
+                out.writeString(masterNodeId);
+                out.writeOptionalString(previousStateUuid);
+                out.writeString(stateUuid);
+            }
         }
     }
 
@@ -149,6 +297,7 @@ public class PublishClusterStateAction extends AbstractComponent {
 
         @Override
         public void messageReceived(PublishClusterStateRequest request, TransportChannel channel) throws Exception {
+            long start = System.nanoTime();
             Compressor compressor = CompressorFactory.compressor(request.clusterStateInBytes);
             StreamInput in;
             if (compressor != null) {
@@ -157,8 +306,42 @@ public class PublishClusterStateAction extends AbstractComponent {
                 in = CachedStreamInput.cachedHandles(request.clusterStateInBytes.streamInput());
             }
             in.setVersion(request.version);
-            ClusterState clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
-            listener.onNewClusterState(clusterState);
+            ClusterState clusterState;
+            synchronized (receiveMutex) {
+                if (request.diff) {
+                    long previousVersion = ClusterState.Builder.readDiffPreviousVersion(in);
+                    // the diff must come from the master we got the last state from, and be computed against that very state
+                    if (lastReceivedState == null || !request.masterNodeId.equals(lastReceivedMasterId)
+                            || !request.previousStateUuid.equals(lastReceivedStateUuid) || lastReceivedState.version() != previousVersion) {
+                        diffMismatches.inc();
+                        throw new IncompatibleClusterStateVersionException("cluster state diff from [" + request.masterNodeId + "] applies to version ["
+                                + previousVersion + "] uuid [" + request.previousStateUuid + "], but the last cluster state received has "
+                                + (lastReceivedState == null ? "none" : "version [" + lastReceivedState.version() + "] uuid [" + lastReceivedStateUuid
+                                + "] from [" + lastReceivedMasterId + "]"));
+                    }
+                    clusterState = ClusterState.Builder.readDiffFrom(in, lastReceivedState, nodesProvider.nodes().localNode());
+                    receivedDiffs.inc();
+                } else {
+                    clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+                    receivedFull.inc();
+                }
+                // full states sent after a rejected diff can arrive after newer ones, don't step back to them
+                if (lastReceivedState != null && request.masterNodeId != null && request.masterNodeId.equals(lastReceivedMasterId)
+                        && clusterState.version() <= lastReceivedState.version()) {
+                    logger.debug("ignoring cluster state version [{}] from [{}], already received version [{}]",
+                            clusterState.version(), request.masterNodeId, lastReceivedState.version());
+                    clusterState = null;
+                } else {
+                    lastReceivedState = clusterState;
+                    lastReceivedStateUuid = request.stateUuid;
+                    lastReceivedMasterId = request.masterNodeId;
+                }
+            }
+            receivedSize.inc(request.clusterStateInBytes.length());
+            decodeMetric.inc(System.nanoTime() - start);
+            if (clusterState != null) {
+                listener.onNewClusterState(clusterState);
+            }
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
 
@@ -0,0 +1,423 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.WriteConsistencyLevel;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.support.replication.ReplicationType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Booleans;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.xcontent.*;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.*;
+import org.jboss.netty.handler.codec.http.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles <tt>[/{index}[/{type}]]/_bulk/stream</tt> requests without aggregating their content. The actions are
+ * parsed as the HTTP chunks arrive, and executed in batches of <tt>http.bulk_stream.batch_size</tt> actions (or
+ * <tt>http.bulk_stream.batch_bytes</tt>). Reading from the channel is suspended while
+ * <tt>http.bulk_stream.max_in_flight</tt> batches are executing, so the memory used by a connection is bounded
+ * whatever the size of the request.
+ * <p/>
+ * The response is streamed as well, with a line acknowledging each batch once it is executed, and a last line
+ * summing up the request.
+ * <p/>
+ * The requests are handled in the netty pipeline, before they reach the {@link org.elasticsearch.rest.RestController},
+ * so the registered {@link org.elasticsearch.rest.RestFilter}s don't apply to them. It is only installed when
+ * <tt>http.bulk_stream.enabled</tt> is set.
+ */
+public class HttpBulkStreamHandler extends SimpleChannelUpstreamHandler {
+
+    public static final String ENDPOINT = "/_bulk/stream";
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    private final NettyHttpServerTransport transport;
+
+    private final Client client;
+
+    // the stream which content is being received, if any
+    private BulkStream stream;
+
+    public HttpBulkStreamHandler(NettyHttpServerTransport transport, Client client) {
+        this.transport = transport;
+        this.client = client;
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        Object message = e.getMessage();
+        if (stream == null) {
+            if (message instanceof HttpRequest && isBulkStream((HttpRequest) message)) {
+                HttpRequest request = (HttpRequest) message;
+                stream = new BulkStream(ctx.getChannel(), request);
+                stream.start();
+                if (!request.isChunked()) {
+                    // small enough to not be split in chunks
+                    receive(request.getContent(), true);
+                }
+                return;
+            }
+            ctx.sendUpstream(e);
+        } else if (message instanceof HttpChunk) {
+            HttpChunk chunk = (HttpChunk) message;
+            receive(chunk.getContent(), chunk.isLast());
+        } else {
+            ctx.sendUpstream(e);
+        }
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        if (stream != null) {
+            stream.abort();
+            stream = null;
+        }
+        super.channelClosed(ctx, e);
+    }
+
+    private void receive(ChannelBuffer content, boolean last) {
+        stream.receive(content);
+        if (last) {
+            stream.end();
+            stream = null;
+        }
+    }
+
+    static boolean isBulkStream(HttpRequest request) {
+        if (request.getMethod() != HttpMethod.POST && request.getMethod() != HttpMethod.PUT) {
+            return false;
+        }
+        String uri = request.getUri();
+        int pathEndPos = uri.indexOf('?');
+        String path = pathEndPos < 0 ? uri : uri.substring(0, pathEndPos);
+        return path.endsWith(ENDPOINT);
+    }
+
+    class BulkStream {
+
+        private final Channel channel;
+
+        private final HttpRequest request;
+
+        private final String defaultIndex;
+
+        private final String defaultType;
+
+        private final Map<String, List<String>> params;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private ChannelBuffer pending = ChannelBuffers.dynamicBuffer(INITIAL_BUFFER_SIZE);
+
+        private XContent xContent;
+
+        // the position up to which the pending lines have been looked at
+        private int scanned;
+
+        // the end of the last complete action, and the number of complete actions before it
+        private int complete;
+        private int completeActions;
+
+        // if the next line is the source of the last action line
+        private boolean expectSource;
+
+        private boolean ended;
+
+        private boolean aborted;
+
+        private int inFlight;
+
+        private int batches;
+
+        private long items;
+
+        private boolean errors;
+
+        BulkStream(Channel channel, HttpRequest request) {
+            this.channel = channel;
+            this.request = request;
+            QueryStringDecoder decoder = new QueryStringDecoder(request.getUri());
+            String path = decoder.getPath();
+            String[] parts = path.substring(0, path.length() - ENDPOINT.length()).split("/");
+            String index = null;
+            String type = null;
+            for (String part : parts) {
+                if (part.length() == 0) {
+                    continue;
+                }
+                if (index == null) {
+                    index = part;
+                } else if (type == null) {
+                    type = part;
+                }
+            }
+            this.defaultIndex = index;
+            this.defaultType = type;
+            this.params = decoder.getParameters();
+        }
+
+        synchronized void start() {
+            if (HttpHeaders.is100ContinueExpected(request)) {
+                channel.write(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
+            }
+            HttpResponse response = new DefaultHttpResponse(request.getProtocolVersion(), HttpResponseStatus.OK);
+            response.setHeader(HttpHeaders.Names.CONTENT_TYPE, XContentType.JSON.restContentType());
+            if (request.getProtocolVersion().equals(HttpVersion.HTTP_1_1)) {
+                response.setChunked(true);
+                response.setHeader(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+            }
+            channel.write(response);
+        }
+
+        synchronized void receive(ChannelBuffer content) {
+            if (aborted) {
+                return;
+            }
+            if (xContent == null && content.readable()) {
+                XContentType type = XContentFactory.xContentType(new ChannelBufferBytesReference(content));
+                xContent = XContentFactory.xContent(type == null ? XContentType.JSON : type);
+            }
+            pending.writeBytes(content);
+            byte marker = xContent == null ? (byte) '\n' : xContent.streamSeparator();
+            int next;
+            while ((next = pending.indexOf(scanned, pending.writerIndex(), marker)) != -1) {
+                if (expectSource) {
+                    expectSource = false;
+                    complete = next + 1;
+                    completeActions++;
+                } else if (next > scanned && !isDelete(scanned, next - scanned)) {
+                    expectSource = true;
+                } else {
+                    complete = next + 1;
+                    if (next > scanned) {
+                        completeActions++;
+                    }
+                }
+                scanned = next + 1;
+                if (completeActions >= transport.bulkStreamBatchSize || complete >= transport.bulkStreamBatchBytes.bytes()) {
+                    dispatch();
+                }
+            }
+            if (pending.readableBytes() > transport.maxContentLength.bytes()) {
+                // a single action would not fit in a regular bulk request either
+                fail("bulk stream action is larger than [" + transport.maxContentLength + "]");
+            }
+        }
+
+        synchronized void end() {
+            if (aborted) {
+                return;
+            }
+            if (complete > 0) {
+                dispatch();
+            }
+            ended = true;
+            if (inFlight == 0) {
+                finish();
+            } else {
+                // no new request on this channel until this one is answered
+                channel.setReadable(false);
+            }
+        }
+
+        synchronized void abort() {
+            aborted = true;
+        }
+
+        private boolean isDelete(int offset, int length) {
+            try {
+                XContentParser parser = xContent.createParser(pending.array(), pending.arrayOffset() + offset, length);
+                try {
+                    if (parser.nextToken() == XContentParser.Token.START_OBJECT && parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                        return "delete".equals(parser.currentName());
+                    }
+                } finally {
+                    parser.close();
+                }
+            } catch (IOException e) {
+                // will fail when added to the batch
+            }
+            return false;
+        }
+
+        private void dispatch() {
+            final int batch = ++batches;
+            BulkRequest bulkRequest = new BulkRequest();
+            bulkRequest.listenerThreaded(false);
+            String replicationType = param("replication");
+            if (replicationType != null) {
+                bulkRequest.replicationType(ReplicationType.fromString(replicationType));
+            }
+            String consistencyLevel = param("consistency");
+            if (consistencyLevel != null) {
+                bulkRequest.consistencyLevel(WriteConsistencyLevel.fromString(consistencyLevel));
+            }
+            bulkRequest.refresh(Booleans.parseBoolean(param("refresh"), bulkRequest.refresh()));
+            ChannelBuffer batchBuffer = pending;
+            try {
+                // the batch owns the buffer from now on, so the sources are handed over as slices of it, not copies
+                bulkRequest.add(new ChannelBufferBytesReference(batchBuffer.slice(0, complete)), false, defaultIndex, defaultType);
+            } catch (Exception e) {
+                errors = true;
+                ack(batch, null, e);
+                return;
+            } finally {
+                // only the incomplete action that follows is copied, sized so the next batch doesn't need to grow it
+                int remaining = batchBuffer.writerIndex() - complete;
+                pending = ChannelBuffers.dynamicBuffer(Math.max(INITIAL_BUFFER_SIZE, batchBuffer.writerIndex()));
+                pending.writeBytes(batchBuffer, complete, remaining);
+                scanned -= complete;
+                complete = 0;
+                completeActions = 0;
+            }
+            if (bulkRequest.numberOfActions() == 0) {
+                return;
+            }
+            if (++inFlight >= transport.bulkStreamMaxInFlight) {
+                channel.setReadable(false);
+            }
+            client.bulk(bulkRequest, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    executed(batch, response, null);
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    executed(batch, null, e);
+                }
+            });
+        }
+
+        private synchronized void executed(int batch, BulkResponse response, Throwable failure) {
+            inFlight--;
+            if (failure != null || response.hasFailures()) {
+                errors = true;
+            }
+            if (response != null) {
+                items += response.getItems().length;
+            }
+            ack(batch, response, failure);
+            if (ended) {
+                if (inFlight == 0) {
+                    finish();
+                }
+            } else if (inFlight == transport.bulkStreamMaxInFlight - 1) {
+                channel.setReadable(true);
+            }
+        }
+
+        private void fail(String message) {
+            errors = true;
+            // acknowledged before aborting, aborted streams don't acknowledge anymore
+            ack(batches, null, new IllegalArgumentException(message));
+            aborted = true;
+            channel.write(HttpChunk.LAST_CHUNK).addListener(ChannelFutureListener.CLOSE);
+        }
+
+        private void ack(int batch, BulkResponse response, Throwable failure) {
+            if (aborted) {
+                return;
+            }
+            try {
+                XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+                builder.field(Fields.BATCH, batch);
+                if (failure != null) {
+                    builder.field(Fields.ERROR, failure.getMessage());
+                } else {
+                    builder.field(Fields.TOOK, response.getTookInMillis());
+                    builder.field(Fields.ITEMS, response.getItems().length);
+                    builder.field(Fields.ERRORS, response.hasFailures());
+                    if (response.hasFailures()) {
+                        builder.startArray(Fields.FAILURES);
+                        for (BulkItemResponse item : response) {
+                            if (item.isFailed()) {
+                                builder.startObject();
+                                builder.field(Fields._INDEX, item.getIndex());
+                                builder.field(Fields._TYPE, item.getType());
+                                builder.field(Fields._ID, item.getId());
+                                builder.field(Fields.ERROR, item.getFailureMessage());
+                                builder.endObject();
+                            }
+                        }
+                        builder.endArray();
+                    }
+                }
+                builder.endObject();
+                writeLine(builder);
+            } catch (IOException e) {
+                // can't happen, we build in memory
+            }
+        }
+
+        private void finish() {
+            try {
+                XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+                builder.field(Fields.TOOK, System.currentTimeMillis() - startTime);
+                builder.field(Fields.BATCHES, batches);
+                builder.field(Fields.ITEMS, items);
+                builder.field(Fields.ERRORS, errors);
+                builder.endObject();
+                writeLine(builder);
+            } catch (IOException e) {
+                // can't happen, we build in memory
+            }
+            ChannelFuture future = channel.write(HttpChunk.LAST_CHUNK);
+            if (!HttpHeaders.isKeepAlive(request) || !request.getProtocolVersion().equals(HttpVersion.HTTP_1_1)) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            } else if (!channel.isReadable()) {
+                channel.setReadable(true);
+            }
+        }
+
+        private void writeLine(XContentBuilder builder) throws IOException {
+            ChannelBuffer line = ChannelBuffers.wrappedBuffer(builder.bytes().toChannelBuffer(), ChannelBuffers.wrappedBuffer(new byte[]{'\n'}));
+            channel.write(new DefaultHttpChunk(line));
+        }
+
+        private String param(String key) {
+            List<String> values = params.get(key);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString BATCH = new XContentBuilderString("batch");
+        static final XContentBuilderString BATCHES = new XContentBuilderString("batches");
+        static final XContentBuilderString TOOK = new XContentBuilderString("took");
+        static final XContentBuilderString ITEMS = new XContentBuilderString("items");
+        static final XContentBuilderString ERRORS = new XContentBuilderString("errors");
+        static final XContentBuilderString ERROR = new XContentBuilderString("error");
+        static final XContentBuilderString FAILURES = new XContentBuilderString("failures");
+        static final XContentBuilderString _INDEX = new XContentBuilderString("_index");
+        static final XContentBuilderString _TYPE = new XContentBuilderString("_type");
+        static final XContentBuilderString _ID = new XContentBuilderString("_id");
+    }
+}
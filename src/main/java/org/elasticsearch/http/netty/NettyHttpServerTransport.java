@@ -20,6 +20,7 @@
 package org.elasticsearch.http.netty;
 
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.client.Client;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.netty.NettyStaticSetup;
@@ -98,6 +99,13 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
     final ByteSizeValue maxCumulationBufferCapacity;
     final int maxCompositeBufferComponents;
 
+    final boolean bulkStreamEnabled;
+    final int bulkStreamBatchSize;
+    final ByteSizeValue bulkStreamBatchBytes;
+    final int bulkStreamMaxInFlight;
+
+    private final Client client;
+
     private volatile ServerBootstrap serverBootstrap;
 
     private volatile BoundTransportAddress boundAddress;
@@ -109,9 +117,10 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
     private volatile HttpServerAdapter httpServerAdapter;
 
     @Inject
-    public NettyHttpServerTransport(Settings settings, NetworkService networkService) {
+    public NettyHttpServerTransport(Settings settings, NetworkService networkService, Client client) {
         super(settings);
         this.networkService = networkService;
+        this.client = client;
 
         if (settings.getAsBoolean("netty.epollBugWorkaround", false)) {
             System.setProperty("org.jboss.netty.epollBugWorkaround", "true");
@@ -126,6 +135,11 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
         this.resetCookies = componentSettings.getAsBoolean("reset_cookies", settings.getAsBoolean("http.reset_cookies", false));
         this.maxCumulationBufferCapacity = componentSettings.getAsBytesSize("max_cumulation_buffer_capacity", null);
         this.maxCompositeBufferComponents = componentSettings.getAsInt("max_composite_buffer_components", -1);
+        // off by default, the streaming endpoint is handled in the pipeline and doesn't go through the rest filters
+        this.bulkStreamEnabled = componentSettings.getAsBoolean("bulk_stream.enabled", settings.getAsBoolean("http.bulk_stream.enabled", false));
+        this.bulkStreamBatchSize = componentSettings.getAsInt("bulk_stream.batch_size", settings.getAsInt("http.bulk_stream.batch_size", 1000));
+        this.bulkStreamBatchBytes = componentSettings.getAsBytesSize("bulk_stream.batch_bytes", settings.getAsBytesSize("http.bulk_stream.batch_bytes", new ByteSizeValue(5, ByteSizeUnit.MB)));
+        this.bulkStreamMaxInFlight = componentSettings.getAsInt("bulk_stream.max_in_flight", settings.getAsInt("http.bulk_stream.max_in_flight", 2));
         this.workerCount = componentSettings.getAsInt("worker_count", Runtime.getRuntime().availableProcessors() * 2);
         this.blockingServer = settings.getAsBoolean("http.blocking_server", settings.getAsBoolean(TCP_BLOCKING_SERVER, settings.getAsBoolean(TCP_BLOCKING, false)));
         this.port = componentSettings.get("port", settings.get("http.port", "9200-9300"));
@@ -165,6 +179,9 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
 
         logger.debug("using max_chunk_size[{}], max_header_size[{}], max_initial_line_length[{}], max_content_length[{}], receive_predictor[{}->{}]",
                 maxChunkSize, maxHeaderSize, maxInitialLineLength, this.maxContentLength, receivePredictorMin, receivePredictorMax);
+        if (bulkStreamEnabled) {
+            logger.debug("using bulk_stream batch_size[{}], batch_bytes[{}], max_in_flight[{}]", bulkStreamBatchSize, bulkStreamBatchBytes, bulkStreamMaxInFlight);
+        }
     }
 
     public Settings settings() {
@@ -345,15 +362,20 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
             if (transport.compression) {
                 pipeline.addLast("decoder_compress", new HttpContentDecompressor());
             }
+            // the encoders come before the bulk stream handler, so the compressor sees the requests it answers
+            pipeline.addLast("encoder", new HttpResponseEncoder());
+            if (transport.compression) {
+                pipeline.addLast("encoder_compress", new HttpContentCompressor(transport.compressionLevel));
+            }
+            if (transport.bulkStreamEnabled) {
+                // bulk streams are handled chunk by chunk, before the aggregator
+                pipeline.addLast("bulk_stream", new HttpBulkStreamHandler(transport, transport.client));
+            }
             HttpChunkAggregator httpChunkAggregator = new HttpChunkAggregator((int) transport.maxContentLength.bytes());
             if (transport.maxCompositeBufferComponents != -1) {
                 httpChunkAggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
             }
             pipeline.addLast("aggregator", httpChunkAggregator);
-            pipeline.addLast("encoder", new HttpResponseEncoder());
-            if (transport.compression) {
-                pipeline.addLast("encoder_compress", new HttpContentCompressor(transport.compressionLevel));
-            }
             pipeline.addLast("handler", requestHandler);
             return pipeline;
         }
@@ -0,0 +1,113 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.query;
+
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.shard.AbstractIndexShardComponent;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
+
+/**
+ * The shard level view of the node level {@link IndicesQueryCache}, it holds whether caching of query
+ * results is enabled for the index, and the stats of the entries belonging to this shard.
+ */
+public class ShardQueryCache extends AbstractIndexShardComponent implements RemovalListener<IndicesQueryCache.Key, BytesReference> {
+
+    public static final String INDEX_CACHE_QUERY_ENABLE = "index.cache.query.enable";
+
+    final CounterMetric evictionsMetric = new CounterMetric();
+    final CounterMetric totalMetric = new CounterMetric();
+    final CounterMetric hitCount = new CounterMetric();
+    final CounterMetric missCount = new CounterMetric();
+
+    private final IndexSettingsService indexSettingsService;
+
+    private final ApplySettings applySettings = new ApplySettings();
+
+    private volatile boolean enabled;
+
+    @Inject
+    public ShardQueryCache(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService) {
+        super(shardId, indexSettings);
+        this.indexSettingsService = indexSettingsService;
+        this.enabled = indexSettings.getAsBoolean(INDEX_CACHE_QUERY_ENABLE, false);
+
+        indexSettingsService.addListener(applySettings);
+    }
+
+    /**
+     * Should query results of this shard be cached.
+     */
+    public boolean enabled() {
+        return this.enabled;
+    }
+
+    public QueryCacheStats stats() {
+        return new QueryCacheStats(totalMetric.count(), evictionsMetric.count(), hitCount.count(), missCount.count());
+    }
+
+    public void onHit() {
+        hitCount.inc();
+    }
+
+    public void onMiss() {
+        missCount.inc();
+    }
+
+    public void onCached(IndicesQueryCache.Key key, BytesReference value) {
+        totalMetric.inc(key.ramBytesUsed() + value.length());
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<IndicesQueryCache.Key, BytesReference> removalNotification) {
+        if (removalNotification.wasEvicted()) {
+            evictionsMetric.inc();
+        }
+        long sizeInBytes = 0;
+        if (removalNotification.getKey() != null) {
+            sizeInBytes += removalNotification.getKey().ramBytesUsed();
+        }
+        if (removalNotification.getValue() != null) {
+            sizeInBytes += removalNotification.getValue().length();
+        }
+        totalMetric.dec(sizeInBytes);
+    }
+
+    public void close() {
+        indexSettingsService.removeListener(applySettings);
+    }
+
+    class ApplySettings implements IndexSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean enabled = settings.getAsBoolean(INDEX_CACHE_QUERY_ENABLE, ShardQueryCache.this.enabled);
+            if (enabled != ShardQueryCache.this.enabled) {
+                logger.info("updating [{}] from [{}] to [{}]", INDEX_CACHE_QUERY_ENABLE, ShardQueryCache.this.enabled, enabled);
+                ShardQueryCache.this.enabled = enabled;
+            }
+        }
+    }
+}
@@ -69,6 +69,11 @@ public class PerFieldMappingPostingFormatCodec extends Lucene42Codec {
             // TODO: Make it configurable
             return diskDocValuesFormat;
         }
+        final FieldMappers indexName = mapperService.indexName(field);
+        if (indexName != null && indexName.mapper().hasDocValues()) {
+            // doc values based field data is read straight from disk, keep it out of the heap
+            return diskDocValuesFormat;
+        }
         return super.getDocValuesFormatForField(field);
     }
 }
@@ -84,6 +84,12 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     List<Segment> segments();
 
+    /**
+     * Returns the heap used by the realtime version map, which tracks the versions of documents
+     * indexed or deleted since the last refresh.
+     */
+    long versionMapMemoryInBytes();
+
     /**
      * Returns <tt>true</tt> if a refresh is really needed.
      */
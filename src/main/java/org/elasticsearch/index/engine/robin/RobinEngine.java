@@ -26,15 +26,12 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.AlreadyClosedException;
-import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
-import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.common.lucene.uid.Versions;
@@ -42,14 +39,15 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.deletionpolicy.SnapshotDeletionPolicy;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.*;
+import org.elasticsearch.index.engine.robin.VersionMap.VersionValue;
 import org.elasticsearch.index.indexing.ShardIndexingService;
+import org.elasticsearch.index.merge.policy.IndexSort;
 import org.elasticsearch.index.merge.policy.IndexUpgraderMergePolicy;
 import org.elasticsearch.index.merge.policy.MergePolicyProvider;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
@@ -68,7 +66,6 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -134,11 +131,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private volatile int onGoingRecoveries = 0;
 
 
-    // A uid (in the form of BytesRef) to the version map
-    // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final ConcurrentMap<HashedBytesRef, VersionValue> versionMap;
-
-    private final Object[] dirtyLocks;
+    // A uid (in the form of BytesRef) to the version map, its stripes also serve as the locks serializing the
+    // operations on a uid
+    private final VersionMap versionMap;
 
     private final Object refreshMutex = new Object();
 
@@ -184,11 +179,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         this.codecService = codecService;
 
         this.indexConcurrency = indexSettings.getAsInt(INDEX_INDEX_CONCURRENCY, IndexWriterConfig.DEFAULT_MAX_THREAD_STATES);
-        this.versionMap = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
-        this.dirtyLocks = new Object[indexConcurrency * 50]; // we multiply it to have enough...
-        for (int i = 0; i < dirtyLocks.length; i++) {
-            dirtyLocks[i] = new Object();
-        }
+        this.versionMap = new VersionMap(indexConcurrency * 50); // we multiply it to have enough...
 
         this.indexSettingsService.addListener(applySettings);
 
@@ -310,7 +301,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         rwl.readLock().lock();
         try {
             if (get.realtime()) {
-                VersionValue versionValue = versionMap.get(versionKey(get.uid()));
+                VersionValue versionValue = versionMap.get(get.uid().bytes());
                 if (versionValue != null) {
                     if (versionValue.delete()) {
                         return GetResult.NOT_EXISTS;
@@ -379,9 +370,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private void innerCreate(Create create, IndexWriter writer) throws IOException {
         synchronized (dirtyLock(create.uid())) {
-            HashedBytesRef versionKey = versionKey(create.uid());
             final long currentVersion;
-            VersionValue versionValue = versionMap.get(versionKey);
+            VersionValue versionValue = versionMap.get(create.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(create.uid());
             } else {
@@ -440,7 +430,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             }
             Translog.Location translogLocation = translog.add(new Translog.Create(create));
 
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+            versionMap.put(create.uid().bytes(), updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation);
 
             indexingService.postCreateUnderLock(create);
         }
@@ -476,9 +466,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private void innerIndex(Index index, IndexWriter writer) throws IOException {
         synchronized (dirtyLock(index.uid())) {
-            HashedBytesRef versionKey = versionKey(index.uid());
             final long currentVersion;
-            VersionValue versionValue = versionMap.get(versionKey);
+            VersionValue versionValue = versionMap.get(index.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(index.uid());
             } else {
@@ -532,7 +521,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             }
             Translog.Location translogLocation = translog.add(new Translog.Index(index));
 
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+            versionMap.put(index.uid().bytes(), updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation);
 
             indexingService.postIndexUnderLock(index);
         }
@@ -568,8 +557,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private void innerDelete(Delete delete, IndexWriter writer) throws IOException {
         synchronized (dirtyLock(delete.uid())) {
             final long currentVersion;
-            HashedBytesRef versionKey = versionKey(delete.uid());
-            VersionValue versionValue = versionMap.get(versionKey);
+            VersionValue versionValue = versionMap.get(delete.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(delete.uid());
             } else {
@@ -606,17 +594,17 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 // doc does not exists and no prior deletes
                 delete.version(updatedVersion).notFound(true);
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                versionMap.put(delete.uid().bytes(), updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation);
             } else if (versionValue != null && versionValue.delete()) {
                 // a "delete on delete", in this case, we still increment the version, log it, and return that version
                 delete.version(updatedVersion).notFound(true);
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                versionMap.put(delete.uid().bytes(), updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation);
             } else {
                 delete.version(updatedVersion);
                 writer.deleteDocuments(delete.uid());
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                versionMap.put(delete.uid().bytes(), updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation);
             }
 
             indexingService.postDeleteUnderLock(delete);
@@ -654,7 +642,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             rwl.readLock().unlock();
         }
         //TODO: This is heavy, since we refresh, but we really have to...
-        refreshVersioningTable(System.currentTimeMillis());
+        refreshVersioningTable();
     }
 
     @Override
@@ -699,7 +687,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 synchronized (refreshMutex) {
                     if (dirty || refresh.force()) {
                         dirty = false;
-                        searcherManager.maybeRefresh();
+                        // the versions recorded so far are dropped once the refresh made their documents visible
+                        versionMap.beforeRefresh();
+                        boolean refreshed = false;
+                        try {
+                            refreshed = searcherManager.maybeRefresh();
+                        } finally {
+                            if (refreshed) {
+                                versionMap.afterRefresh(threadPool.estimatedTimeInMillis(), enableGcDeletes, gcDeletesInMillis);
+                            } else {
+                                versionMap.cancelRefresh();
+                            }
+                        }
                     }
                 }
             } catch (AlreadyClosedException e) {
@@ -777,7 +776,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                         this.searcherManager = buildSearchManager(indexWriter);
                         current.close();
 
-                        refreshVersioningTable(threadPool.estimatedTimeInMillis());
+                        refreshVersioningTable();
                     } catch (OutOfMemoryError e) {
                         failEngine(e);
                         throw new FlushFailedEngineException(shardId, e);
@@ -809,7 +808,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                             translog.newTransientTranslog(translogId);
                             indexWriter.setCommitData(MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)).map());
                             indexWriter.commit();
-                            refreshVersioningTable(threadPool.estimatedTimeInMillis());
+                            refreshVersioningTable();
                             // we need to move transient to current only after we refresh
                             // so items added to current will still be around for realtime get
                             // when tans overrides it
@@ -882,28 +881,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private void refreshVersioningTable(long time) {
-        // we need to refresh in order to clear older version values
+    private void refreshVersioningTable() {
+        // we need to refresh in order to clear older version values, the version map is cleared on refresh
         refresh(new Refresh(true).force(true));
-        for (Map.Entry<HashedBytesRef, VersionValue> entry : versionMap.entrySet()) {
-            HashedBytesRef uid = entry.getKey();
-            synchronized (dirtyLock(uid.bytes)) { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
-                VersionValue versionValue = versionMap.get(uid);
-                if (versionValue == null) {
-                    continue;
-                }
-                if (time - versionValue.time() <= 0) {
-                    continue; // its a newer value, from after/during we refreshed, don't clear it
-                }
-                if (versionValue.delete()) {
-                    if (enableGcDeletes && (time - versionValue.time()) > gcDeletesInMillis) {
-                        versionMap.remove(uid);
-                    }
-                } else {
-                    versionMap.remove(uid);
-                }
-            }
-        }
     }
 
     @Override
@@ -1092,6 +1072,11 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    @Override
+    public long versionMapMemoryInBytes() {
+        return versionMap.ramBytesUsed();
+    }
+
     @Override
     public List<Segment> segments() {
         rwl.readLock().lock();
@@ -1223,21 +1208,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private HashedBytesRef versionKey(Term uid) {
-        return new HashedBytesRef(uid.bytes());
-    }
-
-    private Object dirtyLock(BytesRef uid) {
-        int hash = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
-        // abs returns Integer.MIN_VALUE, so we need to protect against it...
-        if (hash == Integer.MIN_VALUE) {
-            hash = 0;
-        }
-        return dirtyLocks[Math.abs(hash) % dirtyLocks.length];
-    }
-
     private Object dirtyLock(Term uid) {
-        return dirtyLock(uid.bytes());
+        return versionMap.lock(uid.bytes());
     }
 
     private long loadCurrentVersionFromIndex(Term uid) throws IOException {
@@ -1263,9 +1235,15 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             config.setIndexDeletionPolicy(deletionPolicy);
             config.setMergeScheduler(mergeScheduler.newMergeScheduler());
             MergePolicy mergePolicy = mergePolicyProvider.newMergePolicy();
-            // Give us the opportunity to upgrade old segments while performing
-            // background merges
-            mergePolicy = new IndexUpgraderMergePolicy(mergePolicy);
+            IndexSort indexSort = IndexSort.parse(indexSettings);
+            if (indexSort != null) {
+                // sorted indices are created with doc values versions, they have no old segments to upgrade
+                mergePolicy = indexSort.wrap(mergePolicy);
+            } else {
+                // Give us the opportunity to upgrade old segments while performing
+                // background merges
+                mergePolicy = new IndexUpgraderMergePolicy(mergePolicy);
+            }
             config.setMergePolicy(mergePolicy);
             config.setSimilarity(similarityService.similarity());
             config.setRAMBufferSizeMB(indexingBufferSize.mbFrac());
@@ -1380,36 +1358,6 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    static class VersionValue {
-        private final long version;
-        private final boolean delete;
-        private final long time;
-        private final Translog.Location translogLocation;
-
-        VersionValue(long version, boolean delete, long time, Translog.Location translogLocation) {
-            this.version = version;
-            this.delete = delete;
-            this.time = time;
-            this.translogLocation = translogLocation;
-        }
-
-        public long time() {
-            return this.time;
-        }
-
-        public long version() {
-            return version;
-        }
-
-        public boolean delete() {
-            return delete;
-        }
-
-        public Translog.Location translogLocation() {
-            return this.translogLocation;
-        }
-    }
-
     class RobinSearchFactory extends SearcherFactory {
 
         @Override
@@ -0,0 +1,448 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.HashedBytesRef;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Holds the versions of the documents that were changed since the last refresh, keyed by uid, so realtime gets and
+ * version checks don't need to wait for a refresh.
+ * <p/>
+ * The map is split into stripes by uid hash. Each stripe is also the lock used to serialize the operations on the
+ * uids it holds (see {@link #lock(BytesRef)}). Within a stripe the versions are stored in an open addressing table
+ * of primitive arrays, with the uid bytes appended to a shared byte array, so no objects are allocated per document.
+ * <p/>
+ * Entries are never removed one by one. On refresh, the table of each stripe is moved aside, and is cleared (and
+ * reused) once the refresh has made its documents visible to the searcher. Deletes are kept around as tombstones
+ * until they are garbage collected, see {@link #afterRefresh(long, boolean, long)}.
+ */
+public class VersionMap {
+
+    private final Stripe[] stripes;
+
+    public VersionMap(int numStripes) {
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripe(BytesRef uid) {
+        int hash = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
+        // abs returns Integer.MIN_VALUE, so we need to protect against it...
+        if (hash == Integer.MIN_VALUE) {
+            hash = 0;
+        }
+        return stripes[Math.abs(hash) % stripes.length];
+    }
+
+    /**
+     * The lock to hold while reading and updating the version of the uid, shared by all the uids of its stripe.
+     */
+    public Object lock(BytesRef uid) {
+        return stripe(uid);
+    }
+
+    /**
+     * Returns the version of the uid, or <tt>null</tt> if it did not change since the last refresh.
+     */
+    @Nullable
+    public VersionValue get(BytesRef uid) {
+        final Stripe stripe = stripe(uid);
+        final int hash = uid.hashCode();
+        synchronized (stripe) {
+            VersionValue value = stripe.current.get(uid, hash);
+            if (value == null && stripe.old != null) {
+                value = stripe.old.get(uid, hash);
+            }
+            if (value == null && stripe.tombstones != null) {
+                value = stripe.tombstones.get(new HashedBytesRef(uid, hash));
+            }
+            return value;
+        }
+    }
+
+    public void put(BytesRef uid, long version, boolean delete, long time, @Nullable Translog.Location translogLocation) {
+        final Stripe stripe = stripe(uid);
+        final int hash = uid.hashCode();
+        synchronized (stripe) {
+            stripe.current.put(uid, hash, version, delete, time, translogLocation);
+            if (stripe.tombstones != null) {
+                // the current table takes precedence, and the tombstone must not resurface once it is cleared
+                stripe.tombstones.remove(new HashedBytesRef(uid, hash));
+            }
+        }
+    }
+
+    /**
+     * Moves the versions recorded so far aside, must be called before the refresh starts. Versions recorded from now
+     * on go to a new table, so they are kept even if their document misses the refresh.
+     */
+    public void beforeRefresh() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                assert stripe.old == null;
+                stripe.old = stripe.current;
+                stripe.current = stripe.spare != null ? stripe.spare : new Table();
+                stripe.spare = null;
+            }
+        }
+    }
+
+    /**
+     * Drops the versions that were moved aside by {@link #beforeRefresh()}, now that the searcher sees them, except
+     * for deletes which are kept as tombstones until garbage collected.
+     */
+    public void afterRefresh(long time, boolean gcDeletes, long gcDeletesInMillis) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Table old = stripe.old;
+                if (old != null) {
+                    for (int entry = 0; entry < old.size; entry++) {
+                        if (old.deletes[entry] && stripe.current.find(old.key(entry), old.hashes[entry]) == -1) {
+                            if (stripe.tombstones == null) {
+                                stripe.tombstones = new HashMap<HashedBytesRef, VersionValue>();
+                            }
+                            stripe.tombstones.put(new HashedBytesRef(BytesRef.deepCopyOf(old.key(entry)), old.hashes[entry]), old.value(entry));
+                        }
+                    }
+                    old.clear();
+                    stripe.old = null;
+                    stripe.spare = old;
+                }
+                if (gcDeletes && stripe.tombstones != null) {
+                    for (Iterator<VersionValue> it = stripe.tombstones.values().iterator(); it.hasNext(); ) {
+                        if (time - it.next().time() > gcDeletesInMillis) {
+                            it.remove();
+                        }
+                    }
+                    if (stripe.tombstones.isEmpty()) {
+                        stripe.tombstones = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges back the versions that were moved aside by {@link #beforeRefresh()}, in case the refresh failed.
+     */
+    public void cancelRefresh() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Table old = stripe.old;
+                if (old == null) {
+                    continue;
+                }
+                Table current = stripe.current;
+                for (int entry = 0; entry < current.size; entry++) {
+                    // the versions recorded since are newer
+                    old.put(current.key(entry), current.hashes[entry], current.versions[entry], current.deletes[entry], current.times[entry],
+                            current.translogIds[entry], current.translogPositions[entry], current.translogSizes[entry]);
+                }
+                current.clear();
+                stripe.current = old;
+                stripe.old = null;
+                stripe.spare = current;
+            }
+        }
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.current = new Table();
+                stripe.old = null;
+                stripe.spare = null;
+                stripe.tombstones = null;
+            }
+        }
+    }
+
+    /**
+     * The number of uids with a recorded version, including tombstones.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.current.size;
+                if (stripe.old != null) {
+                    size += stripe.old.size;
+                }
+                if (stripe.tombstones != null) {
+                    size += stripe.tombstones.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The heap used by the map, including the tables kept for reuse.
+     */
+    public long ramBytesUsed() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.current.ramBytesUsed();
+                if (stripe.old != null) {
+                    size += stripe.old.ramBytesUsed();
+                }
+                if (stripe.spare != null) {
+                    size += stripe.spare.ramBytesUsed();
+                }
+                if (stripe.tombstones != null) {
+                    for (HashedBytesRef uid : stripe.tombstones.keySet()) {
+                        size += TOMBSTONE_OVERHEAD + uid.bytes.length;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    // hash map entry, key, bytes ref, bytes array and value with its translog location
+    private static final long TOMBSTONE_OVERHEAD = 32 + 24 + 32 + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + 40 + 32;
+
+    public static class VersionValue {
+        private final long version;
+        private final boolean delete;
+        private final long time;
+        private final Translog.Location translogLocation;
+
+        public VersionValue(long version, boolean delete, long time, Translog.Location translogLocation) {
+            this.version = version;
+            this.delete = delete;
+            this.time = time;
+            this.translogLocation = translogLocation;
+        }
+
+        public long time() {
+            return this.time;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public boolean delete() {
+            return delete;
+        }
+
+        public Translog.Location translogLocation() {
+            return this.translogLocation;
+        }
+    }
+
+    static final class Stripe {
+        Table current = new Table();
+        // the table moved aside while a refresh is in progress
+        Table old;
+        // a cleared table, to be reused on the next refresh
+        Table spare;
+        // deletes that are not in the tables anymore, but not garbage collected yet
+        Map<HashedBytesRef, VersionValue> tombstones;
+    }
+
+    /**
+     * An append only open addressing hash table from uid bytes to versions, with linear probing.
+     */
+    static final class Table {
+
+        private static final int[] EMPTY_INTS = new int[0];
+        private static final long[] EMPTY_LONGS = new long[0];
+        private static final boolean[] EMPTY_BOOLEANS = new boolean[0];
+        private static final byte[] EMPTY_BYTES = new byte[0];
+
+        int size;
+        // entry + 1 for each slot, 0 for empty slots
+        private int[] slots = EMPTY_INTS;
+        int[] hashes = EMPTY_INTS;
+        private int[] keyOffsets = EMPTY_INTS;
+        private int[] keyLengths = EMPTY_INTS;
+        private byte[] keyBytes = EMPTY_BYTES;
+        private int keyBytesUsed;
+        long[] versions = EMPTY_LONGS;
+        long[] times = EMPTY_LONGS;
+        boolean[] deletes = EMPTY_BOOLEANS;
+        long[] translogIds = EMPTY_LONGS;
+        long[] translogPositions = EMPTY_LONGS;
+        int[] translogSizes = EMPTY_INTS;
+
+        private final BytesRef scratch = new BytesRef();
+
+        /**
+         * The key of the entry, only valid until the next call.
+         */
+        BytesRef key(int entry) {
+            scratch.bytes = keyBytes;
+            scratch.offset = keyOffsets[entry];
+            scratch.length = keyLengths[entry];
+            return scratch;
+        }
+
+        VersionValue value(int entry) {
+            Translog.Location location = translogIds[entry] == -1 ? null : new Translog.Location(translogIds[entry], translogPositions[entry], translogSizes[entry]);
+            return new VersionValue(versions[entry], deletes[entry], times[entry], location);
+        }
+
+        int find(BytesRef uid, int hash) {
+            if (size == 0) {
+                return -1;
+            }
+            final int mask = slots.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                final int entry = slots[slot] - 1;
+                if (entry == -1) {
+                    return -1;
+                }
+                if (hashes[entry] == hash && keyEquals(entry, uid)) {
+                    return entry;
+                }
+            }
+        }
+
+        private boolean keyEquals(int entry, BytesRef uid) {
+            if (keyLengths[entry] != uid.length) {
+                return false;
+            }
+            final int offset = keyOffsets[entry];
+            for (int i = 0; i < uid.length; i++) {
+                if (keyBytes[offset + i] != uid.bytes[uid.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Nullable
+        VersionValue get(BytesRef uid, int hash) {
+            final int entry = find(uid, hash);
+            return entry == -1 ? null : value(entry);
+        }
+
+        void put(BytesRef uid, int hash, long version, boolean delete, long time, @Nullable Translog.Location translogLocation) {
+            if (translogLocation == null) {
+                put(uid, hash, version, delete, time, -1, -1, -1);
+            } else {
+                put(uid, hash, version, delete, time, translogLocation.translogId, translogLocation.translogLocation, translogLocation.size);
+            }
+        }
+
+        void put(BytesRef uid, int hash, long version, boolean delete, long time, long translogId, long translogPosition, int translogSize) {
+            int entry = find(uid, hash);
+            if (entry == -1) {
+                entry = add(uid, hash);
+            }
+            versions[entry] = version;
+            deletes[entry] = delete;
+            times[entry] = time;
+            translogIds[entry] = translogId;
+            translogPositions[entry] = translogPosition;
+            translogSizes[entry] = translogSize;
+        }
+
+        private int add(BytesRef uid, int hash) {
+            // keep the load factor under 0.5
+            if ((size + 1) * 2 > slots.length) {
+                rehash(Math.max(16, slots.length * 2));
+            }
+            final int entry = size++;
+            if (entry == versions.length) {
+                hashes = ArrayUtil.grow(hashes, size);
+                keyOffsets = ArrayUtil.grow(keyOffsets, size);
+                keyLengths = ArrayUtil.grow(keyLengths, size);
+                versions = ArrayUtil.grow(versions, size);
+                times = ArrayUtil.grow(times, size);
+                deletes = ArrayUtil.grow(deletes, size);
+                translogIds = ArrayUtil.grow(translogIds, size);
+                translogPositions = ArrayUtil.grow(translogPositions, size);
+                translogSizes = ArrayUtil.grow(translogSizes, size);
+            }
+            hashes[entry] = hash;
+            keyBytes = ArrayUtil.grow(keyBytes, keyBytesUsed + uid.length);
+            System.arraycopy(uid.bytes, uid.offset, keyBytes, keyBytesUsed, uid.length);
+            keyOffsets[entry] = keyBytesUsed;
+            keyLengths[entry] = uid.length;
+            keyBytesUsed += uid.length;
+
+            final int mask = slots.length - 1;
+            int slot = mix(hash) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+            return entry;
+        }
+
+        private void rehash(int numSlots) {
+            slots = new int[numSlots];
+            final int mask = numSlots - 1;
+            for (int entry = 0; entry < size; entry++) {
+                int slot = mix(hashes[entry]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = entry + 1;
+            }
+        }
+
+        void clear() {
+            if (versions.length > 64 && size * 4 < versions.length) {
+                // the table is oversized compared to its last use, release the memory and grow again on demand
+                slots = EMPTY_INTS;
+                hashes = keyOffsets = keyLengths = translogSizes = EMPTY_INTS;
+                versions = times = translogIds = translogPositions = EMPTY_LONGS;
+                deletes = EMPTY_BOOLEANS;
+                keyBytes = EMPTY_BYTES;
+            } else {
+                Arrays.fill(slots, 0);
+            }
+            size = 0;
+            keyBytesUsed = 0;
+        }
+
+        long ramBytesUsed() {
+            return (long) RamUsageEstimator.NUM_BYTES_INT * (slots.length + hashes.length + keyOffsets.length + keyLengths.length + translogSizes.length)
+                    + (long) RamUsageEstimator.NUM_BYTES_LONG * (versions.length + times.length + translogIds.length + translogPositions.length)
+                    + deletes.length + keyBytes.length;
+        }
+
+        private static int mix(int hash) {
+            // the stripe already took some of the hash bits, spread them again
+            hash ^= hash >>> 16;
+            hash *= 0x85ebca6b;
+            hash ^= hash >>> 13;
+            return hash;
+        }
+    }
+}
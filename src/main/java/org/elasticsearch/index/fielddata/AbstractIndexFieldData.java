@@ -1,12 +1,19 @@
 package org.elasticsearch.index.fielddata;
 
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
 
+import java.io.IOException;
+
 /**
  */
 public abstract class AbstractIndexFieldData<FD extends AtomicFieldData> extends AbstractIndexComponent implements IndexFieldData<FD> {
@@ -36,4 +43,31 @@ public abstract class AbstractIndexFieldData<FD extends AtomicFieldData> extends
     public void clear(IndexReader reader) {
         cache.clear(reader);
     }
+
+    /**
+     * A rough estimation, based on the terms statistics, of the ordinals and the unique values. Numeric field
+     * data is estimated as a single value per doc, since numeric terms include lower precision terms.
+     */
+    @Override
+    public long estimateMemorySize(AtomicReaderContext context) throws IOException {
+        AtomicReader reader = context.reader();
+        Terms terms = reader.terms(fieldNames.indexName());
+        if (terms == null) {
+            return 0;
+        }
+        final long maxDoc = reader.maxDoc();
+        if (this instanceof IndexNumericFieldData) {
+            return maxDoc * (((IndexNumericFieldData) this).getNumericType().requiredBits() / 8);
+        }
+        long numTerms = terms.size();
+        if (numTerms == -1) {
+            numTerms = maxDoc;
+        }
+        long numOrds = Math.max(terms.getSumDocFreq(), maxDoc);
+        long ordinalsSize = numOrds * PackedInts.bitsRequired(numTerms) / 8;
+        return ordinalsSize + numTerms * ESTIMATED_BYTES_PER_TERM;
+    }
+
+    // terms lengths are unknown upfront, estimate the bytes plus the offset of each
+    private static final long ESTIMATED_BYTES_PER_TERM = 16 + RamUsage.NUM_BYTES_LONG;
 }
@@ -28,15 +28,28 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexComponent;
 import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
 
+import java.io.IOException;
+
 /**
  */
 public interface IndexFieldData<FD extends AtomicFieldData> extends IndexComponent {
 
     public static class CommonSettings {
 
+        public static final String DOC_VALUES_FORMAT = "doc_values";
+
+        /**
+         * Is the field data read from Lucene doc values instead of being loaded from the terms? Doc values
+         * need to be written at index time, so the format must be set on the field mapping itself.
+         */
+        public static boolean isDocValuesFormat(FieldDataType fieldDataType) {
+            return DOC_VALUES_FORMAT.equals(fieldDataType.getSettings().get("format"));
+        }
+
         /**
          * Should single value cross documents case be optimized to remove ords. Note, this optimization
          * might not be supported by all Field Data implementations, but the ones that do, should consult
@@ -67,6 +80,12 @@ public interface IndexFieldData<FD extends AtomicFieldData> extends IndexCompone
      */
     FD loadDirect(AtomicReaderContext context) throws Exception;
 
+    /**
+     * Estimates the heap used by the atomic field data of the reader once loaded, so the field data
+     * circuit breaker can be checked before actually loading it.
+     */
+    long estimateMemorySize(AtomicReaderContext context) throws IOException;
+
     /**
      * Comparator used for sorting.
      */
@@ -103,6 +122,11 @@ public interface IndexFieldData<FD extends AtomicFieldData> extends IndexCompone
          * Loads directly the atomic field data for the reader, ignoring any caching involved.
          */
         FD loadDirect(AtomicReaderContext context) throws Exception;
+
+        /**
+         * Loads the global ordinals mapping the ordinals of all the segments of the top level reader, possibly cached.
+         */
+        GlobalOrdinals loadGlobal(IndexReader reader);
     }
 
 }
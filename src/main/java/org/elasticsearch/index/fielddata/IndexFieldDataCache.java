@@ -27,12 +27,14 @@ import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.index.shard.service.IndexShard;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -42,6 +44,12 @@ public interface IndexFieldDataCache {
 
     <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(AtomicReaderContext context, IFD indexFieldData) throws Exception;
 
+    /**
+     * Loads the global ordinals of the field for the provided top level reader, built once and cached until the
+     * reader is closed.
+     */
+    GlobalOrdinals loadGlobal(IndexReader reader, IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception;
+
     /**
      * Clears all the field data stored cached in on this index.
      */
@@ -59,17 +67,22 @@ public interface IndexFieldDataCache {
         void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData);
 
         void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, @Nullable AtomicFieldData fieldData);
+
+        void onLoadGlobal(FieldMapper.Names fieldNames, FieldDataType fieldDataType, GlobalOrdinals globalOrdinals);
+
+        void onUnloadGlobal(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes);
     }
 
     /**
      * The resident field data cache is a *per field* cache that keeps all the values in memory.
      */
-    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, RemovalListener<FieldBased.Key, AtomicFieldData> {
+    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, IndexReader.ReaderClosedListener, RemovalListener<FieldBased.Key, AtomicFieldData> {
         @Nullable
         private final IndexService indexService;
         private final FieldMapper.Names fieldNames;
         private final FieldDataType fieldDataType;
         private final Cache<Key, AtomicFieldData> cache;
+        private final Cache<GlobalKey, GlobalOrdinals> globalOrdinalsCache;
 
         protected FieldBased(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType, CacheBuilder cache) {
             this.indexService = indexService;
@@ -77,6 +90,15 @@ public interface IndexFieldDataCache {
             this.fieldDataType = fieldDataType;
             cache.removalListener(this);
             this.cache = cache.build();
+            this.globalOrdinalsCache = CacheBuilder.newBuilder().removalListener(new RemovalListener<GlobalKey, GlobalOrdinals>() {
+                @Override
+                public void onRemoval(RemovalNotification<GlobalKey, GlobalOrdinals> notification) {
+                    GlobalKey key = notification.getKey();
+                    if (key != null && key.listener != null) {
+                        key.listener.onUnloadGlobal(FieldBased.this.fieldNames, FieldBased.this.fieldDataType, notification.wasEvicted(), key.sizeInBytes);
+                    }
+                }
+            }).build();
         }
 
         @Override
@@ -88,6 +110,17 @@ public interface IndexFieldDataCache {
                 }
                 notification.getKey().listener.onUnload(fieldNames, fieldDataType, notification.wasEvicted(), sizeInBytes, notification.getValue());
             }
+            if (notification.getValue() != null) {
+                notification.getValue().close();
+            }
+            if (notification.getKey() != null) {
+                // global ordinals refer to the field data of their segments, drop them along with it
+                for (GlobalKey globalKey : globalOrdinalsCache.asMap().keySet()) {
+                    if (globalKey.hasSegment(notification.getKey().readerKey)) {
+                        globalOrdinalsCache.invalidate(globalKey);
+                    }
+                }
+            }
         }
 
         @Override
@@ -123,19 +156,53 @@ public interface IndexFieldDataCache {
             });
         }
 
+        @Override
+        public GlobalOrdinals loadGlobal(final IndexReader reader, final IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception {
+            final GlobalKey key = new GlobalKey(reader);
+            return globalOrdinalsCache.get(key, new Callable<GlobalOrdinals>() {
+                @Override
+                public GlobalOrdinals call() throws Exception {
+                    reader.addReaderClosedListener(FieldBased.this);
+                    GlobalOrdinals globalOrdinals = GlobalOrdinals.build(reader, indexFieldData);
+                    key.sizeInBytes = globalOrdinals.getMemorySizeInBytes();
+                    if (indexService != null) {
+                        ShardId shardId = ShardUtils.extractShardId(reader);
+                        if (shardId != null) {
+                            IndexShard shard = indexService.shard(shardId.id());
+                            if (shard != null) {
+                                key.listener = shard.fieldData();
+                            }
+                        }
+                    }
+                    if (key.listener != null) {
+                        key.listener.onLoadGlobal(fieldNames, fieldDataType, globalOrdinals);
+                    }
+                    return globalOrdinals;
+                }
+            });
+        }
+
         @Override
         public void clear() {
             cache.invalidateAll();
+            globalOrdinalsCache.invalidateAll();
         }
 
         @Override
         public void clear(String fieldName) {
             cache.invalidateAll();
+            globalOrdinalsCache.invalidateAll();
         }
 
         @Override
         public void clear(IndexReader reader) {
             cache.invalidate(new Key(reader.getCoreCacheKey()));
+            globalOrdinalsCache.invalidate(new GlobalKey(reader.getCoreCacheKey()));
+        }
+
+        @Override
+        public void onClose(IndexReader reader) {
+            globalOrdinalsCache.invalidate(new GlobalKey(reader.getCoreCacheKey()));
         }
 
         @Override
@@ -166,6 +233,52 @@ public interface IndexFieldDataCache {
                 return readerKey.hashCode();
             }
         }
+
+        static class GlobalKey {
+            final Object readerKey;
+            final Object[] segmentReaderKeys; // the segments the global ordinals were built from
+            @Nullable
+            Listener listener; // optional stats listener
+            long sizeInBytes = -1;
+
+            GlobalKey(IndexReader reader) {
+                this.readerKey = reader.getCoreCacheKey();
+                List<AtomicReaderContext> leaves = reader.leaves();
+                this.segmentReaderKeys = new Object[leaves.size()];
+                for (int i = 0; i < segmentReaderKeys.length; i++) {
+                    segmentReaderKeys[i] = leaves.get(i).reader().getCoreCacheKey();
+                }
+            }
+
+            GlobalKey(Object readerKey) {
+                this.readerKey = readerKey;
+                this.segmentReaderKeys = null;
+            }
+
+            boolean hasSegment(Object segmentReaderKey) {
+                if (segmentReaderKeys != null) {
+                    for (Object key : segmentReaderKeys) {
+                        if (key.equals(segmentReaderKey)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                GlobalKey key = (GlobalKey) o;
+                if (!readerKey.equals(key.readerKey)) return false;
+                return true;
+            }
+
+            @Override
+            public int hashCode() {
+                return readerKey.hashCode();
+            }
+        }
     }
 
     static class Resident extends FieldBased {
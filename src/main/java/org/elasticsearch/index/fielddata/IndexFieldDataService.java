@@ -60,6 +60,7 @@ public class IndexFieldDataService extends AbstractIndexComponent {
         buildersByTypeAndFormat = MapBuilder.<Tuple<String, String>, IndexFieldData.Builder>newMapBuilder()
                 .put(Tuple.tuple("string", "paged_bytes"), new PagedBytesIndexFieldData.Builder())
                 .put(Tuple.tuple("string", "fst"), new FSTBytesIndexFieldData.Builder())
+                .put(Tuple.tuple("string", "doc_values"), new SortedSetDocValuesIndexFieldData.Builder())
                 .put(Tuple.tuple("float", "array"), new FloatArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("double", "array"), new DoubleArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("byte", "array"), new ByteArrayIndexFieldData.Builder())
@@ -67,6 +68,12 @@ public class IndexFieldDataService extends AbstractIndexComponent {
                 .put(Tuple.tuple("int", "array"), new IntArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("long", "array"), new LongArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("geo_point", "array"), new GeoPointDoubleArrayIndexFieldData.Builder())
+                .put(Tuple.tuple("float", "doc_values"), new NumericDocValuesIndexFieldData.Builder(IndexNumericFieldData.NumericType.FLOAT))
+                .put(Tuple.tuple("double", "doc_values"), new NumericDocValuesIndexFieldData.Builder(IndexNumericFieldData.NumericType.DOUBLE))
+                .put(Tuple.tuple("byte", "doc_values"), new NumericDocValuesIndexFieldData.Builder(IndexNumericFieldData.NumericType.BYTE))
+                .put(Tuple.tuple("short", "doc_values"), new NumericDocValuesIndexFieldData.Builder(IndexNumericFieldData.NumericType.SHORT))
+                .put(Tuple.tuple("int", "doc_values"), new NumericDocValuesIndexFieldData.Builder(IndexNumericFieldData.NumericType.INT))
+                .put(Tuple.tuple("long", "doc_values"), new NumericDocValuesIndexFieldData.Builder(IndexNumericFieldData.NumericType.LONG))
                 .immutableMap();
     }
 
@@ -126,6 +133,11 @@ public class IndexFieldDataService extends AbstractIndexComponent {
                 if (fieldData == null) {
                     IndexFieldData.Builder builder = null;
                     String format = type.getSettings().get("format", indexSettings.get("index.fielddata.type." + type.getType() + ".format", null));
+                    if (IndexFieldData.CommonSettings.DOC_VALUES_FORMAT.equals(format) && !IndexFieldData.CommonSettings.isDocValuesFormat(type)) {
+                        // doc values are only written for fields that have the format set on their mapping
+                        logger.warn("format [" + format + "] must be set on the mapping of field [" + fieldNames.fullName() + "], will use default");
+                        format = null;
+                    }
                     if (format != null) {
                         builder = buildersByTypeAndFormat.get(Tuple.tuple(type.getType(), format));
                         if (builder == null) {
@@ -26,6 +26,7 @@ import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
@@ -65,8 +66,25 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
 
     @Override
     public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData) {
-        long sizeInBytes = fieldData.getMemorySizeInBytes();
+        onLoad(fieldNames, fieldData.getMemorySizeInBytes());
+    }
 
+    @Override
+    public void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, @Nullable AtomicFieldData fieldData) {
+        onUnload(fieldNames, wasEvicted, sizeInBytes);
+    }
+
+    @Override
+    public void onLoadGlobal(FieldMapper.Names fieldNames, FieldDataType fieldDataType, GlobalOrdinals globalOrdinals) {
+        onLoad(fieldNames, globalOrdinals.getMemorySizeInBytes());
+    }
+
+    @Override
+    public void onUnloadGlobal(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes) {
+        onUnload(fieldNames, wasEvicted, sizeInBytes);
+    }
+
+    private void onLoad(FieldMapper.Names fieldNames, long sizeInBytes) {
         totalMetric.inc(sizeInBytes);
 
         String keyFieldName = fieldNames.indexName();
@@ -83,8 +101,7 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
         }
     }
 
-    @Override
-    public void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, @Nullable AtomicFieldData fieldData) {
+    private void onUnload(FieldMapper.Names fieldNames, boolean wasEvicted, long sizeInBytes) {
         if (wasEvicted) {
             evictionsMetric.inc();
         }
@@ -0,0 +1,220 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+
+import java.util.List;
+
+/**
+ * Maps the ordinals of each segment of a top level reader to shard wide (global) ordinals, so that per segment ordinals
+ * can be aggregated into a single array without merging the segments by term. Global ordinals follow the terms order
+ * across all segments, and <tt>0</tt> is reserved for missing values, just like segment ordinals.
+ * <p/>
+ * Terms are resolved back through the segment field data that holds them, using a {@link Lookup}.
+ */
+public class GlobalOrdinals {
+
+    private final AtomicFieldData.WithOrdinals[] fieldData;
+    private final int[][] segmentToGlobal;
+    private final int[] globalToSegment;
+    private final int[] globalToSegmentOrd;
+    private final int maxOrd;
+
+    GlobalOrdinals(AtomicFieldData.WithOrdinals[] fieldData, int[][] segmentToGlobal, int[] globalToSegment, int[] globalToSegmentOrd, int maxOrd) {
+        this.fieldData = fieldData;
+        this.segmentToGlobal = segmentToGlobal;
+        this.globalToSegment = globalToSegment;
+        this.globalToSegmentOrd = globalToSegmentOrd;
+        this.maxOrd = maxOrd;
+    }
+
+    /**
+     * The number of segments the global ordinals were built for.
+     */
+    public int getNumSegments() {
+        return segmentToGlobal.length;
+    }
+
+    /**
+     * The maximum global ordinal + 1, including the missing ordinal <tt>0</tt>.
+     */
+    public int getMaxOrd() {
+        return maxOrd;
+    }
+
+    /**
+     * The number of unique terms across all the segments.
+     */
+    public int getNumOrds() {
+        return maxOrd - 1;
+    }
+
+    /**
+     * Returns the mapping from the ordinals of the segment with the provided ord (its position in the top level reader
+     * leaves) to global ordinals. The array is shared and must not be modified.
+     */
+    public int[] segmentToGlobal(int segment) {
+        return segmentToGlobal[segment];
+    }
+
+    public long getMemorySizeInBytes() {
+        long size = RamUsageEstimator.NUM_BYTES_ARRAY_HEADER * 2 + RamUsageEstimator.NUM_BYTES_INT * 2 * (long) globalToSegment.length;
+        for (int[] ords : segmentToGlobal) {
+            size += RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + RamUsageEstimator.NUM_BYTES_INT * (long) ords.length;
+        }
+        return size;
+    }
+
+    /**
+     * Returns a lookup of terms by global ordinal. Lookups are not thread safe, and should be used by a single thread.
+     */
+    public Lookup newLookup() {
+        return new Lookup();
+    }
+
+    public class Lookup {
+
+        private final BytesValues.WithOrdinals[] values = new BytesValues.WithOrdinals[fieldData.length];
+
+        private Lookup() {
+        }
+
+        /**
+         * Returns the term of the provided global ordinal. The returned bytes might be shared, use
+         * {@link #makeSafe(int, BytesRef)} in order to keep them around.
+         */
+        public BytesRef getValueByOrd(int globalOrd) {
+            return values(globalOrd).getValueByOrd(globalToSegmentOrd[globalOrd]);
+        }
+
+        /**
+         * Makes the term returned by {@link #getValueByOrd(int)} for the provided global ordinal safe to keep around.
+         */
+        public BytesRef makeSafe(int globalOrd, BytesRef bytes) {
+            return values(globalOrd).makeSafe(bytes);
+        }
+
+        private BytesValues.WithOrdinals values(int globalOrd) {
+            int segment = globalToSegment[globalOrd];
+            if (values[segment] == null) {
+                values[segment] = fieldData[segment].getBytesValues();
+            }
+            return values[segment];
+        }
+    }
+
+    /**
+     * Builds the global ordinals of the field for all the segments of the provided top level reader, by merging the
+     * (sorted) terms of each segment.
+     */
+    public static GlobalOrdinals build(IndexReader reader, IndexFieldData.WithOrdinals<?> indexFieldData) {
+        List<AtomicReaderContext> leaves = reader.leaves();
+        AtomicFieldData.WithOrdinals[] fieldData = new AtomicFieldData.WithOrdinals[leaves.size()];
+        int[][] segmentToGlobal = new int[leaves.size()][];
+        SegmentQueue queue = new SegmentQueue(leaves.size());
+        int maxNumOrds = 1;
+        for (AtomicReaderContext context : leaves) {
+            AtomicFieldData.WithOrdinals segmentFieldData = indexFieldData.load(context);
+            fieldData[context.ord] = segmentFieldData;
+            BytesValues.WithOrdinals values = segmentFieldData.getBytesValues();
+            int segmentMaxOrd = values.ordinals().getMaxOrd();
+            segmentToGlobal[context.ord] = new int[segmentMaxOrd];
+            maxNumOrds += segmentMaxOrd - 1;
+            SegmentTerms terms = new SegmentTerms(context.ord, values, segmentMaxOrd);
+            if (terms.next()) {
+                queue.add(terms);
+            }
+        }
+
+        // global ordinals are bounded by the sum of the segments ordinals, trimmed once we know how many unique terms there are
+        int[] globalToSegment = new int[maxNumOrds];
+        int[] globalToSegmentOrd = new int[maxNumOrds];
+        BytesRef lastTerm = new BytesRef();
+        int globalOrd = 0;
+        while (queue.size() > 0) {
+            SegmentTerms top = queue.top();
+            if (globalOrd == 0 || !lastTerm.bytesEquals(top.current)) {
+                globalOrd++;
+                lastTerm.copyBytes(top.current);
+                globalToSegment[globalOrd] = top.segment;
+                globalToSegmentOrd[globalOrd] = top.ord;
+            }
+            segmentToGlobal[top.segment][top.ord] = globalOrd;
+            if (top.next()) {
+                queue.updateTop();
+            } else {
+                queue.pop();
+            }
+        }
+        int maxOrd = globalOrd + 1;
+        if (maxOrd < maxNumOrds) {
+            globalToSegment = ArrayUtil.shrink(globalToSegment, maxOrd);
+            globalToSegmentOrd = ArrayUtil.shrink(globalToSegmentOrd, maxOrd);
+        }
+        return new GlobalOrdinals(fieldData, segmentToGlobal, globalToSegment, globalToSegmentOrd, maxOrd);
+    }
+
+    static final class SegmentTerms {
+
+        final int segment;
+        final BytesValues.WithOrdinals values;
+        final int maxOrd;
+        int ord;
+        BytesRef current;
+
+        SegmentTerms(int segment, BytesValues.WithOrdinals values, int maxOrd) {
+            this.segment = segment;
+            this.values = values;
+            this.maxOrd = maxOrd;
+        }
+
+        boolean next() {
+            if (++ord >= maxOrd) {
+                return false;
+            }
+            current = values.getValueByOrd(ord);
+            return true;
+        }
+    }
+
+    static final class SegmentQueue extends PriorityQueue<SegmentTerms> {
+
+        SegmentQueue(int size) {
+            super(size);
+        }
+
+        @Override
+        protected boolean lessThan(SegmentTerms a, SegmentTerms b) {
+            int i = a.current.compareTo(b.current);
+            if (i == 0) {
+                return a.segment < b.segment;
+            }
+            return i < 0;
+        }
+    }
+}
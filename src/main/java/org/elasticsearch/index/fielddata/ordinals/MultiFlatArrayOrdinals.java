@@ -20,27 +20,33 @@
 package org.elasticsearch.index.fielddata.ordinals;
 
 import org.apache.lucene.util.IntsRef;
+import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.PagedIntArray;
 
 /**
  * "Flat" multi valued ordinals, the first level array size is as the maximum
  * values a docId has. Ordinals are populated in order from the first flat array
  * value to the next.
+ * <p/>
+ * The flat arrays are made of {@link org.elasticsearch.common.util.PageAllocator} pages, released (from the
+ * allocator accounting) when the field data is closed.
  */
-public final class MultiFlatArrayOrdinals implements Ordinals {
+public final class MultiFlatArrayOrdinals implements Ordinals, Releasable {
 
     // ordinals with value 0 indicates no value
-    private final int[][] ordinals;
+    private final PagedIntArray[] ordinals;
     private final int numDocs;
     private final int numOrds;
     private final int maxOrd;
 
     private long size = -1;
 
-    public MultiFlatArrayOrdinals(int[][] ordinals, int numOrds) {
+    public MultiFlatArrayOrdinals(PagedIntArray[] ordinals, int numOrds) {
         assert ordinals.length > 0;
         this.ordinals = ordinals;
-        this.numDocs = ordinals[0].length;
+        this.numDocs = (int) ordinals[0].size();
         this.numOrds = numOrds;
         this.maxOrd = numOrds + 1;
     }
@@ -60,8 +66,8 @@ public final class MultiFlatArrayOrdinals implements Ordinals {
         if (size == -1) {
             long size = 0;
             size += RamUsage.NUM_BYTES_ARRAY_HEADER; // for the top level array
-            for (int[] ordinal : ordinals) {
-                size += RamUsage.NUM_BYTES_INT * ordinal.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
+            for (PagedIntArray ordinal : ordinals) {
+                size += ordinal.sizeInBytes();
             }
             this.size = size;
         }
@@ -93,15 +99,23 @@ public final class MultiFlatArrayOrdinals implements Ordinals {
         return new Docs(this, ordinals);
     }
 
+    @Override
+    public boolean release() throws ElasticSearchException {
+        for (PagedIntArray ordinal : ordinals) {
+            ordinal.release();
+        }
+        return true;
+    }
+
     public static class Docs implements Ordinals.Docs {
 
         private final MultiFlatArrayOrdinals parent;
-        private final int[][] ordinals;
+        private final PagedIntArray[] ordinals;
         private final IterImpl iter;
 
         private final IntsRef intsScratch;
 
-        public Docs(MultiFlatArrayOrdinals parent, int[][] ordinals) {
+        public Docs(MultiFlatArrayOrdinals parent, PagedIntArray[] ordinals) {
             this.parent = parent;
             this.ordinals = ordinals;
             this.iter = new IterImpl(ordinals);
@@ -135,7 +149,7 @@ public final class MultiFlatArrayOrdinals implements Ordinals {
 
         @Override
         public int getOrd(int docId) {
-            return ordinals[0][docId];
+            return ordinals[0].get(docId);
         }
 
         @Override
@@ -143,7 +157,7 @@ public final class MultiFlatArrayOrdinals implements Ordinals {
             intsScratch.offset = 0;
             int i;
             for (i = 0; i < ordinals.length; i++) {
-                int ordinal = ordinals[i][docId];
+                int ordinal = ordinals[i].get(docId);
                 if (ordinal == 0) {
                     if (i == 0) {
                         intsScratch.length = 0;
@@ -165,11 +179,11 @@ public final class MultiFlatArrayOrdinals implements Ordinals {
 
         public static class IterImpl implements Docs.Iter {
 
-            private final int[][] ordinals;
+            private final PagedIntArray[] ordinals;
             private int docId;
             private int i;
 
-            public IterImpl(int[][] ordinals) {
+            public IterImpl(PagedIntArray[] ordinals) {
                 this.ordinals = ordinals;
             }
 
@@ -182,7 +196,7 @@ public final class MultiFlatArrayOrdinals implements Ordinals {
             @Override
             public int next() {
                 if (i >= ordinals.length) return 0;
-                return ordinals[i++][docId];
+                return ordinals[i++].get(docId);
             }
         }
     }
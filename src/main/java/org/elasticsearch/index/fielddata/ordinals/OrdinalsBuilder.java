@@ -28,6 +28,8 @@ import org.apache.lucene.util.packed.GrowableWriter;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.PageAllocator;
+import org.elasticsearch.common.util.PagedIntArray;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -224,21 +226,19 @@ public final class OrdinalsBuilder implements Closeable {
         }
         final String multiOrdinals = settings.get("multi_ordinals", "sparse");
         if ("flat".equals(multiOrdinals)) {
-            final ArrayList<int[]> ordinalBuffer = new ArrayList<int[]>();
+            final PageAllocator allocator = PageAllocator.allocator();
+            final ArrayList<PagedIntArray> ordinalBuffer = new ArrayList<PagedIntArray>();
             for (int i = 0; i < mvOrds.length; i++) {
                 final IntsRef docOrds = docOrds(i);
                 while (ordinalBuffer.size() < docOrds.length) {
-                    ordinalBuffer.add(new int[mvOrds.length]);
+                    ordinalBuffer.add(allocator.newIntArray(mvOrds.length));
                 }
                 
                 for (int j = docOrds.offset; j < docOrds.offset+docOrds.length; j++) {
-                    ordinalBuffer.get(j)[i] = docOrds.ints[j];
+                    ordinalBuffer.get(j).set(i, docOrds.ints[j]);
                 }
             }
-            int[][] nativeOrdinals = new int[ordinalBuffer.size()][];
-            for (int i = 0; i < nativeOrdinals.length; i++) {
-                nativeOrdinals[i] = ordinalBuffer.get(i);
-            }
+            PagedIntArray[] nativeOrdinals = ordinalBuffer.toArray(new PagedIntArray[ordinalBuffer.size()]);
             return new MultiFlatArrayOrdinals(nativeOrdinals, getNumOrds());
         } else if ("sparse".equals(multiOrdinals)) {
             int multiOrdinalsMaxDocs = settings.getAsInt("multi_ordinals_max_docs", 16777216 /* Equal to 64MB per storeage array */);
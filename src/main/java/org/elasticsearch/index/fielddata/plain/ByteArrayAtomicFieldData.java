@@ -21,6 +21,7 @@ package org.elasticsearch.index.fielddata.plain;
 
 import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.fielddata.*;
 import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 
@@ -102,6 +103,13 @@ public abstract class ByteArrayAtomicFieldData extends AtomicNumericFieldData {
             this.ordinals = ordinals;
         }
 
+        @Override
+        public void close() {
+            if (ordinals instanceof Releasable) {
+                ((Releasable) ordinals).release();
+            }
+        }
+
         @Override
         public boolean isMultiValued() {
             return ordinals.isMultiValued();
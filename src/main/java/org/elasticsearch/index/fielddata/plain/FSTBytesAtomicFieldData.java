@@ -27,6 +27,7 @@ import org.apache.lucene.util.fst.FST;
 import org.apache.lucene.util.fst.FST.Arc;
 import org.apache.lucene.util.fst.FST.BytesReader;
 import org.apache.lucene.util.fst.Util;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.fielddata.ordinals.EmptyOrdinals;
@@ -58,6 +59,9 @@ public class FSTBytesAtomicFieldData implements AtomicFieldData.WithOrdinals<Scr
 
     @Override
     public void close() {
+        if (ordinals instanceof Releasable) {
+            ((Releasable) ordinals).release();
+        }
     }
 
     @Override
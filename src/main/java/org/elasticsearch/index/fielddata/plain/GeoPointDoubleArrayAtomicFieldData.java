@@ -22,6 +22,7 @@ package org.elasticsearch.index.fielddata.plain;
 import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.fielddata.AtomicGeoPointFieldData;
 import org.elasticsearch.index.fielddata.BytesValues;
 import org.elasticsearch.index.fielddata.GeoPointValues;
@@ -106,6 +107,13 @@ public abstract class GeoPointDoubleArrayAtomicFieldData extends AtomicGeoPointF
             this.ordinals = ordinals;
         }
 
+        @Override
+        public void close() {
+            if (ordinals instanceof Releasable) {
+                ((Releasable) ordinals).release();
+            }
+        }
+
         @Override
         public boolean isMultiValued() {
             return ordinals.isMultiValued();
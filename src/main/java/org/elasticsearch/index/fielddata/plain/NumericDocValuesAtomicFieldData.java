@@ -0,0 +1,141 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
+
+import java.io.IOException;
+
+/**
+ * Numeric field data backed by Lucene doc values. Nothing is loaded onto the heap, the values are read through
+ * the reader (and the file system cache) when a (non thread safe) values view is requested.
+ * <p/>
+ * Lucene doc values don't record missing values, documents without a value for the field read as <tt>0</tt>.
+ */
+public class NumericDocValuesAtomicFieldData extends AtomicNumericFieldData {
+
+    private final AtomicReader reader;
+    private final String field;
+    private final NumericType numericType;
+
+    public NumericDocValuesAtomicFieldData(AtomicReader reader, String field, NumericType numericType) {
+        super(numericType.isFloatingPoint());
+        this.reader = reader;
+        this.field = field;
+        this.numericType = numericType;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return false;
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return reader.maxDoc();
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        // the values live on disk, not in the heap
+        return 0;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private NumericDocValues docValues() {
+        try {
+            // the reader hands out a per thread instance, so it must not be shared across threads
+            return reader.getNumericDocValues(field);
+        } catch (IOException e) {
+            throw new ElasticSearchException("failed to load doc values for field [" + field + "]", e);
+        }
+    }
+
+    @Override
+    public org.elasticsearch.index.fielddata.LongValues getLongValues() {
+        return new LongValues(docValues(), numericType);
+    }
+
+    @Override
+    public org.elasticsearch.index.fielddata.DoubleValues getDoubleValues() {
+        return new DoubleValues(docValues(), numericType);
+    }
+
+    static double decode(long value, NumericType numericType) {
+        switch (numericType) {
+            case FLOAT:
+                return NumericUtils.sortableIntToFloat((int) value);
+            case DOUBLE:
+                return NumericUtils.sortableLongToDouble(value);
+            default:
+                return value;
+        }
+    }
+
+    static class LongValues extends org.elasticsearch.index.fielddata.LongValues.Dense {
+
+        private final NumericDocValues values;
+        private final NumericType numericType;
+
+        LongValues(NumericDocValues values, NumericType numericType) {
+            super(false);
+            this.values = values;
+            this.numericType = numericType;
+        }
+
+        @Override
+        public long getValue(int docId) {
+            if (numericType.isFloatingPoint()) {
+                return (long) decode(values.get(docId), numericType);
+            }
+            return values.get(docId);
+        }
+    }
+
+    static class DoubleValues extends org.elasticsearch.index.fielddata.DoubleValues.Dense {
+
+        private final NumericDocValues values;
+        private final NumericType numericType;
+
+        DoubleValues(NumericDocValues values, NumericType numericType) {
+            super(false);
+            this.values = values;
+            this.numericType = numericType;
+        }
+
+        @Override
+        public double getValue(int docId) {
+            return decode(values.get(docId), numericType);
+        }
+    }
+}
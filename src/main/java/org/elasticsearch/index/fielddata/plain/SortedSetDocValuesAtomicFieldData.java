@@ -0,0 +1,254 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRef;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+
+import java.io.IOException;
+
+/**
+ * String field data backed by Lucene {@link SortedSetDocValues}. The doc values ordinals are exposed (shifted by one,
+ * as <tt>0</tt> is reserved for missing values) through {@link Ordinals}, and terms are looked up on disk by ordinal.
+ * <p/>
+ * The doc values don't tell upfront whether a segment has multi valued documents, so the field data conservatively
+ * always reports itself as multi valued.
+ */
+public class SortedSetDocValuesAtomicFieldData implements AtomicFieldData.WithOrdinals<ScriptDocValues.Strings> {
+
+    private final AtomicReader reader;
+    private final String field;
+    private final DocValuesOrdinals ordinals;
+
+    public SortedSetDocValuesAtomicFieldData(AtomicReader reader, String field, long valueCount) {
+        this.reader = reader;
+        this.field = field;
+        this.ordinals = new DocValuesOrdinals(this, reader.maxDoc(), (int) valueCount);
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return true;
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return true;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return reader.maxDoc();
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        // the terms and ordinals live on disk, not in the heap
+        return 0;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private SortedSetDocValues docValues() {
+        try {
+            // the reader hands out a per thread instance, so it must not be shared across threads
+            return reader.getSortedSetDocValues(field);
+        } catch (IOException e) {
+            throw new ElasticSearchException("failed to load doc values for field [" + field + "]", e);
+        }
+    }
+
+    @Override
+    public BytesValues getBytesValues() {
+        SortedSetDocValues values = docValues();
+        return new BytesValues(values, new DocValuesOrdinals.Docs(ordinals, values));
+    }
+
+    @Override
+    public BytesValues getHashedBytesValues() {
+        // hashes are computed on the fly, we don't want to keep an array of them around
+        return getBytesValues();
+    }
+
+    @Override
+    public ScriptDocValues.Strings getScriptValues() {
+        return new ScriptDocValues.Strings(getBytesValues());
+    }
+
+    static class BytesValues extends org.elasticsearch.index.fielddata.BytesValues.WithOrdinals {
+
+        private final SortedSetDocValues values;
+        private final Iter.Multi iter;
+
+        BytesValues(SortedSetDocValues values, Ordinals.Docs ordinals) {
+            super(ordinals);
+            this.values = values;
+            this.iter = newMultiIter();
+        }
+
+        @Override
+        public BytesRef getValueScratchByOrd(int ord, BytesRef ret) {
+            if (ord == 0) {
+                ret.length = 0;
+            } else {
+                values.lookupOrd(ord - 1, ret);
+            }
+            return ret;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            return iter.reset(ordinals.getIter(docId));
+        }
+    }
+
+    static class DocValuesOrdinals implements Ordinals {
+
+        private final SortedSetDocValuesAtomicFieldData fieldData;
+        private final int numDocs;
+        private final int numOrds;
+
+        DocValuesOrdinals(SortedSetDocValuesAtomicFieldData fieldData, int numDocs, int numOrds) {
+            this.fieldData = fieldData;
+            this.numDocs = numDocs;
+            this.numOrds = numOrds;
+        }
+
+        @Override
+        public boolean hasSingleArrayBackingStorage() {
+            return false;
+        }
+
+        @Override
+        public Object getBackingStorage() {
+            return null;
+        }
+
+        @Override
+        public long getMemorySizeInBytes() {
+            return 0;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return true;
+        }
+
+        @Override
+        public int getNumDocs() {
+            return numDocs;
+        }
+
+        @Override
+        public int getNumOrds() {
+            return numOrds;
+        }
+
+        @Override
+        public int getMaxOrd() {
+            return numOrds + 1;
+        }
+
+        @Override
+        public Ordinals.Docs ordinals() {
+            return new Docs(this, fieldData.docValues());
+        }
+
+        static class Docs implements Ordinals.Docs {
+
+            private final DocValuesOrdinals parent;
+            private final SortedSetDocValues values;
+            private final IntsRef ords = new IntsRef(new int[1], 0, 0);
+            private final OrdIter iter = new OrdIter();
+
+            Docs(DocValuesOrdinals parent, SortedSetDocValues values) {
+                this.parent = parent;
+                this.values = values;
+            }
+
+            @Override
+            public Ordinals ordinals() {
+                return parent;
+            }
+
+            @Override
+            public int getNumDocs() {
+                return parent.getNumDocs();
+            }
+
+            @Override
+            public int getNumOrds() {
+                return parent.getNumOrds();
+            }
+
+            @Override
+            public int getMaxOrd() {
+                return parent.getMaxOrd();
+            }
+
+            @Override
+            public boolean isMultiValued() {
+                return true;
+            }
+
+            @Override
+            public int getOrd(int docId) {
+                values.setDocument(docId);
+                final long ord = values.nextOrd();
+                return ord == SortedSetDocValues.NO_MORE_ORDS ? 0 : (int) ord + 1;
+            }
+
+            @Override
+            public IntsRef getOrds(int docId) {
+                values.setDocument(docId);
+                ords.length = 0;
+                for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                    ords.ints = ArrayUtil.grow(ords.ints, ords.length + 1);
+                    ords.ints[ords.length++] = (int) ord + 1;
+                }
+                return ords;
+            }
+
+            @Override
+            public Iter getIter(int docId) {
+                values.setDocument(docId);
+                return iter;
+            }
+
+            class OrdIter implements Iter {
+
+                @Override
+                public int next() {
+                    final long ord = values.nextOrd();
+                    return ord == SortedSetDocValues.NO_MORE_ORDS ? 0 : (int) ord + 1;
+                }
+            }
+        }
+    }
+}
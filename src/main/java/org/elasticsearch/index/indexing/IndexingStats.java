@@ -19,10 +19,12 @@
 
 package org.elasticsearch.index.indexing;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -46,17 +48,20 @@ public class IndexingStats implements Streamable, ToXContent {
         private long deleteTimeInMillis;
         private long deleteCurrent;
 
+        private long versionMapMemoryInBytes;
+
         Stats() {
 
         }
 
-        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long deleteCount, long deleteTimeInMillis, long deleteCurrent) {
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long versionMapMemoryInBytes) {
             this.indexCount = indexCount;
             this.indexTimeInMillis = indexTimeInMillis;
             this.indexCurrent = indexCurrent;
             this.deleteCount = deleteCount;
             this.deleteTimeInMillis = deleteTimeInMillis;
             this.deleteCurrent = deleteCurrent;
+            this.versionMapMemoryInBytes = versionMapMemoryInBytes;
         }
 
         public void add(Stats stats) {
@@ -67,6 +72,8 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount += stats.deleteCount;
             deleteTimeInMillis += stats.deleteTimeInMillis;
             deleteCurrent += stats.deleteCurrent;
+
+            versionMapMemoryInBytes += stats.versionMapMemoryInBytes;
         }
 
         public long getIndexCount() {
@@ -101,6 +108,17 @@ public class IndexingStats implements Streamable, ToXContent {
             return deleteCurrent;
         }
 
+        /**
+         * The heap used by the realtime version map of the shard engines.
+         */
+        public long getVersionMapMemoryInBytes() {
+            return versionMapMemoryInBytes;
+        }
+
+        public ByteSizeValue getVersionMapMemory() {
+            return new ByteSizeValue(versionMapMemoryInBytes);
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -116,6 +134,10 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount = in.readVLong();
             deleteTimeInMillis = in.readVLong();
             deleteCurrent = in.readVLong();
+
+            if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                versionMapMemoryInBytes = in.readVLong();
+            }
         }
 
         @Override
@@ -127,6 +149,10 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(deleteCount);
             out.writeVLong(deleteTimeInMillis);
             out.writeVLong(deleteCurrent);
+
+            if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                out.writeVLong(versionMapMemoryInBytes);
+            }
         }
 
         @Override
@@ -141,6 +167,9 @@ public class IndexingStats implements Streamable, ToXContent {
             builder.field(Fields.DELETE_TIME_IN_MILLIS, deleteTimeInMillis);
             builder.field(Fields.DELETE_CURRENT, deleteCurrent);
 
+            builder.field(Fields.VERSION_MAP_MEMORY, getVersionMapMemory().toString());
+            builder.field(Fields.VERSION_MAP_MEMORY_IN_BYTES, versionMapMemoryInBytes);
+
             return builder;
         }
     }
@@ -220,6 +249,8 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString DELETE_TIME = new XContentBuilderString("delete_time");
         static final XContentBuilderString DELETE_TIME_IN_MILLIS = new XContentBuilderString("delete_time_in_millis");
         static final XContentBuilderString DELETE_CURRENT = new XContentBuilderString("delete_current");
+        static final XContentBuilderString VERSION_MAP_MEMORY = new XContentBuilderString("version_map_memory");
+        static final XContentBuilderString VERSION_MAP_MEMORY_IN_BYTES = new XContentBuilderString("version_map_memory_in_bytes");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -57,23 +57,23 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
     /**
      * Returns the stats, including type specific stats. If the types are null/0 length, then nothing
      * is returned for them. If they are set, then only types provided will be returned, or
-     * <tt>_all</tt> for all types.
+     * <tt>_all</tt> for all types. The version map memory is only accounted on the total stats.
      */
-    public IndexingStats stats(String... types) {
-        IndexingStats.Stats total = totalStats.stats();
+    public IndexingStats stats(long versionMapMemoryInBytes, String... types) {
+        IndexingStats.Stats total = totalStats.stats(versionMapMemoryInBytes);
         Map<String, IndexingStats.Stats> typesSt = null;
         if (types != null && types.length > 0) {
             if (types.length == 1 && types[0].equals("_all")) {
                 typesSt = new HashMap<String, IndexingStats.Stats>(typesStats.size());
                 for (Map.Entry<String, StatsHolder> entry : typesStats.entrySet()) {
-                    typesSt.put(entry.getKey(), entry.getValue().stats());
+                    typesSt.put(entry.getKey(), entry.getValue().stats(0));
                 }
             } else {
                 typesSt = new HashMap<String, IndexingStats.Stats>(types.length);
                 for (String type : types) {
                     StatsHolder statsHolder = typesStats.get(type);
                     if (statsHolder != null) {
-                        typesSt.put(type, statsHolder.stats());
+                        typesSt.put(type, statsHolder.stats(0));
                     }
                 }
             }
@@ -286,10 +286,11 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public final CounterMetric indexCurrent = new CounterMetric();
         public final CounterMetric deleteCurrent = new CounterMetric();
 
-        public IndexingStats.Stats stats() {
+        public IndexingStats.Stats stats(long versionMapMemoryInBytes) {
             return new IndexingStats.Stats(
                     indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(),
-                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count());
+                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
+                    versionMapMemoryInBytes);
         }
 
         public long totalCurrent() {
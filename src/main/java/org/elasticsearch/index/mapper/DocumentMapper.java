@@ -579,7 +579,7 @@ public class DocumentMapper implements ToXContent {
         }
 
         ParsedDocument doc = new ParsedDocument(context.uid(), context.version(), context.id(), context.type(), source.routing(), source.timestamp(), source.ttl(), context.docs(), context.analyzer(),
-                context.source(), context.mappingsModified()).parent(source.parent());
+                context.source(), context.mappingsModified()).parent(source.parent()).sourceEntry(context.sourceEntry());
         // reset the context to free up memory
         context.reset(null, null, null, null);
         return doc;
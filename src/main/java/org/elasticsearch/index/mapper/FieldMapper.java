@@ -199,6 +199,11 @@ public interface FieldMapper<T> {
 
     FieldDataType fieldDataType();
 
+    /**
+     * Is the field also indexed with Lucene doc values, so its field data can be read from disk?
+     */
+    boolean hasDocValues();
+
     PostingsFormatProvider postingsFormatProvider();
 
     boolean isNumeric();
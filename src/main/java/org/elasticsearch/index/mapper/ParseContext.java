@@ -24,6 +24,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.CachedStreamOutput;
 import org.elasticsearch.common.lucene.all.AllEntries;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -62,6 +63,8 @@ public class ParseContext {
     private SourceToParse sourceToParse;
     private BytesReference source;
 
+    private CachedStreamOutput.Entry sourceEntry;
+
     private String id;
 
     private DocumentMapper.ParseListener listener;
@@ -108,6 +111,7 @@ public class ParseContext {
         this.id = null;
         this.sourceToParse = source;
         this.source = source == null ? null : sourceToParse.source();
+        this.sourceEntry = null;
         this.path.reset();
         this.mappingsModified = false;
         this.listener = listener == null ? DocumentMapper.ParseListener.EMPTY : listener;
@@ -168,6 +172,18 @@ public class ParseContext {
         this.source = source;
     }
 
+    /**
+     * The pooled entry the source was rewritten to, handed over to the parsed document.
+     */
+    public CachedStreamOutput.Entry sourceEntry() {
+        return sourceEntry;
+    }
+
+    // only should be used by SourceFieldMapper, when the source is kept in a pooled entry
+    public void sourceEntry(CachedStreamOutput.Entry sourceEntry) {
+        this.sourceEntry = sourceEntry;
+    }
+
     public ContentPath path() {
         return this.path;
     }
@@ -22,6 +22,7 @@ package org.elasticsearch.index.mapper;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.CachedStreamOutput;
 import org.apache.lucene.document.Field;
 
 import java.util.List;
@@ -53,6 +54,8 @@ public class ParsedDocument {
 
     private String parent;
 
+    private CachedStreamOutput.Entry sourceEntry;
+
     public ParsedDocument(Field uid, Field version, String id, String type, String routing, long timestamp, long ttl, List<Document> documents, Analyzer analyzer, BytesReference source, boolean mappingsModified) {
         this.uid = uid;
         this.version = version;
@@ -120,6 +123,27 @@ public class ParsedDocument {
         return this.parent;
     }
 
+    /**
+     * Sets the pooled entry the (compressed) source of the document was written to.
+     */
+    public ParsedDocument sourceEntry(CachedStreamOutput.Entry sourceEntry) {
+        this.sourceEntry = sourceEntry;
+        return this;
+    }
+
+    /**
+     * Gives back the pooled entry the source of the document is held in, if any. Neither the source nor the
+     * documents can be used after this call, so it should only be called once the document has been indexed.
+     * Not calling it is fine, the entry is then garbage collected with the document.
+     */
+    public void release() {
+        if (sourceEntry != null) {
+            CachedStreamOutput.Entry entry = sourceEntry;
+            sourceEntry = null;
+            CachedStreamOutput.pushEntry(entry);
+        }
+    }
+
     /**
      * Has the parsed document caused mappings to be modified?
      */
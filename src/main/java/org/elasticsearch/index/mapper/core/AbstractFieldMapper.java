@@ -23,7 +23,9 @@ import com.google.common.base.Objects;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.index.FieldInfo.DocValuesType;
 import org.apache.lucene.index.FieldInfo.IndexOptions;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.TermsFilter;
 import org.apache.lucene.search.*;
@@ -41,6 +43,7 @@ import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.codec.postingsformat.PostingFormats;
 import org.elasticsearch.index.codec.postingsformat.PostingsFormatProvider;
 import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.mapper.*;
 import org.elasticsearch.index.query.QueryParseContext;
 import org.elasticsearch.index.similarity.SimilarityProvider;
@@ -349,6 +352,11 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
         return fieldDataType;
     }
 
+    @Override
+    public boolean hasDocValues() {
+        return IndexFieldData.CommonSettings.isDocValuesFormat(fieldDataType);
+    }
+
     @Override
     public FieldType fieldType() {
         return fieldType;
@@ -391,6 +399,9 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
             }
             if (context.listener().beforeFieldAdded(this, field, context)) {
                 context.doc().add(field);
+                if (hasDocValues()) {
+                    addDocValuesField(context, field);
+                }
             }
         } catch (Exception e) {
             throw new MapperParsingException("failed to parse [" + names.fullName() + "]", e);
@@ -399,6 +410,32 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
 
     protected abstract Field parseCreateField(ParseContext context) throws IOException;
 
+    private void addDocValuesField(ParseContext context, Field field) {
+        Field docValuesField = docValuesField(field);
+        if (docValuesField == null) {
+            return;
+        }
+        DocValuesType docValuesType = docValuesField.fieldType().docValueType();
+        if (docValuesType != DocValuesType.SORTED_SET) {
+            // only sorted set doc values can hold more than one value per document
+            for (IndexableField existing : context.doc().getFields()) {
+                if (existing.name().equals(docValuesField.name()) && existing.fieldType().docValueType() == docValuesType) {
+                    throw new ElasticSearchIllegalArgumentException("doc_values field data only supports a single value per document");
+                }
+            }
+        }
+        context.doc().add(docValuesField);
+    }
+
+    /**
+     * Creates the doc values field holding the value of the provided field, or <tt>null</tt> if the mapper
+     * doesn't support doc values.
+     */
+    @Nullable
+    protected Field docValuesField(Field field) {
+        return null;
+    }
+
     /**
      * Derived classes can override it to specify that boost value is set by derived classes.
      */
@@ -563,6 +600,10 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
             mergeContext.addConflict("mapper [" + names.fullName() + "] has different similarity");
         }
 
+        if (fieldMergeWith.customFieldDataSettings != null && hasDocValues() != fieldMergeWith.hasDocValues()) {
+            mergeContext.addConflict("mapper [" + names.fullName() + "] has different doc_values format");
+        }
+
         if (!mergeContext.mergeFlags().simulate()) {
             // apply changeable values
             this.boost = fieldMergeWith.boost;
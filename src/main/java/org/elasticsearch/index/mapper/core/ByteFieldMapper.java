@@ -373,5 +373,10 @@ public class ByteFieldMapper extends NumberFieldMapper<Byte> {
         public String numericAsString() {
             return Byte.toString(number);
         }
+
+        @Override
+        public long docValue() {
+            return number;
+        }
     }
 }
\ No newline at end of file
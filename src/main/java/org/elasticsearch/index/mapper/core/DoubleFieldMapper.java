@@ -372,5 +372,10 @@ public class DoubleFieldMapper extends NumberFieldMapper<Double> {
         public String numericAsString() {
             return Double.toString(number);
         }
+
+        @Override
+        public long docValue() {
+            return NumericUtils.doubleToSortableLong(number);
+        }
     }
 }
\ No newline at end of file
@@ -368,5 +368,10 @@ public class FloatFieldMapper extends NumberFieldMapper<Float> {
         public String numericAsString() {
             return Float.toString(number);
         }
+
+        @Override
+        public long docValue() {
+            return NumericUtils.floatToSortableInt(number);
+        }
     }
 }
\ No newline at end of file
@@ -371,5 +371,10 @@ public class IntegerFieldMapper extends NumberFieldMapper<Integer> {
         public String numericAsString() {
             return Integer.toString(number);
         }
+
+        @Override
+        public long docValue() {
+            return number;
+        }
     }
 }
@@ -371,5 +371,10 @@ public class LongFieldMapper extends NumberFieldMapper<Long> {
         public String numericAsString() {
             return Long.toString(number);
         }
+
+        @Override
+        public long docValue() {
+            return number;
+        }
     }
 }
\ No newline at end of file
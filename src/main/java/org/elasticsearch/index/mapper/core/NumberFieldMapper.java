@@ -22,6 +22,7 @@ package org.elasticsearch.index.mapper.core;
 import org.apache.lucene.analysis.NumericTokenStream;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.FieldInfo.IndexOptions;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
@@ -180,6 +181,14 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
 
     protected abstract Field innerParseCreateField(ParseContext context) throws IOException;
 
+    @Override
+    protected Field docValuesField(Field field) {
+        if (!(field instanceof CustomNumericField)) {
+            return null;
+        }
+        return new NumericDocValuesField(names.indexName(), ((CustomNumericField) field).docValue());
+    }
+
     /**
      * Use the field query created here when matching on numbers.
      */
@@ -279,6 +288,11 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
         }
 
         public abstract String numericAsString();
+
+        /**
+         * The value to store in the field doc values. Floating point values are encoded as sortable longs.
+         */
+        public abstract long docValue();
     }
 
     @Override
@@ -375,5 +375,10 @@ public class ShortFieldMapper extends NumberFieldMapper<Short> {
         public String numericAsString() {
             return Short.toString(number);
         }
+
+        @Override
+        public long docValue() {
+            return number;
+        }
     }
 }
\ No newline at end of file
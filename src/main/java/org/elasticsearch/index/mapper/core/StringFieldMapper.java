@@ -25,8 +25,10 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.FieldInfo.IndexOptions;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
@@ -304,6 +306,12 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
         return field;
     }
 
+    @Override
+    protected Field docValuesField(Field field) {
+        // the doc values hold the whole value, which matches the terms of not_analyzed fields
+        return new SortedSetDocValuesField(names.indexName(), new BytesRef(field.stringValue()));
+    }
+
     @Override
     protected String contentType() {
         return CONTENT_TYPE;
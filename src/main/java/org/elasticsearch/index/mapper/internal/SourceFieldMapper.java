@@ -294,6 +294,7 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
         } else if (compress != null && compress && !CompressorFactory.isCompressed(source)) {
             if (compressThreshold == -1 || source.length() > compressThreshold) {
                 CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+                boolean success = false;
                 try {
                     XContentType contentType = XContentFactory.xContentType(source);
                     if (formatContentType != null && formatContentType != contentType) {
@@ -305,13 +306,16 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
                         source.writeTo(streamOutput);
                         streamOutput.close();
                     }
-                    // we copy over the byte array, since we need to push back the cached entry
-                    // TODO, we we had a handle into when we are done with parsing, then we push back then and not copy over bytes
-                    source = cachedEntry.bytes().bytes().copyBytesArray();
+                    // no copy, the entry is handed over to the parsed document, which pushes it back once indexed
+                    source = cachedEntry.bytes().bytes();
                     // update the data in the context, so it can be compressed and stored compressed outside...
                     context.source(source);
+                    context.sourceEntry(cachedEntry);
+                    success = true;
                 } finally {
-                    CachedStreamOutput.pushEntry(cachedEntry);
+                    if (!success) {
+                        CachedStreamOutput.pushEntry(cachedEntry);
+                    }
                 }
             }
         } else if (formatContentType != null) {
@@ -357,7 +361,10 @@ public class SourceFieldMapper extends AbstractFieldMapper<byte[]> implements In
                 }
             }
         }
-        assert source.hasArray();
+        if (!source.hasArray()) {
+            // the source may be a slice of a composite network buffer
+            source = source.toBytesArray();
+        }
         return new StoredField(names().indexName(), source.array(), source.arrayOffset(), source.length());
     }
 
@@ -0,0 +1,182 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.merge.policy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.*;
+import org.apache.lucene.index.sorter.Sorter;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+
+import java.io.IOException;
+
+/**
+ * The order in which the documents of an index are kept within its merged segments, configured with the
+ * <tt>index.merge.policy.sort.field</tt> and <tt>index.merge.policy.sort.order</tt> settings. The field must
+ * be a numeric field with doc values, that every document has a value for.
+ * <p/>
+ * Segments are sorted when they are merged, flushed segments are left in indexing order. Queries sorted the
+ * same way as the index can stop collecting a segment that is verified to be sorted once it provided enough hits.
+ */
+public class IndexSort {
+
+    public static final String INDEX_SORT_FIELD = "index.merge.policy.sort.field";
+    public static final String INDEX_SORT_ORDER = "index.merge.policy.sort.order";
+
+    // whether a segment is sorted, computed once per segment core, and dropped along with the core
+    private static final Cache<Object, SortedState> sortedStates = CacheBuilder.newBuilder().weakKeys().build();
+
+    private final String field;
+
+    private final boolean reverse;
+
+    private final String sortId;
+
+    public IndexSort(String field, boolean reverse) {
+        this.field = field;
+        this.reverse = reverse;
+        this.sortId = field + (reverse ? ":desc" : ":asc");
+    }
+
+    /**
+     * Returns the sort configured in the provided index settings, or <tt>null</tt> if the index is not sorted.
+     */
+    @Nullable
+    public static IndexSort parse(Settings indexSettings) {
+        String field = indexSettings.get(INDEX_SORT_FIELD);
+        if (field == null) {
+            return null;
+        }
+        String order = indexSettings.get(INDEX_SORT_ORDER, "asc");
+        if ("asc".equals(order)) {
+            return new IndexSort(field, false);
+        } else if ("desc".equals(order)) {
+            return new IndexSort(field, true);
+        }
+        throw new ElasticSearchIllegalArgumentException("[" + INDEX_SORT_ORDER + "] must be one of [asc, desc], got [" + order + "]");
+    }
+
+    /**
+     * The name of the field the index is sorted on.
+     */
+    public String field() {
+        return field;
+    }
+
+    /**
+     * Whether the index is sorted in descending order.
+     */
+    public boolean reverse() {
+        return reverse;
+    }
+
+    /**
+     * Wraps the merge policy so that merged segments are sorted.
+     */
+    public MergePolicy wrap(MergePolicy mergePolicy) {
+        return new SortingMergePolicy(mergePolicy, new NumericDocValuesSorter(field, reverse));
+    }
+
+    /**
+     * Returns <tt>true</tt> if the documents of the provided segment are sorted the same way a search sorted on
+     * the index sort field would return them: every document has a value for the field, and the values are
+     * in order. Segments with documents missing a value are never considered sorted, since the merge sorts
+     * them as <tt>0</tt> while searches sort them last.
+     * <p/>
+     * Lucene doesn't let the merge record how it sorted a segment, so the segment is checked instead, once
+     * per segment core.
+     */
+    public boolean isSorted(AtomicReader reader) throws IOException {
+        final Object coreKey = reader.getCoreCacheKey();
+        SortedState state = sortedStates.getIfPresent(coreKey);
+        if (state == null || !state.sortId.equals(sortId)) {
+            state = new SortedState(sortId, checkSorted(reader));
+            sortedStates.put(coreKey, state);
+        }
+        return state.sorted;
+    }
+
+    private boolean checkSorted(AtomicReader reader) throws IOException {
+        final int maxDoc = reader.maxDoc();
+        final NumericDocValues values = reader.getNumericDocValues(field);
+        final Terms terms = reader.terms(field);
+        if (values == null || terms == null || terms.getDocCount() != maxDoc) {
+            // doc values have no notion of a missing value, the indexed terms tell whether every doc has one
+            return false;
+        }
+        for (int doc = 1; doc < maxDoc; doc++) {
+            final long previous = values.get(doc - 1);
+            final long current = values.get(doc);
+            if (reverse ? previous < current : previous > current) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class SortedState {
+
+        final String sortId;
+
+        final boolean sorted;
+
+        SortedState(String sortId, boolean sorted) {
+            this.sortId = sortId;
+            this.sorted = sorted;
+        }
+    }
+
+    static class NumericDocValuesSorter extends Sorter {
+
+        private final String field;
+
+        private final boolean reverse;
+
+        NumericDocValuesSorter(String field, boolean reverse) {
+            this.field = field;
+            this.reverse = reverse;
+        }
+
+        @Override
+        public DocMap sort(AtomicReader reader) throws IOException {
+            final NumericDocValues values = reader.getNumericDocValues(field);
+            if (values == null) {
+                // no document has a value, keep the segment as is
+                return null;
+            }
+            return sort(reader.maxDoc(), new DocComparator() {
+                @Override
+                public int compare(int docID1, int docID2) {
+                    final long v1 = values.get(docID1);
+                    final long v2 = values.get(docID2);
+                    final int cmp = v1 < v2 ? -1 : v1 == v2 ? 0 : 1;
+                    return reverse ? -cmp : cmp;
+                }
+            });
+        }
+
+        @Override
+        public String getID() {
+            return "DocValues(" + field + "," + (reverse ? "desc" : "asc") + ")";
+        }
+    }
+}
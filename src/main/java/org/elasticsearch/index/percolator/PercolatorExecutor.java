@@ -20,14 +20,15 @@
 package org.elasticsearch.index.percolator;
 
 import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.index.AtomicReaderContext;
-import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.*;
 import org.apache.lucene.index.memory.MemoryIndex;
 import org.apache.lucene.index.memory.ReusableMemoryIndex;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
@@ -69,9 +70,11 @@ import org.elasticsearch.indices.IndicesService;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -169,6 +172,14 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     private final IndexFieldDataService fieldDataService;
 
     private final Map<String, Query> queries = ConcurrentCollections.newConcurrentMap();
+
+    private final QueryTermsIndex queryTermsIndex = new QueryTermsIndex();
+
+    /**
+     * Index setting to control if the registered queries are pre-filtered by the terms of the percolated document,
+     * so only the queries that can possibly match it are executed. The default is <tt>true</tt>
+     */
+    public static final String PERCOLATE_PREFILTER = "index.percolate.prefilter";
     
     /**
      * Realtime index setting to control the number of MemoryIndex instances used to handle
@@ -290,6 +301,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     private IndicesService indicesService;
     private final MemoryIndexPool memIndexPool;
+    private final boolean prefilter;
 
     @Inject
     public PercolatorExecutor(Index index, @IndexSettings Settings indexSettings,
@@ -301,6 +313,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         this.indexCache = indexCache;
         this.fieldDataService = fieldDataService;
         memIndexPool = new MemoryIndexPool(indexSettings);
+        this.prefilter = indexSettings.getAsBoolean(PERCOLATE_PREFILTER, true);
         ApplySettings applySettings = new ApplySettings();
         indexSettingsService.addListener(applySettings);
     }
@@ -318,6 +331,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     public void close() {
         this.queries.clear();
+        this.queryTermsIndex.clear();
     }
 
     public void addQuery(String name, QueryBuilder queryBuilder) throws ElasticSearchException {
@@ -371,17 +385,28 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     private void addQuery(String name, Query query) {
         Preconditions.checkArgument(query != null, "query must be provided for percolate request");
         this.queries.put(name, query);
+        this.queryTermsIndex.add(name, query);
     }
 
     public void removeQuery(String name) {
+        this.queryTermsIndex.remove(name);
         this.queries.remove(name);
     }
 
     public void addQueries(Map<String, Query> queries) {
-        this.queries.putAll(queries);
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            addQuery(entry.getKey(), entry.getValue());
+        }
     }
 
     public Response percolate(final SourceRequest request) throws ElasticSearchException {
+        return percolate(parse(request));
+    }
+
+    /**
+     * Parses the document to percolate, and the optional query used to filter the registered queries, out of the source.
+     */
+    public DocAndQueryRequest parse(final SourceRequest request) throws ElasticSearchException {
         Query query = null;
         ParsedDocument doc = null;
         XContentParser parser = null;
@@ -419,7 +444,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
             throw new PercolatorException(index, "No doc to percolate in the request");
         }
 
-        return percolate(new DocAndQueryRequest(doc, query));
+        return new DocAndQueryRequest(doc, query);
     }
 
     public Response percolate(DocAndSourceQueryRequest request) throws ElasticSearchException {
@@ -430,6 +455,92 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         return percolate(new DocAndQueryRequest(request.doc(), query));
     }
 
+    /**
+     * Percolates a batch of documents, returning the responses in the order of the requests. The documents that
+     * percolate against all the registered queries are indexed together, so each candidate query is executed once
+     * for the whole batch. Documents with a query filtering the registered queries are percolated one by one.
+     */
+    public List<Response> percolate(List<DocAndQueryRequest> requests) throws ElasticSearchException {
+        Response[] responses = new Response[requests.size()];
+        List<Integer> batch = new ArrayList<Integer>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (requests.get(i).query() == null) {
+                batch.add(i);
+            } else {
+                responses[i] = percolate(requests.get(i));
+            }
+        }
+        if (batch.size() == 1) {
+            // the memory index is cheaper for a single document
+            responses[batch.get(0)] = percolate(requests.get(batch.get(0)));
+        } else if (!batch.isEmpty()) {
+            percolateBatch(requests, batch, responses);
+        }
+        return Arrays.asList(responses);
+    }
+
+    private void percolateBatch(List<DocAndQueryRequest> requests, List<Integer> batch, Response[] responses) throws ElasticSearchException {
+        final RAMDirectory directory = new RAMDirectory();
+        DirectoryReader reader = null;
+        try {
+            IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER)
+                    .setMergePolicy(NoMergePolicy.NO_COMPOUND_FILES));
+            try {
+                for (int slot : batch) {
+                    ParsedDocument doc = requests.get(slot).doc();
+                    // TODO: This means percolation does not support nested docs...
+                    Document document = new Document();
+                    for (IndexableField field : doc.rootDoc().getFields()) {
+                        // only the indexed fields are needed, and no need to index the UID field
+                        if (field.fieldType().indexed() && !field.name().equals(UidFieldMapper.NAME)) {
+                            document.add(field);
+                        }
+                    }
+                    writer.addDocument(document, doc.analyzer());
+                }
+            } finally {
+                writer.close();
+            }
+            reader = DirectoryReader.open(directory);
+        } catch (IOException e) {
+            throw new PercolatorException(index, "failed to index the documents to percolate", e);
+        }
+
+        // segments are never merged, so the doc ids follow the order of the batch
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        final BatchCollector collector = new BatchCollector(batch.size());
+        try {
+            final Set<String> candidates = candidateQueries(searcher);
+            for (String name : candidates == null ? queries.keySet() : candidates) {
+                Query query = queries.get(name);
+                if (query == null) {
+                    // removed concurrently
+                    continue;
+                }
+                collector.reset(name);
+                try {
+                    searcher.search(query, collector);
+                } catch (IOException e) {
+                    logger.warn("[" + name + "] failed to execute query", e);
+                }
+            }
+        } finally {
+            for (AtomicReaderContext context : reader.leaves()) {
+                indexCache.clear(context.reader());
+                fieldDataService.clear(context.reader());
+            }
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            int slot = batch.get(i);
+            responses[slot] = new Response(collector.matches(i), requests.get(slot).doc().mappingsModified());
+        }
+    }
+
     private Response percolate(DocAndQueryRequest request) throws ElasticSearchException {
         // first, parse the source doc into a MemoryIndex
         final ReusableMemoryIndex memoryIndex = memIndexPool.acquire();
@@ -458,18 +569,24 @@ public class PercolatorExecutor extends AbstractIndexComponent {
             List<String> matches = new ArrayList<String>();
     
             try {
+                final Set<String> candidates = candidateQueries(searcher);
                 if (request.query() == null) {
                     Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-                    for (Map.Entry<String, Query> entry : queries.entrySet()) {
+                    for (String name : candidates == null ? queries.keySet() : candidates) {
+                        Query query = queries.get(name);
+                        if (query == null) {
+                            // removed concurrently
+                            continue;
+                        }
                         collector.reset();
                         try {
-                            searcher.search(entry.getValue(), collector);
+                            searcher.search(query, collector);
                         } catch (IOException e) {
-                            logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+                            logger.warn("[" + name + "] failed to execute query", e);
                         }
     
                         if (collector.exists()) {
-                            matches.add(entry.getKey());
+                            matches.add(name);
                         }
                     }
                 } else {
@@ -480,7 +597,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
                     IndexShard percolatorShard = percolatorIndex.shard(0);
                     Engine.Searcher percolatorSearcher = percolatorShard.searcher();
                     try {
-                        percolatorSearcher.searcher().search(request.query(), new QueryCollector(logger, queries, searcher, percolatorIndex, matches));
+                        percolatorSearcher.searcher().search(request.query(), new QueryCollector(logger, queries, candidates, searcher, percolatorIndex, matches));
                     } catch (IOException e) {
                         logger.warn("failed to execute", e);
                     } finally {
@@ -499,6 +616,23 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     }
 
+    /**
+     * Selects the queries that can possibly match the document indexed in the memory index, or returns <tt>null</tt>
+     * if all the queries need to be executed.
+     */
+    @Nullable
+    private Set<String> candidateQueries(IndexSearcher searcher) {
+        if (!prefilter) {
+            return null;
+        }
+        try {
+            return queryTermsIndex.candidates(searcher.getIndexReader());
+        } catch (IOException e) {
+            logger.warn("failed to select candidate queries, executing all queries", e);
+            return null;
+        }
+    }
+
     private IndexService percolatorIndexServiceSafe() {
         IndexService indexService = indicesService.indexService(PercolatorService.INDEX_NAME);
         if (indexService == null) {
@@ -507,21 +641,68 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         return indexService;
     }
 
+    /**
+     * Collects the documents of the batch matching the current query.
+     */
+    static class BatchCollector extends Collector {
+        private final List<String>[] matches;
+        private String name;
+        private int docBase;
+
+        @SuppressWarnings("unchecked")
+        BatchCollector(int numDocs) {
+            this.matches = new List[numDocs];
+            for (int i = 0; i < numDocs; i++) {
+                matches[i] = new ArrayList<String>();
+            }
+        }
+
+        void reset(String name) {
+            this.name = name;
+        }
+
+        List<String> matches(int doc) {
+            return matches[doc];
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            matches[docBase + doc].add(name);
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            docBase = context.docBase;
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return true;
+        }
+    }
+
     static class QueryCollector extends Collector {
         private final IndexFieldData uidFieldData;
         private final IndexSearcher searcher;
         private final IndexService percolatorIndex;
         private final List<String> matches;
         private final Map<String, Query> queries;
+        @Nullable
+        private final Set<String> candidates;
         private final ESLogger logger;
 
         private final Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
 
         private BytesValues values;
 
-        QueryCollector(ESLogger logger, Map<String, Query> queries, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
+        QueryCollector(ESLogger logger, Map<String, Query> queries, @Nullable Set<String> candidates, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
             this.logger = logger;
             this.queries = queries;
+            this.candidates = candidates;
             this.searcher = searcher;
             this.percolatorIndex = percolatorIndex;
             this.matches = matches;
@@ -540,6 +721,10 @@ public class PercolatorExecutor extends AbstractIndexComponent {
                 return;
             }
             String id = Uid.idFromUid(uid).toUtf8();
+            if (candidates != null && !candidates.contains(id)) {
+                // the document can't match the query
+                return;
+            }
             Query query = queries.get(id);
             if (query == null) {
                 // log???
@@ -571,5 +756,6 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     public void clearQueries() {
         this.queries.clear();
+        this.queryTermsIndex.clear();
     }
 }
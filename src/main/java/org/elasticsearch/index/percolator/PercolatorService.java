@@ -45,6 +45,7 @@ import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -115,6 +116,14 @@ public class PercolatorService extends AbstractIndexComponent {
         return percolator.percolate(request);
     }
 
+    public PercolatorExecutor.DocAndQueryRequest parse(PercolatorExecutor.SourceRequest request) throws PercolatorException {
+        return percolator.parse(request);
+    }
+
+    public List<PercolatorExecutor.Response> percolate(List<PercolatorExecutor.DocAndQueryRequest> requests) throws PercolatorException {
+        return percolator.percolate(requests);
+    }
+
     private void loadQueries(String indexName) {
         IndexService indexService = percolatorIndexService();
         IndexShard shard = indexService.shard(0);
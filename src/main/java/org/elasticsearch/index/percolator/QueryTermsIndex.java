@@ -0,0 +1,259 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An inverted index from the terms of the registered percolator queries to the names of these queries, used to
+ * select the queries that can possibly match a percolated document instead of executing all of them.
+ * <p/>
+ * A query is indexed under a set of terms only if a document can't match it without containing at least one of
+ * them. Queries for which no such set can be extracted (match all, ranges, wildcards, pure negations...) are always
+ * selected as candidates.
+ */
+public class QueryTermsIndex {
+
+    private final ConcurrentMap<String, ConcurrentMap<BytesRef, Set<String>>> fields = ConcurrentCollections.newConcurrentMap();
+
+    private final Set<String> unindexed = ConcurrentCollections.newConcurrentSet();
+
+    // the terms each query is indexed under, so it can be removed (guarded by this)
+    private final Map<String, Set<Term>> queryTerms = new HashMap<String, Set<Term>>();
+
+    /**
+     * Indexes the query under the given name, replacing any query previously indexed under it.
+     */
+    public synchronized void add(String name, Query query) {
+        Set<Term> terms = extractQueryTerms(query);
+        Set<Term> previous = queryTerms.put(name, terms == null ? Collections.<Term>emptySet() : terms);
+        // index the new terms before removing the stale ones, so the query remains visible to concurrent percolations
+        if (terms == null) {
+            unindexed.add(name);
+        } else {
+            for (Term term : terms) {
+                ConcurrentMap<BytesRef, Set<String>> fieldTerms = fields.get(term.field());
+                if (fieldTerms == null) {
+                    fieldTerms = ConcurrentCollections.newConcurrentMap();
+                    fields.put(term.field(), fieldTerms);
+                }
+                Set<String> names = fieldTerms.get(term.bytes());
+                if (names == null) {
+                    names = ConcurrentCollections.newConcurrentSet();
+                    fieldTerms.put(BytesRef.deepCopyOf(term.bytes()), names);
+                }
+                names.add(name);
+            }
+            unindexed.remove(name);
+        }
+        if (previous != null) {
+            for (Term term : previous) {
+                if (terms == null || !terms.contains(term)) {
+                    removeTerm(name, term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the query indexed under the given name, if any.
+     */
+    public synchronized void remove(String name) {
+        Set<Term> terms = queryTerms.remove(name);
+        if (terms == null) {
+            return;
+        }
+        unindexed.remove(name);
+        for (Term term : terms) {
+            removeTerm(name, term);
+        }
+    }
+
+    private void removeTerm(String name, Term term) {
+        ConcurrentMap<BytesRef, Set<String>> fieldTerms = fields.get(term.field());
+        if (fieldTerms == null) {
+            return;
+        }
+        Set<String> names = fieldTerms.get(term.bytes());
+        if (names == null) {
+            return;
+        }
+        names.remove(name);
+        if (names.isEmpty()) {
+            fieldTerms.remove(term.bytes());
+            if (fieldTerms.isEmpty()) {
+                fields.remove(term.field());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        queryTerms.clear();
+        unindexed.clear();
+        fields.clear();
+    }
+
+    /**
+     * The number of indexed queries.
+     */
+    public synchronized int size() {
+        return queryTerms.size();
+    }
+
+    /**
+     * Returns the names of the queries that can possibly match the (single) document held by the reader. Only the
+     * fields that are referenced by indexed queries are visited.
+     */
+    public Set<String> candidates(IndexReader reader) throws IOException {
+        Set<String> candidates = new HashSet<String>(unindexed);
+        TermsEnum termsEnum = null;
+        for (AtomicReaderContext context : reader.leaves()) {
+            Fields docFields = context.reader().fields();
+            if (docFields == null) {
+                continue;
+            }
+            for (String field : docFields) {
+                Map<BytesRef, Set<String>> fieldTerms = fields.get(field);
+                if (fieldTerms == null) {
+                    continue;
+                }
+                Terms terms = docFields.terms(field);
+                if (terms == null) {
+                    continue;
+                }
+                termsEnum = terms.iterator(termsEnum);
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    Set<String> names = fieldTerms.get(term);
+                    if (names != null) {
+                        candidates.addAll(names);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Extracts a set of terms of which a document has to contain at least one in order to match the query, or
+     * returns <tt>null</tt> if such a set can't be determined for the query.
+     */
+    @Nullable
+    public static Set<Term> extractQueryTerms(Query query) {
+        if (query instanceof TermQuery) {
+            return Collections.singleton(((TermQuery) query).getTerm());
+        } else if (query instanceof PhraseQuery) {
+            // all the terms are required, the longest one is likely the most selective
+            Term[] terms = ((PhraseQuery) query).getTerms();
+            Term longest = null;
+            for (Term term : terms) {
+                if (longest == null || term.bytes().length > longest.bytes().length) {
+                    longest = term;
+                }
+            }
+            return longest == null ? null : Collections.singleton(longest);
+        } else if (query instanceof MultiPhraseQuery) {
+            // one of the terms of each position is required, pick the position with the least alternatives
+            Term[] best = null;
+            for (Term[] terms : ((MultiPhraseQuery) query).getTermArrays()) {
+                if (best == null || terms.length < best.length) {
+                    best = terms;
+                }
+            }
+            return best == null || best.length == 0 ? null : new HashSet<Term>(Arrays.asList(best));
+        } else if (query instanceof BooleanQuery) {
+            return extractBooleanQueryTerms((BooleanQuery) query);
+        } else if (query instanceof DisjunctionMaxQuery) {
+            Set<Term> terms = new HashSet<Term>();
+            for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+                Set<Term> disjunctTerms = extractQueryTerms(disjunct);
+                if (disjunctTerms == null) {
+                    return null;
+                }
+                terms.addAll(disjunctTerms);
+            }
+            return terms.isEmpty() ? null : terms;
+        } else if (query instanceof ConstantScoreQuery) {
+            ConstantScoreQuery constantScoreQuery = (ConstantScoreQuery) query;
+            if (constantScoreQuery.getQuery() != null) {
+                return extractQueryTerms(constantScoreQuery.getQuery());
+            }
+            return extractFilterTerms(constantScoreQuery.getFilter());
+        } else if (query instanceof XFilteredQuery) {
+            // the filter can only further restrict the matching documents
+            Set<Term> terms = extractQueryTerms(((XFilteredQuery) query).getQuery());
+            return terms != null ? terms : extractFilterTerms(((XFilteredQuery) query).getFilter());
+        } else if (query instanceof FilteredQuery) {
+            Set<Term> terms = extractQueryTerms(((FilteredQuery) query).getQuery());
+            return terms != null ? terms : extractFilterTerms(((FilteredQuery) query).getFilter());
+        }
+        return null;
+    }
+
+    private static Set<Term> extractBooleanQueryTerms(BooleanQuery query) {
+        // if there are required clauses, any one of them has to match, pick the one with the least terms
+        boolean hasRequired = false;
+        Set<Term> best = null;
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.isRequired()) {
+                hasRequired = true;
+                Set<Term> terms = extractQueryTerms(clause.getQuery());
+                if (terms != null && (best == null || terms.size() < best.size())) {
+                    best = terms;
+                }
+            }
+        }
+        if (hasRequired) {
+            return best;
+        }
+        // otherwise at least one of the optional clauses has to match
+        Set<Term> terms = new HashSet<Term>();
+        boolean hasOptional = false;
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.isProhibited()) {
+                continue;
+            }
+            hasOptional = true;
+            Set<Term> clauseTerms = extractQueryTerms(clause.getQuery());
+            if (clauseTerms == null) {
+                return null;
+            }
+            terms.addAll(clauseTerms);
+        }
+        return hasOptional && !terms.isEmpty() ? terms : null;
+    }
+
+    @Nullable
+    private static Set<Term> extractFilterTerms(@Nullable Filter filter) {
+        if (filter instanceof TermFilter) {
+            return Collections.singleton(((TermFilter) filter).getTerm());
+        }
+        return null;
+    }
+}
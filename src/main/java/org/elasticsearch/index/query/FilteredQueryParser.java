@@ -60,7 +60,7 @@ public class FilteredQueryParser implements QueryParser {
 
         String currentFieldName = null;
         XContentParser.Token token;
-        FilteredQuery.FilterStrategy filterStrategy = XFilteredQuery.CUSTOM_FILTER_STRATEGY;
+        FilteredQuery.FilterStrategy filterStrategy = XFilteredQuery.COST_BASED_FILTER_STRATEGY;
 
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
             if (token == XContentParser.Token.FIELD_NAME) {
@@ -93,6 +93,8 @@ public class FilteredQueryParser implements QueryParser {
                         filterStrategy = FilteredQuery.LEAP_FROG_QUERY_FIRST_STRATEGY;
                     } else if ("leap_frog_filter_first".equals(value) || "leapFrogFilterFirst".equals(value)) {
                         filterStrategy = FilteredQuery.LEAP_FROG_FILTER_FIRST_STRATEGY;
+                    } else if ("cost_based".equals(value) || "costBased".equals(value)) {
+                        filterStrategy = XFilteredQuery.COST_BASED_FILTER_STRATEGY;
                     } else {
                         throw new QueryParsingException(parseContext.index(), "[filtered] strategy value not supported [" + value + "]");
                     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.search.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -46,17 +47,23 @@ public class SearchStats implements Streamable, ToXContent {
         private long fetchTimeInMillis;
         private long fetchCurrent;
 
+        private long queryTimedOutCount;
+        private long fetchTimedOutCount;
+
         Stats() {
 
         }
 
-        public Stats(long queryCount, long queryTimeInMillis, long queryCurrent, long fetchCount, long fetchTimeInMillis, long fetchCurrent) {
+        public Stats(long queryCount, long queryTimeInMillis, long queryCurrent, long fetchCount, long fetchTimeInMillis, long fetchCurrent,
+                     long queryTimedOutCount, long fetchTimedOutCount) {
             this.queryCount = queryCount;
             this.queryTimeInMillis = queryTimeInMillis;
             this.queryCurrent = queryCurrent;
             this.fetchCount = fetchCount;
             this.fetchTimeInMillis = fetchTimeInMillis;
             this.fetchCurrent = fetchCurrent;
+            this.queryTimedOutCount = queryTimedOutCount;
+            this.fetchTimedOutCount = fetchTimedOutCount;
         }
 
         public void add(Stats stats) {
@@ -67,6 +74,9 @@ public class SearchStats implements Streamable, ToXContent {
             fetchCount += stats.fetchCount;
             fetchTimeInMillis += stats.fetchTimeInMillis;
             fetchCurrent += stats.fetchCurrent;
+
+            queryTimedOutCount += stats.queryTimedOutCount;
+            fetchTimedOutCount += stats.fetchTimedOutCount;
         }
 
         public long getQueryCount() {
@@ -101,6 +111,20 @@ public class SearchStats implements Streamable, ToXContent {
             return fetchCurrent;
         }
 
+        /**
+         * The number of query phases that ran out of their timeout budget, and returned partial results.
+         */
+        public long getQueryTimedOutCount() {
+            return queryTimedOutCount;
+        }
+
+        /**
+         * The number of fetch phases that ran out of their timeout budget, and returned partially fetched hits.
+         */
+        public long getFetchTimedOutCount() {
+            return fetchTimedOutCount;
+        }
+
 
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
@@ -117,6 +141,11 @@ public class SearchStats implements Streamable, ToXContent {
             fetchCount = in.readVLong();
             fetchTimeInMillis = in.readVLong();
             fetchCurrent = in.readVLong();
+
+            if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                queryTimedOutCount = in.readVLong();
+                fetchTimedOutCount = in.readVLong();
+            }
         }
 
         @Override
@@ -128,6 +157,11 @@ public class SearchStats implements Streamable, ToXContent {
             out.writeVLong(fetchCount);
             out.writeVLong(fetchTimeInMillis);
             out.writeVLong(fetchCurrent);
+
+            if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+                out.writeVLong(queryTimedOutCount);
+                out.writeVLong(fetchTimedOutCount);
+            }
         }
 
         @Override
@@ -142,6 +176,70 @@ public class SearchStats implements Streamable, ToXContent {
             builder.field(Fields.FETCH_TIME_IN_MILLIS, fetchTimeInMillis);
             builder.field(Fields.FETCH_CURRENT, fetchCurrent);
 
+            builder.field(Fields.QUERY_TIMED_OUT, queryTimedOutCount);
+            builder.field(Fields.FETCH_TIMED_OUT, fetchTimedOutCount);
+
+            return builder;
+        }
+    }
+
+    /**
+     * The number of times and the time spent executing a part of the fetch phase.
+     */
+    public static class PhaseStats implements Streamable, ToXContent {
+
+        private long count;
+        private long timeInMillis;
+
+        PhaseStats() {
+
+        }
+
+        public PhaseStats(long count, long timeInMillis) {
+            this.count = count;
+            this.timeInMillis = timeInMillis;
+        }
+
+        public void add(PhaseStats stats) {
+            count += stats.count;
+            timeInMillis += stats.timeInMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public TimeValue getTime() {
+            return new TimeValue(timeInMillis);
+        }
+
+        public long getTimeInMillis() {
+            return timeInMillis;
+        }
+
+        public static PhaseStats readPhaseStats(StreamInput in) throws IOException {
+            PhaseStats stats = new PhaseStats();
+            stats.readFrom(in);
+            return stats;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            count = in.readVLong();
+            timeInMillis = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(count);
+            out.writeVLong(timeInMillis);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.TOTAL, count);
+            builder.field(Fields.TIME, getTime().toString());
+            builder.field(Fields.TIME_IN_MILLIS, timeInMillis);
             return builder;
         }
     }
@@ -152,14 +250,22 @@ public class SearchStats implements Streamable, ToXContent {
     @Nullable
     Map<String, Stats> groupStats;
 
+    @Nullable
+    Map<String, PhaseStats> fetchPhasesStats;
+
     public SearchStats() {
         totalStats = new Stats();
     }
 
     public SearchStats(Stats totalStats, long openContexts, @Nullable Map<String, Stats> groupStats) {
+        this(totalStats, openContexts, groupStats, null);
+    }
+
+    public SearchStats(Stats totalStats, long openContexts, @Nullable Map<String, Stats> groupStats, @Nullable Map<String, PhaseStats> fetchPhasesStats) {
         this.totalStats = totalStats;
         this.openContexts = openContexts;
         this.groupStats = groupStats;
+        this.fetchPhasesStats = fetchPhasesStats;
     }
 
     public void add(SearchStats searchStats) {
@@ -185,6 +291,19 @@ public class SearchStats implements Streamable, ToXContent {
                 }
             }
         }
+        if (searchStats.fetchPhasesStats != null && !searchStats.fetchPhasesStats.isEmpty()) {
+            if (fetchPhasesStats == null) {
+                fetchPhasesStats = new HashMap<String, PhaseStats>(searchStats.fetchPhasesStats.size());
+            }
+            for (Map.Entry<String, PhaseStats> entry : searchStats.fetchPhasesStats.entrySet()) {
+                PhaseStats stats = fetchPhasesStats.get(entry.getKey());
+                if (stats == null) {
+                    fetchPhasesStats.put(entry.getKey(), entry.getValue());
+                } else {
+                    stats.add(entry.getValue());
+                }
+            }
+        }
     }
 
     public Stats getTotal() {
@@ -200,11 +319,28 @@ public class SearchStats implements Streamable, ToXContent {
         return this.groupStats;
     }
 
+    /**
+     * The stats of the parts of the fetch phase, keyed by their name (<tt>stored_fields</tt>, <tt>highlight</tt>, ...).
+     */
+    @Nullable
+    public Map<String, PhaseStats> getFetchPhasesStats() {
+        return this.fetchPhasesStats;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
         builder.startObject(Fields.SEARCH);
         builder.field(Fields.OPEN_CONTEXTS, openContexts);
         totalStats.toXContent(builder, params);
+        if (fetchPhasesStats != null && !fetchPhasesStats.isEmpty()) {
+            builder.startObject(Fields.FETCH_PHASES);
+            for (Map.Entry<String, PhaseStats> entry : fetchPhasesStats.entrySet()) {
+                builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
         if (groupStats != null && !groupStats.isEmpty()) {
             builder.startObject(Fields.GROUPS);
             for (Map.Entry<String, Stats> entry : groupStats.entrySet()) {
@@ -230,6 +366,12 @@ public class SearchStats implements Streamable, ToXContent {
         static final XContentBuilderString FETCH_TIME = new XContentBuilderString("fetch_time");
         static final XContentBuilderString FETCH_TIME_IN_MILLIS = new XContentBuilderString("fetch_time_in_millis");
         static final XContentBuilderString FETCH_CURRENT = new XContentBuilderString("fetch_current");
+        static final XContentBuilderString QUERY_TIMED_OUT = new XContentBuilderString("query_timed_out");
+        static final XContentBuilderString FETCH_TIMED_OUT = new XContentBuilderString("fetch_timed_out");
+        static final XContentBuilderString FETCH_PHASES = new XContentBuilderString("fetch_phases");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
     }
 
     public static SearchStats readSearchStats(StreamInput in) throws IOException {
@@ -249,6 +391,13 @@ public class SearchStats implements Streamable, ToXContent {
                 groupStats.put(in.readString(), Stats.readStats(in));
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1) && in.readBoolean()) {
+            int size = in.readVInt();
+            fetchPhasesStats = new HashMap<String, PhaseStats>(size);
+            for (int i = 0; i < size; i++) {
+                fetchPhasesStats.put(in.readString(), PhaseStats.readPhaseStats(in));
+            }
+        }
     }
 
     @Override
@@ -265,5 +414,17 @@ public class SearchStats implements Streamable, ToXContent {
                 entry.getValue().writeTo(out);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (fetchPhasesStats == null || fetchPhasesStats.isEmpty()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeVInt(fetchPhasesStats.size());
+                for (Map.Entry<String, PhaseStats> entry : fetchPhasesStats.entrySet()) {
+                    out.writeString(entry.getKey());
+                    entry.getValue().writeTo(out);
+                }
+            }
+        }
     }
 }
@@ -46,6 +46,8 @@ public class ShardSearchService extends AbstractIndexShardComponent {
 
     private volatile Map<String, StatsHolder> groupsStats = ImmutableMap.of();
 
+    private volatile Map<String, MeanMetric> fetchPhasesMetrics = ImmutableMap.of();
+
     @Inject
     public ShardSearchService(ShardId shardId, @IndexSettings Settings indexSettings, ShardSlowLogSearchService slowLogSearchService) {
         super(shardId, indexSettings);
@@ -76,7 +78,14 @@ public class ShardSearchService extends AbstractIndexShardComponent {
                 }
             }
         }
-        return new SearchStats(total, openContexts.count(), groupsSt);
+        Map<String, SearchStats.PhaseStats> fetchPhasesSt = null;
+        if (!fetchPhasesMetrics.isEmpty()) {
+            fetchPhasesSt = new HashMap<String, SearchStats.PhaseStats>(fetchPhasesMetrics.size());
+            for (Map.Entry<String, MeanMetric> entry : fetchPhasesMetrics.entrySet()) {
+                fetchPhasesSt.put(entry.getKey(), new SearchStats.PhaseStats(entry.getValue().count(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().sum())));
+            }
+        }
+        return new SearchStats(total, openContexts.count(), groupsSt, fetchPhasesSt);
     }
 
     public void onPreQueryPhase(SearchContext searchContext) {
@@ -98,13 +107,20 @@ public class ShardSearchService extends AbstractIndexShardComponent {
     }
 
     public void onQueryPhase(SearchContext searchContext, long tookInNanos) {
+        boolean timedOut = searchContext.queryResult().searchTimedOut();
         totalStats.queryMetric.inc(tookInNanos);
         totalStats.queryCurrent.dec();
+        if (timedOut) {
+            totalStats.queryTimedOut.inc();
+        }
         if (searchContext.groupStats() != null) {
             for (int i = 0; i < searchContext.groupStats().size(); i++) {
                 StatsHolder statsHolder = groupStats(searchContext.groupStats().get(i));
                 statsHolder.queryMetric.inc(tookInNanos);
                 statsHolder.queryCurrent.dec();
+                if (timedOut) {
+                    statsHolder.queryTimedOut.inc();
+                }
             }
         }
         slowLogSearchService.onQueryPhase(searchContext, tookInNanos);
@@ -130,20 +146,47 @@ public class ShardSearchService extends AbstractIndexShardComponent {
 
 
     public void onFetchPhase(SearchContext searchContext, long tookInNanos) {
+        boolean timedOut = searchContext.fetchResult().searchTimedOut();
         totalStats.fetchMetric.inc(tookInNanos);
         totalStats.fetchCurrent.dec();
+        if (timedOut) {
+            totalStats.fetchTimedOut.inc();
+        }
         if (searchContext.groupStats() != null) {
             for (int i = 0; i < searchContext.groupStats().size(); i++) {
                 StatsHolder statsHolder = groupStats(searchContext.groupStats().get(i));
                 statsHolder.fetchMetric.inc(tookInNanos);
                 statsHolder.fetchCurrent.dec();
+                if (timedOut) {
+                    statsHolder.fetchTimedOut.inc();
+                }
             }
         }
         slowLogSearchService.onFetchPhase(searchContext, tookInNanos);
     }
 
+    /**
+     * Called with the time spent in a part of the fetch phase, like loading the stored fields or highlighting.
+     */
+    public void onFetchSubPhase(SearchContext searchContext, String phase, long tookInNanos) {
+        MeanMetric metric = fetchPhasesMetrics.get(phase);
+        if (metric == null) {
+            synchronized (this) {
+                metric = fetchPhasesMetrics.get(phase);
+                if (metric == null) {
+                    metric = new MeanMetric();
+                    fetchPhasesMetrics = MapBuilder.newMapBuilder(fetchPhasesMetrics).put(phase, metric).immutableMap();
+                }
+            }
+        }
+        metric.inc(tookInNanos);
+    }
+
     public void clear() {
         totalStats.clear();
+        for (MeanMetric metric : fetchPhasesMetrics.values()) {
+            metric.clear();
+        }
         synchronized (this) {
             if (!groupsStats.isEmpty()) {
                 MapBuilder<String, StatsHolder> typesStatsBuilder = MapBuilder.newMapBuilder();
@@ -185,11 +228,14 @@ public class ShardSearchService extends AbstractIndexShardComponent {
         public final MeanMetric fetchMetric = new MeanMetric();
         public final CounterMetric queryCurrent = new CounterMetric();
         public final CounterMetric fetchCurrent = new CounterMetric();
+        public final CounterMetric queryTimedOut = new CounterMetric();
+        public final CounterMetric fetchTimedOut = new CounterMetric();
 
         public SearchStats.Stats stats() {
             return new SearchStats.Stats(
                     queryMetric.count(), TimeUnit.NANOSECONDS.toMillis(queryMetric.sum()), queryCurrent.count(),
-                    fetchMetric.count(), TimeUnit.NANOSECONDS.toMillis(fetchMetric.sum()), fetchCurrent.count());
+                    fetchMetric.count(), TimeUnit.NANOSECONDS.toMillis(fetchMetric.sum()), fetchCurrent.count(),
+                    queryTimedOut.count(), fetchTimedOut.count());
         }
 
         public long totalCurrent() {
@@ -199,6 +245,8 @@ public class ShardSearchService extends AbstractIndexShardComponent {
         public void clear() {
             queryMetric.clear();
             fetchMetric.clear();
+            queryTimedOut.dec(queryTimedOut.count());
+            fetchTimedOut.dec(fetchTimedOut.count());
         }
     }
 }
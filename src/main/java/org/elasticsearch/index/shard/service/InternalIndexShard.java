@@ -44,6 +44,8 @@ import org.elasticsearch.index.aliases.IndexAliasesService;
 import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.filter.ShardFilterCache;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.cache.id.ShardIdCache;
 import org.elasticsearch.index.engine.*;
@@ -68,6 +70,7 @@ import org.elasticsearch.index.shard.*;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.IndicesLifecycle;
@@ -104,6 +107,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private final ShardGetService getService;
     private final ShardIndexWarmerService shardWarmerService;
     private final ShardFilterCache shardFilterCache;
+    private final ShardQueryCache shardQueryCache;
     private final ShardIdCache shardIdCache;
     private final ShardFieldData shardFieldData;
 
@@ -129,7 +133,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     @Inject
     public InternalIndexShard(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, IndicesLifecycle indicesLifecycle, Store store, Engine engine, MergeSchedulerProvider mergeScheduler, Translog translog,
                               ThreadPool threadPool, MapperService mapperService, IndexQueryParserService queryParserService, IndexCache indexCache, IndexAliasesService indexAliasesService, ShardIndexingService indexingService, ShardGetService getService, ShardSearchService searchService, ShardIndexWarmerService shardWarmerService,
-                              ShardFilterCache shardFilterCache, ShardIdCache shardIdCache, ShardFieldData shardFieldData) {
+                              ShardFilterCache shardFilterCache, ShardQueryCache shardQueryCache, ShardIdCache shardIdCache, ShardFieldData shardFieldData) {
         super(shardId, indexSettings);
         this.indicesLifecycle = (InternalIndicesLifecycle) indicesLifecycle;
         this.indexSettingsService = indexSettingsService;
@@ -147,6 +151,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         this.searchService = searchService;
         this.shardWarmerService = shardWarmerService;
         this.shardFilterCache = shardFilterCache;
+        this.shardQueryCache = shardQueryCache;
         this.shardIdCache = shardIdCache;
         this.shardFieldData = shardFieldData;
         state = IndexShardState.CREATED;
@@ -201,6 +206,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return this.shardFilterCache;
     }
 
+    @Override
+    public ShardQueryCache queryCache() {
+        return this.shardQueryCache;
+    }
+
     @Override
     public ShardIdCache idCache() {
         return this.shardIdCache;
@@ -413,6 +423,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         refreshMetric.inc(System.nanoTime() - time);
     }
 
+    @Override
+    public void groupCommitTranslog() throws ElasticSearchException {
+        translog.groupCommit();
+    }
+
     @Override
     public RefreshStats refreshStats() {
         return new RefreshStats(refreshMetric.count(), TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()));
@@ -440,7 +455,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
     @Override
     public IndexingStats indexingStats(String... types) {
-        return indexingService.stats(types);
+        return indexingService.stats(engine.versionMapMemoryInBytes(), types);
     }
 
     @Override
@@ -467,6 +482,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return mergeScheduler.stats();
     }
 
+    @Override
+    public TranslogStats translogStats() {
+        return translog.stats();
+    }
+
     @Override
     public WarmerStats warmerStats() {
         return shardWarmerService.stats();
@@ -477,6 +497,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return shardFilterCache.stats();
     }
 
+    @Override
+    public QueryCacheStats queryCacheStats() {
+        return shardQueryCache.stats();
+    }
+
     @Override
     public FieldDataStats fieldDataStats(String... fields) {
         return shardFieldData.stats(fields);
@@ -117,14 +117,23 @@ public interface Translog extends IndexShardComponent, CloseableIndexComponent {
     void clearUnreferenced();
 
     /**
-     * Sync's the translog.
+     * Sync's the translog, failing with a {@link TranslogException} if the operations could not be made durable.
      */
-    void sync();
+    void sync() throws TranslogException;
 
     boolean syncNeeded();
 
     void syncOnEachOperation(boolean syncOnEachOperation);
 
+    /**
+     * Called by a write request once all of its operations were added. When group commit is enabled, blocks until
+     * the operations added so far are durable, sharing a single sync with the concurrent requests. Does nothing
+     * otherwise.
+     */
+    void groupCommit() throws TranslogException;
+
+    TranslogStats stats();
+
     static class Location {
         public final long translogId;
         public final long translogLocation;
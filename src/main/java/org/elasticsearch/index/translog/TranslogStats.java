@@ -0,0 +1,159 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ */
+public class TranslogStats implements Streamable, ToXContent {
+
+    private long operations;
+
+    private long sizeInBytes;
+
+    private long syncTotal;
+
+    private long syncTimeInMillis;
+
+    private long syncOperations;
+
+    public TranslogStats() {
+
+    }
+
+    public TranslogStats(long operations, long sizeInBytes, long syncTotal, long syncTimeInMillis, long syncOperations) {
+        this.operations = operations;
+        this.sizeInBytes = sizeInBytes;
+        this.syncTotal = syncTotal;
+        this.syncTimeInMillis = syncTimeInMillis;
+        this.syncOperations = syncOperations;
+    }
+
+    public void add(TranslogStats translogStats) {
+        if (translogStats == null) {
+            return;
+        }
+        this.operations += translogStats.operations;
+        this.sizeInBytes += translogStats.sizeInBytes;
+        this.syncTotal += translogStats.syncTotal;
+        this.syncTimeInMillis += translogStats.syncTimeInMillis;
+        this.syncOperations += translogStats.syncOperations;
+    }
+
+    /**
+     * The number of operations in the current translog.
+     */
+    public long getOperations() {
+        return this.operations;
+    }
+
+    public long getSizeInBytes() {
+        return this.sizeInBytes;
+    }
+
+    public ByteSizeValue getSize() {
+        return new ByteSizeValue(sizeInBytes);
+    }
+
+    /**
+     * The total number of fsyncs of the translog.
+     */
+    public long getSyncTotal() {
+        return this.syncTotal;
+    }
+
+    /**
+     * The total time spent in fsyncs of the translog (in milliseconds).
+     */
+    public long getSyncTimeInMillis() {
+        return this.syncTimeInMillis;
+    }
+
+    public TimeValue getSyncTime() {
+        return new TimeValue(syncTimeInMillis);
+    }
+
+    /**
+     * The total number of operations made durable by the fsyncs. Divided by {@link #getSyncTotal()}, it gives
+     * the average number of operations covered by one fsync.
+     */
+    public long getSyncOperations() {
+        return this.syncOperations;
+    }
+
+    public static TranslogStats readTranslogStats(StreamInput in) throws IOException {
+        TranslogStats translogStats = new TranslogStats();
+        translogStats.readFrom(in);
+        return translogStats;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.TRANSLOG);
+        builder.field(Fields.OPERATIONS, operations);
+        builder.field(Fields.SIZE, getSize().toString());
+        builder.field(Fields.SIZE_IN_BYTES, sizeInBytes);
+        builder.field(Fields.SYNC_TOTAL, syncTotal);
+        builder.field(Fields.SYNC_TIME, getSyncTime().toString());
+        builder.field(Fields.SYNC_TIME_IN_MILLIS, syncTimeInMillis);
+        builder.field(Fields.SYNC_OPERATIONS, syncOperations);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString TRANSLOG = new XContentBuilderString("translog");
+        static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString SYNC_TOTAL = new XContentBuilderString("sync_total");
+        static final XContentBuilderString SYNC_TIME = new XContentBuilderString("sync_time");
+        static final XContentBuilderString SYNC_TIME_IN_MILLIS = new XContentBuilderString("sync_time_in_millis");
+        static final XContentBuilderString SYNC_OPERATIONS = new XContentBuilderString("sync_operations");
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        operations = in.readVLong();
+        sizeInBytes = in.readVLong();
+        syncTotal = in.readVLong();
+        syncTimeInMillis = in.readVLong();
+        syncOperations = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(operations);
+        out.writeVLong(sizeInBytes);
+        out.writeVLong(syncTotal);
+        out.writeVLong(syncTimeInMillis);
+        out.writeVLong(syncOperations);
+    }
+}
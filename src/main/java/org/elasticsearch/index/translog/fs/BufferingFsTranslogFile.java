@@ -6,6 +6,7 @@ import org.elasticsearch.index.translog.TranslogException;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -125,23 +126,27 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
     }
 
     @Override
-    public void sync() {
+    public void sync() throws TranslogException {
         try {
             // check if we really need to sync here...
-            long last = lastPosition;
-            if (last == lastSyncPosition) {
-                return;
-            }
-            lastSyncPosition = last;
+            long last;
             rwl.writeLock().lock();
             try {
+                last = lastPosition;
+                if (last == lastSyncPosition) {
+                    return;
+                }
                 flushBuffer();
             } finally {
                 rwl.writeLock().unlock();
             }
             raf.channel().force(false);
-        } catch (Exception e) {
-            // ignore
+            // only mark as synced once durable, callers rely on it to know if their operations need a sync
+            lastSyncPosition = last;
+        } catch (ClosedChannelException e) {
+            // ignore, the file got closed once its operations were committed
+        } catch (IOException e) {
+            throw new TranslogException(shardId, "failed to sync", e);
         }
     }
 
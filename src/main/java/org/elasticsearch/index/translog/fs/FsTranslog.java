@@ -25,8 +25,11 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.settings.IndexSettingsService;
@@ -34,11 +37,14 @@ import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.translog.TranslogStreams;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -50,6 +56,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     public static final String INDEX_TRANSLOG_FS_TYPE = "index.translog.fs.type";
     public static final String INDEX_TRANSLOG_FS_BUFFER_SIZE = "index.translog.fs.buffer_size";
     public static final String INDEX_TRANSLOG_FS_TRANSIENT_BUFFER_SIZE = "index.translog.fs.transient_buffer_size";
+    public static final String INDEX_TRANSLOG_FS_GROUP_COMMIT = "index.translog.fs.group_commit";
+    public static final String INDEX_TRANSLOG_FS_GROUP_COMMIT_WINDOW = "index.translog.fs.group_commit_window";
 
     class ApplySettings implements IndexSettingsService.Listener {
         @Override
@@ -71,6 +79,18 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 logger.info("updating type from [{}] to [{}]", FsTranslog.this.type, type);
                 FsTranslog.this.type = type;
             }
+
+            boolean groupCommit = settings.getAsBoolean(INDEX_TRANSLOG_FS_GROUP_COMMIT, FsTranslog.this.groupCommit);
+            if (groupCommit != FsTranslog.this.groupCommit) {
+                logger.info("updating group_commit from [{}] to [{}]", FsTranslog.this.groupCommit, groupCommit);
+                FsTranslog.this.groupCommit = groupCommit;
+            }
+
+            TimeValue groupCommitWindow = settings.getAsTime(INDEX_TRANSLOG_FS_GROUP_COMMIT_WINDOW, FsTranslog.this.groupCommitWindow);
+            if (!groupCommitWindow.equals(FsTranslog.this.groupCommitWindow)) {
+                logger.info("updating group_commit_window from [{}] to [{}]", FsTranslog.this.groupCommitWindow, groupCommitWindow);
+                FsTranslog.this.groupCommitWindow = groupCommitWindow;
+            }
         }
     }
 
@@ -86,6 +106,21 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     private boolean syncOnEachOperation = false;
 
+    private volatile boolean groupCommit;
+    private volatile TimeValue groupCommitWindow;
+
+    // the number of operations added, and the number known to be durable
+    private final AtomicLong operationsAdded = new AtomicLong();
+    private long operationsSynced;
+    // guards operationsSynced, groupCommitSyncing and groupCommitFailure, group commit followers wait on it
+    private final Object syncMutex = new Object();
+    private boolean groupCommitSyncing;
+    // the failure of the last group commit sync, null if it succeeded
+    private TranslogException groupCommitFailure;
+
+    private final MeanMetric syncMetric = new MeanMetric();
+    private final CounterMetric syncOperations = new CounterMetric();
+
     private int bufferSize;
     private int transientBufferSize;
 
@@ -105,6 +140,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
         this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", ByteSizeValue.parseBytesSizeValue("64k")).bytes();
         this.transientBufferSize = (int) componentSettings.getAsBytesSize("transient_buffer_size", ByteSizeValue.parseBytesSizeValue("8k")).bytes();
+        this.groupCommit = componentSettings.getAsBoolean("group_commit", false);
+        this.groupCommitWindow = componentSettings.getAsTime("group_commit_window", TimeValue.timeValueMillis(0));
 
         indexSettingsService.addListener(applySettings);
     }
@@ -116,6 +153,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         FileSystemUtils.mkdirs(location);
 
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
+        this.groupCommit = componentSettings.getAsBoolean("group_commit", false);
+        this.groupCommitWindow = componentSettings.getAsTime("group_commit_window", TimeValue.timeValueMillis(0));
     }
 
     @Override
@@ -338,9 +377,6 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
             out.writeInt(size - 4);
 
             Location location = current.add(out.bytes().array(), out.bytes().arrayOffset(), size);
-            if (syncOnEachOperation) {
-                current.sync();
-            }
             FsTranslogFile trans = this.trans;
             if (trans != null) {
                 try {
@@ -349,6 +385,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                     // ignore
                 }
             }
+            operationsAdded.incrementAndGet();
+            if (syncOnEachOperation) {
+                sync();
+            }
             return location;
         } catch (Exception e) {
             throw new TranslogException(shardId, "Failed to write operation [" + operation + "]", e);
@@ -380,11 +420,81 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     @Override
     public void sync() {
+        // operations are counted once written, read the count before the file so the sync covers at least all of them
+        final long operations = operationsAdded.get();
         FsTranslogFile current1 = this.current;
         if (current1 == null) {
             return;
         }
-        current1.sync();
+        if (current1.syncNeeded()) {
+            long start = System.nanoTime();
+            // a failure propagates before operationsSynced moves, the operations are not durable
+            current1.sync();
+            syncMetric.inc(System.nanoTime() - start);
+        }
+        synchronized (syncMutex) {
+            if (operations > operationsSynced) {
+                syncOperations.inc(operations - operationsSynced);
+                operationsSynced = operations;
+            }
+        }
+    }
+
+    @Override
+    public void groupCommit() throws TranslogException {
+        if (!groupCommit || syncOnEachOperation) {
+            return;
+        }
+        final long operations = operationsAdded.get();
+        synchronized (syncMutex) {
+            // the first request to come in syncs, the ones coming in meanwhile wait for it and sync together next
+            boolean waited = false;
+            while (operationsSynced < operations && groupCommitSyncing) {
+                waited = true;
+                try {
+                    syncMutex.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TranslogException(shardId, "interrupted while waiting for the translog group commit");
+                }
+            }
+            if (operationsSynced >= operations) {
+                return;
+            }
+            if (waited && groupCommitFailure != null) {
+                // the sync we waited on failed, our operations are not durable
+                throw new TranslogException(shardId, "translog group commit failed", groupCommitFailure);
+            }
+            groupCommitSyncing = true;
+        }
+        TranslogException failure = null;
+        try {
+            TimeValue groupCommitWindow = this.groupCommitWindow;
+            if (groupCommitWindow.millis() > 0) {
+                // give concurrent requests a chance to add their operations before syncing
+                try {
+                    Thread.sleep(groupCommitWindow.millis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sync();
+        } catch (TranslogException e) {
+            failure = e;
+            throw e;
+        } finally {
+            synchronized (syncMutex) {
+                groupCommitSyncing = false;
+                groupCommitFailure = failure;
+                syncMutex.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public TranslogStats stats() {
+        return new TranslogStats(estimatedNumberOfOperations(), translogSizeInBytes(),
+                syncMetric.count(), TimeUnit.NANOSECONDS.toMillis(syncMetric.sum()), syncOperations.count());
     }
 
     @Override
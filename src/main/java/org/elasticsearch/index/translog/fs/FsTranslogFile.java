@@ -71,7 +71,7 @@ public interface FsTranslogFile {
 
     void reuse(FsTranslogFile other) throws TranslogException;
 
-    void sync();
+    void sync() throws TranslogException;
 
     boolean syncNeeded();
 }
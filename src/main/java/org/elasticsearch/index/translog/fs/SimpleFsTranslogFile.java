@@ -25,6 +25,7 @@ import org.elasticsearch.index.translog.TranslogException;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -98,17 +99,20 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
         return lastWrittenPosition.get() != lastSyncPosition;
     }
 
-    public void sync() {
+    public void sync() throws TranslogException {
         try {
             // check if we really need to sync here...
             long last = lastWrittenPosition.get();
             if (last == lastSyncPosition) {
                 return;
             }
-            lastSyncPosition = last;
             raf.channel().force(false);
-        } catch (Exception e) {
-            // ignore
+            // only mark as synced once durable, callers rely on it to know if their operations need a sync
+            lastSyncPosition = last;
+        } catch (ClosedChannelException e) {
+            // ignore, the file got closed once its operations were committed
+        } catch (IOException e) {
+            throw new TranslogException(shardId, "failed to sync", e);
         }
     }
 
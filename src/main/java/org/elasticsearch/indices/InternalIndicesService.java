@@ -27,6 +27,7 @@ import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.action.admin.indices.stats.CommonStats;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags.Flag;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.*;
@@ -42,6 +43,7 @@ import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.IndexCacheModule;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.id.IdCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.codec.CodecModule;
 import org.elasticsearch.index.engine.IndexEngine;
 import org.elasticsearch.index.engine.IndexEngineModule;
@@ -72,12 +74,15 @@ import org.elasticsearch.index.similarity.SimilarityModule;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.IndexStoreModule;
 import org.elasticsearch.index.store.StoreStats;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
+import org.elasticsearch.indices.fielddata.breaker.FieldDataBreakerService;
 import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.indices.store.IndicesStore;
 import org.elasticsearch.plugins.IndexPluginsModule;
 import org.elasticsearch.plugins.PluginsService;
+import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.HashMap;
@@ -110,6 +115,12 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
 
     private final IndicesStore indicesStore;
 
+    private final FieldDataBreakerService fieldDataBreakerService;
+
+    private final SearchPhaseController searchPhaseController;
+
+    private final AdaptiveSelectionService adaptiveSelectionService;
+
     private final Injector injector;
 
     private final PluginsService pluginsService;
@@ -121,8 +132,11 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
     private final OldShardsStats oldShardsStats = new OldShardsStats();
 
     @Inject
-    public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore, Injector injector) {
+    public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore, FieldDataBreakerService fieldDataBreakerService, SearchPhaseController searchPhaseController, AdaptiveSelectionService adaptiveSelectionService, Injector injector) {
         super(settings);
+        this.fieldDataBreakerService = fieldDataBreakerService;
+        this.searchPhaseController = searchPhaseController;
+        this.adaptiveSelectionService = adaptiveSelectionService;
         this.nodeEnv = nodeEnv;
         this.threadPool = threadPool;
         this.indicesLifecycle = (InternalIndicesLifecycle) indicesLifecycle;
@@ -203,6 +217,12 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
                 case Warmer:
                     stats.warmer = new WarmerStats();
                     break;
+                case Translog:
+                    stats.translog = new TranslogStats();
+                    break;
+                case QueryCache:
+                    stats.queryCache = new QueryCacheStats();
+                    break;
                 case Get:
                     stats.get = new GetStats();
                     if (includePrevious) {
@@ -294,13 +314,19 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
                         case Warmer:
                             stats.warmer.add(indexShard.warmerStats());
                             break;
+                        case Translog:
+                            stats.translog.add(indexShard.translogStats());
+                            break;
+                        case QueryCache:
+                            stats.queryCache.add(indexShard.queryCacheStats());
+                            break;
                         default:
                             throw new IllegalStateException("Unknown Flag: " + flag);
                     }
                 }
             }
         }
-        return new NodeIndicesStats(stats);
+        return new NodeIndicesStats(stats, fieldDataBreakerService.stats(), searchPhaseController.reduceStats(), adaptiveSelectionService.stats());
     }
 
     /**
@@ -19,7 +19,9 @@
 
 package org.elasticsearch.indices;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionStats;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -29,6 +31,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.id.IdCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
 import org.elasticsearch.index.get.GetStats;
@@ -38,6 +41,9 @@ import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.shard.DocsStats;
 import org.elasticsearch.index.store.StoreStats;
+import org.elasticsearch.index.translog.TranslogStats;
+import org.elasticsearch.indices.fielddata.breaker.FieldDataBreakerStats;
+import org.elasticsearch.search.controller.SearchReduceStats;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -49,11 +55,36 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
 
     private CommonStats stats;
 
+    @Nullable
+    private FieldDataBreakerStats fieldDataBreakerStats;
+
+    @Nullable
+    private SearchReduceStats searchReduceStats;
+
+    @Nullable
+    private AdaptiveSelectionStats adaptiveSelectionStats;
+
     NodeIndicesStats() {
     }
 
     public NodeIndicesStats(CommonStats stats) {
+        this(stats, null);
+    }
+
+    public NodeIndicesStats(CommonStats stats, @Nullable FieldDataBreakerStats fieldDataBreakerStats) {
+        this(stats, fieldDataBreakerStats, null);
+    }
+
+    public NodeIndicesStats(CommonStats stats, @Nullable FieldDataBreakerStats fieldDataBreakerStats, @Nullable SearchReduceStats searchReduceStats) {
+        this(stats, fieldDataBreakerStats, searchReduceStats, null);
+    }
+
+    public NodeIndicesStats(CommonStats stats, @Nullable FieldDataBreakerStats fieldDataBreakerStats, @Nullable SearchReduceStats searchReduceStats,
+                            @Nullable AdaptiveSelectionStats adaptiveSelectionStats) {
         this.stats = stats;
+        this.fieldDataBreakerStats = fieldDataBreakerStats;
+        this.searchReduceStats = searchReduceStats;
+        this.adaptiveSelectionStats = adaptiveSelectionStats;
     }
 
     @Nullable
@@ -101,6 +132,21 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return stats.getFieldData();
     }
 
+    @Nullable
+    public FieldDataBreakerStats getFieldDataBreaker() {
+        return fieldDataBreakerStats;
+    }
+
+    @Nullable
+    public SearchReduceStats getSearchReduce() {
+        return searchReduceStats;
+    }
+
+    @Nullable
+    public AdaptiveSelectionStats getAdaptiveSelection() {
+        return adaptiveSelectionStats;
+    }
+
     @Nullable
     public FilterCacheStats getFilterCache() {
         return stats.getFilterCache();
@@ -111,6 +157,16 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return stats.getIdCache();
     }
 
+    @Nullable
+    public TranslogStats getTranslog() {
+        return stats.getTranslog();
+    }
+
+    @Nullable
+    public QueryCacheStats getQueryCache() {
+        return stats.getQueryCache();
+    }
+
     public static NodeIndicesStats readIndicesStats(StreamInput in) throws IOException {
         NodeIndicesStats stats = new NodeIndicesStats();
         stats.readFrom(in);
@@ -120,17 +176,57 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
     @Override
     public void readFrom(StreamInput in) throws IOException {
         stats = CommonStats.readCommonStats(in);
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (in.readBoolean()) {
+                fieldDataBreakerStats = FieldDataBreakerStats.readFieldDataBreakerStats(in);
+            }
+            if (in.readBoolean()) {
+                searchReduceStats = SearchReduceStats.readSearchReduceStats(in);
+            }
+            if (in.readBoolean()) {
+                adaptiveSelectionStats = AdaptiveSelectionStats.readAdaptiveSelectionStats(in);
+            }
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         stats.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (fieldDataBreakerStats == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                fieldDataBreakerStats.writeTo(out);
+            }
+            if (searchReduceStats == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                searchReduceStats.writeTo(out);
+            }
+            if (adaptiveSelectionStats == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                adaptiveSelectionStats.writeTo(out);
+            }
+        }
     }
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.INDICES);
         stats.toXContent(builder, params);
+        if (fieldDataBreakerStats != null) {
+            fieldDataBreakerStats.toXContent(builder, params);
+        }
+        if (searchReduceStats != null) {
+            searchReduceStats.toXContent(builder, params);
+        }
+        if (adaptiveSelectionStats != null) {
+            adaptiveSelectionStats.toXContent(builder, params);
+        }
         builder.endObject();
         return builder;
     }
@@ -0,0 +1,402 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.cache.query;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import gnu.trove.set.hash.THashSet;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.CacheRecycler;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.CachedStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.search.facet.InternalFacets;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QueryPhase;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of shard query results, used for searches that only return totals, facets and
+ * suggestions (the {@link SearchType#COUNT} search type) on indices that enable
+ * {@link ShardQueryCache#INDEX_CACHE_QUERY_ENABLE}.
+ * <p/>
+ * Results are stored serialized, keyed by the shard, the top level reader the search was executed on and
+ * the search request itself. A refresh opens a new reader, so results are never served across refreshes,
+ * and the entries of the closed reader are cleaned in the background.
+ */
+public class IndicesQueryCache extends AbstractComponent implements RemovalListener<IndicesQueryCache.Key, BytesReference> {
+
+    public static final String INDICES_CACHE_QUERY_SIZE = "indices.cache.query.size";
+    public static final String INDICES_CACHE_QUERY_EXPIRE = "indices.cache.query.expire";
+
+    private final ThreadPool threadPool;
+
+    private volatile Cache<Key, BytesReference> cache;
+
+    private volatile String size;
+    private volatile long sizeInBytes;
+    private volatile TimeValue expire;
+
+    private final TimeValue cleanInterval;
+
+    private final Set<Object> registeredReaderKeys = ConcurrentCollections.newConcurrentSet();
+    private final Set<Object> readersKeysToClean = ConcurrentCollections.newConcurrentSet();
+
+    private final ReaderClosedListener readerClosedListener = new ReaderClosedListener();
+
+    private volatile boolean closed;
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean replace = false;
+            String size = settings.get(INDICES_CACHE_QUERY_SIZE, IndicesQueryCache.this.size);
+            if (!size.equals(IndicesQueryCache.this.size)) {
+                logger.info("updating [{}] from [{}] to [{}]", INDICES_CACHE_QUERY_SIZE, IndicesQueryCache.this.size, size);
+                IndicesQueryCache.this.size = size;
+                replace = true;
+            }
+            TimeValue expire = settings.getAsTime(INDICES_CACHE_QUERY_EXPIRE, IndicesQueryCache.this.expire);
+            if (!Objects.equal(expire, IndicesQueryCache.this.expire)) {
+                logger.info("updating [{}] from [{}] to [{}]", INDICES_CACHE_QUERY_EXPIRE, IndicesQueryCache.this.expire, expire);
+                IndicesQueryCache.this.expire = expire;
+                replace = true;
+            }
+            if (replace) {
+                Cache<Key, BytesReference> oldCache = IndicesQueryCache.this.cache;
+                computeSizeInBytes();
+                buildCache();
+                oldCache.invalidateAll();
+            }
+        }
+    }
+
+    @Inject
+    public IndicesQueryCache(Settings settings, ThreadPool threadPool, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.size = componentSettings.get("size", "1%");
+        this.expire = componentSettings.getAsTime("expire", null);
+        this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        computeSizeInBytes();
+        buildCache();
+        logger.debug("using query cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+
+        nodeSettingsService.addListener(new ApplySettings());
+
+        threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new ReaderCleaner());
+    }
+
+    private void buildCache() {
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.newBuilder()
+                .removalListener(this)
+                .maximumWeight(sizeInBytes).weigher(new QueryCacheWeigher());
+
+        // defaults to 4, but this is a busy map for all indices, increase it a bit
+        cacheBuilder.concurrencyLevel(16);
+
+        if (expire != null) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        cache = cacheBuilder.build();
+    }
+
+    private void computeSizeInBytes() {
+        if (size.endsWith("%")) {
+            double percent = Double.parseDouble(size.substring(0, size.length() - 1));
+            sizeInBytes = (long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes());
+        } else {
+            sizeInBytes = ByteSizeValue.parseBytesSizeValue(size).bytes();
+        }
+    }
+
+    public void close() {
+        closed = true;
+        cache.invalidateAll();
+    }
+
+    /**
+     * Can the query phase result of this request be cached. Scroll requests, and requests that return hits,
+     * are executed as usual.
+     */
+    public boolean canCache(ShardSearchRequest request, SearchContext context) {
+        if (!context.indexShard().queryCache().enabled()) {
+            return false;
+        }
+        if (context.searchType() != SearchType.COUNT) {
+            return false;
+        }
+        if (request.scroll() != null) {
+            return false;
+        }
+        return request.source() != null || request.extraSource() != null;
+    }
+
+    /**
+     * Executes the query phase of the context, unless the result is already cached for the reader the context
+     * searches on, in which case the cached result is loaded into the context query result instead.
+     */
+    public void loadIntoContext(ShardSearchRequest request, final SearchContext context, final QueryPhase queryPhase) throws ElasticSearchException {
+        IndexReader reader = context.searcher().getIndexReader();
+        ShardQueryCache shardQueryCache = context.indexShard().queryCache();
+        Key key = new Key(shardQueryCache, reader, request);
+        Loader loader = new Loader(queryPhase, context, key);
+        BytesReference value;
+        try {
+            value = cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw failure(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw failure(e.getCause());
+        }
+        if (loader.loaded) {
+            shardQueryCache.onMiss();
+            registerReader(reader);
+            if (context.queryResult().searchTimedOut()) {
+                // don't serve the partial result of a timed out query phase to the next requests
+                cache.invalidate(key);
+            }
+            return;
+        }
+        shardQueryCache.onHit();
+        QuerySearchResult cached = new QuerySearchResult();
+        try {
+            cached.readFrom(new BytesStreamInput(value));
+        } catch (IOException e) {
+            throw new ElasticSearchException("failed to read cached query result", e);
+        }
+        QuerySearchResult result = context.queryResult();
+        result.from(cached.from());
+        result.size(cached.size());
+        result.topDocs(cached.topDocs());
+        result.facets((InternalFacets) cached.facets());
+        result.suggest(cached.suggest());
+        result.searchTimedOut(cached.searchTimedOut());
+        result.timeoutInMillis(cached.timeoutInMillis());
+    }
+
+    private void registerReader(IndexReader reader) {
+        Object readerKey = reader.getCoreCacheKey();
+        if (registeredReaderKeys.add(readerKey)) {
+            reader.addReaderClosedListener(readerClosedListener);
+        }
+    }
+
+    private ElasticSearchException failure(Throwable t) {
+        if (t instanceof ElasticSearchException) {
+            return (ElasticSearchException) t;
+        }
+        return new ElasticSearchException(t.getMessage(), t);
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        Key key = notification.getKey();
+        if (key == null) {
+            return;
+        }
+        key.shardCache.onRemoval(notification);
+    }
+
+    private static class Loader implements Callable<BytesReference> {
+
+        private final QueryPhase queryPhase;
+        private final SearchContext context;
+        private final Key key;
+        private boolean loaded;
+
+        Loader(QueryPhase queryPhase, SearchContext context, Key key) {
+            this.queryPhase = queryPhase;
+            this.context = context;
+            this.key = key;
+        }
+
+        @Override
+        public BytesReference call() throws Exception {
+            queryPhase.execute(context);
+            CachedStreamOutput.Entry entry = CachedStreamOutput.popEntry();
+            BytesReference value;
+            try {
+                context.queryResult().writeTo(entry.bytes());
+                value = entry.bytes().bytes().copyBytesArray();
+            } finally {
+                CachedStreamOutput.pushEntry(entry);
+            }
+            loaded = true;
+            key.shardCache.onCached(key, value);
+            return value;
+        }
+    }
+
+    public static class Key {
+
+        final ShardQueryCache shardCache;
+        final Object readerKey;
+        final long readerVersion;
+        final BytesReference source;
+        final BytesReference extraSource;
+        final String[] types;
+        final String[] filteringAliases;
+
+        public Key(ShardQueryCache shardCache, IndexReader reader, ShardSearchRequest request) {
+            this.shardCache = shardCache;
+            this.readerKey = reader.getCoreCacheKey();
+            this.readerVersion = reader instanceof DirectoryReader ? ((DirectoryReader) reader).getVersion() : -1;
+            // copy the sources, they might point to a network buffer that gets reused
+            this.source = request.source() == null ? null : request.source().copyBytesArray();
+            this.extraSource = request.extraSource() == null ? null : request.extraSource().copyBytesArray();
+            this.types = request.types();
+            this.filteringAliases = request.filteringAliases();
+        }
+
+        public long ramBytesUsed() {
+            long size = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 6 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_LONG;
+            if (source != null) {
+                size += source.length();
+            }
+            if (extraSource != null) {
+                size += extraSource.length();
+            }
+            return size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            if (readerVersion != key.readerVersion) return false;
+            if (readerKey != key.readerKey) return false;
+            if (shardCache != key.shardCache) return false;
+            if (source != null ? !source.equals(key.source) : key.source != null) return false;
+            if (extraSource != null ? !extraSource.equals(key.extraSource) : key.extraSource != null) return false;
+            if (!Arrays.equals(types, key.types)) return false;
+            if (!Arrays.equals(filteringAliases, key.filteringAliases)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shardCache.hashCode();
+            result = 31 * result + readerKey.hashCode();
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            result = 31 * result + (source != null ? source.hashCode() : 0);
+            result = 31 * result + (extraSource != null ? extraSource.hashCode() : 0);
+            result = 31 * result + Arrays.hashCode(types);
+            result = 31 * result + Arrays.hashCode(filteringAliases);
+            return result;
+        }
+    }
+
+    public static class QueryCacheWeigher implements Weigher<Key, BytesReference> {
+
+        @Override
+        public int weigh(Key key, @Nullable BytesReference value) {
+            long weight = key.ramBytesUsed();
+            if (value != null) {
+                weight += value.length();
+            }
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        }
+    }
+
+    class ReaderClosedListener implements IndexReader.ReaderClosedListener {
+
+        @Override
+        public void onClose(IndexReader reader) {
+            Object readerKey = reader.getCoreCacheKey();
+            registeredReaderKeys.remove(readerKey);
+            readersKeysToClean.add(readerKey);
+        }
+    }
+
+    /**
+     * Cleans the entries of closed readers, they can't be hit anymore since a new reader is used once
+     * it has been refreshed, but they still take space until evicted.
+     */
+    class ReaderCleaner implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            if (readersKeysToClean.isEmpty()) {
+                threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, this);
+                return;
+            }
+            threadPool.executor(ThreadPool.Names.GENERIC).execute(new Runnable() {
+                @Override
+                public void run() {
+                    THashSet<Object> keys = CacheRecycler.popHashSet();
+                    try {
+                        for (Iterator<Object> it = readersKeysToClean.iterator(); it.hasNext(); ) {
+                            keys.add(it.next());
+                            it.remove();
+                        }
+                        cache.cleanUp();
+                        if (!keys.isEmpty()) {
+                            for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                                Key key = it.next();
+                                if (keys.contains(key.readerKey)) {
+                                    // same as invalidate
+                                    it.remove();
+                                }
+                            }
+                        }
+                        threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, ReaderCleaner.this);
+                    } finally {
+                        CacheRecycler.pushHashSet(keys);
+                    }
+                }
+            });
+        }
+    }
+}
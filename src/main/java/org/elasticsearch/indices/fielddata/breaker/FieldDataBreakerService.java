@@ -0,0 +1,99 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+/**
+ * Holds the node level {@link MemoryCircuitBreaker} that field data loading is accounted against, so a single
+ * request loading field data can't take the node out of heap.
+ */
+public class FieldDataBreakerService extends AbstractComponent {
+
+    public static final String CIRCUIT_BREAKER_MAX_BYTES_SETTING = "indices.fielddata.breaker.limit";
+    public static final String CIRCUIT_BREAKER_OVERHEAD_SETTING = "indices.fielddata.breaker.overhead";
+
+    public static final String DEFAULT_BREAKER_LIMIT = "80%";
+    public static final double DEFAULT_OVERHEAD_CONSTANT = 1.03;
+
+    private volatile MemoryCircuitBreaker breaker;
+    private volatile String maxBytes;
+    private volatile double overhead;
+
+    public FieldDataBreakerService(Settings settings) {
+        super(settings);
+        this.maxBytes = settings.get(CIRCUIT_BREAKER_MAX_BYTES_SETTING, DEFAULT_BREAKER_LIMIT);
+        this.overhead = settings.getAsDouble(CIRCUIT_BREAKER_OVERHEAD_SETTING, DEFAULT_OVERHEAD_CONSTANT);
+        this.breaker = new MemoryCircuitBreaker(computeLimit(maxBytes), overhead, logger);
+    }
+
+    @Inject
+    public FieldDataBreakerService(Settings settings, NodeSettingsService nodeSettingsService) {
+        this(settings);
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    private static ByteSizeValue computeLimit(String maxBytes) {
+        if (maxBytes.equals("-1")) {
+            return new ByteSizeValue(-1);
+        } else if (maxBytes.endsWith("%")) {
+            double percent = Double.parseDouble(maxBytes.substring(0, maxBytes.length() - 1));
+            return new ByteSizeValue((long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes()));
+        } else {
+            return ByteSizeValue.parseBytesSizeValue(maxBytes);
+        }
+    }
+
+    /**
+     * The breaker field data loading is accounted against.
+     */
+    public MemoryCircuitBreaker getBreaker() {
+        return this.breaker;
+    }
+
+    public FieldDataBreakerStats stats() {
+        MemoryCircuitBreaker breaker = this.breaker;
+        return new FieldDataBreakerStats(breaker.getMaximum(), breaker.getUsed(), breaker.getOverhead(), breaker.getTrippedCount());
+    }
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            String newMaxBytes = settings.get(CIRCUIT_BREAKER_MAX_BYTES_SETTING, FieldDataBreakerService.this.maxBytes);
+            double newOverhead = settings.getAsDouble(CIRCUIT_BREAKER_OVERHEAD_SETTING, FieldDataBreakerService.this.overhead);
+            if (!newMaxBytes.equals(FieldDataBreakerService.this.maxBytes) || newOverhead != FieldDataBreakerService.this.overhead) {
+                logger.info("updating [{}] from [{}] to [{}], [{}] from [{}] to [{}]",
+                        CIRCUIT_BREAKER_MAX_BYTES_SETTING, FieldDataBreakerService.this.maxBytes, newMaxBytes,
+                        CIRCUIT_BREAKER_OVERHEAD_SETTING, FieldDataBreakerService.this.overhead, newOverhead);
+                FieldDataBreakerService.this.maxBytes = newMaxBytes;
+                FieldDataBreakerService.this.overhead = newOverhead;
+                // keep the accounted usage and trip count of the current breaker
+                FieldDataBreakerService.this.breaker = new MemoryCircuitBreaker(computeLimit(newMaxBytes), newOverhead,
+                        FieldDataBreakerService.this.breaker, logger);
+            }
+        }
+    }
+}
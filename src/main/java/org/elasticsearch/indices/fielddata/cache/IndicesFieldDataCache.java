@@ -24,6 +24,7 @@ import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -34,13 +35,16 @@ import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.fielddata.breaker.FieldDataBreakerService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
@@ -50,14 +54,25 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
     Cache<Key, AtomicFieldData> cache;
 
+    // global ordinals are built per top level reader, and are dropped once the reader is closed or one of its
+    // segments field data is removed
+    final Cache<Key, GlobalOrdinals> globalOrdinalsCache = CacheBuilder.newBuilder().concurrencyLevel(16)
+            .removalListener(new GlobalOrdinalsRemovalListener()).build();
+
     private volatile String size;
     private volatile long sizeInBytes;
     private volatile TimeValue expire;
 
+    private final FieldDataBreakerService breakerService;
 
-    @Inject
     public IndicesFieldDataCache(Settings settings) {
+        this(settings, new FieldDataBreakerService(settings));
+    }
+
+    @Inject
+    public IndicesFieldDataCache(Settings settings, FieldDataBreakerService breakerService) {
         super(settings);
+        this.breakerService = breakerService;
         this.size = componentSettings.get("size", "-1");
         this.expire = componentSettings.getAsTime("expire", null);
         computeSizeInBytes();
@@ -92,6 +107,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
     public void close() {
         cache.invalidateAll();
+        globalOrdinalsCache.invalidateAll();
     }
 
     public IndexFieldDataCache buildIndexFieldDataCache(@Nullable IndexService indexService, Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
@@ -100,6 +116,9 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
     @Override
     public void onRemoval(RemovalNotification<Key, AtomicFieldData> notification) {
+        if (notification.getKey() != null && notification.getKey().accountedSizeInBytes > 0) {
+            breakerService.getBreaker().addWithoutBreaking(-notification.getKey().accountedSizeInBytes);
+        }
         if (notification.getKey() != null && notification.getKey().listener != null) {
             IndexFieldCache indexCache = notification.getKey().indexCache;
             long sizeInBytes = notification.getKey().sizeInBytes;
@@ -108,6 +127,34 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
             }
             notification.getKey().listener.onUnload(indexCache.fieldNames, indexCache.fieldDataType, notification.wasEvicted(), sizeInBytes, notification.getValue());
         }
+        if (notification.getValue() != null) {
+            notification.getValue().close();
+        }
+        if (notification.getKey() != null) {
+            // global ordinals refer to the field data of their segments, drop them along with it
+            for (Key globalKey : globalOrdinalsCache.asMap().keySet()) {
+                if (globalKey.indexCache == notification.getKey().indexCache && globalKey.hasSegment(notification.getKey().readerKey)) {
+                    globalOrdinalsCache.invalidate(globalKey);
+                }
+            }
+        }
+    }
+
+    class GlobalOrdinalsRemovalListener implements RemovalListener<Key, GlobalOrdinals> {
+
+        @Override
+        public void onRemoval(RemovalNotification<Key, GlobalOrdinals> notification) {
+            Key key = notification.getKey();
+            if (key == null) {
+                return;
+            }
+            if (key.accountedSizeInBytes > 0) {
+                breakerService.getBreaker().addWithoutBreaking(-key.accountedSizeInBytes);
+            }
+            if (key.listener != null) {
+                key.listener.onUnloadGlobal(key.indexCache.fieldNames, key.indexCache.fieldDataType, notification.wasEvicted(), key.sizeInBytes);
+            }
+        }
     }
 
     public static class FieldDataWeigher implements Weigher<Key, AtomicFieldData> {
@@ -122,7 +169,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     /**
      * A specific cache instance for the relevant parameters of it (index, fieldNames, fieldType).
      */
-    class IndexFieldCache implements IndexFieldDataCache, SegmentReader.CoreClosedListener {
+    class IndexFieldCache implements IndexFieldDataCache, SegmentReader.CoreClosedListener, IndexReader.ReaderClosedListener {
 
         @Nullable
         private final IndexService indexService;
@@ -147,7 +194,21 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                     if (context.reader() instanceof SegmentReader) {
                         ((SegmentReader) context.reader()).addCoreClosedListener(IndexFieldCache.this);
                     }
-                    AtomicFieldData fieldData = indexFieldData.loadDirect(context);
+                    // account for the estimated size before loading, tripping the breaker if it's too much
+                    MemoryCircuitBreaker breaker = breakerService.getBreaker();
+                    long estimatedSizeInBytes = indexFieldData.estimateMemorySize(context);
+                    breaker.addEstimateBytesAndMaybeBreak(estimatedSizeInBytes);
+                    AtomicFieldData fieldData = null;
+                    try {
+                        fieldData = indexFieldData.loadDirect(context);
+                    } finally {
+                        if (fieldData == null) {
+                            breaker.addWithoutBreaking(-estimatedSizeInBytes);
+                        }
+                    }
+                    // replace the estimation with the actual size, released again when the entry is removed
+                    key.accountedSizeInBytes = fieldData.getMemorySizeInBytes();
+                    breaker.addWithoutBreaking(key.accountedSizeInBytes - estimatedSizeInBytes);
 
                     if (indexService != null) {
                         ShardId shardId = ShardUtils.extractShardId(context.reader());
@@ -168,11 +229,48 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
             });
         }
 
+        @Override
+        public GlobalOrdinals loadGlobal(final IndexReader reader, final IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception {
+            final Key key = new Key(this, reader);
+            return globalOrdinalsCache.get(key, new Callable<GlobalOrdinals>() {
+                @Override
+                public GlobalOrdinals call() throws Exception {
+                    reader.addReaderClosedListener(IndexFieldCache.this);
+                    GlobalOrdinals globalOrdinals = GlobalOrdinals.build(reader, indexFieldData);
+                    // accounted once built, the size isn't known upfront, released again when the entry is removed
+                    key.sizeInBytes = globalOrdinals.getMemorySizeInBytes();
+                    breakerService.getBreaker().addEstimateBytesAndMaybeBreak(key.sizeInBytes);
+                    key.accountedSizeInBytes = key.sizeInBytes;
+
+                    if (indexService != null) {
+                        ShardId shardId = ShardUtils.extractShardId(reader);
+                        if (shardId != null) {
+                            IndexShard shard = indexService.shard(shardId.id());
+                            if (shard != null) {
+                                key.listener = shard.fieldData();
+                            }
+                        }
+                    }
+
+                    if (key.listener != null) {
+                        key.listener.onLoadGlobal(fieldNames, fieldDataType, globalOrdinals);
+                    }
+
+                    return globalOrdinals;
+                }
+            });
+        }
+
         @Override
         public void onClose(SegmentReader owner) {
             cache.invalidate(new Key(this, owner.getCoreCacheKey()));
         }
 
+        @Override
+        public void onClose(IndexReader reader) {
+            globalOrdinalsCache.invalidate(new Key(this, reader.getCoreCacheKey()));
+        }
+
         @Override
         public void clear() {
             for (Key key : cache.asMap().keySet()) {
@@ -180,6 +278,11 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                     cache.invalidate(key);
                 }
             }
+            for (Key key : globalOrdinalsCache.asMap().keySet()) {
+                if (key.indexCache.index.equals(index)) {
+                    globalOrdinalsCache.invalidate(key);
+                }
+            }
         }
 
         @Override
@@ -191,11 +294,19 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                     }
                 }
             }
+            for (Key key : globalOrdinalsCache.asMap().keySet()) {
+                if (key.indexCache.index.equals(index)) {
+                    if (key.indexCache.fieldNames.fullName().equals(fieldName)) {
+                        globalOrdinalsCache.invalidate(key);
+                    }
+                }
+            }
         }
 
         @Override
         public void clear(IndexReader reader) {
             cache.invalidate(new Key(this, reader.getCoreCacheKey()));
+            globalOrdinalsCache.invalidate(new Key(this, reader.getCoreCacheKey()));
         }
     }
 
@@ -206,13 +317,35 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         @Nullable
         public IndexFieldDataCache.Listener listener; // optional stats listener
         long sizeInBytes = -1; // optional size in bytes (we keep it here in case the values are soft references)
-
+        long accountedSizeInBytes = 0; // size accounted against the field data circuit breaker
+        @Nullable
+        Object[] segmentReaderKeys; // the segments global ordinals were built from
 
         Key(IndexFieldCache indexCache, Object readerKey) {
             this.indexCache = indexCache;
             this.readerKey = readerKey;
         }
 
+        Key(IndexFieldCache indexCache, IndexReader reader) {
+            this(indexCache, reader.getCoreCacheKey());
+            List<AtomicReaderContext> leaves = reader.leaves();
+            this.segmentReaderKeys = new Object[leaves.size()];
+            for (int i = 0; i < segmentReaderKeys.length; i++) {
+                segmentReaderKeys[i] = leaves.get(i).reader().getCoreCacheKey();
+            }
+        }
+
+        boolean hasSegment(Object segmentReaderKey) {
+            if (segmentReaderKeys != null) {
+                for (Object key : segmentReaderKeys) {
+                    if (key.equals(segmentReaderKey)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
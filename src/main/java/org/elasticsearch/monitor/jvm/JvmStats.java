@@ -26,6 +26,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.PageAllocator;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -216,6 +217,15 @@ public class JvmStats implements Streamable, Serializable, ToXContent {
             }
         }
 
+        // the pages of the page allocator are reported as a buffer pool of their own
+        PageAllocator allocator = PageAllocator.allocator();
+        if (stats.bufferPools == null) {
+            stats.bufferPools = new ArrayList<BufferPool>(1);
+        }
+        long pagesInUse = allocator.getPagesInUse();
+        stats.bufferPools.add(new BufferPool("pages_" + allocator.type(), pagesInUse,
+                (pagesInUse + allocator.getPooledPages()) * PageAllocator.PAGE_SIZE_IN_BYTES, pagesInUse * PageAllocator.PAGE_SIZE_IN_BYTES));
+
         return stats;
     }
 
@@ -115,6 +115,12 @@ public class RestNodesStatsAction extends BaseRestHandler {
         controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/stats/http", httpHandler);
         controller.registerHandler(RestRequest.Method.GET, "/_nodes/http/stats", httpHandler);
         controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/http/stats", httpHandler);
+
+        RestDiscoveryHandler discoveryHandler = new RestDiscoveryHandler();
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/stats/discovery", discoveryHandler);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/stats/discovery", discoveryHandler);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/discovery/stats", discoveryHandler);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/discovery/stats", discoveryHandler);
     }
 
     @Override
@@ -140,6 +146,7 @@ public class RestNodesStatsAction extends BaseRestHandler {
         nodesStatsRequest.fs(request.paramAsBoolean("fs", nodesStatsRequest.fs()));
         nodesStatsRequest.transport(request.paramAsBoolean("transport", nodesStatsRequest.transport()));
         nodesStatsRequest.http(request.paramAsBoolean("http", nodesStatsRequest.http()));
+        nodesStatsRequest.discovery(request.paramAsBoolean("discovery", nodesStatsRequest.discovery()));
         executeNodeStats(request, channel, nodesStatsRequest);
     }
 
@@ -261,4 +268,13 @@ public class RestNodesStatsAction extends BaseRestHandler {
             executeNodeStats(request, channel, nodesStatsRequest);
         }
     }
+
+    class RestDiscoveryHandler implements RestHandler {
+        @Override
+        public void handleRequest(final RestRequest request, final RestChannel channel) {
+            NodesStatsRequest nodesStatsRequest = new NodesStatsRequest(RestActions.splitNodes(request.param("nodeId")));
+            nodesStatsRequest.clear().discovery(true);
+            executeNodeStats(request, channel, nodesStatsRequest);
+        }
+    }
 }
@@ -38,18 +38,21 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.merge.policy.IndexSort;
 import org.elasticsearch.index.search.stats.StatsGroupsParseElement;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.dfs.CachedDfSource;
 import org.elasticsearch.search.dfs.DfsPhase;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.*;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
@@ -78,6 +81,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final IndicesWarmer indicesWarmer;
 
+    private final IndicesQueryCache indicesQueryCache;
+
     private final ScriptService scriptService;
 
     private final DfsPhase dfsPhase;
@@ -102,12 +107,13 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     @Inject
     public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, ThreadPool threadPool,
-                         ScriptService scriptService, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
+                         ScriptService scriptService, IndicesQueryCache indicesQueryCache, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
         super(settings);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
         this.indicesService = indicesService;
         this.indicesWarmer = indicesWarmer;
+        this.indicesQueryCache = indicesQueryCache;
         this.scriptService = scriptService;
         this.dfsPhase = dfsPhase;
         this.queryPhase = queryPhase;
@@ -236,13 +242,20 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
             contextProcessing(context);
-            queryPhase.execute(context);
+            if (indicesQueryCache.canCache(request, context)) {
+                indicesQueryCache.loadIntoContext(request, context, queryPhase);
+            } else {
+                queryPhase.execute(context);
+            }
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
                 contextProcessedSuccessfully(context);
             }
             context.indexShard().searchService().onQueryPhase(context, System.nanoTime() - time);
+            if (request.speculativeFetchSize() > 0 && context.searchType() == SearchType.QUERY_THEN_FETCH) {
+                executeSpeculativeFetch(context, request.speculativeFetchSize());
+            }
             return context.queryResult();
         } catch (RuntimeException e) {
             context.indexShard().searchService().onFailedQueryPhase(context);
@@ -497,6 +510,17 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             queryPhase.preProcess(context);
             fetchPhase.preProcess(context);
 
+            Settings indexSettings = indexService.settingsService().getSettings();
+            int slices = indexSettings.getAsInt(ContextIndexSearcher.INDEX_SEARCH_CONCURRENT_SLICES, 1);
+            if (slices > 1) {
+                context.searcher().concurrent(threadPool.executor(ThreadPool.Names.SEARCH_SEGMENTS), slices);
+            }
+            int fetchSlices = indexSettings.getAsInt(FetchPhase.INDEX_SEARCH_FETCH_CONCURRENT_SLICES, 1);
+            if (fetchSlices > 1) {
+                context.concurrentFetch(threadPool.executor(ThreadPool.Names.SEARCH_FETCH), fetchSlices);
+            }
+            context.indexSort(IndexSort.parse(indexSettings));
+
             // compute the context keep alive
             long keepAlive = defaultKeepAlive;
             if (request.scroll() != null && request.scroll().keepAlive() != null) {
@@ -531,6 +555,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
     private void contextProcessing(SearchContext context) {
         // disable timeout while executing a search
         context.accessed(-1);
+        context.startTimeBudget();
     }
 
     private void contextProcessedSuccessfully(SearchContext context) {
@@ -580,6 +605,45 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private static final int[] EMPTY_DOC_IDS = new int[0];
 
+    /**
+     * Fetches the top hits of the shard along with the query phase, so that the coordinating node can skip the
+     * fetch round trip to this shard if those are the only hits it needs from it. A failure here is not fatal,
+     * the hits are then fetched the regular way.
+     */
+    private void executeSpeculativeFetch(SearchContext context, int speculativeFetchSize) {
+        TopDocs topDocs = context.queryResult().topDocs();
+        int numDocs = Math.min(speculativeFetchSize, topDocs.scoreDocs.length);
+        if (numDocs == 0 || context.timeBudgetExceeded()) {
+            return;
+        }
+        int[] docIdsToLoad = new int[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            docIdsToLoad[i] = topDocs.scoreDocs[i].doc;
+        }
+        // part of the query request, so keep spending its timeout budget
+        context.accessed(-1);
+        try {
+            context.docIdsToLoad(docIdsToLoad, 0, numDocs);
+            context.indexShard().searchService().onPreFetchPhase(context);
+            long time = System.nanoTime();
+            fetchPhase.execute(context);
+            context.indexShard().searchService().onFetchPhase(context, System.nanoTime() - time);
+            if (context.fetchResult().searchTimedOut()) {
+                // let the regular fetch phase, with its own budget, fetch complete hits
+                return;
+            }
+            // don't share the context fetch result, a later fetch phase on this context would override its hits
+            FetchSearchResult fetchResult = new FetchSearchResult(context.id(), context.shardTarget());
+            fetchResult.hits(context.fetchResult().hits());
+            context.queryResult().speculativeFetchResult(fetchResult);
+        } catch (RuntimeException e) {
+            context.indexShard().searchService().onFailedFetchPhase(context);
+            logger.trace("Speculative fetch phase failed", e);
+        } finally {
+            contextProcessedSuccessfully(context);
+        }
+    }
+
     /**
      * Shortcut ids to load, we load only "from" and up to "size". The phase controller
      * handles this as well since the result is always size * shards for Q_A_F
@@ -22,6 +22,7 @@ package org.elasticsearch.search.action;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionService;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -71,14 +72,20 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
     private final SearchService searchService;
 
+    private final AdaptiveSelectionService adaptiveSelectionService;
+
     private final FreeContextResponseHandler freeContextResponseHandler = new FreeContextResponseHandler(logger);
 
     @Inject
-    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService) {
+    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService,
+                                        AdaptiveSelectionService adaptiveSelectionService) {
         super(settings);
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.searchService = searchService;
+        this.adaptiveSelectionService = adaptiveSelectionService;
+        // forget about the nodes that left the cluster
+        clusterService.add(adaptiveSelectionService);
 
         transportService.registerHandler(SearchFreeContextTransportHandler.ACTION, new SearchFreeContextTransportHandler());
         transportService.registerHandler(SearchDfsTransportHandler.ACTION, new SearchDfsTransportHandler());
@@ -101,7 +108,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteDfs(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
+    public void sendExecuteDfs(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<DfsSearchResult> originalListener) {
+        final SearchServiceListener<DfsSearchResult> listener = new ResponseTimeTrackingListener<DfsSearchResult>(node.id(), originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 DfsSearchResult result = searchService.executeDfsPhase(request);
@@ -135,7 +143,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QuerySearchResult> originalListener) {
+        final SearchServiceListener<QuerySearchResult> listener = new ResponseTimeTrackingListener<QuerySearchResult>(node.id(), originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QuerySearchResult result = searchService.executeQueryPhase(request);
@@ -237,7 +246,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QueryFetchSearchResult> originalListener) {
+        final SearchServiceListener<QueryFetchSearchResult> listener = new ResponseTimeTrackingListener<QueryFetchSearchResult>(node.id(), originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QueryFetchSearchResult result = searchService.executeFetchPhase(request);
@@ -373,7 +383,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteScan(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteScan(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QuerySearchResult> originalListener) {
+        final SearchServiceListener<QuerySearchResult> listener = new ResponseTimeTrackingListener<QuerySearchResult>(node.id(), originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QuerySearchResult result = searchService.executeScan(request);
@@ -441,6 +452,38 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    /**
+     * Feeds the {@link AdaptiveSelectionService} with the time it took the node to execute a shard request, or with
+     * its failure.
+     */
+    private class ResponseTimeTrackingListener<T> implements SearchServiceListener<T> {
+
+        private final String nodeId;
+
+        private final SearchServiceListener<T> listener;
+
+        private final long startTime;
+
+        ResponseTimeTrackingListener(String nodeId, SearchServiceListener<T> listener) {
+            this.nodeId = nodeId;
+            this.listener = listener;
+            adaptiveSelectionService.onRequestSent(nodeId);
+            this.startTime = System.nanoTime();
+        }
+
+        @Override
+        public void onResult(T result) {
+            adaptiveSelectionService.onResponseReceived(nodeId, System.nanoTime() - startTime);
+            listener.onResult(result);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            adaptiveSelectionService.onResponseFailed(nodeId);
+            listener.onFailure(t);
+        }
+    }
+
     class SearchFreeContextRequest extends TransportRequest {
 
         private long id;
@@ -91,6 +91,10 @@ public class SearchSourceBuilder implements ToXContent {
 
     private boolean trackScores = false;
 
+    private Boolean trackTotalHits;
+
+    private Object[] searchAfter;
+
     private Float minScore;
 
     private long timeoutInMillis = -1;
@@ -284,7 +288,9 @@ public class SearchSourceBuilder implements ToXContent {
     }
 
     /**
-     * An optional timeout to control how long search is allowed to take.
+     * An optional timeout to control how long search is allowed to take. Each shard request spends it across its
+     * phases (collecting, facets, rescoring, highlighting), and so does the reduce of the shard results. A phase that
+     * runs out of it returns partial results, and the response is flagged as timed out.
      */
     public SearchSourceBuilder timeout(TimeValue timeout) {
         this.timeoutInMillis = timeout.millis();
@@ -338,6 +344,27 @@ public class SearchSourceBuilder implements ToXContent {
         return this;
     }
 
+    /**
+     * Applies when sorting, and controls if the total number of hits should be computed. Not tracking it allows
+     * to stop collecting a segment once it has provided enough hits, when the index is sorted the same way
+     * (see <tt>index.merge.policy.sort.field</tt>). The total hits are then a lower bound. Defaults to
+     * <tt>true</tt>.
+     */
+    public SearchSourceBuilder trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    /**
+     * Only returns hits that sort after the provided sort values, typically the sort values of the last hit
+     * of the previous page. There must be one value per sort, and the sort should include a unique field
+     * (like <tt>_uid</tt>) as a tie breaker since hits with the same sort values are skipped.
+     */
+    public SearchSourceBuilder searchAfter(Object... values) {
+        this.searchAfter = values;
+        return this;
+    }
+
     /**
      * Add a facet to perform as part of the search.
      */
@@ -697,6 +724,13 @@ public class SearchSourceBuilder implements ToXContent {
             if (trackScores) {
                 builder.field("track_scores", trackScores);
             }
+            if (trackTotalHits != null) {
+                builder.field("track_total_hits", trackTotalHits);
+            }
+        }
+
+        if (searchAfter != null) {
+            builder.array("search_after", searchAfter);
         }
 
         if (indexBoost != null) {
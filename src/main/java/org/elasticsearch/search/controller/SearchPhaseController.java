@@ -24,12 +24,15 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.XMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.ShardFieldDocSortedHitQueue;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.trove.ExtTIntArrayList;
 import org.elasticsearch.search.SearchShardTarget;
@@ -47,11 +50,13 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.suggest.Suggest;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -73,6 +78,10 @@ public class SearchPhaseController extends AbstractComponent {
 
     private final boolean optimizeSingleShard;
 
+    private final CounterMetric reduceMetric = new CounterMetric();
+    private final CounterMetric reduceTimeMetric = new CounterMetric();
+    private final CounterMetric reduceTimedOutMetric = new CounterMetric();
+
     @Inject
     public SearchPhaseController(Settings settings) {
         super(settings);
@@ -130,7 +139,20 @@ public class SearchPhaseController extends AbstractComponent {
        return Math.min(left, right) == -1 ? -1 : left + right;
     }
 
-    public ShardDoc[] sortDocs(Collection<? extends QuerySearchResultProvider> results1) {
+    public SearchReduceStats reduceStats() {
+        return new SearchReduceStats(reduceMetric.count(), TimeUnit.NANOSECONDS.toMillis(reduceTimeMetric.count()), reduceTimedOutMetric.count());
+    }
+
+    public ShardDoc[] sortDocs(Collection<? extends QuerySearchResultProvider> results) {
+        long time = System.nanoTime();
+        try {
+            return innerSortDocs(results);
+        } finally {
+            reduceTimeMetric.inc(System.nanoTime() - time);
+        }
+    }
+
+    private ShardDoc[] innerSortDocs(Collection<? extends QuerySearchResultProvider> results1) {
         if (results1.isEmpty()) {
             return EMPTY;
         }
@@ -186,14 +208,27 @@ public class SearchPhaseController extends AbstractComponent {
         QuerySearchResultProvider queryResultProvider = results.get(0);
 
         int totalNumDocs = 0;
+        for (QuerySearchResultProvider resultProvider : results) {
+            totalNumDocs += resultProvider.queryResult().topDocs().scoreDocs.length;
+        }
 
         int queueSize = queryResultProvider.queryResult().from() + queryResultProvider.queryResult().size();
+        int resultDocsSize = queryResultProvider.queryResult().size();
         if (queryResultProvider.includeFetch()) {
             // if we did both query and fetch on the same go, we have fetched all the docs from each shards already, use them...
             // this is also important since we shortcut and fetch only docs from "from" and up to "size"
             queueSize *= results.size();
+            resultDocsSize *= results.size();
+        }
+        if (totalNumDocs < queueSize) {
+            resultDocsSize = totalNumDocs - queryResultProvider.queryResult().from();
+        }
+
+        if (resultDocsSize <= 0) {
+            return EMPTY;
         }
-        PriorityQueue queue;
+
+        SortField[] sortFields = null;
         if (queryResultProvider.queryResult().topDocs() instanceof TopFieldDocs) {
             // sorting, first if the type is a String, chance CUSTOM to STRING so we handle nulls properly (since our CUSTOM String sorting might return null)
             TopFieldDocs fieldDocs = (TopFieldDocs) queryResultProvider.queryResult().topDocs();
@@ -221,56 +256,37 @@ public class SearchPhaseController extends AbstractComponent {
                     fieldDocs.fields[i] = new SortField(fieldDocs.fields[i].getField(), SortField.Type.STRING, fieldDocs.fields[i].getReverse());
                 }
             }
-            queue = new ShardFieldDocSortedHitQueue(fieldDocs.fields, queueSize);
-
-            // we need to accumulate for all and then filter the from
-            for (QuerySearchResultProvider resultProvider : results) {
-                QuerySearchResult result = resultProvider.queryResult();
-                ScoreDoc[] scoreDocs = result.topDocs().scoreDocs;
-                totalNumDocs += scoreDocs.length;
-                for (ScoreDoc doc : scoreDocs) {
-                    ShardFieldDoc nodeFieldDoc = new ShardFieldDoc(result.shardTarget(), doc.doc, doc.score, ((FieldDoc) doc).fields);
-                    if (queue.insertWithOverflow(nodeFieldDoc) == nodeFieldDoc) {
-                        // filled the queue, break
-                        break;
-                    }
-                }
-            }
-        } else {
-            queue = new ScoreDocQueue(queueSize); // we need to accumulate for all and then filter the from
-            for (QuerySearchResultProvider resultProvider : results) {
-                QuerySearchResult result = resultProvider.queryResult();
-                ScoreDoc[] scoreDocs = result.topDocs().scoreDocs;
-                totalNumDocs += scoreDocs.length;
-                for (ScoreDoc doc : scoreDocs) {
-                    ShardScoreDoc nodeScoreDoc = new ShardScoreDoc(result.shardTarget(), doc.doc, doc.score);
-                    if (queue.insertWithOverflow(nodeScoreDoc) == nodeScoreDoc) {
-                        // filled the queue, break
-                        break;
-                    }
-                }
-            }
-
+            sortFields = fieldDocs.fields;
         }
 
-        int resultDocsSize = queryResultProvider.queryResult().size();
-        if (queryResultProvider.includeFetch()) {
-            // if we did both query and fetch on the same go, we have fetched all the docs from each shards already, use them...
-            resultDocsSize *= results.size();
-        }
-        if (totalNumDocs < queueSize) {
-            resultDocsSize = totalNumDocs - queryResultProvider.queryResult().from();
-        }
-
-        if (resultDocsSize <= 0) {
-            return EMPTY;
+        // the docs of each shard are already sorted, so we merge them, one cursor per shard, up to the last doc we
+        // need, and only create shard docs for the "from" up to "size" ones
+        ShardCursorQueue queue = new ShardCursorQueue(results.size(), sortFields);
+        for (QuerySearchResultProvider resultProvider : results) {
+            QuerySearchResult result = resultProvider.queryResult();
+            if (result.topDocs().scoreDocs.length > 0) {
+                queue.add(new ShardCursor(result.shardTarget(), result.topDocs().scoreDocs));
+            }
         }
 
-        // we only pop the first, this handles "from" nicely since the "from" are down the queue
-        // that we already fetched, so we are actually popping the "from" and up to "size"
+        int skip = Math.min(totalNumDocs, queueSize) - resultDocsSize;
         ShardDoc[] shardDocs = new ShardDoc[resultDocsSize];
-        for (int i = resultDocsSize - 1; i >= 0; i--)      // put docs in array
-            shardDocs[i] = (ShardDoc) queue.pop();
+        for (int i = 0; i < skip + resultDocsSize; i++) {
+            ShardCursor cursor = queue.top();
+            if (i >= skip) {
+                ScoreDoc doc = cursor.current();
+                if (sortFields != null) {
+                    shardDocs[i - skip] = new ShardFieldDoc(cursor.shardTarget, doc.doc, doc.score, ((FieldDoc) doc).fields);
+                } else {
+                    shardDocs[i - skip] = new ShardScoreDoc(cursor.shardTarget, doc.doc, doc.score);
+                }
+            }
+            if (++cursor.index == cursor.scoreDocs.length) {
+                queue.pop();
+            } else {
+                queue.updateTop();
+            }
+        }
         return shardDocs;
     }
 
@@ -288,6 +304,27 @@ public class SearchPhaseController extends AbstractComponent {
     }
 
     public InternalSearchResponse merge(ShardDoc[] sortedDocs, Map<SearchShardTarget, ? extends QuerySearchResultProvider> queryResults, Map<SearchShardTarget, ? extends FetchSearchResultProvider> fetchResults) {
+        return merge(sortedDocs, queryResults, fetchResults, -1);
+    }
+
+    /**
+     * Merges the shard results of a request that started at <tt>startTime</tt> (<tt>-1</tt> if unknown). If the request
+     * has a timeout and it is reached while reducing the facets, the facets left are not part of the response, which is
+     * flagged as timed out.
+     */
+    public InternalSearchResponse merge(ShardDoc[] sortedDocs, Map<SearchShardTarget, ? extends QuerySearchResultProvider> queryResults, Map<SearchShardTarget, ? extends FetchSearchResultProvider> fetchResults,
+                                        long startTime) {
+        long time = System.nanoTime();
+        try {
+            return innerMerge(sortedDocs, queryResults, fetchResults, startTime);
+        } finally {
+            reduceMetric.inc();
+            reduceTimeMetric.inc(System.nanoTime() - time);
+        }
+    }
+
+    private InternalSearchResponse innerMerge(ShardDoc[] sortedDocs, Map<SearchShardTarget, ? extends QuerySearchResultProvider> queryResults, Map<SearchShardTarget, ? extends FetchSearchResultProvider> fetchResults,
+                                             long startTime) {
 
         boolean sorted = false;
         int sortScoreIndex = -1;
@@ -309,6 +346,12 @@ public class SearchPhaseController extends AbstractComponent {
             }
         }
 
+        long deadline = Long.MAX_VALUE;
+        if (startTime != -1 && querySearchResult.timeoutInMillis() != -1) {
+            deadline = startTime + querySearchResult.timeoutInMillis();
+        }
+        boolean timedOut = false;
+
         // merge facets
         InternalFacets facets = null;
         if (!queryResults.isEmpty()) {
@@ -317,6 +360,12 @@ public class SearchPhaseController extends AbstractComponent {
                 List<Facet> aggregatedFacets = Lists.newArrayList();
                 List<Facet> namedFacets = Lists.newArrayList();
                 for (Facet facet : querySearchResult.facets()) {
+                    if (System.currentTimeMillis() > deadline) {
+                        // return the facets reduced so far rather than going over the timeout
+                        timedOut = true;
+                        reduceTimedOutMetric.inc();
+                        break;
+                    }
                     // aggregate each facet name into a single list, and aggregate it
                     namedFacets.clear();
                     for (QuerySearchResultProvider queryResultProvider : queryResults.values()) {
@@ -338,7 +387,6 @@ public class SearchPhaseController extends AbstractComponent {
         // count the total (we use the query result provider here, since we might not get any hits (we scrolled past them))
         long totalHits = 0;
         float maxScore = Float.NEGATIVE_INFINITY;
-        boolean timedOut = false;
         for (QuerySearchResultProvider queryResultProvider : queryResults.values()) {
             if (queryResultProvider.queryResult().searchTimedOut()) {
                 timedOut = true;
@@ -355,6 +403,9 @@ public class SearchPhaseController extends AbstractComponent {
         // clean the fetch counter
         for (FetchSearchResultProvider fetchSearchResultProvider : fetchResults.values()) {
             fetchSearchResultProvider.fetchResult().initCounter();
+            if (fetchSearchResultProvider.fetchResult().searchTimedOut()) {
+                timedOut = true;
+            }
         }
 
         // merge hits
@@ -408,4 +459,93 @@ public class SearchPhaseController extends AbstractComponent {
         return new InternalSearchResponse(searchHits, facets, suggest, timedOut);
     }
     
+
+    static class ShardCursor {
+
+        final SearchShardTarget shardTarget;
+        final ScoreDoc[] scoreDocs;
+        int index;
+
+        ShardCursor(SearchShardTarget shardTarget, ScoreDoc[] scoreDocs) {
+            this.shardTarget = shardTarget;
+            this.scoreDocs = scoreDocs;
+        }
+
+        ScoreDoc current() {
+            return scoreDocs[index];
+        }
+    }
+
+    /**
+     * Orders the shard cursors by their current doc, the top of the queue being the next doc to merge. Docs are
+     * ordered the same way as {@link ScoreDocQueue} and {@link ShardFieldDocSortedHitQueue} order them.
+     */
+    static class ShardCursorQueue extends PriorityQueue<ShardCursor> {
+
+        private final SortField[] fields;
+        private final FieldComparator[] comparators;
+
+        ShardCursorQueue(int size, @Nullable SortField[] fields) {
+            super(size);
+            this.fields = fields;
+            if (fields == null) {
+                this.comparators = null;
+            } else {
+                try {
+                    comparators = new FieldComparator[fields.length];
+                    for (int i = 0; i < fields.length; i++) {
+                        comparators[i] = fields[i].getComparator(1, i);
+                    }
+                } catch (IOException e) {
+                    throw new ElasticSearchIllegalStateException("failed to get comparator", e);
+                }
+            }
+        }
+
+        @Override
+        protected boolean lessThan(ShardCursor cursorA, ShardCursor cursorB) {
+            ScoreDoc docA = cursorA.current();
+            ScoreDoc docB = cursorB.current();
+            int c = fields == null ? compareScores(docA, docB) : compareFields((FieldDoc) docA, (FieldDoc) docB);
+            if (c == 0) {
+                c = cursorA.shardTarget.compareTo(cursorB.shardTarget);
+                if (c == 0) {
+                    return docA.doc < docB.doc;
+                }
+            }
+            return c < 0;
+        }
+
+        private int compareScores(ScoreDoc docA, ScoreDoc docB) {
+            if (docA.score == docB.score) {
+                return 0;
+            }
+            return docA.score > docB.score ? -1 : 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compareFields(FieldDoc docA, FieldDoc docB) {
+            int c = 0;
+            for (int i = 0; i < fields.length && c == 0; i++) {
+                if (fields[i].getType() == SortField.Type.STRING) {
+                    BytesRef s1 = (BytesRef) docA.fields[i];
+                    BytesRef s2 = (BytesRef) docB.fields[i];
+                    // null values are sorted first, see ShardFieldDocSortedHitQueue
+                    if (s1 == null) {
+                        c = (s2 == null) ? 0 : -1;
+                    } else if (s2 == null) {
+                        c = 1;
+                    } else {
+                        c = s1.compareTo(s2);
+                    }
+                } else {
+                    c = comparators[i].compareValues(docA.fields[i], docB.fields[i]);
+                }
+                if (fields[i].getReverse()) {
+                    c = -c;
+                }
+            }
+            return c;
+        }
+    }
 }
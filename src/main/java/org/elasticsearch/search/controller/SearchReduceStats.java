@@ -0,0 +1,123 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.controller;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Stats of the search results reduced on a node, when coordinating search requests.
+ */
+public class SearchReduceStats implements Streamable, ToXContent {
+
+    private long total;
+
+    private long totalTimeInMillis;
+
+    private long timedOut;
+
+    SearchReduceStats() {
+
+    }
+
+    public SearchReduceStats(long total, long totalTimeInMillis, long timedOut) {
+        this.total = total;
+        this.totalTimeInMillis = totalTimeInMillis;
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * The total number of search requests reduced.
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * The total time spent sorting and merging shard results (in milliseconds).
+     */
+    public long getTotalTimeInMillis() {
+        return this.totalTimeInMillis;
+    }
+
+    /**
+     * The total time spent sorting and merging shard results.
+     */
+    public TimeValue getTotalTime() {
+        return new TimeValue(totalTimeInMillis);
+    }
+
+    /**
+     * The number of search requests that reached their timeout while reducing, and returned partial facets.
+     */
+    public long getTimedOut() {
+        return this.timedOut;
+    }
+
+    public static SearchReduceStats readSearchReduceStats(StreamInput in) throws IOException {
+        SearchReduceStats stats = new SearchReduceStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        total = in.readVLong();
+        totalTimeInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            timedOut = in.readVLong();
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(total);
+        out.writeVLong(totalTimeInMillis);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeVLong(timedOut);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.SEARCH_REDUCE);
+        builder.field(Fields.TOTAL, total);
+        builder.field(Fields.TOTAL_TIME, getTotalTime().toString());
+        builder.field(Fields.TOTAL_TIME_IN_MILLIS, totalTimeInMillis);
+        builder.field(Fields.TIMED_OUT, timedOut);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString SEARCH_REDUCE = new XContentBuilderString("search_reduce");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString TOTAL_TIME = new XContentBuilderString("total_time");
+        static final XContentBuilderString TOTAL_TIME_IN_MILLIS = new XContentBuilderString("total_time_in_millis");
+        static final XContentBuilderString TIMED_OUT = new XContentBuilderString("timed_out");
+    }
+}
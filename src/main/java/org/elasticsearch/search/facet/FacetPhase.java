@@ -109,6 +109,9 @@ public class FacetPhase implements SearchPhase {
         for (SearchContextFacets.Entry entry : context.facets().entries()) {
             if (!entry.isGlobal()) {
                 if (entry.getMode() == FacetExecutor.Mode.POST) {
+                    if (timeBudgetExceeded(context)) {
+                        continue;
+                    }
                     FacetExecutor.Post post = entry.getFacetExecutor().post();
                     if (entry.getFilter() != null) {
                         if (post instanceof NestedFacetExecutor.Post) {
@@ -125,6 +128,9 @@ public class FacetPhase implements SearchPhase {
                 }
             } else {
                 if (entry.getMode() == FacetExecutor.Mode.POST) {
+                    if (timeBudgetExceeded(context)) {
+                        continue;
+                    }
                     if (globalDocSets == null) {
                         // build global post entries, map a reader context to a live docs docIdSet
                         List<AtomicReaderContext> leaves = context.searcher().getIndexReader().leaves();
@@ -176,6 +182,9 @@ public class FacetPhase implements SearchPhase {
         if (filtersByCollector != null) {
             // now, go and execute the filters->collector ones
             for (Map.Entry<Filter, List<Collector>> entry : filtersByCollector.entrySet()) {
+                if (timeBudgetExceeded(context)) {
+                    break;
+                }
                 Filter filter = entry.getKey();
                 Query query = new XConstantScoreQuery(filter);
                 Filter searchFilter = context.searchFilter(context.types());
@@ -201,4 +210,16 @@ public class FacetPhase implements SearchPhase {
         }
         context.queryResult().facets(new InternalFacets(facets));
     }
+
+    /**
+     * Returns <tt>true</tt> if the timeout budget has been spent, in which case the facets that are left are
+     * returned without values, and the result is flagged as timed out.
+     */
+    private static boolean timeBudgetExceeded(SearchContext context) {
+        if (context.timeBudgetExceeded()) {
+            context.queryResult().searchTimedOut(true);
+            return true;
+        }
+        return false;
+    }
 }
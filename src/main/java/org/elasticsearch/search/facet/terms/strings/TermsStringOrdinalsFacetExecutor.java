@@ -23,12 +23,15 @@ import com.google.common.collect.ImmutableSet;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CharsRef;
-import org.apache.lucene.util.PriorityQueue;
 import org.apache.lucene.util.UnicodeUtil;
-import org.elasticsearch.common.CacheRecycler;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.collect.BoundedTreeSet;
-import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.common.text.BytesText;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.util.PageAllocator;
+import org.elasticsearch.common.util.PagedIntArray;
 import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
 import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 import org.elasticsearch.index.fielddata.ordinals.Ordinals.Docs.Iter;
 import org.elasticsearch.search.facet.FacetExecutor;
@@ -45,7 +48,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- *
+ * Terms facet on the ordinals of string field data. The ordinals of each segment are mapped to the shard level
+ * {@link GlobalOrdinals} of the field while collecting, so all the segments count into a single array, and terms
+ * only need to be resolved for the top entries.
  */
 public class TermsStringOrdinalsFacetExecutor extends FacetExecutor {
 
@@ -58,7 +63,8 @@ public class TermsStringOrdinalsFacetExecutor extends FacetExecutor {
     private final Matcher matcher;
     final int ordinalsCacheAbove;
 
-    final List<ReaderAggregator> aggregators;
+    final GlobalOrdinals globalOrdinals;
+    final PagedIntArray counts;
     long missing;
     long total;
 
@@ -83,7 +89,10 @@ public class TermsStringOrdinalsFacetExecutor extends FacetExecutor {
             minCount = 0;
         }
 
-        this.aggregators = new ArrayList<ReaderAggregator>(context.searcher().getIndexReader().leaves().size());
+        this.globalOrdinals = indexFieldData.loadGlobal(context.searcher().getIndexReader());
+        // pages are only obtained once counted into, and given back with the context if the facet is never built
+        this.counts = PageAllocator.allocator().newIntArray(globalOrdinals.getMaxOrd());
+        context.addReleasable(counts);
     }
 
     @Override
@@ -93,198 +102,155 @@ public class TermsStringOrdinalsFacetExecutor extends FacetExecutor {
 
     @Override
     public InternalFacet buildFacet(String facetName) {
-        final CharsRef spare = new CharsRef();
-        AggregatorPriorityQueue queue = new AggregatorPriorityQueue(aggregators.size());
-        for (ReaderAggregator aggregator : aggregators) {
-            if (aggregator.nextPosition()) {
-                queue.add(aggregator);
-            }
-        }
-
-        // YACK, we repeat the same logic, but once with an optimizer priority queue for smaller sizes
-        if (size < EntryPriorityQueue.LIMIT) {
-            // optimize to use priority size
-            EntryPriorityQueue ordered = new EntryPriorityQueue(size, comparatorType.comparator());
-
-            while (queue.size() > 0) {
-                ReaderAggregator agg = queue.top();
-                BytesRef value = agg.values.makeSafe(agg.current); // we need to makeSafe it, since we end up pushing it... (can we get around this?)
-                int count = 0;
-                do {
-                    count += agg.counts[agg.position];
-                    if (agg.nextPosition()) {
-                        agg = queue.updateTop();
-                    } else {
-                        // we are done with this reader
-                        queue.pop();
-                        agg = queue.top();
-                    }
-                } while (agg != null && value.equals(agg.current));
-
-                if (count > minCount) {
-                    if (excluded != null && excluded.contains(value)) {
-                        continue;
+        try {
+            final GlobalOrdinals.Lookup lookup = globalOrdinals.newLookup();
+            final int maxOrd = globalOrdinals.getMaxOrd();
+
+            // YACK, we repeat the same logic, but once with an optimizer priority queue for smaller sizes
+            if (size < EntryPriorityQueue.LIMIT) {
+                // optimize to use priority size
+                EntryPriorityQueue ordered = new EntryPriorityQueue(size, comparatorType.comparator());
+                for (int ord = 1; ord < maxOrd; ord++) {
+                    int count = counts.get(ord);
+                    if (count > minCount && accept(lookup, ord)) {
+                        ordered.insertWithOverflow(new OrdinalEntry(lookup, ord, count));
                     }
-                    if (matcher != null) {
-                        UnicodeUtil.UTF8toUTF16(value, spare);
-                        assert spare.toString().equals(value.utf8ToString());
-                        if (!matcher.reset(spare).matches()) {
-                            continue;
-                        }
-                    }
-                    InternalStringTermsFacet.TermEntry entry = new InternalStringTermsFacet.TermEntry(value, count);
-                    ordered.insertWithOverflow(entry);
                 }
-            }
-            InternalStringTermsFacet.TermEntry[] list = new InternalStringTermsFacet.TermEntry[ordered.size()];
-            for (int i = ordered.size() - 1; i >= 0; i--) {
-                list[i] = (InternalStringTermsFacet.TermEntry) ordered.pop();
-            }
-
-            for (ReaderAggregator aggregator : aggregators) {
-                if (aggregator.counts.length > ordinalsCacheAbove) {
-                    CacheRecycler.pushIntArray(aggregator.counts);
+                // only resolve the terms of the top entries
+                InternalStringTermsFacet.TermEntry[] list = new InternalStringTermsFacet.TermEntry[ordered.size()];
+                for (int i = ordered.size() - 1; i >= 0; i--) {
+                    list[i] = ((OrdinalEntry) ordered.pop()).toTermEntry();
                 }
+                return new InternalStringTermsFacet(facetName, comparatorType, size, Arrays.asList(list), missing, total);
             }
 
-            return new InternalStringTermsFacet(facetName, comparatorType, size, Arrays.asList(list), missing, total);
-        }
-
-        BoundedTreeSet<InternalStringTermsFacet.TermEntry> ordered = new BoundedTreeSet<InternalStringTermsFacet.TermEntry>(comparatorType.comparator(), size);
-
-        while (queue.size() > 0) {
-            ReaderAggregator agg = queue.top();
-            BytesRef value = agg.values.makeSafe(agg.current); // we need to makeSafe it, since we end up pushing it... (can we work around that?)
-            int count = 0;
-            do {
-                count += agg.counts[agg.position];
-                if (agg.nextPosition()) {
-                    agg = queue.updateTop();
-                } else {
-                    // we are done with this reader
-                    queue.pop();
-                    agg = queue.top();
-                }
-            } while (agg != null && value.equals(agg.current));
-
-            if (count > minCount) {
-                if (excluded != null && excluded.contains(value)) {
-                    continue;
+            BoundedTreeSet<TermsFacet.Entry> ordered = new BoundedTreeSet<TermsFacet.Entry>(comparatorType.comparator(), size);
+            for (int ord = 1; ord < maxOrd; ord++) {
+                int count = counts.get(ord);
+                if (count > minCount && accept(lookup, ord)) {
+                    ordered.add(new OrdinalEntry(lookup, ord, count));
                 }
-                if (matcher != null) {
-                    UnicodeUtil.UTF8toUTF16(value, spare);
-                    assert spare.toString().equals(value.utf8ToString());
-                    if (!matcher.reset(spare).matches()) {
-                        continue;
-                    }
-                }
-                InternalStringTermsFacet.TermEntry entry = new InternalStringTermsFacet.TermEntry(value, count);
-                ordered.add(entry);
+            }
+            List<InternalStringTermsFacet.TermEntry> list = new ArrayList<InternalStringTermsFacet.TermEntry>(ordered.size());
+            for (TermsFacet.Entry entry : ordered) {
+                list.add(((OrdinalEntry) entry).toTermEntry());
+            }
+            return new InternalStringTermsFacet(facetName, comparatorType, size, list, missing, total);
+        } finally {
+            // large counts are recycled, small ones are left to the GC
+            if (counts.size() > ordinalsCacheAbove) {
+                counts.recycle();
+            } else {
+                counts.release();
             }
         }
+    }
 
+    private final CharsRef spare = new CharsRef();
 
-        for (ReaderAggregator aggregator : aggregators) {
-            if (aggregator.counts.length > ordinalsCacheAbove) {
-                CacheRecycler.pushIntArray(aggregator.counts);
+    private boolean accept(GlobalOrdinals.Lookup lookup, int ord) {
+        if (excluded == null && matcher == null) {
+            return true;
+        }
+        BytesRef value = lookup.getValueByOrd(ord);
+        if (excluded != null && excluded.contains(value)) {
+            return false;
+        }
+        if (matcher != null) {
+            UnicodeUtil.UTF8toUTF16(value, spare);
+            assert spare.toString().equals(value.utf8ToString());
+            if (!matcher.reset(spare).matches()) {
+                return false;
             }
         }
-
-        return new InternalStringTermsFacet(facetName, comparatorType, size, ordered, missing, total);
+        return true;
     }
 
     class Collector extends FacetExecutor.Collector {
 
-        private long missing;
+        private final PagedIntArray counts = TermsStringOrdinalsFacetExecutor.this.counts;
         private long total;
-        private BytesValues.WithOrdinals values;
-        private ReaderAggregator current;
         private Ordinals.Docs ordinals;
+        private int[] segmentToGlobal;
 
         @Override
         public void setNextReader(AtomicReaderContext context) throws IOException {
-            if (current != null) {
-                missing += current.counts[0];
-                total += current.total - current.counts[0];
-                if (current.values.ordinals().getNumOrds() > 0) {
-                    aggregators.add(current);
-                }
-            }
-            values = indexFieldData.load(context).getBytesValues();
-            current = new ReaderAggregator(values, ordinalsCacheAbove);
-            ordinals = values.ordinals();
+            ordinals = indexFieldData.load(context).getBytesValues().ordinals();
+            segmentToGlobal = globalOrdinals.segmentToGlobal(context.ord);
         }
 
         @Override
         public void collect(int doc) throws IOException {
             Iter iter = ordinals.getIter(doc);
             int ord = iter.next();
-            current.onOrdinal(doc, ord);
-            while((ord = iter.next()) != 0) {
-                current.onOrdinal(doc, ord);
+            counts.increment(segmentToGlobal[ord], 1);
+            total++;
+            while ((ord = iter.next()) != 0) {
+                counts.increment(segmentToGlobal[ord], 1);
+                total++;
             }
         }
 
         @Override
         public void postCollection() {
-            if (current != null) {
-                missing += current.counts[0];
-                total += current.total - current.counts[0];
-                // if we have values for this one, add it
-                if (current.values.ordinals().getNumOrds() > 0) {
-                    aggregators.add(current);
-                }
-                current = null;
-            }
-            TermsStringOrdinalsFacetExecutor.this.missing = missing;
-            TermsStringOrdinalsFacetExecutor.this.total = total;
+            // the missing ordinal is mapped to the global missing ordinal
+            TermsStringOrdinalsFacetExecutor.this.missing = counts.get(0);
+            TermsStringOrdinalsFacetExecutor.this.total = total - counts.get(0);
         }
     }
 
-    public static final class ReaderAggregator {
-
-        final BytesValues.WithOrdinals values;
-        final int[] counts;
-
-        int position = 0;
-        BytesRef current;
-        int total;
-        private final int maxOrd;
-
-        public ReaderAggregator(BytesValues.WithOrdinals values, int ordinalsCacheLimit) {
-            this.values = values;
-            this.maxOrd = values.ordinals().getMaxOrd();
-
-            if (maxOrd > ordinalsCacheLimit) {
-                this.counts = CacheRecycler.popIntArray(maxOrd);
-            } else {
-                this.counts = new int[maxOrd];
-            }
+    /**
+     * An entry referring to a global ordinal, sorting the same way its term would since global ordinals follow the
+     * terms order. The term is only resolved when asked for, which the facet does once the entry made it to the top
+     * entries.
+     */
+    static final class OrdinalEntry implements TermsFacet.Entry {
+
+        final GlobalOrdinals.Lookup lookup;
+        final int ord;
+        final int count;
+        private Text term;
+
+        OrdinalEntry(GlobalOrdinals.Lookup lookup, int ord, int count) {
+            this.lookup = lookup;
+            this.ord = ord;
+            this.count = count;
         }
 
-        final void onOrdinal(int docId, int ordinal) {
-            counts[ordinal]++;
-            total++;
+        InternalStringTermsFacet.TermEntry toTermEntry() {
+            return new InternalStringTermsFacet.TermEntry(getTerm(), count);
         }
 
-        public boolean nextPosition() {
-            if (++position >= maxOrd) {
-                return false;
+        @Override
+        public Text getTerm() {
+            if (term == null) {
+                term = new BytesText(new BytesArray(lookup.makeSafe(ord, lookup.getValueByOrd(ord))));
             }
-            current = values.getValueByOrd(position);
-            return true;
+            return term;
         }
-    }
 
-    public static class AggregatorPriorityQueue extends PriorityQueue<ReaderAggregator> {
+        @Override
+        public Number getTermAsNumber() {
+            return Double.parseDouble(getTerm().string());
+        }
 
-        public AggregatorPriorityQueue(int size) {
-            super(size);
+        @Override
+        public int getCount() {
+            return count;
         }
 
         @Override
-        protected boolean lessThan(ReaderAggregator a, ReaderAggregator b) {
-            return a.current.compareTo(b.current) < 0;
+        public int compareTo(TermsFacet.Entry o) {
+            int i;
+            if (o instanceof OrdinalEntry) {
+                i = ord - ((OrdinalEntry) o).ord;
+            } else {
+                i = getTerm().compareTo(o.getTerm());
+            }
+            if (i == 0) {
+                i = count - o.getCount();
+            }
+            return i;
         }
     }
 }
@@ -21,11 +21,12 @@ package org.elasticsearch.search.fetch;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.index.AtomicReaderContext;
-import org.apache.lucene.index.ReaderUtil;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.text.StringAndBytesText;
 import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.fieldvisitor.CustomFieldsVisitor;
 import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
 import org.elasticsearch.index.fieldvisitor.JustUidFieldsVisitor;
@@ -33,6 +34,7 @@ import org.elasticsearch.index.fieldvisitor.UidAndSourceFieldsVisitor;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.FieldMappers;
 import org.elasticsearch.index.mapper.internal.SourceFieldMapper;
+import org.elasticsearch.index.search.stats.ShardSearchService;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
@@ -49,6 +51,9 @@ import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -57,6 +62,11 @@ import static com.google.common.collect.Lists.newArrayList;
  */
 public class FetchPhase implements SearchPhase {
 
+    public static final String INDEX_SEARCH_FETCH_CONCURRENT_SLICES = "index.search.fetch.concurrent.slices";
+
+    // the names the fetch sub phases are timed under, loading the stored fields first, then in sub phases order
+    static final String[] PHASE_NAMES = new String[]{"stored_fields", "script_fields", "partial_fields", "matched_filters", "explain", "highlight", "version"};
+
     private final FetchSubPhase[] fetchSubPhases;
 
     @Inject
@@ -80,25 +90,27 @@ public class FetchPhase implements SearchPhase {
     }
 
     public void execute(SearchContext context) {
-        FieldsVisitor fieldsVisitor;
+        context.fetchResult().searchTimedOut(false);
+
         List<String> extractFieldNames = null;
         boolean sourceRequested = false;
+        boolean loadAllStored = false;
+        Set<String> fieldNames = null;
+        boolean loadSource;
         if (!context.hasFieldNames()) {
             if (context.hasPartialFields()) {
                 // partial fields need the source, so fetch it, but don't return it
-                fieldsVisitor = new UidAndSourceFieldsVisitor();
+                loadSource = true;
             } else if (context.hasScriptFields()) {
                 // we ask for script fields, and no field names, don't load the source
-                fieldsVisitor = new JustUidFieldsVisitor();
+                loadSource = false;
             } else {
                 sourceRequested = true;
-                fieldsVisitor = new UidAndSourceFieldsVisitor();
+                loadSource = true;
             }
         } else if (context.fieldNames().isEmpty()) {
-            fieldsVisitor = new JustUidFieldsVisitor();
+            loadSource = false;
         } else {
-            boolean loadAllStored = false;
-            Set<String> fieldNames = null;
             for (String fieldName : context.fieldNames()) {
                 if (fieldName.equals("*")) {
                     loadAllStored = true;
@@ -121,27 +133,164 @@ public class FetchPhase implements SearchPhase {
                     extractFieldNames.add(fieldName);
                 }
             }
-            if (loadAllStored) {
-                if (sourceRequested || extractFieldNames != null) {
-                    fieldsVisitor = new CustomFieldsVisitor(true, true); // load everything, including _source
-                } else {
-                    fieldsVisitor = new CustomFieldsVisitor(true, false);
+            loadSource = sourceRequested || extractFieldNames != null;
+        }
+
+        // fetch the docs in doc id order, so the stored fields are read segment by segment, keeping the
+        // index of each doc (in the lower bits) to put its hit back in place
+        int size = context.docIdsToLoadSize();
+        long[] docsAndIndices = new long[size];
+        for (int index = 0; index < size; index++) {
+            docsAndIndices[index] = ((long) context.docIdsToLoad()[context.docIdsToLoadFrom() + index] << 32) | index;
+        }
+        Arrays.sort(docsAndIndices);
+
+        InternalSearchHit[] hits = new InternalSearchHit[size];
+        int numSlices = 1;
+        // scripts are bound to the lookup of the context, which can't be used concurrently
+        if (context.fetchExecutor() != null && !context.hasScriptFields() && !context.hasLookup()) {
+            numSlices = Math.min(context.fetchSlices(), size);
+        }
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(numSlices);
+        List<FetchSlice> slices = new ArrayList<FetchSlice>(numSlices);
+        for (int i = 0; i < numSlices; i++) {
+            FieldsVisitor fieldsVisitor = createFieldsVisitor(loadAllStored, fieldNames, loadSource);
+            FetchSlice slice = new FetchSlice(context, hits, docsAndIndices, (int) ((long) size * i / numSlices), (int) ((long) size * (i + 1) / numSlices),
+                    fieldsVisitor, extractFieldNames, sourceRequested);
+            slices.add(slice);
+            tasks.add(new FutureTask<Void>(slice));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                context.fetchExecutor().execute(tasks.get(i));
+            } catch (EsRejectedExecutionException e) {
+                tasks.get(i).run();
+            }
+        }
+        if (!tasks.isEmpty()) {
+            tasks.get(0).run();
+        }
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = e;
                 }
-            } else if (fieldNames != null) {
-                boolean loadSource = extractFieldNames != null || sourceRequested;
-                fieldsVisitor = new CustomFieldsVisitor(fieldNames, loadSource);
-            } else if (extractFieldNames != null || sourceRequested) {
-                fieldsVisitor = new UidAndSourceFieldsVisitor();
-            } else {
-                fieldsVisitor = new JustUidFieldsVisitor();
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new FetchPhaseExecutionException(context, "Failed to fetch hits", failure);
+        }
+
+        long[] phaseTimes = new long[PHASE_NAMES.length];
+        for (FetchSlice slice : slices) {
+            for (int i = 0; i < phaseTimes.length; i++) {
+                phaseTimes[i] += slice.phaseTimes[i];
+            }
+        }
+
+        for (int i = 0; i < fetchSubPhases.length; i++) {
+            FetchSubPhase fetchSubPhase = fetchSubPhases[i];
+            if (fetchSubPhase.hitsExecutionNeeded(context)) {
+                long time = System.nanoTime();
+                fetchSubPhase.hitsExecute(context, hits);
+                phaseTimes[i + 1] += System.nanoTime() - time;
             }
         }
 
-        InternalSearchHit[] hits = new InternalSearchHit[context.docIdsToLoadSize()];
-        for (int index = 0; index < context.docIdsToLoadSize(); index++) {
-            int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
+        ShardSearchService searchService = context.indexShard().searchService();
+        for (int i = 0; i < phaseTimes.length; i++) {
+            if (phaseTimes[i] > 0) {
+                searchService.onFetchSubPhase(context, PHASE_NAMES[i], phaseTimes[i]);
+            }
+        }
 
-            loadStoredFields(context, fieldsVisitor, docId);
+        context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
+    }
+
+    private FieldsVisitor createFieldsVisitor(boolean loadAllStored, @Nullable Set<String> fieldNames, boolean loadSource) {
+        if (loadAllStored) {
+            // load everything, including _source if needed
+            return new CustomFieldsVisitor(true, loadSource);
+        } else if (fieldNames != null) {
+            return new CustomFieldsVisitor(fieldNames, loadSource);
+        } else if (loadSource) {
+            return new UidAndSourceFieldsVisitor();
+        }
+        return new JustUidFieldsVisitor();
+    }
+
+    /**
+     * Fetches a contiguous range of the docs (sorted by doc id), and executes the fetch sub phases on their hits.
+     */
+    class FetchSlice implements Callable<Void> {
+
+        private final SearchContext context;
+        private final InternalSearchHit[] hits;
+        private final long[] docsAndIndices;
+        private final int from;
+        private final int to;
+        private final FieldsVisitor fieldsVisitor;
+        private final List<String> extractFieldNames;
+        private final boolean sourceRequested;
+
+        // the time spent loading the stored fields, then in each fetch sub phase
+        final long[] phaseTimes = new long[PHASE_NAMES.length];
+
+        FetchSlice(SearchContext context, InternalSearchHit[] hits, long[] docsAndIndices, int from, int to, FieldsVisitor fieldsVisitor,
+                   @Nullable List<String> extractFieldNames, boolean sourceRequested) {
+            this.context = context;
+            this.hits = hits;
+            this.docsAndIndices = docsAndIndices;
+            this.from = from;
+            this.to = to;
+            this.fieldsVisitor = fieldsVisitor;
+            this.extractFieldNames = extractFieldNames;
+            this.sourceRequested = sourceRequested;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            boolean forked = SearchContext.current() != context;
+            if (forked) {
+                // this thread gets its own lookup, the one of the context is used by the calling thread
+                SearchContext.setCurrent(context);
+                SearchContext.setThreadLookup(context.newLookup());
+            }
+            try {
+                List<AtomicReaderContext> leaves = context.searcher().getIndexReader().leaves();
+                int leafIndex = 0;
+                for (int i = from; i < to; i++) {
+                    int docId = (int) (docsAndIndices[i] >>> 32);
+                    int index = (int) docsAndIndices[i];
+                    while (docId >= leaves.get(leafIndex).docBase + leaves.get(leafIndex).reader().maxDoc()) {
+                        leafIndex++;
+                    }
+                    hits[index] = fetchHit(leaves.get(leafIndex), docId);
+                }
+            } finally {
+                if (forked) {
+                    SearchContext.removeThreadLookup();
+                    SearchContext.removeCurrent();
+                }
+            }
+            return null;
+        }
+
+        private InternalSearchHit fetchHit(AtomicReaderContext subReaderContext, int docId) {
+            long time = System.nanoTime();
+            int subDoc = docId - subReaderContext.docBase;
+            loadStoredFields(context, subReaderContext, fieldsVisitor, subDoc);
             fieldsVisitor.postProcess(context.mapperService());
 
             Map<String, SearchHitField> searchFields = null;
@@ -161,12 +310,6 @@ public class FetchPhase implements SearchPhase {
             }
             InternalSearchHit searchHit = new InternalSearchHit(docId, fieldsVisitor.uid().id(), typeText, sourceRequested ? fieldsVisitor.source() : null, searchFields);
 
-            hits[index] = searchHit;
-
-            int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-            AtomicReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
-            int subDoc = docId - subReaderContext.docBase;
-
             // go over and extract fields that are not mapped / stored
             context.lookup().setNextReader(subReaderContext);
             context.lookup().setNextDocId(subDoc);
@@ -190,31 +333,28 @@ public class FetchPhase implements SearchPhase {
                     }
                 }
             }
+            phaseTimes[0] += System.nanoTime() - time;
 
-            for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
-                FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
+            for (int i = 0; i < fetchSubPhases.length; i++) {
+                FetchSubPhase fetchSubPhase = fetchSubPhases[i];
                 if (fetchSubPhase.hitExecutionNeeded(context)) {
+                    time = System.nanoTime();
+                    FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
                     hitContext.reset(searchHit, subReaderContext, subDoc, context.searcher().getIndexReader(), docId, fieldsVisitor);
                     fetchSubPhase.hitExecute(context, hitContext);
+                    phaseTimes[i + 1] += System.nanoTime() - time;
                 }
             }
+            return searchHit;
         }
-
-        for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
-            if (fetchSubPhase.hitsExecutionNeeded(context)) {
-                fetchSubPhase.hitsExecute(context, hits);
-            }
-        }
-
-        context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
     }
 
-    private void loadStoredFields(SearchContext context, FieldsVisitor fieldVisitor, int docId) {
+    private void loadStoredFields(SearchContext context, AtomicReaderContext readerContext, FieldsVisitor fieldVisitor, int docId) {
         fieldVisitor.reset();
         try {
-            context.searcher().doc(docId, fieldVisitor);
+            readerContext.reader().document(docId, fieldVisitor);
         } catch (IOException e) {
-            throw new FetchPhaseExecutionException(context, "Failed to fetch doc id [" + docId + "]", e);
+            throw new FetchPhaseExecutionException(context, "Failed to fetch doc id [" + (readerContext.docBase + docId) + "]", e);
         }
     }
 }
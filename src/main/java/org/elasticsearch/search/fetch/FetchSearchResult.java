@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.fetch;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchShardTarget;
@@ -37,6 +38,7 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
     private long id;
     private SearchShardTarget shardTarget;
     private InternalSearchHits hits;
+    private boolean searchTimedOut;
     // client side counter
     private transient int counter;
 
@@ -75,6 +77,18 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
         return hits;
     }
 
+    public void searchTimedOut(boolean searchTimedOut) {
+        this.searchTimedOut = searchTimedOut;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the fetch phase ran out of the timeout budget, and some of the hits were returned
+     * without going through all the fetch sub phases (like highlighting).
+     */
+    public boolean searchTimedOut() {
+        return searchTimedOut;
+    }
+
     public FetchSearchResult initCounter() {
         counter = 0;
         return this;
@@ -95,6 +109,9 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
         super.readFrom(in);
         id = in.readLong();
         hits = InternalSearchHits.readSearchHits(in, InternalSearchHits.streamContext().streamShardTarget(StreamContext.ShardTargetType.NO_STREAM));
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            searchTimedOut = in.readBoolean();
+        }
     }
 
     @Override
@@ -102,5 +119,8 @@ public class FetchSearchResult extends TransportResponse implements FetchSearchR
         super.writeTo(out);
         out.writeLong(id);
         hits.writeTo(out, InternalSearchHits.streamContext().streamShardTarget(StreamContext.ShardTargetType.NO_STREAM));
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeBoolean(searchTimedOut);
+        }
     }
 }
@@ -74,6 +74,11 @@ public class HighlightPhase extends AbstractComponent implements FetchSubPhase {
 
     @Override
     public void hitExecute(SearchContext context, HitContext hitContext) throws ElasticSearchException {
+        if (context.timeBudgetExceeded()) {
+            // return the hit without highlighting rather than going over the timeout
+            context.fetchResult().searchTimedOut(true);
+            return;
+        }
         Map<String, HighlightField> highlightFields = newHashMap();
         for (SearchContextHighlight.Field field : context.highlight().fields()) {
             Set<String> fieldNamesToHighlight;
@@ -21,23 +21,37 @@ package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.*;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchInterruptedException;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.MultiCollector;
+import org.elasticsearch.common.lucene.search.EarlyTerminatingSortedCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.common.lucene.search.XCollector;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.CachedDfSource;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  *
  */
 public class ContextIndexSearcher extends IndexSearcher {
 
+    /**
+     * The maximum number of slices the segments of a shard are partitioned into when executing the main query,
+     * defaults to <tt>1</tt> which searches the segments sequentially.
+     */
+    public static final String INDEX_SEARCH_CONCURRENT_SLICES = "index.search.concurrent.slices";
+
     public static enum Stage {
         NA,
         MAIN_QUERY,
@@ -55,6 +69,11 @@ public class ContextIndexSearcher extends IndexSearcher {
     private boolean enableMainDocIdSetCollector;
     private DocIdSetCollector mainDocIdSetCollector;
 
+    private Executor executor;
+    private int maxSlices = 1;
+
+    private int terminateSortedSegmentsAfter = -1;
+
     public ContextIndexSearcher(SearchContext searchContext, Engine.Searcher searcher) {
         super(searcher.reader());
         this.searchContext = searchContext;
@@ -71,6 +90,27 @@ public class ContextIndexSearcher extends IndexSearcher {
         this.dfSource = dfSource;
     }
 
+    /**
+     * Allows to search the segments concurrently when executing the main query, partitioned into up to
+     * <tt>maxSlices</tt> slices of roughly the same number of docs, searched using the provided executor.
+     * <p/>
+     * Only the top docs and the total hits can be merged from the slices, so main query collectors (facets in
+     * collector mode) and scripts fall back to searching the segments sequentially. Facets in post mode are
+     * computed on the doc sets collected by all the slices.
+     */
+    public void concurrent(Executor executor, int maxSlices) {
+        this.executor = executor;
+        this.maxSlices = maxSlices;
+    }
+
+    /**
+     * Stops collecting the sorted segments once they provided <tt>numHits</tt> hits when executing the main query,
+     * the main query must be sorted the same way as the index. The total hits are then a lower bound.
+     */
+    public void terminateSortedSegmentsAfter(int numHits) {
+        this.terminateSortedSegmentsAfter = numHits;
+    }
+
     /**
      * Adds a query level collector that runs at {@link Stage#MAIN_QUERY}. Note, supports
      * {@link org.elasticsearch.common.lucene.search.XCollector} allowing for a callback
@@ -124,11 +164,80 @@ public class ContextIndexSearcher extends IndexSearcher {
         return super.createNormalizedWeight(query);
     }
 
+    /**
+     * Returns the number of docs matching the query.
+     */
+    public int count(Query query) throws IOException {
+        Weight weight = createNormalizedWeight(query);
+        List<AtomicReaderContext> leaves = getIndexReader().leaves();
+        if (!concurrent(leaves)) {
+            TotalHitCountCollector collector = new TotalHitCountCollector();
+            search(leaves, weight, collector);
+            return collector.getTotalHits();
+        }
+        List<List<AtomicReaderContext>> slices = slices(leaves);
+        TotalHitCountCollector[] collectors = new TotalHitCountCollector[slices.size()];
+        for (int i = 0; i < collectors.length; i++) {
+            collectors[i] = new TotalHitCountCollector();
+        }
+        searchSlices(slices, weight, collectors);
+        int totalHits = 0;
+        for (TotalHitCountCollector collector : collectors) {
+            totalHits += collector.getTotalHits();
+        }
+        return totalHits;
+    }
+
+    @Override
+    protected TopDocs search(Weight weight, ScoreDoc after, int nDocs) throws IOException {
+        List<AtomicReaderContext> leaves = getIndexReader().leaves();
+        if (!concurrent(leaves)) {
+            return super.search(weight, after, nDocs);
+        }
+        nDocs = Math.min(nDocs, Math.max(1, getIndexReader().maxDoc()));
+        List<List<AtomicReaderContext>> slices = slices(leaves);
+        TopScoreDocCollector[] collectors = new TopScoreDocCollector[slices.size()];
+        for (int i = 0; i < collectors.length; i++) {
+            collectors[i] = TopScoreDocCollector.create(nDocs, after, !weight.scoresDocsOutOfOrder());
+        }
+        searchSlices(slices, weight, collectors);
+        TopDocs[] topDocs = new TopDocs[collectors.length];
+        for (int i = 0; i < collectors.length; i++) {
+            topDocs[i] = collectors[i].topDocs();
+        }
+        return merge(null, nDocs, topDocs);
+    }
+
+    @Override
+    protected TopFieldDocs search(Weight weight, FieldDoc after, int nDocs, Sort sort, boolean fillFields, boolean doDocScores, boolean doMaxScore) throws IOException {
+        List<AtomicReaderContext> leaves = getIndexReader().leaves();
+        if (!concurrent(leaves)) {
+            return super.search(weight, after, nDocs, sort, fillFields, doDocScores, doMaxScore);
+        }
+        nDocs = Math.min(nDocs, Math.max(1, getIndexReader().maxDoc()));
+        List<List<AtomicReaderContext>> slices = slices(leaves);
+        TopFieldCollector[] collectors = new TopFieldCollector[slices.size()];
+        for (int i = 0; i < collectors.length; i++) {
+            // the sort values are needed to merge the slices
+            collectors[i] = TopFieldCollector.create(sort, nDocs, after, true, doDocScores, doMaxScore, !weight.scoresDocsOutOfOrder());
+        }
+        searchSlices(slices, weight, collectors);
+        TopDocs[] topDocs = new TopDocs[collectors.length];
+        for (int i = 0; i < collectors.length; i++) {
+            topDocs[i] = collectors[i].topDocs();
+        }
+        return (TopFieldDocs) merge(sort, nDocs, topDocs);
+    }
+
     @Override
     public void search(List<AtomicReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        if (terminateSortedSegments()) {
+            collector = new EarlyTerminatingSortedCollector(collector, searchContext.indexSort(), terminateSortedSegmentsAfter);
+        }
         if (searchContext.timeoutInMillis() != -1) {
+            // only allow what is left of the budget, rewriting the query might have already spent some of it
             // TODO: change to use our own counter that uses the scheduler in ThreadPool
-            collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), searchContext.timeoutInMillis());
+            collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), searchContext.remainingTimeBudgetInMillis());
         }
         if (currentState == Stage.MAIN_QUERY) {
             if (enableMainDocIdSetCollector) {
@@ -154,12 +263,12 @@ public class ContextIndexSearcher extends IndexSearcher {
         // we only compute the doc id set once since within a context, we execute the same query always...
         if (searchContext.timeoutInMillis() != -1) {
             try {
-                super.search(leaves, weight, collector);
+                searchLeaves(leaves, weight, collector);
             } catch (TimeLimitingCollector.TimeExceededException e) {
                 searchContext.queryResult().searchTimedOut(true);
             }
         } else {
-            super.search(leaves, weight, collector);
+            searchLeaves(leaves, weight, collector);
         }
         if (currentState == Stage.MAIN_QUERY) {
             if (enableMainDocIdSetCollector) {
@@ -176,6 +285,193 @@ public class ContextIndexSearcher extends IndexSearcher {
         }
     }
 
+    private boolean terminateSortedSegments() {
+        if (terminateSortedSegmentsAfter <= 0 || currentState != Stage.MAIN_QUERY || searchContext.indexSort() == null) {
+            return false;
+        }
+        // main query collectors and doc sets need all the matching docs
+        return !enableMainDocIdSetCollector && (queryCollectors == null || queryCollectors.isEmpty());
+    }
+
+    /**
+     * Searches the leaves like {@link IndexSearcher#search(List, Weight, Collector)}, moving on to the next
+     * leaf when the collection of a sorted segment is terminated early.
+     */
+    private void searchLeaves(List<AtomicReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        if (!terminateSortedSegments()) {
+            super.search(leaves, weight, collector);
+            return;
+        }
+        for (AtomicReaderContext ctx : leaves) {
+            collector.setNextReader(ctx);
+            Scorer scorer = weight.scorer(ctx, !collector.acceptsDocsOutOfOrder(), true, ctx.reader().getLiveDocs());
+            if (scorer != null) {
+                try {
+                    scorer.score(collector);
+                } catch (EarlyTerminatingSortedCollector.SegmentTerminatedException e) {
+                    // the rest of the segment can't compete
+                }
+            }
+        }
+    }
+
+    private boolean concurrent(List<AtomicReaderContext> leaves) {
+        if (executor == null || currentState != Stage.MAIN_QUERY || leaves.size() < 2) {
+            return false;
+        }
+        if (queryCollectors != null && !queryCollectors.isEmpty()) {
+            return false;
+        }
+        // scripts share a single lookup which is not thread safe
+        return !searchContext.hasLookup();
+    }
+
+    /**
+     * Partitions the leaves into contiguous slices with roughly the same number of docs, so merging the slices
+     * breaks ties in doc id order, like a sequential search.
+     */
+    private List<List<AtomicReaderContext>> slices(List<AtomicReaderContext> leaves) {
+        int numSlices = Math.min(maxSlices, leaves.size());
+        long totalDocs = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            totalDocs += leaf.reader().maxDoc();
+        }
+        long docsPerSlice = totalDocs / numSlices;
+        List<List<AtomicReaderContext>> slices = new ArrayList<List<AtomicReaderContext>>(numSlices);
+        List<AtomicReaderContext> slice = new ArrayList<AtomicReaderContext>();
+        long sliceDocs = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            slice.add(leaf);
+            sliceDocs += leaf.reader().maxDoc();
+            if (sliceDocs >= docsPerSlice && slices.size() < numSlices - 1) {
+                slices.add(slice);
+                slice = new ArrayList<AtomicReaderContext>();
+                sliceDocs = 0;
+            }
+        }
+        if (!slice.isEmpty()) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
+    /**
+     * Searches each slice with its own collector, wrapped the same way a sequential main query collector is.
+     * The first slice is searched on the current thread.
+     */
+    private void searchSlices(List<List<AtomicReaderContext>> slices, Weight weight, Collector[] collectors) throws IOException {
+        DocIdSetCollector[] docIdSetCollectors = enableMainDocIdSetCollector ? new DocIdSetCollector[slices.size()] : null;
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(slices.size());
+        long remainingTimeBudget = searchContext.remainingTimeBudgetInMillis();
+        for (int i = 0; i < slices.size(); i++) {
+            Collector collector = collectors[i];
+            if (terminateSortedSegments()) {
+                collector = new EarlyTerminatingSortedCollector(collector, searchContext.indexSort(), terminateSortedSegmentsAfter);
+            }
+            if (searchContext.timeoutInMillis() != -1) {
+                collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), remainingTimeBudget);
+            }
+            if (docIdSetCollectors != null) {
+                collector = docIdSetCollectors[i] = new DocIdSetCollector(searchContext.docSetCache(), collector);
+            }
+            if (searchContext.parsedFilter() != null) {
+                collector = new FilteredCollector(collector, searchContext.parsedFilter());
+            }
+            if (searchContext.minimumScore() != null) {
+                collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+            }
+            tasks.add(new FutureTask<Void>(new SliceSearch(slices.get(i), weight, collector)));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                executor.execute(tasks.get(i));
+            } catch (EsRejectedExecutionException e) {
+                tasks.get(i).run();
+            }
+        }
+        tasks.get(0).run();
+
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (docIdSetCollectors != null) {
+            enableMainDocIdSetCollector = false;
+            for (DocIdSetCollector docIdSetCollector : docIdSetCollectors) {
+                docIdSetCollector.postCollection();
+            }
+            // the slices are in leaves order, so are their doc sets
+            mainDocIdSetCollector = docIdSetCollectors[0];
+            for (int i = 1; i < docIdSetCollectors.length; i++) {
+                mainDocIdSetCollector.docSets().addAll(docIdSetCollectors[i].docSets());
+            }
+        }
+
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof InterruptedException) {
+                throw new ElasticSearchInterruptedException(failure.getMessage(), failure);
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new ElasticSearchException(failure.getMessage(), failure);
+        }
+    }
+
+    private TopDocs merge(Sort sort, int nDocs, TopDocs[] topDocs) throws IOException {
+        TopDocs merged = TopDocs.merge(sort, nDocs, topDocs);
+        // the merge marks each doc with its slice, but those docs come from a single shard
+        for (ScoreDoc scoreDoc : merged.scoreDocs) {
+            scoreDoc.shardIndex = -1;
+        }
+        return merged;
+    }
+
+    class SliceSearch implements Callable<Void> {
+
+        private final List<AtomicReaderContext> leaves;
+        private final Weight weight;
+        private final Collector collector;
+
+        SliceSearch(List<AtomicReaderContext> leaves, Weight weight, Collector collector) {
+            this.leaves = leaves;
+            this.weight = weight;
+            this.collector = collector;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            boolean setCurrent = SearchContext.current() != searchContext;
+            if (setCurrent) {
+                // queries and filters may rely on the current search context
+                SearchContext.setCurrent(searchContext);
+            }
+            try {
+                searchLeaves(leaves, weight, collector);
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                searchContext.queryResult().searchTimedOut(true);
+            } finally {
+                if (setCurrent) {
+                    SearchContext.removeCurrent();
+                }
+            }
+            return null;
+        }
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         if (searchContext.aliasFilter() == null) {
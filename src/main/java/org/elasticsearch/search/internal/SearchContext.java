@@ -21,6 +21,7 @@ package org.elasticsearch.search.internal;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
@@ -43,6 +44,7 @@ import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.FieldMappers;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.merge.policy.IndexSort;
 import org.elasticsearch.index.query.IndexQueryParserService;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryParseContext;
@@ -66,6 +68,8 @@ import org.elasticsearch.search.suggest.SuggestionSearchContext;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -88,6 +92,17 @@ public class SearchContext implements Releasable {
         return current.get();
     }
 
+    // a lookup private to the current thread, used when hits are fetched concurrently
+    private static ThreadLocal<SearchLookup> threadLookup = new ThreadLocal<SearchLookup>();
+
+    public static void setThreadLookup(SearchLookup lookup) {
+        threadLookup.set(lookup);
+    }
+
+    public static void removeThreadLookup() {
+        threadLookup.remove();
+    }
+
     public static interface Rewrite {
 
         void contextRewrite(SearchContext searchContext) throws Exception;
@@ -127,6 +142,9 @@ public class SearchContext implements Releasable {
     // timeout in millis
     private long timeoutInMillis = -1;
 
+    // when the current request started to spend the timeout budget
+    private long timeBudgetStartInNanos = System.nanoTime();
+
 
     private List<String> groupStats;
 
@@ -150,6 +168,16 @@ public class SearchContext implements Releasable {
 
     private boolean trackScores = false; // when sorting, track scores as well...
 
+    private boolean trackTotalHits = true;
+
+    private IndexSort indexSort;
+
+    private FieldDoc searchAfter;
+
+    private Executor fetchExecutor;
+
+    private int fetchSlices = 1;
+
     private ParsedQuery originalQuery;
 
     private Query query;
@@ -182,6 +210,8 @@ public class SearchContext implements Releasable {
 
     private List<Rewrite> rewrites = null;
 
+    private List<Releasable> releasables = null;
+
 
     public SearchContext(long id, ShardSearchRequest request, SearchShardTarget shardTarget,
                          Engine.Searcher engineSearcher, IndexService indexService, IndexShard indexShard, ScriptService scriptService) {
@@ -214,6 +244,11 @@ public class SearchContext implements Releasable {
                 rewrite.contextClear();
             }
         }
+        if (releasables != null) {
+            for (Releasable releasable : releasables) {
+                releasable.release();
+            }
+        }
         searcher.release();
         engineSearcher.release();
         return true;
@@ -417,6 +452,33 @@ public class SearchContext implements Releasable {
         this.timeoutInMillis = timeoutInMillis;
     }
 
+    /**
+     * Starts spending the {@link #timeoutInMillis()} budget. Called each time a shard request starts to execute
+     * against this context, so that every round of a query then fetch or a scroll gets the full budget.
+     */
+    public void startTimeBudget() {
+        this.timeBudgetStartInNanos = System.nanoTime();
+    }
+
+    /**
+     * The part of the timeout budget that is left for the phases still to execute, or <tt>-1</tt> if there is no timeout.
+     */
+    public long remainingTimeBudgetInMillis() {
+        if (timeoutInMillis == -1) {
+            return -1;
+        }
+        long spent = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - timeBudgetStartInNanos);
+        return Math.max(0, timeoutInMillis - spent);
+    }
+
+    /**
+     * Returns <tt>true</tt> if a timeout is set and its budget has been fully spent, in which case phases should
+     * skip or cut short their work and flag their result as timed out.
+     */
+    public boolean timeBudgetExceeded() {
+        return remainingTimeBudgetInMillis() == 0;
+    }
+
     public SearchContext minimumScore(float minimumScore) {
         this.minimumScore = minimumScore;
         return this;
@@ -444,6 +506,37 @@ public class SearchContext implements Releasable {
         return this.trackScores;
     }
 
+    public void indexSort(@Nullable IndexSort indexSort) {
+        this.indexSort = indexSort;
+    }
+
+    /**
+     * The sort of the documents within the merged segments of the index, <tt>null</tt> if they are not sorted.
+     */
+    @Nullable
+    public IndexSort indexSort() {
+        return this.indexSort;
+    }
+
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    public boolean trackTotalHits() {
+        return this.trackTotalHits;
+    }
+
+    public SearchContext searchAfter(FieldDoc searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
+    @Nullable
+    public FieldDoc searchAfter() {
+        return this.searchAfter;
+    }
+
     public SearchContext parsedFilter(Filter filter) {
         this.filter = filter;
         return this;
@@ -584,14 +677,50 @@ public class SearchContext implements Releasable {
         this.keepAlive = keepAlive;
     }
 
+    /**
+     * Has the lookup been used, typically by scripts.
+     */
+    public boolean hasLookup() {
+        return searchLookup != null;
+    }
+
     public SearchLookup lookup() {
+        SearchLookup lookup = threadLookup.get();
+        if (lookup != null) {
+            return lookup;
+        }
         // TODO: The types should take into account the parsing context in QueryParserContext...
         if (searchLookup == null) {
-            searchLookup = new SearchLookup(mapperService(), fieldData(), request.types());
+            searchLookup = newLookup();
         }
         return searchLookup;
     }
 
+    /**
+     * Creates a new lookup, not shared with the lookup of this context.
+     */
+    public SearchLookup newLookup() {
+        return new SearchLookup(mapperService(), fieldData(), request.types());
+    }
+
+    /**
+     * Allows to fetch the hits concurrently, partitioned into up to <tt>maxSlices</tt> slices of hits, the
+     * slices being executed on the provided executor.
+     */
+    public void concurrentFetch(Executor executor, int maxSlices) {
+        this.fetchExecutor = executor;
+        this.fetchSlices = maxSlices;
+    }
+
+    @Nullable
+    public Executor fetchExecutor() {
+        return fetchExecutor;
+    }
+
+    public int fetchSlices() {
+        return fetchSlices;
+    }
+
     public DfsSearchResult dfsResult() {
         return dfsResult;
     }
@@ -611,6 +740,16 @@ public class SearchContext implements Releasable {
         this.rewrites.add(rewrite);
     }
 
+    /**
+     * Registers a resource to release along with the context, whether the request completed or failed.
+     */
+    public void addReleasable(Releasable releasable) {
+        if (this.releasables == null) {
+            this.releasables = new ArrayList<Releasable>();
+        }
+        this.releasables.add(releasable);
+    }
+
     public List<Rewrite> rewrites() {
         return this.rewrites;
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.internal;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -71,6 +72,8 @@ public class ShardSearchRequest extends TransportRequest {
 
     private long nowInMillis;
 
+    private int speculativeFetchSize;
+
     public ShardSearchRequest() {
     }
 
@@ -163,6 +166,19 @@ public class ShardSearchRequest extends TransportRequest {
         return types;
     }
 
+    /**
+     * The number of top hits the shard should fetch together with the query phase, so that the
+     * fetch phase round trip can be skipped for this shard. <tt>0</tt> (the default) disables it.
+     */
+    public int speculativeFetchSize() {
+        return speculativeFetchSize;
+    }
+
+    public ShardSearchRequest speculativeFetchSize(int speculativeFetchSize) {
+        this.speculativeFetchSize = speculativeFetchSize;
+        return this;
+    }
+
     public ShardSearchRequest types(String[] types) {
         this.types = types;
         return this;
@@ -185,6 +201,9 @@ public class ShardSearchRequest extends TransportRequest {
         types = in.readStringArray();
         filteringAliases = in.readStringArray();
         nowInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            speculativeFetchSize = in.readVInt();
+        }
     }
 
     @Override
@@ -205,5 +224,8 @@ public class ShardSearchRequest extends TransportRequest {
         out.writeStringArray(types);
         out.writeStringArrayNullable(filteringAliases);
         out.writeVLong(nowInMillis);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeVInt(speculativeFetchSize);
+        }
     }
 }
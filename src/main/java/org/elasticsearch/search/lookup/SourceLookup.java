@@ -28,6 +28,7 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.fieldvisitor.JustSourceFieldsVisitor;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -59,9 +60,7 @@ public class SourceLookup implements Map {
             return source;
         }
         try {
-            JustSourceFieldsVisitor sourceFieldVisitor = new JustSourceFieldsVisitor();
-            reader.document(docId, sourceFieldVisitor);
-            BytesReference source = sourceFieldVisitor.source();
+            BytesReference source = loadSourceAsBytes();
             if (source == null) {
                 this.source = ImmutableMap.of();
             } else {
@@ -73,6 +72,15 @@ public class SourceLookup implements Map {
         return this.source;
     }
 
+    private BytesReference loadSourceAsBytes() throws IOException {
+        if (sourceAsBytes == null) {
+            JustSourceFieldsVisitor sourceFieldVisitor = new JustSourceFieldsVisitor();
+            reader.document(docId, sourceFieldVisitor);
+            sourceAsBytes = sourceFieldVisitor.source();
+        }
+        return sourceAsBytes;
+    }
+
     public static Map<String, Object> sourceAsMap(BytesReference source) throws ElasticSearchParseException {
         return XContentHelper.convertToMap(source, false).v2();
     }
@@ -117,7 +125,19 @@ public class SourceLookup implements Map {
     }
 
     public Object filter(String[] includes, String[] excludes) {
-        return XContentMapValues.filter(loadSourceIfNeeded(), includes, excludes);
+        if (source != null) {
+            return XContentMapValues.filter(source, includes, excludes);
+        }
+        // filter the source bytes directly, so only the matching fields are converted to a map
+        try {
+            BytesReference source = loadSourceAsBytes();
+            if (source == null) {
+                return XContentMapValues.filter(loadSourceIfNeeded(), includes, excludes);
+            }
+            return sourceAsMap(XContentHelper.filter(source, includes, excludes));
+        } catch (IOException e) {
+            throw new ElasticSearchParseException("failed to filter source", e);
+        }
     }
 
     public Object extractValue(String path) {
@@ -21,19 +21,23 @@ package org.elasticsearch.search.query;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.TotalHitCountCollector;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.merge.policy.IndexSort;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.facet.FacetPhase;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.rescore.RescorePhase;
+import org.elasticsearch.search.sort.SearchAfterParseElement;
 import org.elasticsearch.search.sort.SortParseElement;
 import org.elasticsearch.search.sort.TrackScoresParseElement;
+import org.elasticsearch.search.sort.TrackTotalHitsParseElement;
 import org.elasticsearch.search.suggest.SuggestPhase;
 
 import java.util.List;
@@ -70,6 +74,10 @@ public class QueryPhase implements SearchPhase {
                 .put("sort", new SortParseElement())
                 .put("trackScores", new TrackScoresParseElement())
                 .put("track_scores", new TrackScoresParseElement())
+                .put("trackTotalHits", new TrackTotalHitsParseElement())
+                .put("track_total_hits", new TrackTotalHitsParseElement())
+                .put("searchAfter", new SearchAfterParseElement())
+                .put("search_after", new SearchAfterParseElement())
                 .put("min_score", new MinScoreParseElement())
                 .put("minScore", new MinScoreParseElement())
                 .put("timeout", new TimeoutParseElement())
@@ -82,11 +90,15 @@ public class QueryPhase implements SearchPhase {
     @Override
     public void preProcess(SearchContext context) {
         context.preProcess();
+        if (context.searchAfter() != null) {
+            context.searchAfter(SearchAfterParseElement.buildFieldDoc(context, context.searchAfter().fields));
+        }
         facetPhase.preProcess(context);
     }
 
     public void execute(SearchContext searchContext) throws QueryPhaseExecutionException {
         searchContext.queryResult().searchTimedOut(false);
+        searchContext.queryResult().timeoutInMillis(searchContext.timeoutInMillis());
 
         List<SearchContext.Rewrite> rewrites = searchContext.rewrites();
         if (rewrites != null) {
@@ -118,12 +130,17 @@ public class QueryPhase implements SearchPhase {
             }
 
             if (searchContext.searchType() == SearchType.COUNT) {
-                TotalHitCountCollector collector = new TotalHitCountCollector();
-                searchContext.searcher().search(query, collector);
-                topDocs = new TopDocs(collector.getTotalHits(), Lucene.EMPTY_SCORE_DOCS, 0);
+                topDocs = new TopDocs(searchContext.searcher().count(query), Lucene.EMPTY_SCORE_DOCS, 0);
             } else if (searchContext.searchType() == SearchType.SCAN) {
                 topDocs = searchContext.scanContext().execute(searchContext);
+            } else if (searchContext.searchAfter() != null) {
+                // only collect the hits that sort after the search after values, so each page costs the same
+                topDocs = searchContext.searcher().searchAfter(searchContext.searchAfter(), query, null, numDocs, searchContext.sort(),
+                        searchContext.trackScores(), searchContext.trackScores());
             } else if (searchContext.sort() != null) {
+                if (!searchContext.trackTotalHits() && sortedLikeIndex(searchContext)) {
+                    searchContext.searcher().terminateSortedSegmentsAfter(numDocs);
+                }
                 topDocs = searchContext.searcher().search(query, null, numDocs, searchContext.sort(),
                         searchContext.trackScores(), searchContext.trackScores());
             } else {
@@ -145,4 +162,23 @@ public class QueryPhase implements SearchPhase {
         suggestPhase.execute(searchContext);
         facetPhase.execute(searchContext);
     }
+
+    /**
+     * Returns <tt>true</tt> if the search is sorted on the field the index is sorted on, in the same order.
+     */
+    private static boolean sortedLikeIndex(SearchContext searchContext) {
+        IndexSort indexSort = searchContext.indexSort();
+        if (indexSort == null) {
+            return false;
+        }
+        SortField[] sortFields = searchContext.sort().getSort();
+        if (sortFields.length != 1) {
+            return false;
+        }
+        FieldMapper mapper = searchContext.smartNameFieldMapper(indexSort.field());
+        if (mapper == null || !mapper.hasDocValues()) {
+            return false;
+        }
+        return mapper.names().indexName().equals(sortFields[0].getField()) && sortFields[0].getReverse() == indexSort.reverse();
+    }
 }
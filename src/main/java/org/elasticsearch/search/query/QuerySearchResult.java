@@ -20,11 +20,14 @@
 package org.elasticsearch.search.query;
 
 import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.facet.Facets;
 import org.elasticsearch.search.facet.InternalFacets;
+import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.transport.TransportResponse;
 
@@ -32,6 +35,7 @@ import java.io.IOException;
 
 import static org.elasticsearch.common.lucene.Lucene.readTopDocs;
 import static org.elasticsearch.common.lucene.Lucene.writeTopDocs;
+import static org.elasticsearch.search.fetch.FetchSearchResult.readFetchSearchResult;
 
 /**
  *
@@ -46,6 +50,8 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     private InternalFacets facets;
     private Suggest suggest;
     private boolean searchTimedOut;
+    private long timeoutInMillis = -1;
+    private FetchSearchResult speculativeFetchResult;
 
     public QuerySearchResult() {
 
@@ -87,6 +93,18 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
         return searchTimedOut;
     }
 
+    /**
+     * The timeout of the request, so the node reducing the shard results can keep to it as well, or <tt>-1</tt>
+     * if there is no timeout.
+     */
+    public long timeoutInMillis() {
+        return timeoutInMillis;
+    }
+
+    public void timeoutInMillis(long timeoutInMillis) {
+        this.timeoutInMillis = timeoutInMillis;
+    }
+
     public TopDocs topDocs() {
         return topDocs;
     }
@@ -111,6 +129,18 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
         this.suggest = suggest;
     }
 
+    /**
+     * The hits fetched by the shard for its top docs together with the query phase, if it was asked to.
+     */
+    @Nullable
+    public FetchSearchResult speculativeFetchResult() {
+        return speculativeFetchResult;
+    }
+
+    public void speculativeFetchResult(FetchSearchResult speculativeFetchResult) {
+        this.speculativeFetchResult = speculativeFetchResult;
+    }
+
     public int from() {
         return from;
     }
@@ -150,6 +180,12 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest = Suggest.readSuggest(Suggest.Fields.SUGGEST, in);
         }
         searchTimedOut = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (in.readBoolean()) {
+                speculativeFetchResult = readFetchSearchResult(in);
+            }
+            timeoutInMillis = in.readLong();
+        }
     }
 
     @Override
@@ -173,5 +209,14 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest.writeTo(out);
         }
         out.writeBoolean(searchTimedOut);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            if (speculativeFetchResult == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                speculativeFetchResult.writeTo(out);
+            }
+            out.writeLong(timeoutInMillis);
+        }
     }
 }
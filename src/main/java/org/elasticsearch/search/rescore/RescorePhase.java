@@ -54,6 +54,11 @@ public class RescorePhase extends AbstractComponent implements SearchPhase {
 
     @Override
     public void execute(SearchContext context) throws ElasticSearchException {
+        if (context.timeBudgetExceeded()) {
+            // keep the order of the main query rather than going over the timeout
+            context.queryResult().searchTimedOut(true);
+            return;
+        }
         final RescoreSearchContext ctx = context.rescore();
         final Rescorer rescorer = ctx.rescorer();
         try {
@@ -0,0 +1,132 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.sort;
+
+import org.apache.lucene.search.FieldComparatorSource;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the sort values of the hit to search after. The values are only converted to the types of the sort
+ * fields by {@link #buildFieldDoc(SearchContext, Object[])}, once the sort has been parsed.
+ */
+public class SearchAfterParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        List<Object> values = new ArrayList<Object>();
+        XContentParser.Token token = parser.currentToken();
+        if (token == XContentParser.Token.START_ARRAY) {
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                values.add(parseValue(parser, context, token));
+            }
+        } else {
+            values.add(parseValue(parser, context, token));
+        }
+        context.searchAfter(new FieldDoc(Integer.MAX_VALUE, Float.NaN, values.toArray()));
+    }
+
+    private Object parseValue(XContentParser parser, SearchContext context, XContentParser.Token token) throws Exception {
+        if (token == XContentParser.Token.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isValue()) {
+            throw new SearchParseException(context, "search_after values must be values, got [" + token + "]");
+        }
+        return parser.objectText();
+    }
+
+    /**
+     * Converts the parsed search after values to the types of the sort fields of the context. The doc of
+     * the returned field doc is {@link Integer#MAX_VALUE} so that docs with the same sort values as the
+     * values to search after are skipped, since doc ids can't be compared across shards.
+     */
+    public static FieldDoc buildFieldDoc(SearchContext context, Object[] values) {
+        Sort sort = context.sort();
+        if (sort == null) {
+            throw new SearchParseException(context, "search_after requires a sort");
+        }
+        if (context.scroll() != null) {
+            throw new SearchParseException(context, "search_after can't be used with scroll");
+        }
+        if (context.from() > 0) {
+            throw new SearchParseException(context, "search_after requires from to be 0, got [" + context.from() + "]");
+        }
+        SortField[] sortFields = sort.getSort();
+        if (sortFields.length != values.length) {
+            throw new SearchParseException(context, "search_after has [" + values.length + "] values, but the sort has [" + sortFields.length + "] fields");
+        }
+        Object[] fields = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            fields[i] = convertValue(context, sortFields[i], values[i]);
+        }
+        return new FieldDoc(Integer.MAX_VALUE, Float.NaN, fields);
+    }
+
+    private static Object convertValue(SearchContext context, SortField sortField, Object value) {
+        SortField.Type type = sortField.getType();
+        if (type == SortField.Type.CUSTOM) {
+            FieldComparatorSource comparatorSource = sortField.getComparatorSource();
+            if (!(comparatorSource instanceof IndexFieldData.XFieldComparatorSource)) {
+                throw new SearchParseException(context, "search_after is not supported for sort [" + sortField + "]");
+            }
+            type = ((IndexFieldData.XFieldComparatorSource) comparatorSource).reducedType();
+        }
+        if (type == SortField.Type.STRING || type == SortField.Type.STRING_VAL) {
+            // missing string values are null
+            return value == null ? null : new BytesRef(value.toString());
+        }
+        if (value == null) {
+            throw new SearchParseException(context, "search_after value for sort [" + sortField + "] can't be null");
+        }
+        try {
+            switch (type) {
+                case SCORE:
+                case FLOAT:
+                    return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+                case DOUBLE:
+                    return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+                case DOC:
+                case INT:
+                    return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+                case LONG:
+                    return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+                case SHORT:
+                    return value instanceof Number ? ((Number) value).shortValue() : Short.parseShort(value.toString());
+                case BYTE:
+                    return value instanceof Number ? ((Number) value).byteValue() : Byte.parseByte(value.toString());
+                default:
+                    throw new SearchParseException(context, "search_after is not supported for sort [" + sortField + "]");
+            }
+        } catch (NumberFormatException e) {
+            throw new SearchParseException(context, "search_after value [" + value + "] can't be converted for sort [" + sortField + "]", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.stress;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.test.unit.index.mapper.MapperTests;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated and the source bytes copied per document on the ingestion path of
+ * {@link SingleThreadBulkStress}, from a bulk body held in a network buffer to the parsed Lucene document, without
+ * the cluster around it.
+ */
+public class BulkParsingAllocationBenchmark {
+
+    static final int BATCH = 500;
+    static final int WARMUP_ITERATIONS = 20;
+    static final int ITERATIONS = 50;
+
+    public static void main(String[] args) throws Exception {
+        ChannelBuffer body = ChannelBuffers.dynamicBuffer(BATCH * 64);
+        for (int i = 0; i < BATCH; i++) {
+            body.writeBytes(("{\"index\":{\"_index\":\"test\",\"_type\":\"type1\",\"_id\":\"" + i + "\"}}\n").getBytes("UTF-8"));
+            body.writeBytes(("{\"field\":\"test" + i + "\",\"text\":\"the quick brown fox jumps over the lazy dog " + i + "\"}\n").getBytes("UTF-8"));
+        }
+
+        run("uncompressed _source", body, mapper(false));
+        run("compressed _source", body, mapper(true));
+    }
+
+    static DocumentMapper mapper(boolean compress) throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type1")
+                .startObject("_source").field("compress", compress).field("compress_threshold", 0).endObject()
+                .startObject("properties")
+                .startObject("field").field("type", "string").field("index", "not_analyzed").field("omit_norms", true).endObject()
+                .endObject()
+                .endObject().endObject().string();
+        return MapperTests.newParser().parse(mapping);
+    }
+
+    static void run(String name, ChannelBuffer body, DocumentMapper mapper) throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        boolean measureAllocations = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(body, mapper);
+        }
+
+        long allocated = 0;
+        long copied = 0;
+        long took = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = allocatedBytes(threadBean, measureAllocations);
+            long start = System.nanoTime();
+            copied += iteration(body, mapper);
+            took += System.nanoTime() - start;
+            allocated += allocatedBytes(threadBean, measureAllocations) - allocatedBefore;
+        }
+
+        long docs = (long) ITERATIONS * BATCH;
+        System.out.println("[" + name + "] " + ITERATIONS + " iterations of " + BATCH + " docs: "
+                + (measureAllocations ? (allocated / docs) + " bytes allocated/doc, " : "allocations not measured, ")
+                + (copied / docs) + " source bytes copied/doc, "
+                + (took / docs) + " ns/doc");
+    }
+
+    /**
+     * Parses the bulk body and its documents, and returns how many source bytes were copied out of the body.
+     */
+    static long iteration(ChannelBuffer body, DocumentMapper mapper) throws Exception {
+        BytesReference data = new ChannelBufferBytesReference(body.duplicate());
+        BulkRequest bulkRequest = new BulkRequest().add(data, false, null, null);
+        long copied = 0;
+        for (ActionRequest request : bulkRequest.requests()) {
+            IndexRequest indexRequest = (IndexRequest) request;
+            BytesReference source = indexRequest.source();
+            if (!source.hasArray() || source.array() != body.array()) {
+                copied += source.length();
+            }
+            ParsedDocument doc = mapper.parse(SourceToParse.source(source).type(indexRequest.type()).id(indexRequest.id()));
+            if (doc.source() != source && doc.source().array() != body.array()) {
+                // the stored _source was rewritten, compressed or not
+                copied += doc.source().length();
+            }
+            doc.release();
+        }
+        return copied;
+    }
+
+    static long allocatedBytes(ThreadMXBean threadBean, boolean measureAllocations) {
+        if (!measureAllocations) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.document;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemsListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.client.Requests.indexRequest;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class BulkPipelineTests extends AbstractNodesTests {
+
+    @BeforeClass
+    public void startNodes() {
+        startNode("node1", settingsBuilder()
+                .put("action.bulk.max_in_flight_shard_requests", 1)
+                .put("action.bulk.shard_batch_size", 3));
+        // items of larger shard requests are executed on several threads
+        startNode("node2", settingsBuilder()
+                .put("action.bulk.shard_parallelism", 4)
+                .put("action.bulk.shard_parallel_min_items", 2));
+        client("node1").admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 3).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        // the primary of test2 is on node2, which executes its items in lanes
+        client("node1").admin().indices().prepareCreate("test2")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0)
+                        .put("index.routing.allocation.include._name", "node2"))
+                .execute().actionGet();
+        client("node1").admin().cluster().prepareHealth().setWaitForGreenStatus().setWaitForNodes("2").setWaitForRelocatingShards(0).execute().actionGet();
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test
+    public void testPipelinedShardRequests() throws Exception {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < 20; i++) {
+            bulkRequest.add(indexRequest("test").type("type1").id(Integer.toString(i)).source("field", i));
+        }
+        // the items of a shard are sent in several shard requests, they must still be executed in order
+        for (int i = 0; i < 5; i++) {
+            bulkRequest.add(client("node1").prepareUpdate("test", "type1", "0").setScript("ctx._source.field += 1").request());
+        }
+        bulkRequest.listenerThreaded(false);
+
+        final AtomicInteger partialItems = new AtomicInteger();
+        final AtomicInteger partialCalls = new AtomicInteger();
+        final AtomicReference<BulkResponse> response = new AtomicReference<BulkResponse>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        client("node1").bulk(bulkRequest, new BulkItemsListener() {
+            @Override
+            public void onItems(BulkItemResponse[] items) {
+                partialCalls.incrementAndGet();
+                partialItems.addAndGet(items.length);
+            }
+
+            @Override
+            public void onResponse(BulkResponse bulkResponse) {
+                response.set(bulkResponse);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                latch.countDown();
+            }
+        });
+        assertThat(latch.await(30, TimeUnit.SECONDS), equalTo(true));
+
+        BulkResponse bulkResponse = response.get();
+        assertThat(bulkResponse, notNullValue());
+        assertThat(bulkResponse.hasFailures(), equalTo(false));
+        assertThat(bulkResponse.getItems().length, equalTo(25));
+        for (int i = 0; i < 20; i++) {
+            assertThat(bulkResponse.getItems()[i].getItemId(), equalTo(i));
+            assertThat(((IndexResponse) bulkResponse.getItems()[i].getResponse()).getId(), equalTo(Integer.toString(i)));
+        }
+        for (int i = 20; i < 25; i++) {
+            assertThat(((UpdateResponse) bulkResponse.getItems()[i].getResponse()).getVersion(), equalTo((long) i - 18));
+        }
+        assertThat(partialItems.get(), equalTo(25));
+        assertThat(partialCalls.get(), greaterThanOrEqualTo(9));
+    }
+
+    @Test
+    public void testParallelShardItems() throws Exception {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < 100; i++) {
+            bulkRequest.add(indexRequest("test2").type("type1").id(Integer.toString(i)).source("field", i));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                bulkRequest.add(client("node2").prepareUpdate("test2", "type1", Integer.toString(i)).setScript("ctx._source.field += 1").request());
+            }
+        }
+        for (int i = 0; i < 100; i += 2) {
+            bulkRequest.add(client("node2").prepareDelete("test2", "type1", Integer.toString(i)).request());
+        }
+        BulkResponse bulkResponse = client("node2").bulk(bulkRequest).actionGet();
+        assertThat(bulkResponse.hasFailures(), equalTo(false));
+        assertThat(bulkResponse.getItems().length, equalTo(450));
+        // the items of a document are executed in order, whichever thread executes them
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                UpdateResponse updateResponse = bulkResponse.getItems()[100 + round * 100 + i].getResponse();
+                assertThat(updateResponse.getVersion(), equalTo((long) round + 2));
+            }
+        }
+
+        client("node2").admin().indices().prepareRefresh("test2").execute().actionGet();
+        assertThat(client("node2").prepareCount("test2").execute().actionGet().getCount(), equalTo(50l));
+        for (int i = 1; i < 100; i += 2) {
+            GetResponse getResponse = client("node2").prepareGet("test2", "type1", Integer.toString(i)).setPreference("_primary").execute().actionGet();
+            assertThat(getResponse.getVersion(), equalTo(4l));
+            assertThat(((Number) getResponse.getSourceAsMap().get("field")).intValue(), equalTo(i + 3));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.integration.document;
+
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.client.Requests.indexRequest;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class BulkProcessorRejectionTests extends AbstractNodesTests {
+
+    @BeforeClass
+    public void startNodes() {
+        // a single bulk thread with a single queue slot rejects most of the concurrent shard requests
+        startNode("node1", settingsBuilder()
+                .put("threadpool.bulk.size", 1)
+                .put("threadpool.bulk.queue_size", 1));
+        client("node1").admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 3).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        client("node1").admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test
+    public void testRejectedActionsAreRetried() throws Exception {
+        final AtomicInteger items = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final CopyOnWriteArrayList<BulkProcessor.AdaptiveStats> stats = new CopyOnWriteArrayList<BulkProcessor.AdaptiveStats>();
+        BulkProcessor processor = BulkProcessor.builder(client("node1"), new BulkProcessor.AdaptiveListener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                items.addAndGet(response.getItems().length);
+                if (response.hasFailures()) {
+                    failures.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                failures.incrementAndGet();
+            }
+
+            @Override
+            public void afterAdapt(long executionId, BulkProcessor.AdaptiveStats adaptiveStats) {
+                stats.add(adaptiveStats);
+            }
+        }).setAdaptive(true)
+                .setConcurrentRequests(4)
+                .setMaxConcurrentRequests(4)
+                .setBulkActions(100)
+                .setBulkActionsRange(10, 100)
+                .setBulkSize(new ByteSizeValue(-1))
+                .setTargetLatency(TimeValue.timeValueSeconds(10))
+                .setBackoff(TimeValue.timeValueMillis(10), 10)
+                .build();
+
+        for (int i = 0; i < 1000; i++) {
+            processor.add(indexRequest("test").type("type1").id(Integer.toString(i)).source("field", i));
+        }
+        processor.close();
+
+        long deadline = System.currentTimeMillis() + 60000;
+        while (items.get() < 1000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(items.get(), equalTo(1000));
+        // the rejected actions were retried until they went through
+        assertThat(failures.get(), equalTo(0));
+        BulkProcessor.AdaptiveStats last = stats.get(stats.size() - 1);
+        assertThat(last.getRetries(), greaterThan(0l));
+        // and the rejections made the bulks smaller and fewer
+        int minBulkActions = Integer.MAX_VALUE;
+        int minConcurrentRequests = Integer.MAX_VALUE;
+        for (BulkProcessor.AdaptiveStats adaptiveStats : stats) {
+            minBulkActions = Math.min(minBulkActions, adaptiveStats.getBulkActions());
+            minConcurrentRequests = Math.min(minConcurrentRequests, adaptiveStats.getConcurrentRequests());
+        }
+        assertThat(minBulkActions, lessThan(100));
+        assertThat(minConcurrentRequests, lessThan(4));
+
+        client("node1").admin().indices().prepareRefresh("test").execute().actionGet();
+        assertThat(client("node1").prepareCount("test").execute().actionGet().getCount(), equalTo(1000l));
+    }
+}
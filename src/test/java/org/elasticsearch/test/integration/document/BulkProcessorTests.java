@@ -0,0 +1,105 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.document;
+
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.integration.AbstractSharedClusterTest;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.client.Requests.indexRequest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class BulkProcessorTests extends AbstractSharedClusterTest {
+
+    @Test
+    public void testAdaptiveBulkProcessor() throws Exception {
+        createIndex("test");
+        ensureGreen();
+
+        final AtomicInteger items = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final CopyOnWriteArrayList<BulkProcessor.AdaptiveStats> stats = new CopyOnWriteArrayList<BulkProcessor.AdaptiveStats>();
+        BulkProcessor processor = BulkProcessor.builder(client(), new BulkProcessor.AdaptiveListener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                assertThat(response.getItems().length, equalTo(request.numberOfActions()));
+                items.addAndGet(response.getItems().length);
+                if (response.hasFailures()) {
+                    failures.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                failures.incrementAndGet();
+            }
+
+            @Override
+            public void afterAdapt(long executionId, BulkProcessor.AdaptiveStats adaptiveStats) {
+                stats.add(adaptiveStats);
+            }
+        }).setAdaptive(true)
+                .setBulkActions(10)
+                .setBulkActionsRange(10, 100)
+                .setBulkSize(new ByteSizeValue(-1))
+                .setTargetLatency(TimeValue.timeValueSeconds(10))
+                .build();
+
+        for (int i = 0; i < 1000; i++) {
+            processor.add(indexRequest("test").type("type1").id(Integer.toString(i)).source("field", i));
+        }
+        processor.close();
+
+        awaitBusy(items, 1000);
+        assertThat(failures.get(), equalTo(0));
+        assertThat(stats.isEmpty(), equalTo(false));
+        // fast bulks with no rejections grow up to the maximum size
+        BulkProcessor.AdaptiveStats last = stats.get(stats.size() - 1);
+        assertThat(last.getBulkActions(), greaterThan(10));
+        assertThat(last.getBulkActions(), lessThanOrEqualTo(100));
+        assertThat(last.getRejectionRate(), equalTo(0.0));
+        assertThat(last.getRetries(), equalTo(0l));
+
+        client().admin().indices().prepareRefresh("test").execute().actionGet();
+        assertThat(client().prepareCount("test").execute().actionGet().getCount(), equalTo(1000l));
+    }
+
+    private static void awaitBusy(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(counter.get(), equalTo(expected));
+    }
+}
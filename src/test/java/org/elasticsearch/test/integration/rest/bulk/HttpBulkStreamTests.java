@@ -0,0 +1,129 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.rest.bulk;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import static org.elasticsearch.client.Requests.clusterHealthRequest;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class HttpBulkStreamTests extends AbstractNodesTests {
+
+    @BeforeClass
+    public void startNodes() {
+        startNode("node1", settingsBuilder()
+                .put("http.bulk_stream.enabled", true)
+                .put("http.bulk_stream.batch_size", 10)
+                .put("http.bulk_stream.max_in_flight", 1)
+                .put("http.max_chunk_size", "256b")
+                .put("http.max_content_length", "2kb"));
+        client("node1").admin().indices().prepareCreate("test").execute().actionGet();
+        client("node1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test
+    public void testStreamInBatches() throws Exception {
+        URL url = streamUrl();
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(128);
+        OutputStream out = connection.getOutputStream();
+        for (int i = 0; i < 95; i++) {
+            out.write(("{\"index\":{\"_id\":\"" + i + "\"}}\n{\"field\":\"value" + i + "\"}\n").getBytes(Charsets.UTF_8));
+        }
+        for (int i = 0; i < 5; i++) {
+            out.write(("{\"delete\":{\"_id\":\"" + i + "\"}}\n").getBytes(Charsets.UTF_8));
+        }
+        out.close();
+
+        assertThat(connection.getResponseCode(), equalTo(200));
+        String body = Streams.copyToString(new InputStreamReader(connection.getInputStream(), Charsets.UTF_8));
+        connection.disconnect();
+
+        String[] lines = body.trim().split("\n");
+        assertThat(lines.length, equalTo(11));
+        for (int i = 0; i < 10; i++) {
+            assertThat(lines[i], containsString("\"batch\":" + (i + 1) + ","));
+            assertThat(lines[i], containsString("\"items\":10"));
+            assertThat(lines[i], containsString("\"errors\":false"));
+        }
+        assertThat(lines[10], containsString("\"batches\":10"));
+        assertThat(lines[10], containsString("\"items\":100"));
+        assertThat(lines[10], containsString("\"errors\":false"));
+
+        client("node1").admin().indices().prepareRefresh("test").execute().actionGet();
+        assertThat(client("node1").prepareCount("test").execute().actionGet().getCount(), equalTo(90l));
+    }
+
+    @Test
+    public void testActionLargerThanMaxContentLength() throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) streamUrl().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(128);
+        OutputStream out = connection.getOutputStream();
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            value.append('a');
+        }
+        out.write(("{\"index\":{\"_id\":\"large\"}}\n{\"field\":\"" + value + "\"}\n").getBytes(Charsets.UTF_8));
+        out.close();
+
+        assertThat(connection.getResponseCode(), equalTo(200));
+        String body = Streams.copyToString(new InputStreamReader(connection.getInputStream(), Charsets.UTF_8));
+        connection.disconnect();
+
+        // the stream is aborted with an error line instead of the summary
+        String[] lines = body.trim().split("\n");
+        assertThat(lines.length, equalTo(1));
+        assertThat(lines[0], containsString("\"error\":\"bulk stream action is larger than [2kb]\""));
+    }
+
+    private URL streamUrl() throws Exception {
+        HttpServerTransport httpServerTransport = ((InternalNode) node("node1")).injector().getInstance(HttpServerTransport.class);
+        InetSocketAddress address = ((InetSocketTransportAddress) httpServerTransport.boundAddress().publishAddress()).address();
+        return new URL("http", address.getHostName(), address.getPort(), "/test/type1/_bulk/stream?refresh=true");
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.integration.search.concurrent;
+
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.FetchPhase;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.integration.AbstractSharedClusterTest;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ */
+public class ConcurrentFetchTests extends AbstractSharedClusterTest {
+
+    @Test
+    public void testConcurrentFetchMatchesSequential() throws Exception {
+        prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(FetchPhase.INDEX_SEARCH_FETCH_CONCURRENT_SLICES, 4))
+                .execute().actionGet();
+        ensureGreen();
+
+        // several refreshes, so the hits are spread over several segments
+        int id = 0;
+        for (int segment = 0; segment < 4; segment++) {
+            for (int i = 0; i < 25; i++) {
+                client().prepareIndex("test", "type1", Integer.toString(id)).setSource("num", id, "text", "quick brown fox " + id).execute().actionGet();
+                id++;
+            }
+            refresh();
+        }
+
+        SearchResponse[] responses = new SearchResponse[2];
+        for (int run = 0; run < 2; run++) {
+            if (run == 1) {
+                client().admin().indices().prepareUpdateSettings("test")
+                        .setSettings(ImmutableSettings.settingsBuilder().put(FetchPhase.INDEX_SEARCH_FETCH_CONCURRENT_SLICES, 1))
+                        .execute().actionGet();
+            }
+            responses[run] = client().prepareSearch("test").setQuery(matchQuery("text", "fox")).addSort("num", SortOrder.DESC)
+                    .setSize(60).setVersion(true).addField("_source").addField("num").addPartialField("partial", "text", null)
+                    .addHighlightedField("text").execute().actionGet();
+        }
+
+        SearchResponse concurrent = responses[0];
+        SearchResponse sequential = responses[1];
+        assertThat(concurrent.getHits().hits().length, equalTo(60));
+        assertThat(sequential.getHits().hits().length, equalTo(60));
+        for (int i = 0; i < 60; i++) {
+            SearchHit expected = sequential.getHits().getAt(i);
+            SearchHit actual = concurrent.getHits().getAt(i);
+            assertThat(actual.id(), equalTo(Integer.toString(99 - i)));
+            assertThat(actual.id(), equalTo(expected.id()));
+            assertThat(actual.version(), equalTo(expected.version()));
+            assertThat(actual.sourceAsString(), equalTo(expected.sourceAsString()));
+            assertThat(actual.field("num").value(), equalTo(expected.field("num").value()));
+            assertThat(actual.field("partial").value(), equalTo(expected.field("partial").value()));
+            assertThat(actual.highlightFields().get("text").fragments()[0].string(), equalTo(expected.highlightFields().get("text").fragments()[0].string()));
+        }
+
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("test").setSearch(true).execute().actionGet();
+        assertThat(stats.getTotal().getSearch().getFetchPhasesStats(), notNullValue());
+        assertThat(stats.getTotal().getSearch().getFetchPhasesStats().get("highlight"), notNullValue());
+        assertThat(stats.getTotal().getSearch().getFetchPhasesStats().get("highlight").getCount(), equalTo(2l));
+    }
+}
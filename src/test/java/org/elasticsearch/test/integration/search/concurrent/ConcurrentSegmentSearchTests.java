@@ -0,0 +1,104 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.integration.search.concurrent;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.facet.FacetBuilder;
+import org.elasticsearch.search.facet.FacetBuilders;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.integration.AbstractSharedClusterTest;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class ConcurrentSegmentSearchTests extends AbstractSharedClusterTest {
+
+    @Test
+    public void testConcurrentMatchesSequential() throws Exception {
+        prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(ContextIndexSearcher.INDEX_SEARCH_CONCURRENT_SLICES, 4))
+                .execute().actionGet();
+        ensureGreen();
+
+        // several refreshes, so the shard has several segments
+        int id = 0;
+        for (int segment = 0; segment < 6; segment++) {
+            for (int i = 0; i < 20; i++) {
+                client().prepareIndex("test", "type1", Integer.toString(id)).setSource("num", id, "tag", "tag" + (id % 3), "text", "value " + (id % 5)).execute().actionGet();
+                id++;
+            }
+            refresh();
+        }
+
+        SearchResponse[] responses = new SearchResponse[2];
+        for (int run = 0; run < 2; run++) {
+            if (run == 1) {
+                client().admin().indices().prepareUpdateSettings("test")
+                        .setSettings(ImmutableSettings.settingsBuilder().put(ContextIndexSearcher.INDEX_SEARCH_CONCURRENT_SLICES, 1))
+                        .execute().actionGet();
+            }
+
+            SearchResponse count = client().prepareSearch("test").setSearchType(SearchType.COUNT)
+                    .setQuery(termQuery("tag", "tag1")).execute().actionGet();
+            assertThat(count.getHits().totalHits(), equalTo(40l));
+
+            SearchResponse sorted = client().prepareSearch("test").setQuery(rangeQuery("num").gte(10)).addSort("num", SortOrder.DESC)
+                    .setSize(15).execute().actionGet();
+            assertThat(sorted.getHits().totalHits(), equalTo(110l));
+            assertThat(sorted.getHits().hits().length, equalTo(15));
+            for (int i = 0; i < 15; i++) {
+                assertThat(sorted.getHits().getAt(i).id(), equalTo(Integer.toString(119 - i)));
+            }
+
+            SearchResponse facets = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(0)
+                    // post mode facets are computed on the doc sets collected by all the slices
+                    .addFacet(FacetBuilders.termsFacet("tags").field("tag").mode(FacetBuilder.Mode.POST))
+                    .execute().actionGet();
+            assertThat(facets.getHits().totalHits(), equalTo(120l));
+            TermsFacet tags = facets.getFacets().facet("tags");
+            assertThat(tags.getEntries().size(), equalTo(3));
+            assertThat(tags.getEntries().get(0).getCount(), equalTo(40));
+
+            responses[run] = client().prepareSearch("test").setQuery(matchQuery("text", "value 3")).setSize(30).execute().actionGet();
+        }
+
+        SearchResponse concurrent = responses[0];
+        SearchResponse sequential = responses[1];
+        assertThat(concurrent.getHits().totalHits(), equalTo(sequential.getHits().totalHits()));
+        assertThat(concurrent.getHits().maxScore(), equalTo(sequential.getHits().maxScore()));
+        assertThat(concurrent.getHits().hits().length, equalTo(sequential.getHits().hits().length));
+        for (int i = 0; i < sequential.getHits().hits().length; i++) {
+            SearchHit expected = sequential.getHits().getAt(i);
+            SearchHit actual = concurrent.getHits().getAt(i);
+            assertThat(actual.id(), equalTo(expected.id()));
+            assertThat(actual.score(), equalTo(expected.score()));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.integration.search.searchafter;
+
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.integration.AbstractSharedClusterTest;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class SearchAfterTests extends AbstractSharedClusterTest {
+
+    @Test
+    public void testPaginateWithSearchAfter() throws Exception {
+        prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 3)
+                .put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        ensureGreen();
+
+        int numDocs = 100;
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type1", Integer.toString(i)).setSource("group", "group" + (i % 4), "num", i).execute().actionGet();
+        }
+        refresh();
+
+        SearchResponse all = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(numDocs)
+                .addSort("group", SortOrder.DESC).addSort("num", SortOrder.ASC).execute().actionGet();
+        assertThat(all.getHits().hits().length, equalTo(numDocs));
+
+        int pageSize = 7;
+        int seen = 0;
+        Object[] searchAfter = null;
+        while (true) {
+            SearchResponse page = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(pageSize)
+                    .addSort("group", SortOrder.DESC).addSort("num", SortOrder.ASC)
+                    .setSearchAfter(searchAfter).execute().actionGet();
+            assertThat(page.getHits().totalHits(), equalTo((long) numDocs));
+            SearchHit[] hits = page.getHits().hits();
+            if (hits.length == 0) {
+                break;
+            }
+            assertThat(hits.length, equalTo(Math.min(pageSize, numDocs - seen)));
+            for (SearchHit hit : hits) {
+                assertThat(hit.id(), equalTo(all.getHits().getAt(seen++).id()));
+            }
+            searchAfter = hits[hits.length - 1].sortValues();
+        }
+        assertThat(seen, equalTo(numDocs));
+    }
+
+    @Test
+    public void testSearchAfterRequiresMatchingSort() throws Exception {
+        createIndex("test");
+        client().prepareIndex("test", "type1", "1").setSource("num", 1).setRefresh(true).execute().actionGet();
+
+        try {
+            client().prepareSearch("test").setQuery(matchAllQuery()).setSearchAfter(1).execute().actionGet();
+            assert false : "search_after without a sort should fail";
+        } catch (SearchPhaseExecutionException e) {
+            // expected
+        }
+
+        try {
+            client().prepareSearch("test").setQuery(matchAllQuery()).addSort("num", SortOrder.ASC)
+                    .setSearchAfter(1, "a").execute().actionGet();
+            assert false : "search_after with more values than sort fields should fail";
+        } catch (SearchPhaseExecutionException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.integration.search.sort;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.merge.policy.IndexSort;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.integration.AbstractSharedClusterTest;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class SortedIndexTests extends AbstractSharedClusterTest {
+
+    @Test
+    public void testEarlyTerminationOnSortedSegments() throws Exception {
+        prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(IndexSort.INDEX_SORT_FIELD, "timestamp")
+                .put(IndexSort.INDEX_SORT_ORDER, "desc"))
+                .addMapping("type1", jsonBuilder().startObject().startObject("type1").startObject("properties")
+                        .startObject("timestamp").field("type", "long").startObject("fielddata").field("format", "doc_values").endObject().endObject()
+                        .endObject().endObject().endObject())
+                .execute().actionGet();
+        ensureGreen();
+
+        int numDocs = 200;
+        for (int i = 0; i < numDocs; i++) {
+            // index out of order, so only the merge sorts the segment
+            int timestamp = (i * 7) % numDocs;
+            client().prepareIndex("test", "type1", Integer.toString(timestamp)).setSource("timestamp", timestamp).execute().actionGet();
+            if (i % 50 == 0) {
+                refresh();
+            }
+        }
+        client().admin().indices().prepareOptimize("test").setMaxNumSegments(1).setWaitForMerge(true).execute().actionGet();
+        refresh();
+
+        SearchResponse response = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(10)
+                .addSort("timestamp", SortOrder.DESC).setTrackTotalHits(false).execute().actionGet();
+        assertThat(response.getHits().hits().length, equalTo(10));
+        for (int i = 0; i < 10; i++) {
+            assertThat(response.getHits().getAt(i).id(), equalTo(Integer.toString(numDocs - 1 - i)));
+        }
+        // the single merged segment stopped being collected after 10 hits
+        assertThat(response.getHits().totalHits(), equalTo(10l));
+
+        response = client().prepareSearch("test").setQuery(rangeQuery("timestamp").lt(100)).setSize(5)
+                .addSort("timestamp", SortOrder.DESC).setTrackTotalHits(false).execute().actionGet();
+        assertThat(response.getHits().hits().length, equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(response.getHits().getAt(i).id(), equalTo(Integer.toString(99 - i)));
+        }
+
+        // tracking the total hits, or sorting in another order, collects all the docs
+        response = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(10)
+                .addSort("timestamp", SortOrder.DESC).execute().actionGet();
+        assertThat(response.getHits().totalHits(), equalTo((long) numDocs));
+        response = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(10)
+                .addSort("timestamp", SortOrder.ASC).setTrackTotalHits(false).execute().actionGet();
+        assertThat(response.getHits().totalHits(), equalTo((long) numDocs));
+        for (int i = 0; i < 10; i++) {
+            assertThat(response.getHits().getAt(i).id(), equalTo(Integer.toString(i)));
+        }
+    }
+
+    @Test
+    public void testNoEarlyTerminationWithMissingValues() throws Exception {
+        prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(IndexSort.INDEX_SORT_FIELD, "timestamp")
+                .put(IndexSort.INDEX_SORT_ORDER, "asc"))
+                .addMapping("type1", jsonBuilder().startObject().startObject("type1").startObject("properties")
+                        .startObject("timestamp").field("type", "long").startObject("fielddata").field("format", "doc_values").endObject().endObject()
+                        .endObject().endObject().endObject())
+                .execute().actionGet();
+        ensureGreen();
+
+        int numDocs = 100;
+        for (int i = 0; i < numDocs; i++) {
+            int timestamp = numDocs - i;
+            client().prepareIndex("test", "type1", Integer.toString(timestamp)).setSource("timestamp", timestamp).execute().actionGet();
+            if (i % 10 == 0) {
+                // the merge sorts the docs without a value as 0, first, while the search sorts them last
+                client().prepareIndex("test", "type1", "missing" + i).setSource("other", i).execute().actionGet();
+                refresh();
+            }
+        }
+        client().admin().indices().prepareOptimize("test").setMaxNumSegments(1).setWaitForMerge(true).execute().actionGet();
+        refresh();
+
+        SearchResponse response = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(5)
+                .addSort("timestamp", SortOrder.ASC).setTrackTotalHits(false).execute().actionGet();
+        assertThat(response.getHits().hits().length, equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(response.getHits().getAt(i).id(), equalTo(Integer.toString(i + 1)));
+        }
+        // the segment is not verified as sorted, so it is fully collected
+        assertThat(response.getHits().totalHits(), equalTo((long) numDocs + 10));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.integration.search.speculative;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.search.type.TransportSearchQueryThenFetchAction;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.search.stats.SearchStats;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ *
+ */
+public class SpeculativeFetchTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass
+    public void createNodes() throws Exception {
+        ImmutableSettings.Builder settings = settingsBuilder().put(TransportSearchQueryThenFetchAction.SPECULATIVE_FETCH_SIZE, 2);
+        startNode("server1", settings);
+        startNode("server2", settings);
+        client = client("server1");
+
+        client.admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 5).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        for (int i = 0; i < 50; i++) {
+            client.prepareIndex("test", "type", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("field", i)
+                    .endObject()).execute().actionGet();
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test
+    public void testSpeculativeFetch() throws Exception {
+        for (int size : new int[]{1, 3, 10, 25}) {
+            SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.QUERY_THEN_FETCH)
+                    .setQuery(matchAllQuery()).addSort("field", SortOrder.ASC).setSize(size)
+                    .execute().actionGet();
+            assertNoFailures(searchResponse);
+            assertThat(searchResponse.getHits().totalHits(), equalTo(50l));
+            assertThat(searchResponse.getHits().hits().length, equalTo(size));
+            for (int i = 0; i < size; i++) {
+                SearchHit hit = searchResponse.getHits().getAt(i);
+                assertThat(hit.id(), equalTo(Integer.toString(i)));
+                assertThat(hit.shard(), notNullValue());
+                assertThat(hit.sourceAsMap().get("field"), equalTo((Object) i));
+            }
+        }
+    }
+
+    @Test
+    public void testFetchRoundSkipped() throws Exception {
+        // the top 2 docs are always within the 2 docs each shard fetched along with the query
+        SearchStats.Stats before = searchStats();
+        SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.QUERY_THEN_FETCH)
+                .setQuery(matchAllQuery()).addSort("field", SortOrder.ASC).setSize(2)
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+        assertThat(searchResponse.getHits().getAt(0).id(), equalTo("0"));
+        assertThat(searchResponse.getHits().getAt(1).id(), equalTo("1"));
+        SearchStats.Stats after = searchStats();
+        // each shard ran its speculative fetch along with the query, and no fetch request followed
+        assertThat(after.getQueryCount() - before.getQueryCount(), equalTo(5l));
+        assertThat(after.getFetchCount() - before.getFetchCount(), equalTo(5l));
+
+        // deeper pages need more hits than a shard fetched speculatively, those shards are fetched from again
+        before = searchStats();
+        searchResponse = client.prepareSearch("test").setSearchType(SearchType.QUERY_THEN_FETCH)
+                .setQuery(matchAllQuery()).addSort("field", SortOrder.ASC).setSize(25)
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+        after = searchStats();
+        assertThat(after.getFetchCount() - before.getFetchCount(), greaterThan(5l));
+    }
+
+    private SearchStats.Stats searchStats() {
+        return client.admin().indices().prepareStats("test").clear().setSearch(true).execute().actionGet()
+                .getTotal().getSearch().getTotal();
+    }
+
+    @Test
+    public void testSpeculativeFetchWithFrom() throws Exception {
+        // the docs past from are usually not the top docs of their shard, so those shards are fetched from again
+        SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.QUERY_THEN_FETCH)
+                .setQuery(matchAllQuery()).addSort("field", SortOrder.ASC).setFrom(20).setSize(5)
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+        assertThat(searchResponse.getHits().hits().length, equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(searchResponse.getHits().getAt(i).id(), equalTo(Integer.toString(20 + i)));
+        }
+    }
+}
@@ -22,11 +22,17 @@ package org.elasticsearch.test.integration.search.timeout;
 import static org.elasticsearch.index.query.FilterBuilders.scriptFilter;
 import static org.elasticsearch.index.query.QueryBuilders.filteredQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.test.integration.AbstractSharedClusterTest;
 import org.testng.annotations.Test;
 
@@ -57,4 +63,47 @@ public class SearchTimeoutTests extends AbstractSharedClusterTest {
                 .execute().actionGet();
         assertThat(searchResponse.isTimedOut(), equalTo(true));
     }
+
+    @Test
+    public void partialResultsTest() throws Exception {
+        prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        ensureGreen();
+
+        for (int i = 0; i < 10; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", "value", "num", i).execute().actionGet();
+        }
+        refresh();
+
+        // the last doc spends the budget, so the hits collected before it are fetched without highlighting
+        SearchResponse searchResponse = client().prepareSearch("test")
+                .setSearchType(SearchType.QUERY_AND_FETCH)
+                .setTimeout("50ms")
+                .setQuery(filteredQuery(termQuery("field", "value"), scriptFilter("if (doc['num'].value == 9) { Thread.sleep(200); } return true;")))
+                .addHighlightedField("field")
+                .execute().actionGet();
+        assertThat(searchResponse.isTimedOut(), equalTo(true));
+        assertThat(searchResponse.getHits().hits().length, equalTo(9));
+        for (SearchHit hit : searchResponse.getHits()) {
+            assertThat(hit.highlightFields().isEmpty(), equalTo(true));
+        }
+
+        IndicesStatsResponse indicesStats = client().admin().indices().prepareStats("test").execute().actionGet();
+        assertThat(indicesStats.getTotal().getSearch().getTotal().getQueryTimedOutCount(), greaterThan(0l));
+        assertThat(indicesStats.getTotal().getSearch().getTotal().getFetchTimedOutCount(), greaterThan(0l));
+
+        searchResponse = client().prepareSearch("test")
+                .setSearchType(SearchType.QUERY_AND_FETCH)
+                .setTimeout("10s")
+                .setQuery(termQuery("field", "value"))
+                .addHighlightedField("field")
+                .execute().actionGet();
+        assertThat(searchResponse.isTimedOut(), equalTo(false));
+        assertThat(searchResponse.getHits().hits().length, equalTo(10));
+        for (SearchHit hit : searchResponse.getHits()) {
+            assertThat(hit.highlightFields().get("field").fragments()[0].string(), equalTo("<em>value</em>"));
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.action.bulk;
+
+import org.elasticsearch.action.bulk.BulkItemRequest;
+import org.elasticsearch.action.bulk.TransportShardBulkAction;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ */
+public class ShardBulkLanesTests {
+
+    @Test
+    public void testItemsOfADocumentShareALaneInOrder() {
+        BulkItemRequest[] items = new BulkItemRequest[300];
+        for (int i = 0; i < 100; i++) {
+            String id = Integer.toString(i);
+            items[i] = new BulkItemRequest(i, new IndexRequest("test", "type1", id));
+            items[100 + i] = new BulkItemRequest(100 + i, new UpdateRequest("test", "type1", id));
+            items[200 + i] = new BulkItemRequest(200 + i, new DeleteRequest("test", "type1", id));
+        }
+
+        int[][] lanes = TransportShardBulkAction.lanes(items, 4);
+        assertThat(lanes.length, equalTo(4));
+        int[] laneOfItem = new int[items.length];
+        int total = 0;
+        for (int lane = 0; lane < lanes.length; lane++) {
+            // the documents are spread over all the lanes
+            assertThat(lanes[lane].length, greaterThan(0));
+            for (int i = 0; i < lanes[lane].length; i++) {
+                if (i > 0) {
+                    assertThat(lanes[lane][i - 1], lessThan(lanes[lane][i]));
+                }
+                laneOfItem[lanes[lane][i]] = lane;
+            }
+            total += lanes[lane].length;
+        }
+        assertThat(total, equalTo(items.length));
+        for (int i = 0; i < 100; i++) {
+            assertThat(laneOfItem[100 + i], equalTo(laneOfItem[i]));
+            assertThat(laneOfItem[200 + i], equalTo(laneOfItem[i]));
+        }
+    }
+
+    @Test
+    public void testSingleLane() {
+        BulkItemRequest[] items = new BulkItemRequest[10];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new BulkItemRequest(i, new IndexRequest("test", "type1", Integer.toString(i)));
+        }
+        int[][] lanes = TransportShardBulkAction.lanes(items, 1);
+        assertThat(lanes.length, equalTo(1));
+        for (int i = 0; i < items.length; i++) {
+            assertThat(lanes[0][i], equalTo(i));
+        }
+    }
+}
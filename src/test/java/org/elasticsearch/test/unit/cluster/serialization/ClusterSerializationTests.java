@@ -36,6 +36,7 @@ import static org.elasticsearch.cluster.metadata.MetaData.newMetaDataBuilder;
 import static org.elasticsearch.cluster.routing.RoutingBuilders.routingTable;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
 
 /**
  *
@@ -90,6 +91,54 @@ public class ClusterSerializationTests {
         assertThat(target.prettyPrint(), equalTo(source.prettyPrint()));
     }
 
+    @Test
+    public void testClusterStateDiffSerialization() throws Exception {
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test").numberOfShards(10).numberOfReplicas(1))
+                .build();
+
+        RoutingTable routingTable = routingTable()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        DiscoveryNodes nodes = DiscoveryNodes.newNodesBuilder().put(newNode("node1")).put(newNode("node2")).put(newNode("node3")).localNodeId("node1").masterNodeId("node2").build();
+
+        ClusterState previousState = newClusterStateBuilder().nodes(nodes).metaData(metaData).routingTable(routingTable).version(1).build();
+        AllocationService strategy = new AllocationService();
+        previousState = newClusterStateBuilder().state(previousState).routingTable(strategy.reroute(previousState).routingTable()).build();
+
+        // the receiving node got the previous state in full
+        BytesStreamOutput outStream = new BytesStreamOutput();
+        ClusterState.Builder.writeTo(previousState, outStream);
+        ClusterState receivedState = ClusterState.Builder.readFrom(new BytesStreamInput(outStream.bytes().toBytes(), false), newNode("node1"));
+
+        MetaData newMetaData = newMetaDataBuilder().metaData(previousState.metaData())
+                .put(newIndexMetaDataBuilder("test2").numberOfShards(2).numberOfReplicas(0))
+                .version(previousState.metaData().version() + 1)
+                .build();
+        RoutingTable newRoutingTable = routingTable().routingTable(previousState.routingTable())
+                .addAsNew(newMetaData.index("test2"))
+                .version(previousState.routingTable().version() + 1)
+                .build();
+        ClusterState clusterState = newClusterStateBuilder().state(previousState).metaData(newMetaData).routingTable(newRoutingTable)
+                .version(previousState.version() + 1).build();
+
+        outStream = new BytesStreamOutput();
+        ClusterState.Builder.writeDiffTo(previousState, clusterState, outStream);
+        BytesStreamInput inStream = new BytesStreamInput(outStream.bytes().toBytes(), false);
+        assertThat(ClusterState.Builder.readDiffPreviousVersion(inStream), equalTo(previousState.version()));
+        ClusterState diffedState = ClusterState.Builder.readDiffFrom(inStream, receivedState, newNode("node1"));
+
+        assertThat(diffedState.version(), equalTo(clusterState.version()));
+        assertThat(diffedState.metaData().version(), equalTo(clusterState.metaData().version()));
+        assertThat(diffedState.metaData().indices().size(), equalTo(2));
+        // unchanged indices are taken from the state the diff was applied to
+        assertThat(diffedState.metaData().index("test"), sameInstance(receivedState.metaData().index("test")));
+        assertThat(diffedState.routingTable().index("test"), sameInstance(receivedState.routingTable().index("test")));
+        assertThat(diffedState.routingTable().prettyPrint(), equalTo(clusterState.routingTable().prettyPrint()));
+        assertThat(diffedState.nodes().size(), equalTo(3));
+    }
+
     private DiscoveryNode newNode(String nodeId) {
         return new DiscoveryNode(nodeId, DummyTransportAddress.INSTANCE);
     }
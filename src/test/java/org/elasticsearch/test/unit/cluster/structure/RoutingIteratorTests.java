@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.*;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionService;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -331,7 +332,8 @@ public class RoutingIteratorTests {
         routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
         clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
 
-        PlainOperationRouting operationRouting = new PlainOperationRouting(ImmutableSettings.Builder.EMPTY_SETTINGS, new DjbHashFunction(), new AwarenessAllocationDecider());
+        PlainOperationRouting operationRouting = new PlainOperationRouting(ImmutableSettings.Builder.EMPTY_SETTINGS, new DjbHashFunction(), new AwarenessAllocationDecider(),
+                new AdaptiveSelectionService(ImmutableSettings.Builder.EMPTY_SETTINGS));
 
         GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_shards:0");
         assertThat(shardIterators.size(), equalTo(1));
@@ -362,4 +364,99 @@ public class RoutingIteratorTests {
         assertThat(shardIterators.iterator().next().shardId().id(), equalTo(0));
         assertThat(shardIterators.iterator().next().nextOrNull().currentNodeId(), equalTo("node1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAdaptiveRouting() {
+        AllocationService strategy = new AllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .build());
+
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test").numberOfShards(1).numberOfReplicas(1))
+                .build();
+
+        RoutingTable routingTable = routingTable()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTable).build();
+
+        clusterState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder()
+                .put(RoutingAllocationTests.newNode("node1"))
+                .put(RoutingAllocationTests.newNode("node2"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        AdaptiveSelectionService adaptiveSelectionService = new AdaptiveSelectionService(ImmutableSettings.Builder.EMPTY_SETTINGS);
+        PlainOperationRouting operationRouting = new PlainOperationRouting(ImmutableSettings.Builder.EMPTY_SETTINGS, new DjbHashFunction(), new AwarenessAllocationDecider(),
+                adaptiveSelectionService);
+
+        // nodes not measured yet rank the same
+        assertThat(adaptiveSelectionService.rank("node1"), equalTo(adaptiveSelectionService.rank("node2")));
+
+        // node2 answers faster than node1
+        adaptiveSelectionService.onRequestSent("node1");
+        adaptiveSelectionService.onResponseReceived("node1", 100);
+        adaptiveSelectionService.onRequestSent("node2");
+        adaptiveSelectionService.onResponseReceived("node2", 10);
+        assertThat(adaptiveSelectionService.rank("node2"), lessThan(adaptiveSelectionService.rank("node1")));
+
+        for (int i = 0; i < 5; i++) {
+            ShardIterator shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_adaptive").iterator().next();
+            assertThat(shardIterator.size(), equalTo(2));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+        }
+
+        // requests piling up on node2 make node1 the better choice
+        for (int i = 0; i < 3; i++) {
+            adaptiveSelectionService.onRequestSent("node2");
+        }
+        assertThat(adaptiveSelectionService.rank("node2"), greaterThan(adaptiveSelectionService.rank("node1")));
+        ShardIterator shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_adaptive").iterator().next();
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+
+        assertThat(adaptiveSelectionService.stats().getNodes().get("node2").getOutstandingRequests(), equalTo(3));
+        assertThat(adaptiveSelectionService.stats().getNodes().get("node1").getAvgResponseTimeInNanos(), equalTo(100l));
+
+        // an unmeasured node ranks with the average response time, not ahead of every measured node
+        assertThat(adaptiveSelectionService.rank("node3"), equalTo(55d));
+
+        // failures don't feed the average, they penalize the node until it answers again
+        double rank = adaptiveSelectionService.rank("node1");
+        adaptiveSelectionService.onRequestSent("node1");
+        adaptiveSelectionService.onResponseFailed("node1");
+        assertThat(adaptiveSelectionService.stats().getNodes().get("node1").getAvgResponseTimeInNanos(), equalTo(100l));
+        assertThat(adaptiveSelectionService.rank("node1"), greaterThan(rank));
+        adaptiveSelectionService.onRequestSent("node1");
+        adaptiveSelectionService.onResponseReceived("node1", 100);
+        assertThat(adaptiveSelectionService.rank("node1"), equalTo(rank));
+    }
+
+    @Test
+    public void testAdaptiveSelectionFailuresDecay() throws Exception {
+        AdaptiveSelectionService adaptiveSelectionService = new AdaptiveSelectionService(settingsBuilder()
+                .put(AdaptiveSelectionService.FAILURE_HALF_LIFE, "10ms").build());
+        adaptiveSelectionService.onRequestSent("node1");
+        adaptiveSelectionService.onResponseReceived("node1", 100);
+        double rank = adaptiveSelectionService.rank("node1");
+
+        for (int i = 0; i < 3; i++) {
+            adaptiveSelectionService.onRequestSent("node1");
+            adaptiveSelectionService.onResponseFailed("node1");
+        }
+        assertThat(adaptiveSelectionService.rank("node1"), greaterThan(rank));
+
+        // without any request answered, the penalty fades away so the node gets tried again
+        Thread.sleep(500);
+        assertThat(adaptiveSelectionService.rank("node1"), closeTo(rank, rank * 0.001));
+    }
+}
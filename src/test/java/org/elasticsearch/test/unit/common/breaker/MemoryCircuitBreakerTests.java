@@ -0,0 +1,119 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.breaker;
+
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.testng.Assert.fail;
+
+/**
+ */
+public class MemoryCircuitBreakerTests {
+
+    private final ESLogger logger = Loggers.getLogger(MemoryCircuitBreakerTests.class);
+
+    @Test
+    public void testBreakerTrips() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 1.0, logger);
+        assertThat(breaker.addEstimateBytesAndMaybeBreak(60), equalTo(60l));
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(50);
+            fail("should have tripped the breaker");
+        } catch (CircuitBreakingException e) {
+            // expected
+        }
+        assertThat(breaker.getUsed(), equalTo(60l));
+        assertThat(breaker.getTrippedCount(), equalTo(1l));
+
+        breaker.addWithoutBreaking(-60);
+        assertThat(breaker.addEstimateBytesAndMaybeBreak(50), equalTo(50l));
+    }
+
+    @Test
+    public void testOverheadIsApplied() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 2.0, logger);
+        breaker.addEstimateBytesAndMaybeBreak(50);
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(1);
+            fail("should have tripped the breaker");
+        } catch (CircuitBreakingException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoLimit() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(-1), 1.0, logger);
+        breaker.addEstimateBytesAndMaybeBreak(Integer.MAX_VALUE);
+        assertThat(breaker.getUsed(), equalTo((long) Integer.MAX_VALUE));
+        assertThat(breaker.getTrippedCount(), equalTo(0l));
+    }
+
+    @Test
+    public void testKeepsUsageOfOldBreaker() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 1.0, logger);
+        breaker.addEstimateBytesAndMaybeBreak(60);
+        MemoryCircuitBreaker newBreaker = new MemoryCircuitBreaker(new ByteSizeValue(50), 1.0, breaker, logger);
+        assertThat(newBreaker.getUsed(), equalTo(60l));
+        try {
+            newBreaker.addEstimateBytesAndMaybeBreak(1);
+            fail("should have tripped the breaker");
+        } catch (CircuitBreakingException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThreadedUpdatesToBreaker() throws Exception {
+        final int numThreads = 5;
+        final MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(numThreads * 100), 1.0, logger);
+        final CountDownLatch latch = new CountDownLatch(numThreads);
+        final AtomicBoolean tripped = new AtomicBoolean(false);
+        for (int i = 0; i < numThreads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 100; j++) {
+                            breaker.addEstimateBytesAndMaybeBreak(1);
+                        }
+                    } catch (CircuitBreakingException e) {
+                        tripped.set(true);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        assertThat(tripped.get(), equalTo(false));
+        assertThat(breaker.getUsed(), equalTo((long) numThreads * 100));
+    }
+}
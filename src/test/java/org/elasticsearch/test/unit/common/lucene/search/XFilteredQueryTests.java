@@ -0,0 +1,112 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.lucene.search;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+@Test
+public class XFilteredQueryTests {
+
+    @Test
+    public void testCostBasedFilterStrategy() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()));
+        for (int i = 0; i < 1000; i++) {
+            Document doc = new Document();
+            doc.add(new Field("tenant", i < 10 ? "small" : "large", StringField.TYPE_NOT_STORED));
+            doc.add(new Field("body", i % 100 == 0 ? "rare" : "common", StringField.TYPE_NOT_STORED));
+            w.addDocument(doc);
+        }
+        w.forceMerge(1);
+        DirectoryReader reader = DirectoryReader.open(w, true);
+        w.close();
+        IndexSearcher searcher = new IndexSearcher(reader);
+
+        // the sparse filter drives the iteration
+        Query query = new XFilteredQuery(new TermQuery(new Term("body", "common")),
+                new CachedFilter(new TermFilter(new Term("tenant", "small"))), XFilteredQuery.COST_BASED_FILTER_STRATEGY);
+        assertThat(Lucene.count(searcher, query), equalTo(9l));
+        assertThat(searcher.explain(query, 1).getDescription(), containsString("filter strategy [filter_first], filter cardinality [10], query cost [990]"));
+
+        // the sparse query drives the iteration
+        query = new XFilteredQuery(new TermQuery(new Term("body", "rare")),
+                new CachedFilter(new TermFilter(new Term("tenant", "large"))), XFilteredQuery.COST_BASED_FILTER_STRATEGY);
+        assertThat(Lucene.count(searcher, query), equalTo(9l));
+        assertThat(searcher.explain(query, 100).getDescription(), containsString("filter strategy [query_first], filter cardinality [990], query cost [10]"));
+
+        // comparable counts, the filter bits are intersected with the query
+        query = new XFilteredQuery(new TermQuery(new Term("body", "common")),
+                new CachedFilter(new TermFilter(new Term("tenant", "large"))), XFilteredQuery.COST_BASED_FILTER_STRATEGY);
+        assertThat(Lucene.count(searcher, query), equalTo(981l));
+        assertThat(searcher.explain(query, 11).getDescription(), containsString("filter strategy [random_access]"));
+
+        // filters that are not cached have an unknown cardinality
+        query = new XFilteredQuery(new TermQuery(new Term("body", "common")),
+                new TermFilter(new Term("tenant", "small")), XFilteredQuery.COST_BASED_FILTER_STRATEGY);
+        assertThat(Lucene.count(searcher, query), equalTo(9l));
+        assertThat(searcher.explain(query, 1).getDescription(), containsString("filter strategy [default], filter cardinality [-1]"));
+
+        reader.close();
+        dir.close();
+    }
+
+    /**
+     * Caches the doc id set of a single segment, like the filter cache does.
+     */
+    static class CachedFilter extends Filter {
+
+        private final Filter filter;
+
+        private DocIdSet cached;
+
+        CachedFilter(Filter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            if (cached == null) {
+                cached = DocIdSets.toCacheable(context.reader(), filter.getDocIdSet(context, context.reader().getLiveDocs()));
+            }
+            return cached;
+        }
+    }
+}
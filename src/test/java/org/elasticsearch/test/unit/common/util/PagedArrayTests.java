@@ -0,0 +1,114 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.common.util;
+
+import org.elasticsearch.common.util.*;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for {@link PagedArray}s built by the heap and direct {@link PageAllocator}s.
+ */
+public class PagedArrayTests {
+
+    @Test
+    public void testHeapArrays() {
+        testArrays(new PageAllocator.Heap(16));
+    }
+
+    @Test
+    public void testDirectArrays() {
+        testArrays(new PageAllocator.Direct(16));
+    }
+
+    @Test
+    public void testBigLongArrayRelease() {
+        PageAllocator allocator = PageAllocator.allocator();
+        long pagesInUse = allocator.getPagesInUse();
+        int size = PageAllocator.PAGE_SIZE_IN_BYTES;
+        BigLongArray array = new BigLongArray(size);
+        for (int i = 0; i < size; i++) {
+            array.set(i, i);
+        }
+        assertThat(allocator.getPagesInUse(), equalTo(pagesInUse + 8));
+        array.release();
+        assertThat(allocator.getPagesInUse(), equalTo(pagesInUse));
+    }
+
+    private void testArrays(PageAllocator allocator) {
+        // spans several pages
+        int size = PageAllocator.PAGE_SIZE_IN_BYTES + 17;
+
+        PagedLongArray longs = allocator.newLongArray(size);
+        PagedIntArray ints = allocator.newIntArray(size);
+        PagedByteArray bytes = allocator.newByteArray(size);
+        for (int i = 0; i < size; i++) {
+            assertThat(longs.get(i), equalTo(0l));
+            longs.set(i, i * 3l + Integer.MAX_VALUE);
+            ints.set(i, -i);
+            ints.increment(i, 2);
+            bytes.set(i, (byte) i);
+        }
+        for (int i = 0; i < size; i++) {
+            assertThat(longs.get(i), equalTo(i * 3l + Integer.MAX_VALUE));
+            assertThat(ints.get(i), equalTo(2 - i));
+            assertThat(bytes.get(i), equalTo((byte) i));
+        }
+
+        byte[] buf = new byte[10];
+        bytes.get(PageAllocator.PAGE_SIZE_IN_BYTES - 5, buf, 0, 10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(buf[i], equalTo((byte) (PageAllocator.PAGE_SIZE_IN_BYTES - 5 + i)));
+        }
+
+        long pagesInUse = allocator.getPagesInUse();
+        assertThat(pagesInUse, equalTo(9l + 5 + 2));
+        longs.release();
+        assertThat(allocator.getPagesInUse(), equalTo(pagesInUse - 9));
+        assertThat(allocator.getPooledPages(), equalTo(0));
+
+        // recycled pages are handed out again, cleared
+        ints.recycle();
+        assertThat(allocator.getPooledPages(), equalTo(5));
+        PagedIntArray recycled = allocator.newIntArray(size);
+        for (int i = 0; i < size; i++) {
+            assertThat(recycled.increment(i, 1), equalTo(1));
+        }
+        assertThat(allocator.getPooledPages(), equalTo(0));
+    }
+
+    @Test
+    public void testPagesObtainedOnWrite() {
+        PageAllocator allocator = new PageAllocator.Heap(16);
+        PagedIntArray ints = allocator.newIntArray(PageAllocator.PAGE_SIZE_IN_BYTES);
+        assertThat(allocator.getPagesInUse(), equalTo(0l));
+        assertThat(ints.get(PageAllocator.PAGE_SIZE_IN_BYTES - 1), equalTo(0));
+        assertThat(allocator.getPagesInUse(), equalTo(0l));
+
+        ints.set(PageAllocator.PAGE_SIZE_IN_BYTES - 1, 7);
+        assertThat(allocator.getPagesInUse(), equalTo(1l));
+        assertThat(ints.get(PageAllocator.PAGE_SIZE_IN_BYTES - 1), equalTo(7));
+        assertThat(ints.get(0), equalTo(0));
+
+        ints.release();
+        assertThat(allocator.getPagesInUse(), equalTo(0l));
+    }
+}
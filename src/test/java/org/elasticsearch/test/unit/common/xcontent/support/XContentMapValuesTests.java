@@ -211,4 +211,42 @@ public class XContentMapValuesTests {
 
         assertThat(mapTuple.v2(), equalTo(filteredSource));
     }
+
+    @Test
+    public void testStreamingFilterMatchesMapFilter() throws Exception {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+                .field("test1", "value1")
+                .startObject("path1")
+                    .startArray("path2")
+                        .startObject().field("test", "value1").field("other", 1).endObject()
+                        .startObject().field("other", 2).endObject()
+                        .value("leaf")
+                        .startArray().value(1).value(2).endArray()
+                        .startArray().endArray()
+                    .endArray()
+                    .startObject("path3").field("test", "value3").nullField("empty").endObject()
+                .endObject()
+                .startArray("tags").value("a").value("b").endArray()
+                .startObject("obj").endObject()
+            .endObject();
+
+        Map<String, Object> source = XContentHelper.convertToMap(builder.bytes(), false).v2();
+        String[][][] filters = new String[][][]{
+                {Strings.EMPTY_ARRAY, Strings.EMPTY_ARRAY},
+                {new String[]{"test1"}, Strings.EMPTY_ARRAY},
+                {new String[]{"path1"}, Strings.EMPTY_ARRAY},
+                {new String[]{"path1*"}, Strings.EMPTY_ARRAY},
+                {new String[]{"path1.path2.*"}, Strings.EMPTY_ARRAY},
+                {new String[]{"path1.path2.test"}, Strings.EMPTY_ARRAY},
+                {new String[]{"path1.*"}, new String[]{"path1.path3.test"}},
+                {new String[]{"obj*", "tags"}, Strings.EMPTY_ARRAY},
+                {Strings.EMPTY_ARRAY, new String[]{"path1.path2.other", "tags"}},
+                {Strings.EMPTY_ARRAY, new String[]{"path1"}},
+        };
+        for (String[][] filter : filters) {
+            Map<String, Object> expected = XContentMapValues.filter(source, filter[0], filter[1]);
+            Map<String, Object> actual = XContentHelper.convertToMap(XContentHelper.filter(builder.bytes(), filter[0], filter[1]), false).v2();
+            assertThat(actual, equalTo(expected));
+        }
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.index.cache.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+/**
+ */
+public class QueryCacheTests {
+
+    @Test
+    public void testKeyEquality() throws Exception {
+        ShardQueryCache shardCache = shardQueryCache(false);
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+
+        byte[] source = "{\"query\":{\"match_all\":{}}}".getBytes("UTF-8");
+        IndicesQueryCache.Key key = new IndicesQueryCache.Key(shardCache, reader, request(new BytesArray(source)));
+        // the same source coming from a network buffer
+        IndicesQueryCache.Key sameKey = new IndicesQueryCache.Key(shardCache, reader, request(new ChannelBufferBytesReference(ChannelBuffers.wrappedBuffer(source))));
+        assertThat(sameKey, equalTo(key));
+        assertThat(sameKey.hashCode(), equalTo(key.hashCode()));
+
+        IndicesQueryCache.Key otherSource = new IndicesQueryCache.Key(shardCache, reader, request(new BytesArray("{\"query\":{\"term\":{\"id\":\"1\"}}}")));
+        assertThat(otherSource, not(equalTo(key)));
+
+        IndicesQueryCache.Key otherShard = new IndicesQueryCache.Key(shardQueryCache(false), reader, request(new BytesArray(source)));
+        assertThat(otherShard, not(equalTo(key)));
+
+        Document document = new Document();
+        document.add(new StringField("id", "1", Field.Store.NO));
+        writer.addDocument(document);
+        DirectoryReader refreshed = DirectoryReader.openIfChanged(reader);
+        IndicesQueryCache.Key afterRefresh = new IndicesQueryCache.Key(shardCache, refreshed, request(new BytesArray(source)));
+        assertThat(afterRefresh, not(equalTo(key)));
+
+        refreshed.close();
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        ShardQueryCache shardCache = shardQueryCache(true);
+        assertThat(shardCache.enabled(), equalTo(true));
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+
+        Cache<IndicesQueryCache.Key, BytesReference> cache = CacheBuilder.newBuilder()
+                .removalListener(shardCache)
+                .maximumWeight(1024 * 1024).weigher(new IndicesQueryCache.QueryCacheWeigher())
+                .build();
+
+        IndicesQueryCache.Key key = new IndicesQueryCache.Key(shardCache, reader, request(new BytesArray("{\"size\":0}")));
+        BytesReference value = new BytesArray(new byte[100]);
+        cache.put(key, value);
+        shardCache.onCached(key, value);
+        shardCache.onMiss();
+        shardCache.onHit();
+        shardCache.onHit();
+
+        QueryCacheStats stats = shardCache.stats();
+        assertThat(stats.getMemorySizeInBytes(), equalTo(key.ramBytesUsed() + 100));
+        assertThat(stats.getHitCount(), equalTo(2l));
+        assertThat(stats.getMissCount(), equalTo(1l));
+        assertThat(stats.getEvictions(), equalTo(0l));
+
+        cache.invalidate(key);
+        stats = shardCache.stats();
+        assertThat(stats.getMemorySizeInBytes(), equalTo(0l));
+        assertThat(stats.getEvictions(), equalTo(0l));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        QueryCacheStats read = QueryCacheStats.readQueryCacheStats(new BytesStreamInput(out.bytes()));
+        read.add(stats);
+        assertThat(read.getHitCount(), equalTo(4l));
+        assertThat(read.getMissCount(), equalTo(2l));
+
+        reader.close();
+        writer.close();
+    }
+
+    private ShardQueryCache shardQueryCache(boolean enabled) {
+        Index index = new Index("test");
+        return new ShardQueryCache(new ShardId(index, 0), settingsBuilder().put(ShardQueryCache.INDEX_CACHE_QUERY_ENABLE, enabled).build(),
+                new IndexSettingsService(index, EMPTY_SETTINGS));
+    }
+
+    private ShardSearchRequest request(BytesReference source) {
+        return new ShardSearchRequest("test", 0, 1, SearchType.COUNT).source(source);
+    }
+}
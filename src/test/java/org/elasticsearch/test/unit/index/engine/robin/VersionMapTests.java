@@ -0,0 +1,122 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.engine.robin;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.engine.robin.VersionMap;
+import org.elasticsearch.index.translog.Translog;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class VersionMapTests {
+
+    @Test
+    public void testPutGet() {
+        VersionMap map = new VersionMap(4);
+        assertThat(map.get(new BytesRef("1")), nullValue());
+        assertThat(map.ramBytesUsed(), equalTo(0l));
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(new BytesRef(Integer.toString(i)), i, false, 0, new Translog.Location(1, i, 10));
+        }
+        map.put(new BytesRef("7"), 8, true, 0, null);
+        assertThat(map.size(), equalTo(1000));
+        assertThat(map.ramBytesUsed(), greaterThan(0l));
+
+        VersionMap.VersionValue value = map.get(new BytesRef("42"));
+        assertThat(value.version(), equalTo(42l));
+        assertThat(value.delete(), equalTo(false));
+        assertThat(value.translogLocation().translogLocation, equalTo(42l));
+
+        // lookups must not depend on the offset of the bytes
+        BytesRef shifted = new BytesRef(new byte[]{'x', '4', '2'}, 1, 2);
+        assertThat(map.get(shifted).version(), equalTo(42l));
+
+        value = map.get(new BytesRef("7"));
+        assertThat(value.version(), equalTo(8l));
+        assertThat(value.delete(), equalTo(true));
+        assertThat(value.translogLocation(), nullValue());
+
+        assertThat(map.get(new BytesRef("1000")), nullValue());
+    }
+
+    @Test
+    public void testRefresh() {
+        VersionMap map = new VersionMap(4);
+        map.put(new BytesRef("1"), 1, false, 0, null);
+        map.put(new BytesRef("2"), 1, true, 0, null);
+
+        map.beforeRefresh();
+        // versions moved aside are still visible while the refresh is in progress
+        assertThat(map.get(new BytesRef("1")).version(), equalTo(1l));
+        map.put(new BytesRef("3"), 1, false, 0, null);
+        map.afterRefresh(0, true, 1000);
+
+        // the refreshed versions are dropped, except for the deletes, new ones are kept
+        assertThat(map.get(new BytesRef("1")), nullValue());
+        assertThat(map.get(new BytesRef("2")).delete(), equalTo(true));
+        assertThat(map.get(new BytesRef("3")).version(), equalTo(1l));
+        assertThat(map.size(), equalTo(2));
+
+        // a new version of a deleted document replaces the tombstone
+        map.put(new BytesRef("2"), 2, false, 0, null);
+        assertThat(map.get(new BytesRef("2")).version(), equalTo(2l));
+        map.beforeRefresh();
+        map.afterRefresh(0, true, 1000);
+        assertThat(map.get(new BytesRef("2")), nullValue());
+        assertThat(map.size(), equalTo(0));
+    }
+
+    @Test
+    public void testGcDeletes() {
+        VersionMap map = new VersionMap(4);
+        map.put(new BytesRef("1"), 1, true, 0, null);
+        map.beforeRefresh();
+        map.afterRefresh(500, true, 1000);
+        assertThat(map.get(new BytesRef("1")).delete(), equalTo(true));
+
+        map.beforeRefresh();
+        map.afterRefresh(2000, false, 1000);
+        assertThat(map.get(new BytesRef("1")).delete(), equalTo(true));
+
+        map.beforeRefresh();
+        map.afterRefresh(2000, true, 1000);
+        assertThat(map.get(new BytesRef("1")), nullValue());
+    }
+
+    @Test
+    public void testCancelRefresh() {
+        VersionMap map = new VersionMap(4);
+        map.put(new BytesRef("1"), 1, false, 0, null);
+        map.put(new BytesRef("2"), 1, false, 0, null);
+
+        map.beforeRefresh();
+        map.put(new BytesRef("2"), 2, false, 0, null);
+        map.cancelRefresh();
+
+        assertThat(map.get(new BytesRef("1")).version(), equalTo(1l));
+        assertThat(map.get(new BytesRef("2")).version(), equalTo(2l));
+        assertThat(map.size(), equalTo(2));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.document.*;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.plain.NumericDocValuesAtomicFieldData;
+import org.elasticsearch.index.fielddata.plain.SortedSetDocValuesAtomicFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class DocValuesFieldDataTests extends AbstractFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("long", ImmutableSettings.builder().put("format", "doc_values"));
+    }
+
+    @Test
+    public void testLongValues() throws Exception {
+        Document d = new Document();
+        d.add(new StringField("_id", "1", Field.Store.NO));
+        d.add(new NumericDocValuesField("value", 4));
+        writer.addDocument(d);
+
+        d = new Document();
+        d.add(new StringField("_id", "2", Field.Store.NO));
+        d.add(new NumericDocValuesField("value", -3));
+        writer.addDocument(d);
+
+        IndexNumericFieldData indexFieldData = getForField("value");
+        AtomicNumericFieldData fieldData = indexFieldData.load(refreshReader());
+        assertThat(fieldData, instanceOf(NumericDocValuesAtomicFieldData.class));
+        assertThat(fieldData.getMemorySizeInBytes(), equalTo(0l));
+        assertThat(fieldData.isMultiValued(), equalTo(false));
+
+        LongValues longValues = fieldData.getLongValues();
+        assertThat(longValues.getValue(0), equalTo(4l));
+        assertThat(longValues.getValue(1), equalTo(-3l));
+
+        DoubleValues doubleValues = fieldData.getDoubleValues();
+        assertThat(doubleValues.getValue(0), equalTo(4d));
+        assertThat(doubleValues.getValue(1), equalTo(-3d));
+    }
+
+    @Test
+    public void testDoubleValues() throws Exception {
+        Document d = new Document();
+        d.add(new StringField("_id", "1", Field.Store.NO));
+        d.add(new NumericDocValuesField("value", NumericUtils.doubleToSortableLong(2.5d)));
+        writer.addDocument(d);
+
+        IndexNumericFieldData indexFieldData = ifdService.getForField(new FieldMapper.Names("value"),
+                new FieldDataType("double", ImmutableSettings.builder().put("format", "doc_values")));
+        AtomicNumericFieldData fieldData = indexFieldData.load(refreshReader());
+        assertThat(fieldData.getDoubleValues().getValue(0), equalTo(2.5d));
+        assertThat(fieldData.getLongValues().getValue(0), equalTo(2l));
+    }
+
+    @Test
+    public void testMissingDocValues() throws Exception {
+        Document d = new Document();
+        d.add(new StringField("_id", "1", Field.Store.NO));
+        d.add(new LongField("value", 4, Field.Store.NO));
+        writer.addDocument(d);
+
+        IndexNumericFieldData indexFieldData = getForField("value");
+        AtomicNumericFieldData fieldData = indexFieldData.load(refreshReader());
+        assertThat(fieldData.getLongValues().hasValue(0), equalTo(false));
+    }
+
+    @Test
+    public void testStringValues() throws Exception {
+        Document d = new Document();
+        d.add(new StringField("_id", "1", Field.Store.NO));
+        d.add(new SortedSetDocValuesField("value", new BytesRef("b")));
+        d.add(new SortedSetDocValuesField("value", new BytesRef("a")));
+        writer.addDocument(d);
+
+        d = new Document();
+        d.add(new StringField("_id", "2", Field.Store.NO));
+        writer.addDocument(d);
+
+        d = new Document();
+        d.add(new StringField("_id", "3", Field.Store.NO));
+        d.add(new SortedSetDocValuesField("value", new BytesRef("c")));
+        writer.addDocument(d);
+
+        IndexFieldData.WithOrdinals indexFieldData = ifdService.getForField(new FieldMapper.Names("value"),
+                new FieldDataType("string", ImmutableSettings.builder().put("format", "doc_values")));
+        AtomicFieldData.WithOrdinals fieldData = indexFieldData.load(refreshReader());
+        assertThat(fieldData, instanceOf(SortedSetDocValuesAtomicFieldData.class));
+        assertThat(fieldData.getMemorySizeInBytes(), equalTo(0l));
+
+        BytesValues.WithOrdinals bytesValues = fieldData.getBytesValues();
+        assertThat(bytesValues.ordinals().getNumOrds(), equalTo(3));
+        assertThat(bytesValues.ordinals().getOrd(0), equalTo(1));
+        assertThat(bytesValues.ordinals().getOrd(1), equalTo(0));
+        assertThat(bytesValues.ordinals().getOrd(2), equalTo(3));
+
+        assertThat(bytesValues.getValue(0).utf8ToString(), equalTo("a"));
+        assertThat(bytesValues.hasValue(1), equalTo(false));
+        assertThat(bytesValues.getValue(2).utf8ToString(), equalTo("c"));
+
+        BytesValues.Iter iter = bytesValues.getIter(0);
+        assertThat(iter.hasNext(), equalTo(true));
+        assertThat(iter.next().utf8ToString(), equalTo("a"));
+        assertThat(iter.hasNext(), equalTo(true));
+        assertThat(iter.next().utf8ToString(), equalTo("b"));
+        assertThat(iter.hasNext(), equalTo(false));
+
+        assertThat(bytesValues.getIter(1).hasNext(), equalTo(false));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.index.fielddata.ordinals;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinals;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ */
+public class GlobalOrdinalsTests {
+
+    @Test
+    public void testGlobalOrdinals() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, new StandardAnalyzer(Lucene.VERSION)));
+        // one segment per commit
+        addDocument(writer, "b", "d");
+        writer.commit();
+        addDocument(writer, "a", "d");
+        addDocument(writer);
+        writer.commit();
+        addDocument(writer, "c");
+        writer.commit();
+
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(3));
+
+        IndexFieldDataService ifdService = new IndexFieldDataService(new Index("test"));
+        IndexFieldData.WithOrdinals<?> indexFieldData = ifdService.getForField(new FieldMapper.Names("value"),
+                new FieldDataType("string", ImmutableSettings.builder().put("format", "paged_bytes")));
+        GlobalOrdinals globalOrdinals = indexFieldData.loadGlobal(reader);
+        assertThat(globalOrdinals.getNumSegments(), equalTo(3));
+        assertThat(globalOrdinals.getNumOrds(), equalTo(4));
+        assertThat(globalOrdinals.getMaxOrd(), equalTo(5));
+
+        // terms are sorted per segment, global ordinals follow the order across segments
+        assertThat(globalOrdinals.segmentToGlobal(0), equalTo(new int[]{0, 2, 4}));
+        assertThat(globalOrdinals.segmentToGlobal(1), equalTo(new int[]{0, 1, 4}));
+        assertThat(globalOrdinals.segmentToGlobal(2), equalTo(new int[]{0, 3}));
+
+        GlobalOrdinals.Lookup lookup = globalOrdinals.newLookup();
+        assertThat(lookup.getValueByOrd(1).utf8ToString(), equalTo("a"));
+        assertThat(lookup.getValueByOrd(2).utf8ToString(), equalTo("b"));
+        assertThat(lookup.getValueByOrd(3).utf8ToString(), equalTo("c"));
+        assertThat(lookup.getValueByOrd(4).utf8ToString(), equalTo("d"));
+
+        // built once per top level reader
+        assertThat(indexFieldData.loadGlobal(reader), sameInstance(globalOrdinals));
+
+        // dropped along with the field data of one of its segments
+        indexFieldData.clear(reader.leaves().get(1).reader());
+        GlobalOrdinals reloaded = indexFieldData.loadGlobal(reader);
+        assertThat(reloaded, not(sameInstance(globalOrdinals)));
+        assertThat(reloaded.getNumOrds(), equalTo(4));
+
+        reader.close();
+        writer.close();
+        ifdService.clear();
+    }
+
+    private void addDocument(IndexWriter writer, String... values) throws Exception {
+        Document d = new Document();
+        for (String value : values) {
+            d.add(new StringField("value", value, Field.Store.NO));
+        }
+        writer.addDocument(d);
+    }
+}
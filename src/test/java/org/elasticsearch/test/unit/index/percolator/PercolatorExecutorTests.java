@@ -20,6 +20,8 @@
 package org.elasticsearch.test.unit.index.percolator;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -162,6 +164,37 @@ public class PercolatorExecutorTests {
         assertThat(percolate.matches(), hasItem("test1"));
     }
     
+    @Test
+    public void testBatchPercolator() throws Exception {
+        BytesReference bothQueries = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                .field("field1", 1)
+                .field("field2", "value")
+                .endObject().endObject().bytes();
+        BytesReference onlyTest1 = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                .field("field2", "value")
+                .endObject().endObject().bytes();
+        BytesReference noQueries = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                .field("field2", "other")
+                .endObject().endObject().bytes();
+
+        percolatorExecutor.clearQueries(); // remove all previously added queries
+        percolatorExecutor.addQuery("test1", termQuery("field2", "value"));
+        percolatorExecutor.addQuery("test2", termQuery("field1", 1));
+
+        List<PercolatorExecutor.DocAndQueryRequest> requests = new ArrayList<PercolatorExecutor.DocAndQueryRequest>();
+        requests.add(percolatorExecutor.parse(new PercolatorExecutor.SourceRequest("type1", bothQueries)));
+        requests.add(percolatorExecutor.parse(new PercolatorExecutor.SourceRequest("type1", onlyTest1)));
+        requests.add(percolatorExecutor.parse(new PercolatorExecutor.SourceRequest("type1", noQueries)));
+
+        List<PercolatorExecutor.Response> responses = percolatorExecutor.percolate(requests);
+        assertThat(responses, hasSize(3));
+        assertThat(responses.get(0).matches(), hasSize(2));
+        assertThat(responses.get(0).matches(), hasItems("test1", "test2"));
+        assertThat(responses.get(1).matches(), hasSize(1));
+        assertThat(responses.get(1).matches(), hasItem("test1"));
+        assertThat(responses.get(2).matches(), hasSize(0));
+    }
+
     @Test
     public void testConcurrentPerculator() throws InterruptedException, IOException {
         // introduce the doc
@@ -0,0 +1,106 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.percolator;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.search.*;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.percolator.QueryTermsIndex;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@Test
+public class QueryTermsIndexTests {
+
+    @Test
+    public void testExtractQueryTerms() {
+        TermQuery termQuery = new TermQuery(new Term("field", "value"));
+        assertThat(QueryTermsIndex.extractQueryTerms(termQuery), contains(new Term("field", "value")));
+
+        BooleanQuery shouldQuery = new BooleanQuery();
+        shouldQuery.add(new TermQuery(new Term("field", "value1")), BooleanClause.Occur.SHOULD);
+        shouldQuery.add(new TermQuery(new Term("field", "value2")), BooleanClause.Occur.SHOULD);
+        shouldQuery.add(new TermQuery(new Term("field", "value3")), BooleanClause.Occur.MUST_NOT);
+        assertThat(QueryTermsIndex.extractQueryTerms(shouldQuery), containsInAnyOrder(new Term("field", "value1"), new Term("field", "value2")));
+
+        BooleanQuery mustQuery = new BooleanQuery();
+        mustQuery.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        mustQuery.add(shouldQuery, BooleanClause.Occur.MUST);
+        mustQuery.add(new TermQuery(new Term("field", "value4")), BooleanClause.Occur.SHOULD);
+        assertThat(QueryTermsIndex.extractQueryTerms(mustQuery), containsInAnyOrder(new Term("field", "value1"), new Term("field", "value2")));
+
+        PhraseQuery phraseQuery = new PhraseQuery();
+        phraseQuery.add(new Term("field", "a"));
+        phraseQuery.add(new Term("field", "longest"));
+        assertThat(QueryTermsIndex.extractQueryTerms(phraseQuery), contains(new Term("field", "longest")));
+
+        assertThat(QueryTermsIndex.extractQueryTerms(new ConstantScoreQuery(termQuery)), contains(new Term("field", "value")));
+    }
+
+    @Test
+    public void testExtractQueryTermsUnsupported() {
+        assertThat(QueryTermsIndex.extractQueryTerms(new MatchAllDocsQuery()), nullValue());
+        assertThat(QueryTermsIndex.extractQueryTerms(new WildcardQuery(new Term("field", "val*"))), nullValue());
+
+        // an optional clause that matches without terms
+        BooleanQuery shouldQuery = new BooleanQuery();
+        shouldQuery.add(new TermQuery(new Term("field", "value1")), BooleanClause.Occur.SHOULD);
+        shouldQuery.add(new MatchAllDocsQuery(), BooleanClause.Occur.SHOULD);
+        assertThat(QueryTermsIndex.extractQueryTerms(shouldQuery), nullValue());
+
+        BooleanQuery notQuery = new BooleanQuery();
+        notQuery.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        notQuery.add(new TermQuery(new Term("field", "value1")), BooleanClause.Occur.MUST_NOT);
+        assertThat(QueryTermsIndex.extractQueryTerms(notQuery), nullValue());
+    }
+
+    @Test
+    public void testCandidates() throws Exception {
+        QueryTermsIndex index = new QueryTermsIndex();
+        index.add("1", new TermQuery(new Term("field1", "value1")));
+        index.add("2", new TermQuery(new Term("field1", "value2")));
+        index.add("3", new TermQuery(new Term("field2", "value1")));
+        index.add("4", new MatchAllDocsQuery());
+        assertThat(index.size(), equalTo(4));
+
+        MemoryIndex memoryIndex = new MemoryIndex();
+        memoryIndex.addField("field1", "value1 value3", new WhitespaceAnalyzer(Lucene.VERSION));
+        Set<String> candidates = index.candidates(memoryIndex.createSearcher().getIndexReader());
+        assertThat(candidates, containsInAnyOrder("1", "4"));
+
+        // replacing a query re-indexes it under its new terms
+        index.add("2", new TermQuery(new Term("field1", "value3")));
+        index.remove("4");
+        candidates = index.candidates(memoryIndex.createSearcher().getIndexReader());
+        assertThat(candidates, containsInAnyOrder("1", "2"));
+        assertThat(index.size(), equalTo(3));
+
+        index.clear();
+        assertThat(index.candidates(memoryIndex.createSearcher().getIndexReader()), empty());
+    }
+}
@@ -24,6 +24,7 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.translog.TranslogStreams;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -263,6 +264,26 @@ public abstract class AbstractSimpleTranslogTests {
         snapshot.release();
     }
 
+    @Test
+    public void testSyncStats() {
+        translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        translog.add(new Translog.Create("test", "2", new byte[]{2}));
+        // group commit is disabled by default
+        translog.groupCommit();
+        TranslogStats stats = translog.stats();
+        assertThat(stats.getOperations(), equalTo(2l));
+        assertThat(stats.getSyncTotal(), equalTo(0l));
+
+        translog.sync();
+        stats = translog.stats();
+        assertThat(stats.getSyncTotal(), equalTo(1l));
+        assertThat(stats.getSyncOperations(), equalTo(2l));
+
+        // nothing to sync
+        translog.sync();
+        assertThat(translog.stats().getSyncTotal(), equalTo(1l));
+    }
+
     private Term newUid(String id) {
         return new Term("_uid", id);
     }
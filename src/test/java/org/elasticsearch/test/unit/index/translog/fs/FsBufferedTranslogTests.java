@@ -22,12 +22,19 @@ package org.elasticsearch.test.unit.index.translog.fs;
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.translog.fs.FsTranslog;
 import org.elasticsearch.index.translog.fs.FsTranslogFile;
 import org.elasticsearch.test.unit.index.translog.AbstractSimpleTranslogTests;
 import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
 
 import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
 
 /**
  *
@@ -41,6 +48,52 @@ public class FsBufferedTranslogTests extends AbstractSimpleTranslogTests {
                 new File("data/fs-translog"));
     }
 
+    @Test
+    public void testGroupCommit() throws Exception {
+        final Translog translog = new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder()
+                        .put("index.translog.fs.type", FsTranslogFile.Type.BUFFERED.name())
+                        .put("index.translog.fs.group_commit", true)
+                        .build(),
+                new File("data/fs-translog"));
+        translog.newTranslog(2);
+        try {
+            final int numberOfThreads = 10;
+            final int numberOfOperations = 100;
+            final CountDownLatch latch = new CountDownLatch(numberOfThreads);
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            for (int i = 0; i < numberOfThreads; i++) {
+                final int threadId = i;
+                new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < numberOfOperations; j++) {
+                                translog.add(new Translog.Create("test", threadId + "_" + j, new byte[]{1}));
+                                translog.groupCommit();
+                                // once committed, the operation must not need another sync
+                                assertThat(translog.stats().getSyncOperations(), greaterThanOrEqualTo((long) j + 1));
+                            }
+                        } catch (Throwable t) {
+                            failure.set(t);
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                }.start();
+            }
+            latch.await();
+            assertThat(failure.get(), nullValue());
+
+            TranslogStats stats = translog.stats();
+            assertThat(stats.getSyncOperations(), equalTo((long) numberOfThreads * numberOfOperations));
+            assertThat(stats.getSyncTotal(), lessThanOrEqualTo((long) numberOfThreads * numberOfOperations));
+            assertThat(translog.syncNeeded(), equalTo(false));
+        } finally {
+            translog.closeWithDelete();
+        }
+    }
+
     @AfterClass
     public void cleanup() {
         FileSystemUtils.deleteRecursively(new File("data/fs-translog"), true);
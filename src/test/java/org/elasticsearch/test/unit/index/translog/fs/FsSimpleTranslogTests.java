@@ -21,13 +21,22 @@ package org.elasticsearch.test.unit.index.translog.fs;
 
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogException;
+import org.elasticsearch.index.translog.fs.FsChannelSnapshot;
 import org.elasticsearch.index.translog.fs.FsTranslog;
 import org.elasticsearch.index.translog.fs.FsTranslogFile;
 import org.elasticsearch.test.unit.index.translog.AbstractSimpleTranslogTests;
 import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 
 /**
  *
@@ -41,8 +50,102 @@ public class FsSimpleTranslogTests extends AbstractSimpleTranslogTests {
                 new File("data/fs-translog"));
     }
 
+    @Test
+    public void testGroupCommitSyncFailure() throws Exception {
+        FsTranslog fsTranslog = new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder().put("index.translog.fs.type", FsTranslogFile.Type.SIMPLE.name())
+                        .put(FsTranslog.INDEX_TRANSLOG_FS_GROUP_COMMIT, true).build(),
+                new File("data/fs-translog-group-commit"));
+        try {
+            fsTranslog.newTranslog(1);
+            fsTranslog.add(new Translog.Create("test", "1", new byte[]{1}));
+
+            // the translog file can't be written to disk
+            Field currentField = FsTranslog.class.getDeclaredField("current");
+            currentField.setAccessible(true);
+            FsTranslogFile current = (FsTranslogFile) currentField.get(fsTranslog);
+            currentField.set(fsTranslog, new FailingSyncTranslogFile(shardId, current));
+            try {
+                fsTranslog.groupCommit();
+                assert false : "the group commit should have failed";
+            } catch (TranslogException e) {
+                // expected
+            }
+            // the operation is not counted as synced
+            assertThat(fsTranslog.stats().getSyncOperations(), equalTo(0l));
+
+            currentField.set(fsTranslog, current);
+            fsTranslog.groupCommit();
+            assertThat(fsTranslog.stats().getSyncOperations(), equalTo(1l));
+        } finally {
+            fsTranslog.closeWithDelete();
+        }
+    }
+
     @AfterClass
     public void cleanup() {
         FileSystemUtils.deleteRecursively(new File("data/fs-translog"), true);
+        FileSystemUtils.deleteRecursively(new File("data/fs-translog-group-commit"), true);
+    }
+
+    static class FailingSyncTranslogFile implements FsTranslogFile {
+
+        private final ShardId shardId;
+        private final FsTranslogFile delegate;
+
+        FailingSyncTranslogFile(ShardId shardId, FsTranslogFile delegate) {
+            this.shardId = shardId;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long id() {
+            return delegate.id();
+        }
+
+        @Override
+        public int estimatedNumberOfOperations() {
+            return delegate.estimatedNumberOfOperations();
+        }
+
+        @Override
+        public long translogSizeInBytes() {
+            return delegate.translogSizeInBytes();
+        }
+
+        @Override
+        public Translog.Location add(byte[] data, int from, int size) throws IOException {
+            return delegate.add(data, from, size);
+        }
+
+        @Override
+        public byte[] read(Translog.Location location) throws IOException {
+            return delegate.read(location);
+        }
+
+        @Override
+        public void close(boolean delete) throws TranslogException {
+            delegate.close(delete);
+        }
+
+        @Override
+        public FsChannelSnapshot snapshot() throws TranslogException {
+            return delegate.snapshot();
+        }
+
+        @Override
+        public void reuse(FsTranslogFile other) throws TranslogException {
+            delegate.reuse(other);
+        }
+
+        @Override
+        public void sync() throws TranslogException {
+            throw new TranslogException(shardId, "failed to sync");
+        }
+
+        @Override
+        public boolean syncNeeded() {
+            return true;
+        }
     }
 }
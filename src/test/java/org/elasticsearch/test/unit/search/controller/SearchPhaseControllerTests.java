@@ -0,0 +1,97 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.unit.search.controller;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.controller.SearchPhaseController;
+import org.elasticsearch.search.controller.ShardDoc;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class SearchPhaseControllerTests {
+
+    @Test
+    public void testSortDocsByScore() {
+        SearchPhaseController controller = new SearchPhaseController(EMPTY_SETTINGS);
+        List<QuerySearchResult> results = new ArrayList<QuerySearchResult>();
+        results.add(queryResult(0, 2, 3, new TopDocs(3, new ScoreDoc[]{new ScoreDoc(1, 9f), new ScoreDoc(2, 5f), new ScoreDoc(3, 1f)}, 9f)));
+        results.add(queryResult(1, 2, 3, new TopDocs(2, new ScoreDoc[]{new ScoreDoc(4, 8f), new ScoreDoc(5, 5f)}, 8f)));
+        results.add(queryResult(2, 2, 3, new TopDocs(3, new ScoreDoc[]{new ScoreDoc(6, 7f), new ScoreDoc(7, 6f), new ScoreDoc(8, 2f)}, 7f)));
+
+        // the merged order is 1, 4, 6, 7, 2, 5, 8, 3 and we skip the first two
+        ShardDoc[] docs = controller.sortDocs(results);
+        assertThat(docs.length, equalTo(3));
+        assertThat(docs[0].docId(), equalTo(6));
+        assertThat(docs[1].docId(), equalTo(7));
+        assertThat(docs[2].docId(), equalTo(2));
+        assertThat(docs[2].shardTarget().shardId(), equalTo(0));
+
+        // ask for more docs than we have
+        results.clear();
+        results.add(queryResult(0, 1, 10, new TopDocs(2, new ScoreDoc[]{new ScoreDoc(1, 3f), new ScoreDoc(2, 1f)}, 3f)));
+        results.add(queryResult(1, 1, 10, new TopDocs(1, new ScoreDoc[]{new ScoreDoc(3, 2f)}, 2f)));
+        docs = controller.sortDocs(results);
+        assertThat(docs.length, equalTo(2));
+        assertThat(docs[0].docId(), equalTo(3));
+        assertThat(docs[1].docId(), equalTo(2));
+    }
+
+    @Test
+    public void testSortDocsByField() {
+        SearchPhaseController controller = new SearchPhaseController(EMPTY_SETTINGS);
+        SortField[] fields = new SortField[]{new SortField("field", SortField.Type.STRING)};
+        List<QuerySearchResult> results = new ArrayList<QuerySearchResult>();
+        results.add(queryResult(0, 0, 4, new TopFieldDocs(2, new ScoreDoc[]{fieldDoc(1, null), fieldDoc(2, "c")}, fields, Float.NaN)));
+        results.add(queryResult(1, 0, 4, new TopFieldDocs(2, new ScoreDoc[]{fieldDoc(3, "a"), fieldDoc(4, "d")}, fields, Float.NaN)));
+
+        ShardDoc[] docs = controller.sortDocs(results);
+        assertThat(docs.length, equalTo(4));
+        assertThat(docs[0].docId(), equalTo(1));
+        assertThat(docs[1].docId(), equalTo(3));
+        assertThat(docs[2].docId(), equalTo(2));
+        assertThat(docs[3].docId(), equalTo(4));
+        assertThat(controller.reduceStats().getTotal(), equalTo(0l));
+    }
+
+    private static QuerySearchResult queryResult(int shardId, int from, int size, TopDocs topDocs) {
+        QuerySearchResult result = new QuerySearchResult(shardId, new SearchShardTarget("node", "index", shardId));
+        result.from(from).size(size);
+        result.topDocs(topDocs);
+        return result;
+    }
+
+    private static FieldDoc fieldDoc(int doc, String value) {
+        return new FieldDoc(doc, Float.NaN, new Object[]{value == null ? null : new BytesRef(value)});
+    }
+}